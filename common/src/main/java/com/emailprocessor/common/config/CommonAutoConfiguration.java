@@ -0,0 +1,18 @@
+package com.emailprocessor.common.config;
+
+import com.emailprocessor.common.jfr.JfrRecordingEndpoint;
+import com.emailprocessor.common.security.AdminAccessFilter;
+import com.emailprocessor.common.security.AdminAccessWebFilter;
+import com.emailprocessor.common.service.SenderTracker;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The beans both services share. Meters carry the service's {@code management.metrics.tags.service} tag, so each
+ * service must set it.
+ */
+@AutoConfiguration
+@Import({IdGeneratorConfig.class, SdkHttpClientFactory.class, SenderTracker.class, SendersEndpoint.class,
+        JfrRecordingEndpoint.class, AdminAccessFilter.class, AdminAccessWebFilter.class})
+public class CommonAutoConfiguration {
+}
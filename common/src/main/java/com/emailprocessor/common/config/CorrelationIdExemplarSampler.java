@@ -0,0 +1,43 @@
+package com.emailprocessor.common.config;
+
+import io.prometheus.client.exemplars.Exemplar;
+import io.prometheus.client.exemplars.ExemplarSampler;
+import org.slf4j.MDC;
+
+/**
+ * Attaches the correlation ID of the request being handled to histogram buckets as a Prometheus exemplar, so a
+ * latency spike in a bucket leads straight to the log lines of a request that landed there.
+ *
+ * <p>The registry keeps at most one exemplar per histogram bucket, and an exemplar is only replaced once it is
+ * {@code minRetentionMs} old, so memory stays bounded and a slow sample stays visible for at least one scrape.
+ * Counters get no exemplars.
+ */
+public class CorrelationIdExemplarSampler implements ExemplarSampler {
+
+    public static final String MDC_KEY = "correlationId";
+    static final String LABEL = "correlation_id";
+
+    private final long minRetentionMs;
+
+    public CorrelationIdExemplarSampler(long minRetentionMs) {
+        this.minRetentionMs = minRetentionMs;
+    }
+
+    @Override
+    public Exemplar sample(double increment, Exemplar previous) {
+        return previous;
+    }
+
+    @Override
+    public Exemplar sample(double value, double bucketFrom, double bucketTo, Exemplar previous) {
+        String correlationId = MDC.get(MDC_KEY);
+        if (correlationId == null) {
+            return previous;
+        }
+        long now = System.currentTimeMillis();
+        if (previous != null && previous.getTimestampMs() != null && now - previous.getTimestampMs() < minRetentionMs) {
+            return previous;
+        }
+        return new Exemplar(value, now, LABEL, correlationId);
+    }
+}
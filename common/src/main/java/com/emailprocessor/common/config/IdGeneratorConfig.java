@@ -0,0 +1,15 @@
+package com.emailprocessor.common.config;
+
+import com.emailprocessor.common.id.IdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public IdGenerator idGenerator(@Value("${ids.generator:time-ordered}") String type) {
+        return IdGenerator.of(type);
+    }
+}
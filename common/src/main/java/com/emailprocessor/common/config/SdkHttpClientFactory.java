@@ -0,0 +1,135 @@
+package com.emailprocessor.common.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Builds the HTTP client behind each AWS SDK client from the {@code aws.http} settings, instead of SDK defaults.
+ * Every SDK client gets its own pool, so a burst of calls to one service cannot starve another of connections.
+ *
+ * <p>{@code apache} pools connections with keep-alive and reports pool usage through {@link SdkPoolMetrics};
+ * {@code url-connection} opens JDK connections without a bounded pool and starts faster, for low-traffic setups.
+ * Async clients for the reactive stack always use Netty, with the same pool settings.
+ */
+@Slf4j
+@Component
+public class SdkHttpClientFactory {
+
+    public enum Type {
+        APACHE, URL_CONNECTION;
+
+        static Type of(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private final Type type;
+    private final Duration connectionTimeout;
+    private final Duration socketTimeout;
+    private final Duration acquisitionTimeout;
+    private final Duration maxIdleTime;
+    private final Duration timeToLive;
+    private final boolean tcpKeepAlive;
+    private final String service;
+    private final MeterRegistry meterRegistry;
+    private final List<SdkAutoCloseable> clients = new CopyOnWriteArrayList<>();
+
+    public SdkHttpClientFactory(@Value("${aws.http.client:apache}") String type,
+                                @Value("${aws.http.connection-timeout-ms:2000}") long connectionTimeoutMs,
+                                @Value("${aws.http.socket-timeout-ms:30000}") long socketTimeoutMs,
+                                @Value("${aws.http.acquisition-timeout-ms:5000}") long acquisitionTimeoutMs,
+                                @Value("${aws.http.max-idle-ms:300000}") long maxIdleMs,
+                                @Value("${aws.http.time-to-live-ms:0}") long timeToLiveMs,
+                                @Value("${aws.http.tcp-keep-alive:true}") boolean tcpKeepAlive,
+                                @Value("${management.metrics.tags.service}") String service,
+                                MeterRegistry meterRegistry) {
+        this.type = Type.of(type);
+        this.connectionTimeout = Duration.ofMillis(connectionTimeoutMs);
+        this.socketTimeout = Duration.ofMillis(socketTimeoutMs);
+        this.acquisitionTimeout = Duration.ofMillis(acquisitionTimeoutMs);
+        this.maxIdleTime = Duration.ofMillis(maxIdleMs);
+        this.timeToLive = Duration.ofMillis(timeToLiveMs);
+        this.tcpKeepAlive = tcpKeepAlive;
+        this.service = service;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * A new HTTP client for the named SDK client, closed with the application context. A time to live of zero keeps
+     * connections for as long as they are used.
+     */
+    public SdkHttpClient create(String client, int maxConnections) {
+        SdkHttpClient httpClient = switch (type) {
+            case APACHE -> {
+                ApacheHttpClient.Builder builder = ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionTimeout(connectionTimeout)
+                        .socketTimeout(socketTimeout)
+                        .connectionAcquisitionTimeout(acquisitionTimeout)
+                        .connectionMaxIdleTime(maxIdleTime)
+                        .tcpKeepAlive(tcpKeepAlive)
+                        .useIdleConnectionReaper(true);
+                if (!timeToLive.isZero()) {
+                    builder.connectionTimeToLive(timeToLive);
+                }
+                yield builder.build();
+            }
+            case URL_CONNECTION -> UrlConnectionHttpClient.builder()
+                    .connectionTimeout(connectionTimeout)
+                    .socketTimeout(socketTimeout)
+                    .build();
+        };
+        log.info("AWS {} client uses {} HTTP client with up to {} connections", client,
+                type.name().toLowerCase(Locale.ROOT), maxConnections);
+        clients.add(httpClient);
+        return httpClient;
+    }
+
+    /**
+     * A new Netty HTTP client for the named async SDK client, closed with the application context.
+     */
+    public SdkAsyncHttpClient createAsync(String client, int maxConcurrency) {
+        NettyNioAsyncHttpClient.Builder builder = NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConcurrency)
+                .connectionTimeout(connectionTimeout)
+                .readTimeout(socketTimeout)
+                .writeTimeout(socketTimeout)
+                .connectionAcquisitionTimeout(acquisitionTimeout)
+                .connectionMaxIdleTime(maxIdleTime)
+                .tcpKeepAlive(tcpKeepAlive)
+                .useIdleConnectionReaper(true);
+        if (!timeToLive.isZero()) {
+            builder.connectionTimeToLive(timeToLive);
+        }
+        log.info("AWS {} async client uses netty HTTP client with up to {} connections", client, maxConcurrency);
+        SdkAsyncHttpClient httpClient = builder.build();
+        clients.add(httpClient);
+        return httpClient;
+    }
+
+    public SdkPoolMetrics poolMetrics(String client) {
+        return new SdkPoolMetrics(service, client, meterRegistry);
+    }
+
+    /**
+     * SDK clients do not close an HTTP client they were given.
+     */
+    @PreDestroy
+    public void close() {
+        clients.forEach(SdkAutoCloseable::close);
+    }
+}
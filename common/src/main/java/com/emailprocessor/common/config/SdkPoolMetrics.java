@@ -0,0 +1,74 @@
+package com.emailprocessor.common.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports the connection pool state the SDK reports with every API call: connections leased, idle connections
+ * available, requests waiting for a connection and the pool size, plus how long each request waited to lease one.
+ * Gauges hold the state at the most recent acquire, so an idle client keeps showing its last value.
+ *
+ * <p>Only pooling HTTP clients report these; with {@code url-connection} the meters stay at zero.
+ */
+public class SdkPoolMetrics implements MetricPublisher {
+
+    private final AtomicInteger leased = new AtomicInteger();
+    private final AtomicInteger available = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger max = new AtomicInteger();
+    private final Timer leaseWait;
+
+    public SdkPoolMetrics(String service, String client, MeterRegistry meterRegistry) {
+        gauge("aws.http.pool.leased", "Connections leased to in-flight requests", service, client, leased,
+                meterRegistry);
+        gauge("aws.http.pool.available", "Idle connections ready to lease", service, client, available, meterRegistry);
+        gauge("aws.http.pool.pending", "Requests waiting for a connection", service, client, pending, meterRegistry);
+        gauge("aws.http.pool.max", "Connection pool size", service, client, max, meterRegistry);
+        this.leaseWait = Timer.builder("aws.http.pool.lease.wait")
+                .description("Time a request waited to lease a pooled connection")
+                .tag("service", service)
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+
+    private static void gauge(String name, String description, String service, String client, AtomicInteger value,
+                              MeterRegistry meterRegistry) {
+        Gauge.builder(name, value, AtomicInteger::get)
+                .description(description)
+                .tag("service", service)
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Called by the SDK on the request thread once per API call, with one child collection per attempt.
+     */
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        List<Duration> waits = metricCollection.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION);
+        waits.forEach(leaseWait::record);
+        update(leased, metricCollection.metricValues(HttpMetric.LEASED_CONCURRENCY));
+        update(available, metricCollection.metricValues(HttpMetric.AVAILABLE_CONCURRENCY));
+        update(pending, metricCollection.metricValues(HttpMetric.PENDING_CONCURRENCY_ACQUIRES));
+        update(max, metricCollection.metricValues(HttpMetric.MAX_CONCURRENCY));
+        metricCollection.children().forEach(this::publish);
+    }
+
+    private static void update(AtomicInteger gauge, List<Integer> values) {
+        if (!values.isEmpty()) {
+            gauge.set(values.get(values.size() - 1));
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,35 @@
+package com.emailprocessor.common.config;
+
+import com.emailprocessor.common.service.SenderTracker;
+import com.emailprocessor.common.service.SpaceSavingSketch;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/senders}: the current heavy-hitter senders. Counts are decayed estimates that may overstate a
+ * sender by at most its {@code error}. The names are customer addresses, so requests need the admin access token.
+ */
+@Component
+@Endpoint(id = "senders")
+public class SendersEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final SenderTracker senderTracker;
+
+    public SendersEndpoint(SenderTracker senderTracker) {
+        this.senderTracker = senderTracker;
+    }
+
+    @ReadOperation
+    public Map<String, List<SpaceSavingSketch.Estimate>> senders(@Nullable Integer limit) {
+        int n = limit != null && limit > 0 ? limit : DEFAULT_LIMIT;
+        return Map.of("byMessages", senderTracker.topByMessages(n),
+                "byBytes", senderTracker.topByBytes(n));
+    }
+}
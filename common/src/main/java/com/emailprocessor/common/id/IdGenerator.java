@@ -0,0 +1,24 @@
+package com.emailprocessor.common.id;
+
+import java.util.Locale;
+
+/**
+ * Creates the IDs the services hand out, such as correlation IDs and the names of columnar archive files. Every
+ * implementation returns the canonical 36-character UUID string, so switching implementations does not change
+ * what consumers of the ID see.
+ */
+public interface IdGenerator {
+
+    String next();
+
+    /**
+     * {@code time-ordered} for {@link TimeOrderedIdGenerator}, {@code random} for {@link RandomIdGenerator}.
+     */
+    static IdGenerator of(String type) {
+        return switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "time-ordered" -> new TimeOrderedIdGenerator();
+            case "random" -> new RandomIdGenerator();
+            default -> throw new IllegalArgumentException("Unknown ID generator: " + type);
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.emailprocessor.common.id;
+
+import java.util.UUID;
+
+/**
+ * Random version 4 UUIDs from the shared {@link java.security.SecureRandom}, as IDs were created before. Threads
+ * contend on it at high request rates, and the IDs carry no time order.
+ */
+public class RandomIdGenerator implements IdGenerator {
+
+    @Override
+    public String next() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.emailprocessor.common.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/jfr}: one time-boxed Flight Recorder recording at a time, using the low-overhead settings.
+ * POST starts it, DELETE stops it early, GET reports its state and GET {@code /actuator/jfr/recording} downloads
+ * the file once it has stopped. Disabled unless {@code management.endpoint.jfr.enabled} is set; requests also need
+ * the admin access token checked by {@link com.emailprocessor.common.security.AdminAccessFilter}.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr", enableByDefault = false)
+public class JfrRecordingEndpoint {
+
+    private static final String FILE_NAME = "recording.jfr";
+
+    private final Path directory;
+    private final String settings;
+    private final Duration defaultDuration;
+    private final Duration maxDuration;
+
+    private Recording recording;
+    private Instant startedAt;
+
+    public JfrRecordingEndpoint(@Value("${jfr.directory:/tmp/email-processor/jfr}") String directory,
+                                @Value("${jfr.settings:default}") String settings,
+                                @Value("${jfr.default-duration-seconds:60}") long defaultDurationSeconds,
+                                @Value("${jfr.max-duration-seconds:300}") long maxDurationSeconds) {
+        this.directory = Path.of(directory);
+        this.settings = settings;
+        this.defaultDuration = Duration.ofSeconds(defaultDurationSeconds);
+        this.maxDuration = Duration.ofSeconds(maxDurationSeconds);
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("state", recording.getState().name());
+        status.put("settings", settings);
+        status.put("startedAt", startedAt.toString());
+        status.put("durationSeconds", recording.getDuration().toSeconds());
+        Path file = directory.resolve(FILE_NAME);
+        if (isFinished() && Files.exists(file)) {
+            try {
+                status.put("sizeBytes", Files.size(file));
+            } catch (IOException e) {
+                log.warn("Could not read JFR recording size", e);
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Starts a recording that stops by itself after {@code durationSeconds}, capped at the configured maximum.
+     */
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> start(@Nullable Long durationSeconds) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(status(), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Duration duration = durationSeconds != null && durationSeconds > 0
+                ? Duration.ofSeconds(Math.min(durationSeconds, maxDuration.toSeconds()))
+                : defaultDuration;
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve(FILE_NAME));
+            if (recording != null) {
+                recording.close();
+            }
+            Recording next = new Recording(Configuration.getConfiguration(settings));
+            next.setName("email-processor");
+            next.setToDisk(true);
+            next.setDuration(duration);
+            next.setDestination(directory.resolve(FILE_NAME));
+            next.start();
+            recording = next;
+            startedAt = Instant.now();
+            log.info("JFR recording started. Settings: {}, Duration: {}", settings, duration);
+            return new WebEndpointResponse<>(status(), WebEndpointResponse.STATUS_OK);
+        } catch (Exception e) {
+            log.error("Could not start JFR recording", e);
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()),
+                    WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            // Writes the recording to its destination
+            recording.stop();
+            log.info("JFR recording stopped early");
+        }
+        return status();
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download(@Selector String name) {
+        Path file = directory.resolve(FILE_NAME);
+        if (!"recording".equals(name) || !isFinished() || !Files.exists(file)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(new FileSystemResource(file), WebEndpointResponse.STATUS_OK);
+    }
+
+    private boolean isFinished() {
+        return recording != null
+                && (recording.getState() == RecordingState.STOPPED || recording.getState() == RecordingState.CLOSED);
+    }
+}
@@ -0,0 +1,37 @@
+package com.emailprocessor.common.jfr;
+
+import com.emailprocessor.common.config.CorrelationIdExemplarSampler;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.slf4j.MDC;
+
+/**
+ * Base for the service's Flight Recorder events. Call {@link #begin()} before the operation and
+ * {@link #complete(String, long)} after it; when no recording has the event enabled both are close to free.
+ */
+@Category("Email Processor")
+@StackTrace(false)
+public abstract class PipelineEvent extends Event {
+
+    @Label("Correlation ID")
+    String correlationId;
+
+    @Label("Payload Size")
+    @DataAmount
+    long payloadBytes;
+
+    /**
+     * @param correlationId null to take the one of the request being handled
+     */
+    public void complete(String correlationId, long payloadBytes) {
+        end();
+        if (shouldCommit()) {
+            this.correlationId = correlationId != null ? correlationId : MDC.get(CorrelationIdExemplarSampler.MDC_KEY);
+            this.payloadBytes = payloadBytes;
+            commit();
+        }
+    }
+}
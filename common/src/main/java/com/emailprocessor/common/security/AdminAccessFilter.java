@@ -0,0 +1,73 @@
+package com.emailprocessor.common.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Requires {@code Authorization: Bearer <admin.access-token>} on the operator endpoints: JFR recordings, the
+ * heavy-hitter senders, whose names are customer addresses, and everything under {@code /api/admin}, such as the
+ * DLQ redrive. Without a configured token every request to them is refused, so an endpoint cannot be opened up by
+ * exposing or enabling it alone.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdminAccessFilter extends OncePerRequestFilter {
+
+    private static final List<String> PATHS = List.of("/actuator/jfr", "/actuator/senders", "/api/admin");
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final byte[] accessToken;
+
+    public AdminAccessFilter(@Value("${admin.access-token:}") String accessToken) {
+        this.accessToken = accessToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static boolean isProtected(String path) {
+        for (String protectedPath : PATHS) {
+            if (path.equals(protectedPath) || path.startsWith(protectedPath + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isAuthorized(byte[] accessToken, String header) {
+        return accessToken.length > 0 && header != null && header.startsWith(BEARER_PREFIX)
+                && MessageDigest.isEqual(accessToken,
+                        header.substring(BEARER_PREFIX.length()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Matches on the decoded path without {@code ;} parameters, the way handler mapping sees it, so an encoded
+     * character or a path parameter cannot slip a request past the check.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !isProtected(UrlPathHelper.defaultInstance.getPathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!isAuthorized(accessToken, request.getHeader("Authorization"))) {
+            log.warn("Rejected admin request to {} from {}", request.getRequestURI(), request.getRemoteAddr());
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
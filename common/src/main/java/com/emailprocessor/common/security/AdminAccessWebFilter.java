@@ -0,0 +1,57 @@
+package com.emailprocessor.common.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link AdminAccessFilter} for the reactive stack: the same bearer token check in front of the operator endpoints.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class AdminAccessWebFilter implements WebFilter {
+
+    private final byte[] accessToken;
+
+    public AdminAccessWebFilter(@Value("${admin.access-token:}") String accessToken) {
+        this.accessToken = accessToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = decodedPath(exchange.getRequest().getPath().pathWithinApplication());
+        if (!AdminAccessFilter.isProtected(path)) {
+            return chain.filter(exchange);
+        }
+        if (!AdminAccessFilter.isAuthorized(accessToken,
+                exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))) {
+            log.warn("Rejected admin request to {} from {}", path, exchange.getRequest().getRemoteAddress());
+            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+            return exchange.getResponse().setComplete();
+        }
+        return chain.filter(exchange);
+    }
+
+    /**
+     * The path with each segment decoded and its {@code ;} parameters removed, as request mapping matches it.
+     */
+    static String decodedPath(PathContainer path) {
+        StringBuilder decoded = new StringBuilder();
+        for (PathContainer.Element element : path.elements()) {
+            decoded.append(element instanceof PathContainer.PathSegment segment
+                    ? segment.valueToMatch() : element.value());
+        }
+        return decoded.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.emailprocessor.common.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Heavy-hitter senders by message count and by bytes, in constant memory. Senders are never used as metric tags;
+ * the gauges only carry the count at each of the first {@code senders.gauge-ranks} ranks, and the names behind them
+ * are on the {@code senders} actuator endpoint.
+ */
+@Component
+public class SenderTracker {
+
+    // Longer values are cut so a hostile sender field cannot grow the sketch
+    private static final int MAX_SENDER_LENGTH = 256;
+
+    private final SpaceSavingSketch byMessages;
+    private final SpaceSavingSketch byBytes;
+
+    public SenderTracker(@Value("${management.metrics.tags.service}") String service,
+                         @Value("${senders.capacity:100}") int capacity,
+                         @Value("${senders.gauge-ranks:5}") int gaugeRanks,
+                         MeterRegistry meterRegistry) {
+        this.byMessages = new SpaceSavingSketch(capacity);
+        this.byBytes = new SpaceSavingSketch(capacity);
+        for (int rank = 1; rank <= gaugeRanks; rank++) {
+            int gaugeRank = rank;
+            Gauge.builder("senders.top.messages", byMessages, sketch -> sketch.countAtRank(gaugeRank))
+                    .description("Messages from the sender at this rank, decayed over time")
+                    .tag("service", service)
+                    .tag("rank", String.valueOf(rank))
+                    .register(meterRegistry);
+            Gauge.builder("senders.top.bytes", byBytes, sketch -> sketch.countAtRank(gaugeRank))
+                    .description("Message bytes from the sender at this rank, decayed over time")
+                    .tag("service", service)
+                    .tag("rank", String.valueOf(rank))
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+    }
+
+    public void record(String sender, long bytes) {
+        if (sender == null || sender.isBlank()) {
+            return;
+        }
+        String key = sender.trim().toLowerCase(Locale.ROOT);
+        if (key.length() > MAX_SENDER_LENGTH) {
+            key = key.substring(0, MAX_SENDER_LENGTH);
+        }
+        byMessages.add(key, 1);
+        byBytes.add(key, bytes);
+    }
+
+    public List<SpaceSavingSketch.Estimate> topByMessages(int n) {
+        return byMessages.top(n);
+    }
+
+    public List<SpaceSavingSketch.Estimate> topByBytes(int n) {
+        return byBytes.top(n);
+    }
+
+    @Scheduled(fixedDelayString = "${senders.decay-interval-ms:300000}", initialDelayString = "${senders.decay-interval-ms:300000}")
+    public void decay() {
+        byMessages.decay();
+        byBytes.decay();
+    }
+}
@@ -0,0 +1,154 @@
+package com.emailprocessor.common.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-saving top-K sketch (Metwally et al.): tracks at most {@code capacity} keys no matter how many distinct
+ * keys are seen. When a new key arrives and the sketch is full, it replaces the key with the smallest count and
+ * inherits that count as its error, so every reported count is an overestimate by at most {@code error}. Any key
+ * whose true weight exceeds total/capacity is guaranteed to be tracked.
+ *
+ * <p>Slots sit in a min-heap on count, so finding the smallest is O(1) and every add is O(log capacity), hit or
+ * miss; the lock it takes on the request thread stays short even with a large capacity.
+ */
+public class SpaceSavingSketch {
+
+    public record Estimate(String key, long count, long error) {
+    }
+
+    private static final class Slot {
+        private String key;
+        private long count;
+        private long error;
+        // Position in the heap
+        private int index;
+    }
+
+    private final int capacity;
+    private final Map<String, Slot> slots;
+    private final Slot[] heap;
+    private int size;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Sketch capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.slots = new HashMap<>(capacity * 2);
+        this.heap = new Slot[capacity];
+    }
+
+    public synchronized void add(String key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            if (size < capacity) {
+                slot = new Slot();
+                slot.index = size;
+                heap[size++] = slot;
+            } else {
+                // Take over the slot with the smallest count, at the root
+                slot = heap[0];
+                slots.remove(slot.key);
+                slot.error = slot.count;
+            }
+            slot.key = key;
+            slots.put(key, slot);
+            siftUp(slot.index);
+        }
+        slot.count += weight;
+        siftDown(slot.index);
+    }
+
+    /**
+     * @return up to {@code n} keys with the highest counts, highest first
+     */
+    public synchronized List<Estimate> top(int n) {
+        List<Estimate> estimates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            estimates.add(new Estimate(heap[i].key, heap[i].count, heap[i].error));
+        }
+        estimates.sort(Comparator.comparingLong(Estimate::count).reversed());
+        return estimates.size() > n ? new ArrayList<>(estimates.subList(0, n)) : estimates;
+    }
+
+    /**
+     * Count of the key at the given 1-based rank, or 0 when fewer keys are tracked.
+     */
+    public long countAtRank(int rank) {
+        List<Estimate> top = top(rank);
+        return top.size() < rank ? 0 : top.get(rank - 1).count();
+    }
+
+    /**
+     * Halves every count so the ranking follows recent traffic; keys that reach zero are dropped. Halving keeps the
+     * heap order, but dropping keys means rebuilding it.
+     */
+    public synchronized void decay() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Slot slot = heap[i];
+            slot.count /= 2;
+            slot.error /= 2;
+            if (slot.count == 0) {
+                slots.remove(slot.key);
+            } else {
+                slot.index = kept;
+                heap[kept++] = slot;
+            }
+        }
+        Arrays.fill(heap, kept, size, null);
+        size = kept;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void siftUp(int index) {
+        Slot slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent].count <= slot.count) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(slot, index);
+    }
+
+    private void siftDown(int index) {
+        Slot slot = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (slot.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(slot, index);
+    }
+
+    private void place(Slot slot, int index) {
+        heap[index] = slot;
+        slot.index = index;
+    }
+}
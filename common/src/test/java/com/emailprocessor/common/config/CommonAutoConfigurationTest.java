@@ -0,0 +1,36 @@
+package com.emailprocessor.common.config;
+
+import com.emailprocessor.common.id.IdGenerator;
+import com.emailprocessor.common.security.AdminAccessFilter;
+import com.emailprocessor.common.security.AdminAccessWebFilter;
+import com.emailprocessor.common.service.SenderTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonAutoConfigurationTest {
+
+    private final WebApplicationContextRunner contextRunner = new WebApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(CommonAutoConfiguration.class))
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withPropertyValues("management.metrics.tags.service=test-service");
+
+    @Test
+    void testServletContext_RegistersSharedBeansWithServiceTag() {
+        contextRunner.run(context -> {
+            assertNotNull(context.getBean(IdGenerator.class));
+            assertNotNull(context.getBean(SdkHttpClientFactory.class));
+            assertNotNull(context.getBean(SendersEndpoint.class));
+            assertNotNull(context.getBean(AdminAccessFilter.class));
+            assertTrue(context.getBeansOfType(AdminAccessWebFilter.class).isEmpty());
+
+            context.getBean(SenderTracker.class).record("sender@example.com", 100);
+            assertEquals(1.0, context.getBean(MeterRegistry.class).get("senders.top.messages")
+                    .tag("service", "test-service").tag("rank", "1").gauge().value());
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package com.emailprocessor.common.config;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exemplars.Exemplar;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorrelationIdExemplarSamplerTest {
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    void testSample_UsesCorrelationIdFromMdc() {
+        CorrelationIdExemplarSampler sampler = new CorrelationIdExemplarSampler(10000);
+        MDC.put(CorrelationIdExemplarSampler.MDC_KEY, "corr-1");
+
+        Exemplar exemplar = sampler.sample(0.5, 0.25, 1.0, null);
+
+        assertNotNull(exemplar);
+        assertEquals("correlation_id", exemplar.getLabelName(0));
+        assertEquals("corr-1", exemplar.getLabelValue(0));
+    }
+
+    @Test
+    void testSample_KeepsPreviousWithinRetentionOrWithoutCorrelationId() {
+        CorrelationIdExemplarSampler sampler = new CorrelationIdExemplarSampler(10000);
+        Exemplar previous = new Exemplar(0.5, System.currentTimeMillis(), "correlation_id", "corr-1");
+
+        assertSame(previous, sampler.sample(0.6, 0.25, 1.0, previous));
+
+        MDC.put(CorrelationIdExemplarSampler.MDC_KEY, "corr-2");
+        assertSame(previous, sampler.sample(0.6, 0.25, 1.0, previous));
+
+        Exemplar old = new Exemplar(0.5, System.currentTimeMillis() - 20000, "correlation_id", "corr-1");
+        assertEquals("corr-2", sampler.sample(0.6, 0.25, 1.0, old).getLabelValue(0));
+        assertNull(sampler.sample(1, null));
+    }
+
+    @Test
+    void testScrape_ExposesExemplarOnHistogramBucket() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT,
+                new CollectorRegistry(), Clock.SYSTEM, new CorrelationIdExemplarSampler(10000));
+        Timer timer = Timer.builder("s3.upload.duration")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(registry);
+
+        MDC.put(CorrelationIdExemplarSampler.MDC_KEY, "slow-request");
+        timer.record(Duration.ofSeconds(3));
+
+        String scrape = registry.scrape(TextFormat.CONTENT_TYPE_OPENMETRICS_100);
+        assertTrue(scrape.contains("correlation_id=\"slow-request\""), scrape);
+    }
+}
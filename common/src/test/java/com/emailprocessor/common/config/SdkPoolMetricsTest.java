@@ -0,0 +1,81 @@
+package com.emailprocessor.common.config;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SdkPoolMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SdkPoolMetrics poolMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        poolMetrics = new SdkPoolMetrics("microservice-2", "s3", meterRegistry);
+    }
+
+    private MetricCollector apiCall(int leased, int available, int pending, Duration wait) {
+        MetricCollector apiCall = MetricCollector.create("ApiCall");
+        MetricCollector httpClient = apiCall.createChild("ApiCallAttempt").createChild("HttpClient");
+        httpClient.reportMetric(HttpMetric.MAX_CONCURRENCY, 64);
+        httpClient.reportMetric(HttpMetric.LEASED_CONCURRENCY, leased);
+        httpClient.reportMetric(HttpMetric.AVAILABLE_CONCURRENCY, available);
+        httpClient.reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, pending);
+        httpClient.reportMetric(HttpMetric.CONCURRENCY_ACQUIRE_DURATION, wait);
+        return apiCall;
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("client", "s3").gauge().value();
+    }
+
+    @Test
+    void testPublish_ReadsPoolStateFromAttemptCollections() {
+        // When
+        poolMetrics.publish(apiCall(10, 2, 0, Duration.ofMillis(3)).collect());
+
+        // Then
+        assertEquals(10, gauge("aws.http.pool.leased"));
+        assertEquals(2, gauge("aws.http.pool.available"));
+        assertEquals(0, gauge("aws.http.pool.pending"));
+        assertEquals(64, gauge("aws.http.pool.max"));
+        Timer leaseWait = meterRegistry.get("aws.http.pool.lease.wait").tag("client", "s3").timer();
+        assertEquals(1, leaseWait.count());
+        assertEquals(3, leaseWait.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    void testPublish_GaugesKeepLatestCall() {
+        // Given
+        poolMetrics.publish(apiCall(10, 2, 0, Duration.ofMillis(1)).collect());
+
+        // When - the pool is exhausted and requests queue for a connection
+        poolMetrics.publish(apiCall(64, 0, 7, Duration.ofMillis(250)).collect());
+
+        // Then
+        assertEquals(64, gauge("aws.http.pool.leased"));
+        assertEquals(7, gauge("aws.http.pool.pending"));
+        assertEquals(2, meterRegistry.get("aws.http.pool.lease.wait").timer().count());
+    }
+
+    @Test
+    void testPublish_IgnoresCallsWithoutPoolMetrics() {
+        // Given
+        poolMetrics.publish(apiCall(5, 1, 0, Duration.ZERO).collect());
+
+        // When - e.g. a non-pooling HTTP client
+        poolMetrics.publish(MetricCollector.create("ApiCall").collect());
+
+        // Then
+        assertEquals(5, gauge("aws.http.pool.leased"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.emailprocessor.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void testNextUuid_IsVersion7WithTimestamp() {
+        // Given
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_700_000_000_123L);
+
+        // When
+        UUID id = generator.nextUuid();
+
+        // Then
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(1_700_000_000_123L, TimeOrderedIdGenerator.timestampMillis(id));
+    }
+
+    @Test
+    void testNext_SortsInCreationOrderWithinOneMillisecond() {
+        // Given - a stopped clock, so ordering comes from the counter alone
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_700_000_000_000L);
+
+        // When
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.next());
+        }
+
+        // Then - more IDs than the counter holds, so the timestamp runs ahead of the clock but stays ordered
+        List<String> sorted = new ArrayList<>(ids);
+        sorted.sort(null);
+        assertEquals(sorted, ids);
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+
+    @Test
+    void testNext_StaysOrderedWhenClockStepsBack() {
+        // Given
+        AtomicLong clock = new AtomicLong(1_700_000_001_000L);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+        String before = generator.next();
+
+        // When
+        clock.set(1_700_000_000_000L);
+        String after = generator.next();
+
+        // Then
+        assertTrue(after.compareTo(before) > 0);
+    }
+
+    @Test
+    void testNext_UniqueAcrossThreads() throws InterruptedException {
+        // Given
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        ConcurrentLinkedQueue<String> ids = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    ids.add(generator.next());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        Set<String> unique = new HashSet<>(ids);
+        assertEquals(40_000, unique.size());
+    }
+
+    @Test
+    void testOf_SelectsImplementation() {
+        assertInstanceOf(TimeOrderedIdGenerator.class, IdGenerator.of("time-ordered"));
+        assertInstanceOf(RandomIdGenerator.class, IdGenerator.of("Random"));
+        assertEquals(4, UUID.fromString(IdGenerator.of("random").next()).version());
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.of("snowflake"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.emailprocessor.common.jfr;
+
+import jdk.jfr.Name;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrRecordingEndpointTest {
+
+    @Name("com.emailprocessor.Test")
+    static class TestEvent extends PipelineEvent {
+    }
+
+    @TempDir
+    Path directory;
+
+    private JfrRecordingEndpoint endpoint;
+
+    @AfterEach
+    void tearDown() {
+        if (endpoint != null) {
+            endpoint.stop();
+        }
+    }
+
+    @Test
+    void testRecording_CapturesPipelineEventsWithCorrelationId() throws Exception {
+        // Given
+        endpoint = new JfrRecordingEndpoint(directory.toString(), "default", 60, 300);
+        assertEquals(WebEndpointResponse.STATUS_OK, endpoint.start(30L).getStatus());
+        assertEquals("RUNNING", endpoint.status().get("state"));
+        assertEquals(404, endpoint.download("recording").getStatus());
+
+        // When
+        TestEvent event = new TestEvent();
+        event.begin();
+        event.complete("corr-jfr", 2048);
+        Map<String, Object> stopped = endpoint.stop();
+        WebEndpointResponse<Resource> download = endpoint.download("recording");
+
+        // Then
+        assertNotEquals("RUNNING", stopped.get("state"));
+        assertEquals(WebEndpointResponse.STATUS_OK, download.getStatus());
+        List<RecordedEvent> events = RecordingFile.readAllEvents(download.getBody().getFile().toPath());
+        RecordedEvent recorded = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.emailprocessor.Test"))
+                .findFirst().orElseThrow();
+        assertEquals("corr-jfr", recorded.getString("correlationId"));
+        assertEquals(2048, recorded.getLong("payloadBytes"));
+    }
+
+    @Test
+    void testStart_CapsDurationAndRefusesSecondRecording() {
+        endpoint = new JfrRecordingEndpoint(directory.toString(), "default", 60, 120);
+
+        endpoint.start(3600L);
+
+        assertEquals(120L, endpoint.status().get("durationSeconds"));
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.start(10L).getStatus());
+    }
+}
@@ -0,0 +1,66 @@
+package com.emailprocessor.common.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminAccessFilterTest {
+
+    private MockHttpServletResponse send(AdminAccessFilter filter, String path, String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void testFilter_RequiresMatchingBearerToken() throws Exception {
+        AdminAccessFilter filter = new AdminAccessFilter("secret-token");
+
+        assertEquals(401, send(filter, "/actuator/jfr", null).getStatus());
+        assertEquals(401, send(filter, "/actuator/jfr/recording", "Bearer wrong").getStatus());
+        assertEquals(200, send(filter, "/actuator/jfr/recording", "Bearer secret-token").getStatus());
+    }
+
+    @Test
+    void testFilter_ProtectsSendersAndAdminApi() throws Exception {
+        AdminAccessFilter filter = new AdminAccessFilter("secret-token");
+
+        assertEquals(401, send(filter, "/actuator/senders", null).getStatus());
+        assertEquals(200, send(filter, "/actuator/senders", "Bearer secret-token").getStatus());
+        assertEquals(401, send(filter, "/api/admin/dlq/redrive", "Bearer wrong").getStatus());
+        assertEquals(200, send(filter, "/api/admin/dlq/redrive", "Bearer secret-token").getStatus());
+    }
+
+    @Test
+    void testFilter_RefusesEverythingWithoutConfiguredToken() throws Exception {
+        AdminAccessFilter filter = new AdminAccessFilter("");
+
+        assertEquals(401, send(filter, "/actuator/jfr", "Bearer ").getStatus());
+    }
+
+    @Test
+    void testFilter_MatchesDecodedPath() throws Exception {
+        AdminAccessFilter filter = new AdminAccessFilter("secret-token");
+
+        assertEquals(401, send(filter, "/actuator/%6Afr", null).getStatus());
+        assertEquals(401, send(filter, "/actuator/jfr;x", null).getStatus());
+        assertEquals(401, send(filter, "/actuator/senders;x=1/", null).getStatus());
+        assertEquals("/actuator/jfr/", AdminAccessWebFilter.decodedPath(PathContainer.parsePath("/actuator/%6Afr;x/")));
+    }
+
+    @Test
+    void testFilter_LeavesOtherPathsAlone() throws Exception {
+        AdminAccessFilter filter = new AdminAccessFilter("secret-token");
+
+        assertEquals(200, send(filter, "/api/health", null).getStatus());
+        assertEquals(200, send(filter, "/actuator/jfrx", null).getStatus());
+    }
+}
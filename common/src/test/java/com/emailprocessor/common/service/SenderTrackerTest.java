@@ -0,0 +1,29 @@
+package com.emailprocessor.common.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SenderTrackerTest {
+
+    @Test
+    void testRecord_ExposesRanksWithoutSenderTags() {
+        // Given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SenderTracker senderTracker = new SenderTracker("microservice-2", 10, 2, meterRegistry);
+
+        // When
+        senderTracker.record("Bulk@Example.com ", 1000);
+        senderTracker.record("bulk@example.com", 1000);
+        senderTracker.record("someone@example.com", 50);
+
+        // Then
+        assertEquals("bulk@example.com", senderTracker.topByMessages(1).get(0).key());
+        assertEquals(2.0, meterRegistry.get("senders.top.messages").tag("rank", "1").gauge().value());
+        assertEquals(50.0, meterRegistry.get("senders.top.bytes").tag("rank", "2").gauge().value());
+        assertEquals(2, meterRegistry.get("senders.top.messages").gauges().size());
+        assertTrue(meterRegistry.getMeters().stream()
+                .allMatch(meter -> meter.getId().getTag("email_sender") == null));
+    }
+}
@@ -0,0 +1,77 @@
+package com.emailprocessor.common.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void testTop_FindsHeavyHittersWithinCapacity() {
+        // Given - two heavy keys among many one-off keys, far more than the sketch can hold
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("heavy-a", 1);
+            if (i % 2 == 0) {
+                sketch.add("heavy-b", 1);
+            }
+            sketch.add("one-off-" + i, 1);
+        }
+
+        // When
+        List<SpaceSavingSketch.Estimate> top = sketch.top(2);
+
+        // Then
+        assertEquals(10, sketch.size());
+        assertEquals("heavy-a", top.get(0).key());
+        assertEquals("heavy-b", top.get(1).key());
+        assertTrue(top.get(0).count() - top.get(0).error() <= 1000);
+        assertTrue(top.get(0).count() >= 1000);
+    }
+
+    @Test
+    void testAdd_WeightsAndRanks() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+        sketch.add("small", 10);
+        sketch.add("large", 5000);
+        sketch.add("medium", 300);
+
+        assertEquals(5000, sketch.countAtRank(1));
+        assertEquals(300, sketch.countAtRank(2));
+        assertEquals(0, sketch.countAtRank(4));
+    }
+
+    @Test
+    void testAdd_EvictsSmallestCountFirst() {
+        // Given - a full sketch
+        SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+        sketch.add("a", 50);
+        sketch.add("b", 7);
+        sketch.add("c", 20);
+
+        // When
+        sketch.add("d", 1);
+        sketch.add("e", 1);
+
+        // Then - d took over b's slot and was in turn the smallest, so e took over from d
+        List<SpaceSavingSketch.Estimate> top = sketch.top(3);
+        assertEquals(List.of("a", "c", "e"), top.stream().map(SpaceSavingSketch.Estimate::key).toList());
+        assertEquals(new SpaceSavingSketch.Estimate("e", 9, 8), top.get(2));
+    }
+
+    @Test
+    void testDecay_HalvesCountsAndDropsEmptyKeys() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+        sketch.add("busy", 8);
+        sketch.add("quiet", 1);
+
+        sketch.decay();
+
+        assertEquals(1, sketch.size());
+        assertEquals(4, sketch.top(1).get(0).count());
+        sketch.add("new", 1);
+        assertEquals(List.of("busy", "new"), sketch.top(2).stream().map(SpaceSavingSketch.Estimate::key).toList());
+    }
+}
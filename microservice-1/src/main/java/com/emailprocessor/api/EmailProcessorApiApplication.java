@@ -2,8 +2,10 @@ package com.emailprocessor.api;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class EmailProcessorApiApplication {
 
     public static void main(String[] args) {
@@ -1,10 +1,13 @@
 package com.emailprocessor.api.config;
 
+import com.emailprocessor.common.config.SdkHttpClientFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.ssm.SsmClient;
 
@@ -14,19 +17,43 @@ public class AwsConfig {
     @Value("${aws.region}")
     private String awsRegion;
     
+    @Value("${aws.http.sqs.max-connections:50}")
+    private int sqsMaxConnections;
+    
+    @Value("${aws.http.ssm.max-connections:5}")
+    private int ssmMaxConnections;
+    
     @Bean
-    public SqsClient sqsClient() {
+    public SqsClient sqsClient(SdkHttpClientFactory httpClients) {
         return SqsClient.builder()
                 .region(Region.of(awsRegion))
                 .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClient(httpClients.create("sqs", sqsMaxConnections))
+                .overrideConfiguration(config -> config.addMetricPublisher(httpClients.poolMetrics("sqs")))
+                .build();
+    }
+    
+    /**
+     * Publishes for the reactive stack; the servlet stack does not start its Netty event loop.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public SqsAsyncClient sqsAsyncClient(SdkHttpClientFactory httpClients) {
+        return SqsAsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClient(httpClients.createAsync("sqs-async", sqsMaxConnections))
+                .overrideConfiguration(config -> config.addMetricPublisher(httpClients.poolMetrics("sqs-async")))
                 .build();
     }
     
     @Bean
-    public SsmClient ssmClient() {
+    public SsmClient ssmClient(SdkHttpClientFactory httpClients) {
         return SsmClient.builder()
                 .region(Region.of(awsRegion))
                 .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClient(httpClients.create("ssm", ssmMaxConnections))
+                .overrideConfiguration(config -> config.addMetricPublisher(httpClients.poolMetrics("ssm")))
                 .build();
     }
 }
@@ -1,10 +1,14 @@
 package com.emailprocessor.api.config;
 
+import com.emailprocessor.common.config.CorrelationIdExemplarSampler;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.prometheus.client.exemplars.ExemplarSampler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class MetricsConfig {
@@ -75,5 +79,15 @@ public class MetricsConfig {
                 .tag("service", "microservice-1")
                 .register(registry);
     }
-}
 
+    /**
+     * Picked up by the Prometheus registry in place of the trace-based default, which Boot also registers now that
+     * a tracer is present; exemplars are only exposed in the OpenMetrics format.
+     */
+    @Bean
+    @Primary
+    public ExemplarSampler correlationIdExemplarSampler(
+            @Value("${metrics.exemplars.min-retention-ms:10000}") long minRetentionMs) {
+        return new CorrelationIdExemplarSampler(minRetentionMs);
+    }
+}
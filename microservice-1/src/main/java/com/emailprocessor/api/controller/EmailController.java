@@ -1,53 +1,85 @@
 package com.emailprocessor.api.controller;
 
+import com.emailprocessor.api.config.IngestStageTimers;
 import com.emailprocessor.api.dto.EmailRequest;
 import com.emailprocessor.api.dto.EmailResponse;
+import com.emailprocessor.api.service.ReadinessService;
 import com.emailprocessor.api.service.SqsPublisherService;
 import com.emailprocessor.api.service.ValidationService;
+import com.emailprocessor.common.config.CorrelationIdExemplarSampler;
+import com.emailprocessor.common.id.IdGenerator;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.UUID;
-
 @Slf4j
 @RestController
 @RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class EmailController {
     
     private final ValidationService validationService;
     private final SqsPublisherService sqsPublisherService;
+    private final ReadinessService readinessService;
+    private final IngestStageTimers ingestStageTimers;
+    private final IdGenerator idGenerator;
     
-    public EmailController(ValidationService validationService, SqsPublisherService sqsPublisherService) {
+    public EmailController(ValidationService validationService, SqsPublisherService sqsPublisherService,
+                           ReadinessService readinessService, IngestStageTimers ingestStageTimers,
+                           IdGenerator idGenerator) {
         this.validationService = validationService;
         this.sqsPublisherService = sqsPublisherService;
+        this.readinessService = readinessService;
+        this.ingestStageTimers = ingestStageTimers;
+        this.idGenerator = idGenerator;
     }
     
     @PostMapping("/email")
     public ResponseEntity<EmailResponse> processEmail(@Valid @RequestBody EmailRequest request) {
-        String correlationId = UUID.randomUUID().toString();
+        // Body binding and bean validation have already run; see IngestBodyTimingAdvice
+        ingestStageTimers.recordSinceMark(IngestStageTimers.Stage.BEAN_VALIDATION);
+        long requestStart = System.nanoTime();
+        String correlationId = idGenerator.next();
         
         log.info("Received email processing request. CorrelationId: {}", correlationId);
         
+        // Lets latency exemplars recorded during this request carry its correlation ID
+        MDC.put(CorrelationIdExemplarSampler.MDC_KEY, correlationId);
         try {
+            // Shed load while saturated; the load balancer only checks liveness, so it keeps routing here
+            if (!readinessService.check().ready()) {
+                log.debug("Task not ready, rejecting request. CorrelationId: {}", correlationId);
+                return serviceUnavailable(correlationId);
+            }
+            
             // Validate token
-            if (!validationService.validateToken(request.getToken())) {
+            long stageStart = System.nanoTime();
+            boolean tokenValid = validationService.validateToken(request.getToken());
+            ingestStageTimers.record(IngestStageTimers.Stage.TOKEN_VALIDATION, stageStart);
+            if (!tokenValid) {
                 log.warn("Token validation failed. CorrelationId: {}", correlationId);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(EmailResponse.error("Invalid token", correlationId));
             }
             
             // Validate email data
-            if (!validationService.validateEmailData(request.getData())) {
+            stageStart = System.nanoTime();
+            boolean dataValid = validationService.validateEmailData(request.getData());
+            ingestStageTimers.record(IngestStageTimers.Stage.DATA_VALIDATION, stageStart);
+            if (!dataValid) {
                 log.warn("Email data validation failed. CorrelationId: {}", correlationId);
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(EmailResponse.error("Invalid email data - all fields are required and timestamp must be valid", correlationId));
             }
             
             // Publish to SQS
-            String messageId = sqsPublisherService.publishEmailMessage(request.getData(), correlationId);
+            String messageId = sqsPublisherService.publishEmailMessage(request.getData(), correlationId,
+                    request.getPriority());
             
             log.info("Email processing request completed successfully. MessageId: {}, CorrelationId: {}", 
                     messageId, correlationId);
@@ -59,11 +91,30 @@ public class EmailController {
             log.error("Unexpected error processing email request. CorrelationId: {}", correlationId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(EmailResponse.error("Internal server error", correlationId));
+        } finally {
+            ingestStageTimers.recordRequest(requestStart);
+            MDC.remove(CorrelationIdExemplarSampler.MDC_KEY);
         }
     }
     
+    static ResponseEntity<EmailResponse> serviceUnavailable(String correlationId) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(EmailResponse.error("Service is at capacity, retry shortly", correlationId));
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Service is healthy");
     }
+    
+    /**
+     * 503 while the task is saturated and shedding {@code /api/email}; the body also reports degraded signals.
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<ReadinessService.Readiness> ready() {
+        ReadinessService.Readiness readiness = readinessService.check();
+        return ResponseEntity.status(readiness.ready() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(readiness);
+    }
 }
@@ -0,0 +1,48 @@
+package com.emailprocessor.api.controller;
+
+import com.emailprocessor.api.config.IngestStageTimers;
+import com.emailprocessor.api.dto.EmailRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Times JSON binding of the ingest request body, which happens before {@link EmailController} is called. Bean
+ * validation runs between {@link #afterBodyRead} and the handler, so the mark set here closes when the handler starts.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class IngestBodyTimingAdvice extends RequestBodyAdviceAdapter {
+
+    private final IngestStageTimers ingestStageTimers;
+
+    public IngestBodyTimingAdvice(IngestStageTimers ingestStageTimers) {
+        this.ingestStageTimers = ingestStageTimers;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return targetType == EmailRequest.class;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) {
+        ingestStageTimers.mark();
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        ingestStageTimers.recordSinceMark(IngestStageTimers.Stage.BODY_BINDING);
+        ingestStageTimers.mark();
+        return body;
+    }
+}
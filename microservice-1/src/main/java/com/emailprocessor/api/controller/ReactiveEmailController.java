@@ -0,0 +1,157 @@
+package com.emailprocessor.api.controller;
+
+import com.emailprocessor.api.config.IngestStageTimers;
+import com.emailprocessor.api.dto.EmailRequest;
+import com.emailprocessor.api.dto.EmailResponse;
+import com.emailprocessor.api.service.ReadinessService;
+import com.emailprocessor.api.service.SqsPublisherService;
+import com.emailprocessor.api.service.ValidationService;
+import com.emailprocessor.common.config.CorrelationIdExemplarSampler;
+import com.emailprocessor.common.id.IdGenerator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link EmailController} contract on WebFlux, for {@code spring.main.web-application-type=reactive}. Requests
+ * do not hold a thread while SQS answers: the publish goes through the async SQS client and the response is written
+ * when it completes, so a few event-loop threads carry all in-flight requests.
+ *
+ * <p>Token validation reads the token cached by {@link ValidationService}, which is loaded at startup and only
+ * replaced by the scheduled refresh, so it does not block the event loop. Body binding and bean validation are timed
+ * here, since the servlet {@link IngestBodyTimingAdvice} does not apply.
+ *
+ * <p>The correlation ID is in the MDC only while this request's code runs on a thread: around the synchronous
+ * validation and publish call, and again when the request timer is recorded. Event-loop threads are shared, so it
+ * never outlives that section. {@link SqsPublisherService} does the same on the SDK thread that completes the send.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveEmailController {
+
+    private final ValidationService validationService;
+    private final SqsPublisherService sqsPublisherService;
+    private final ReadinessService readinessService;
+    private final IngestStageTimers ingestStageTimers;
+    private final Validator validator;
+    private final IdGenerator idGenerator;
+
+    public ReactiveEmailController(ValidationService validationService, SqsPublisherService sqsPublisherService,
+                                   ReadinessService readinessService, IngestStageTimers ingestStageTimers,
+                                   Validator validator, IdGenerator idGenerator) {
+        this.validationService = validationService;
+        this.sqsPublisherService = sqsPublisherService;
+        this.readinessService = readinessService;
+        this.ingestStageTimers = ingestStageTimers;
+        this.validator = validator;
+        this.idGenerator = idGenerator;
+    }
+
+    @PostMapping("/email")
+    public Mono<ResponseEntity<EmailResponse>> processEmail(@RequestBody Mono<EmailRequest> body) {
+        // Shed load while saturated, before the body is read
+        if (!readinessService.check().ready()) {
+            String correlationId = idGenerator.next();
+            log.debug("Task not ready, rejecting request. CorrelationId: {}", correlationId);
+            return Mono.just(EmailController.serviceUnavailable(correlationId));
+        }
+        long bindingStart = System.nanoTime();
+        return body.flatMap(request -> {
+            ingestStageTimers.record(IngestStageTimers.Stage.BODY_BINDING, bindingStart);
+            long validationStart = System.nanoTime();
+            Set<ConstraintViolation<EmailRequest>> violations = validator.validate(request);
+            ingestStageTimers.record(IngestStageTimers.Stage.BEAN_VALIDATION, validationStart);
+            if (!violations.isEmpty()) {
+                return Mono.error(new ServerWebInputException(violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", "))));
+            }
+            return process(request);
+        });
+    }
+
+    private Mono<ResponseEntity<EmailResponse>> process(EmailRequest request) {
+        long requestStart = System.nanoTime();
+        String correlationId = idGenerator.next();
+
+        log.info("Received email processing request. CorrelationId: {}", correlationId);
+
+        // Lets latency exemplars recorded during this request carry its correlation ID
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(CorrelationIdExemplarSampler.MDC_KEY, correlationId)) {
+            return validateAndPublish(request, correlationId, requestStart);
+        }
+    }
+
+    private Mono<ResponseEntity<EmailResponse>> validateAndPublish(EmailRequest request, String correlationId,
+                                                                   long requestStart) {
+        long stageStart = System.nanoTime();
+        boolean tokenValid = validationService.validateToken(request.getToken());
+        ingestStageTimers.record(IngestStageTimers.Stage.TOKEN_VALIDATION, stageStart);
+        if (!tokenValid) {
+            log.warn("Token validation failed. CorrelationId: {}", correlationId);
+            ingestStageTimers.recordRequest(requestStart);
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(EmailResponse.error("Invalid token", correlationId)));
+        }
+
+        stageStart = System.nanoTime();
+        boolean dataValid = validationService.validateEmailData(request.getData());
+        ingestStageTimers.record(IngestStageTimers.Stage.DATA_VALIDATION, stageStart);
+        if (!dataValid) {
+            log.warn("Email data validation failed. CorrelationId: {}", correlationId);
+            ingestStageTimers.recordRequest(requestStart);
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(EmailResponse.error("Invalid email data - all fields are required and timestamp must be valid", correlationId)));
+        }
+
+        return Mono.fromFuture(() -> {
+                    try (MDC.MDCCloseable ignored = MDC.putCloseable(CorrelationIdExemplarSampler.MDC_KEY,
+                            correlationId)) {
+                        return sqsPublisherService.publishEmailMessageAsync(request.getData(), correlationId,
+                                request.getPriority());
+                    }
+                })
+                .map(messageId -> {
+                    log.info("Email processing request completed successfully. MessageId: {}, CorrelationId: {}",
+                            messageId, correlationId);
+                    return ResponseEntity.ok(EmailResponse.success(
+                            "Email processed successfully and queued for storage", correlationId));
+                })
+                .onErrorResume(e -> {
+                    log.error("Unexpected error processing email request. CorrelationId: {}", correlationId, e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(EmailResponse.error("Internal server error", correlationId)));
+                })
+                .doFinally(signal -> {
+                    try (MDC.MDCCloseable ignored = MDC.putCloseable(CorrelationIdExemplarSampler.MDC_KEY,
+                            correlationId)) {
+                        ingestStageTimers.recordRequest(requestStart);
+                    }
+                });
+    }
+
+    @GetMapping("/health")
+    public ResponseEntity<String> health() {
+        return ResponseEntity.ok("Service is healthy");
+    }
+
+    @GetMapping("/ready")
+    public ResponseEntity<ReadinessService.Readiness> ready() {
+        ReadinessService.Readiness readiness = readinessService.check();
+        return ResponseEntity.status(readiness.ready() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(readiness);
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 
 @Data
@@ -16,6 +17,10 @@ public class EmailRequest {
     @NotBlank(message = "Token is required")
     private String token;
     
+    // Optional priority lane; unset uses the configured default lane
+    @Pattern(regexp = "(?i)high|normal|bulk", message = "Priority must be one of high, normal, bulk")
+    private String priority;
+    
     @Data
     public static class EmailData {
         
@@ -0,0 +1,12 @@
+package com.emailprocessor.api.jfr;
+
+import com.emailprocessor.common.jfr.PipelineEvent;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.emailprocessor.SqsSend")
+@Label("SQS Send")
+@Description("SendMessage call to the lane queue")
+public class SqsSendEvent extends PipelineEvent {
+}
@@ -0,0 +1,12 @@
+package com.emailprocessor.api.jfr;
+
+import com.emailprocessor.common.jfr.PipelineEvent;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.emailprocessor.TokenValidation")
+@Label("Token Validation")
+@Description("API token check against the cached SSM value; payload is the token length")
+public class TokenValidationEvent extends PipelineEvent {
+}
@@ -0,0 +1,96 @@
+package com.emailprocessor.api.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Opens pooled SQS connections before the task reports ready, so the first requests after a deploy or scale-out
+ * do not pay for DNS, TCP and TLS setup. {@link ReadinessService} keeps {@code /api/ready} and {@code /api/email} at
+ * 503 until this has run; it normally finishes before the load balancer's healthy threshold routes traffic here.
+ *
+ * <p>The calls run concurrently, which makes the pool open one connection per call. Any response from SQS leaves
+ * a connection behind, so failures are only logged; the warm-up also gives up after {@code timeout-ms} so an
+ * unreachable endpoint cannot keep the task out of service. The SSM connection is opened by the token load. On the
+ * reactive stack the async client is warmed instead, since that is the one publishing.
+ */
+@Slf4j
+@Component
+public class ConnectionWarmup {
+
+    private final SqsClient sqsClient;
+    private final Optional<SqsAsyncClient> sqsAsyncClient;
+    private final LaneRouter laneRouter;
+    private final boolean enabled;
+    private final int connections;
+    private final long timeoutMs;
+    private volatile boolean complete;
+
+    public ConnectionWarmup(SqsClient sqsClient,
+                            Optional<SqsAsyncClient> sqsAsyncClient,
+                            LaneRouter laneRouter,
+                            @Value("${aws.http.warmup.enabled:true}") boolean enabled,
+                            @Value("${aws.http.warmup.connections:4}") int connections,
+                            @Value("${aws.http.warmup.timeout-ms:10000}") long timeoutMs) {
+        this.sqsClient = sqsClient;
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.laneRouter = laneRouter;
+        this.enabled = enabled;
+        this.connections = connections;
+        this.timeoutMs = timeoutMs;
+        this.complete = !enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        String queueUrl = laneRouter.queueUrl(LaneRouter.Lane.NORMAL);
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        try {
+            List<CompletableFuture<Void>> calls = new ArrayList<>();
+            GetQueueAttributesRequest request = GetQueueAttributesRequest.builder()
+                    .queueUrl(queueUrl)
+                    .attributeNames(QueueAttributeName.QUEUE_ARN)
+                    .build();
+            for (int i = 0; i < connections; i++) {
+                calls.add(sqsAsyncClient.isPresent()
+                        ? sqsAsyncClient.get().getQueueAttributes(request).thenAccept(response -> { })
+                        : CompletableFuture.runAsync(() -> sqsClient.getQueueAttributes(request), executor));
+            }
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(timeoutMs, TimeUnit.MILLISECONDS);
+            log.info("Warmed {} SQS connections in {} ms", connections,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (TimeoutException e) {
+            log.warn("SQS connection warm-up did not finish within {} ms, continuing", timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("SQS connection warm-up failed, continuing", e);
+        } finally {
+            executor.shutdownNow();
+            complete = true;
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+}
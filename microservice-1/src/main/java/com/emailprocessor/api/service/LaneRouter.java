@@ -0,0 +1,114 @@
+package com.emailprocessor.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picks the queue an email is published to. Callers may ask for a lane with the request's {@code priority}
+ * field; lanes that are not allowed for the caller or have no queue configured fall back to the default lane.
+ * The normal lane can be spread over several queues, see {@link QueueShards}.
+ */
+@Slf4j
+@Service
+public class LaneRouter {
+    
+    public enum Lane {
+        HIGH, NORMAL, BULK;
+        
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+        
+        public static Lane parse(String value) {
+            return Lane.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+    
+    private final Map<Lane, String> queueUrls = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> routedCounters = new EnumMap<>(Lane.class);
+    private final Lane defaultLane;
+    private final Set<Lane> allowedLanes = EnumSet.noneOf(Lane.class);
+    private final QueueShards normalShards;
+    
+    public LaneRouter(@Value("${sqs.queue-url}") String normalQueueUrl,
+                      @Value("${sqs.lanes.high.url:}") String highQueueUrl,
+                      @Value("${sqs.lanes.bulk.url:}") String bulkQueueUrl,
+                      @Value("${sqs.lanes.default:normal}") String defaultLane,
+                      @Value("${sqs.lanes.allowed:high,normal,bulk}") String allowedLanes,
+                      @Value("${sqs.shards.urls:}") String shardQueueUrls,
+                      @Value("${sqs.shards.draining:}") String drainingShardUrls,
+                      @Value("${sqs.shards.strategy:sender-hash}") String shardStrategy,
+                      MeterRegistry meterRegistry) {
+        queueUrls.put(Lane.NORMAL, normalQueueUrl);
+        normalShards = new QueueShards(normalQueueUrl, shardQueueUrls, drainingShardUrls, shardStrategy, meterRegistry);
+        if (normalShards.size() > 1) {
+            log.info("Normal lane sharded over {} queues, publishing to {}", normalShards.size(),
+                    normalShards.activeUrls());
+        }
+        if (highQueueUrl != null && !highQueueUrl.isBlank()) {
+            queueUrls.put(Lane.HIGH, highQueueUrl);
+        }
+        if (bulkQueueUrl != null && !bulkQueueUrl.isBlank()) {
+            queueUrls.put(Lane.BULK, bulkQueueUrl);
+        }
+        Lane configuredDefault = Lane.parse(defaultLane);
+        this.defaultLane = queueUrls.containsKey(configuredDefault) ? configuredDefault : Lane.NORMAL;
+        for (String lane : allowedLanes.split(",")) {
+            if (!lane.isBlank()) {
+                this.allowedLanes.add(Lane.parse(lane));
+            }
+        }
+        for (Lane lane : Lane.values()) {
+            routedCounters.put(lane, Counter.builder("sqs.messages.routed")
+                    .description("Total number of messages published to each priority lane")
+                    .tag("service", "microservice-1")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry));
+        }
+    }
+    
+    public Lane resolve(String requestedPriority) {
+        if (requestedPriority == null || requestedPriority.isBlank()) {
+            return defaultLane;
+        }
+        Lane requested = Lane.parse(requestedPriority);
+        if (!allowedLanes.contains(requested)) {
+            log.warn("Priority lane {} is not allowed, using {}", requested.tag(), defaultLane.tag());
+            return defaultLane;
+        }
+        if (!queueUrls.containsKey(requested)) {
+            log.debug("No queue configured for priority lane {}, using {}", requested.tag(), defaultLane.tag());
+            return defaultLane;
+        }
+        return requested;
+    }
+    
+    /**
+     * The lane's main queue, for callers that need one queue per lane rather than a destination for a message.
+     */
+    public String queueUrl(Lane lane) {
+        return queueUrls.getOrDefault(lane, queueUrls.get(Lane.NORMAL));
+    }
+    
+    /**
+     * Destination for a message from {@code sender}; picks a shard when the lane ends up on the normal queue.
+     */
+    public String queueUrl(Lane lane, String sender) {
+        String queueUrl = queueUrl(lane);
+        return queueUrl.equals(queueUrls.get(Lane.NORMAL)) ? normalShards.select(sender) : queueUrl;
+    }
+    
+    public void recordPublished(Lane lane, String queueUrl) {
+        routedCounters.get(lane).increment();
+        normalShards.recordPublished(queueUrl);
+    }
+}
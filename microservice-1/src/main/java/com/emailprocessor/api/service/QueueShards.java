@@ -0,0 +1,144 @@
+package com.emailprocessor.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The queues the normal lane is spread over: the main queue plus any shards in {@code sqs.shards.urls}.
+ *
+ * <ul>
+ *   <li>{@code sender-hash}: rendezvous hashing of the sender, so a sender always lands on the same shard and
+ *       adding or draining a shard only moves the senders that hash to it. Required for FIFO queues, since a
+ *       sender's message group must stay on one queue to keep its order.</li>
+ *   <li>{@code round-robin}: even spread regardless of sender.</li>
+ * </ul>
+ *
+ * Shards listed in {@code sqs.shards.draining} receive no new messages. The consumer keeps reading them, so once
+ * it reports a shard drained it can be removed from both lists and deleted. While a shard drains, new messages from
+ * its senders go to another shard and may be stored before older ones still waiting on it.
+ */
+public class QueueShards {
+
+    public enum Strategy { SENDER_HASH, ROUND_ROBIN }
+
+    private static final String FIFO_SUFFIX = ".fifo";
+
+    private final Strategy strategy;
+    private final List<Shard> active;
+    private final Map<String, Shard> byUrl = new LinkedHashMap<>();
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public QueueShards(String mainQueueUrl, String shardQueueUrls, String drainingQueueUrls, String strategy,
+                       MeterRegistry meterRegistry) {
+        this.strategy = Strategy.valueOf(strategy.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        Set<String> draining = split(drainingQueueUrls);
+        Set<String> urls = new LinkedHashSet<>();
+        urls.add(mainQueueUrl);
+        urls.addAll(split(shardQueueUrls));
+
+        List<Shard> activeShards = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            Shard shard = new Shard(url, meterRegistry);
+            byUrl.put(url, shard);
+            if (!draining.contains(url)) {
+                activeShards.add(shard);
+            }
+        }
+        if (activeShards.isEmpty()) {
+            throw new IllegalArgumentException("sqs.shards.draining must leave at least one shard active");
+        }
+        if (this.strategy == Strategy.ROUND_ROBIN && byUrl.size() > 1
+                && byUrl.keySet().stream().anyMatch(url -> url.endsWith(FIFO_SUFFIX))) {
+            throw new IllegalArgumentException("FIFO shards need the sender-hash strategy to keep each sender in order");
+        }
+        this.active = Collections.unmodifiableList(activeShards);
+    }
+
+    public int size() {
+        return byUrl.size();
+    }
+
+    public List<String> activeUrls() {
+        return active.stream().map(shard -> shard.url).toList();
+    }
+
+    public String select(String sender) {
+        if (active.size() == 1) {
+            return active.get(0).url;
+        }
+        if (strategy == Strategy.ROUND_ROBIN || sender == null) {
+            return active.get(Math.floorMod(nextShard.getAndIncrement(), active.size())).url;
+        }
+        long senderHash = mix(sender.trim().toLowerCase(Locale.ROOT).hashCode());
+        Shard best = null;
+        long bestScore = 0;
+        for (Shard shard : active) {
+            long score = mix(senderHash ^ shard.seed);
+            if (best == null || Long.compareUnsigned(score, bestScore) > 0) {
+                best = shard;
+                bestScore = score;
+            }
+        }
+        return best.url;
+    }
+
+    public void recordPublished(String queueUrl) {
+        Shard shard = byUrl.get(queueUrl);
+        if (shard != null) {
+            shard.publishedCounter.increment();
+        }
+    }
+
+    private static Set<String> split(String urls) {
+        Set<String> result = new LinkedHashSet<>();
+        if (urls != null) {
+            for (String url : urls.split(",")) {
+                if (!url.isBlank()) {
+                    result.add(url.trim());
+                }
+            }
+        }
+        return result;
+    }
+
+    // MurmurHash3 finalizer; spreads similar inputs over the whole range
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    static String queueName(String queueUrl) {
+        return queueUrl.substring(queueUrl.lastIndexOf('/') + 1);
+    }
+
+    private static final class Shard {
+
+        private final String url;
+        private final long seed;
+        private final Counter publishedCounter;
+
+        private Shard(String url, MeterRegistry meterRegistry) {
+            this.url = url;
+            this.seed = mix(url.hashCode());
+            this.publishedCounter = Counter.builder("sqs.shard.messages.published")
+                    .description("Messages published to each queue shard of the normal lane")
+                    .tag("service", "microservice-1")
+                    .tag("shard", queueName(url))
+                    .register(meterRegistry);
+        }
+    }
+}
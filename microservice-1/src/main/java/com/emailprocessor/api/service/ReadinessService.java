@@ -0,0 +1,115 @@
+package com.emailprocessor.api.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides whether this task should take new requests, from live saturation signals rather than a fixed answer.
+ * While not ready, {@code /api/email} answers 503 straight away and {@code /api/ready} reports why. The load
+ * balancer target group checks the {@code /api/health} liveness path instead, since ECS replaces any task its
+ * target group marks unhealthy and a saturated task only needs to shed load, not be restarted.
+ *
+ * <p>A new task also stays not-ready until {@link ConnectionWarmup} has opened its SQS connections.
+ *
+ * <p>A stale SSM token makes the task degraded rather than not ready: the token is shared by every task, so
+ * shedding on it would turn all requests away without fixing anything. It is reported as its own signal, on
+ * {@code /api/ready} and the {@code service.degraded} gauge.
+ *
+ * <p>Saturation uses hysteresis: a signal goes not-ready at its limit and only turns ready again once it has
+ * fallen to {@code resume-ratio} of the limit, so a task near capacity does not flap in and out of the target group.
+ */
+@Slf4j
+@Service
+public class ReadinessService {
+
+    public record Check(String name, boolean ready, String detail) {
+    }
+
+    public record Readiness(boolean ready, boolean degraded, List<Check> checks) {
+    }
+
+    private final SqsPublisherService sqsPublisherService;
+    private final ValidationService validationService;
+    private final ConnectionWarmup connectionWarmup;
+    private final int maxInFlightPublishes;
+    private final long maxTokenAgeMs;
+    private final Hysteresis publishSaturation;
+    private volatile boolean lastReady = true;
+    private volatile boolean lastDegraded;
+
+    public ReadinessService(SqsPublisherService sqsPublisherService,
+                            ValidationService validationService,
+                            ConnectionWarmup connectionWarmup,
+                            @Value("${readiness.publish.max-in-flight:100}") int maxInFlightPublishes,
+                            @Value("${readiness.token.max-age-ms:900000}") long maxTokenAgeMs,
+                            @Value("${readiness.resume-ratio:0.8}") double resumeRatio,
+                            MeterRegistry meterRegistry) {
+        this.sqsPublisherService = sqsPublisherService;
+        this.validationService = validationService;
+        this.connectionWarmup = connectionWarmup;
+        this.maxInFlightPublishes = maxInFlightPublishes;
+        this.maxTokenAgeMs = maxTokenAgeMs;
+        this.publishSaturation = new Hysteresis(resumeRatio);
+        Gauge.builder("service.ready", this, service -> service.lastReady ? 1 : 0)
+                .description("1 while the task reports ready for traffic")
+                .tag("service", "microservice-1")
+                .register(meterRegistry);
+        Gauge.builder("service.degraded", this, service -> service.lastDegraded ? 1 : 0)
+                .description("1 while a signal shared by every task, such as the SSM token, is unhealthy")
+                .tag("service", "microservice-1")
+                .register(meterRegistry);
+    }
+
+    public Readiness check() {
+        int inFlight = sqsPublisherService.inFlight();
+        long tokenAgeMs = validationService.tokenAgeMillis();
+        List<Check> checks = new ArrayList<>(List.of(
+                new Check("publishInFlight", publishSaturation.update((double) inFlight / maxInFlightPublishes),
+                        inFlight + "/" + maxInFlightPublishes),
+                new Check("connectionWarmup", connectionWarmup.isComplete(),
+                        connectionWarmup.isComplete() ? "done" : "in progress")));
+        boolean ready = checks.stream().allMatch(Check::ready);
+        Check ssmToken = new Check("ssmToken", tokenAgeMs <= maxTokenAgeMs,
+                tokenAgeMs == Long.MAX_VALUE ? "not loaded" : "age " + tokenAgeMs / 1000 + "s");
+        checks.add(ssmToken);
+        boolean degraded = !ssmToken.ready();
+
+        if (ready != lastReady) {
+            log.warn("Readiness changed to {}: {}", ready ? "ready" : "not ready", checks);
+            lastReady = ready;
+        }
+        if (degraded != lastDegraded) {
+            log.warn("Degraded changed to {}: {}", degraded, ssmToken);
+            lastDegraded = degraded;
+        }
+        return new Readiness(ready, degraded, checks);
+    }
+
+    /**
+     * Saturated at a utilization of 1.0; clears again at or below the resume ratio.
+     */
+    static final class Hysteresis {
+
+        private final double resumeRatio;
+        private boolean saturated;
+
+        Hysteresis(double resumeRatio) {
+            this.resumeRatio = resumeRatio;
+        }
+
+        synchronized boolean update(double utilization) {
+            if (saturated) {
+                saturated = utilization > resumeRatio;
+            } else {
+                saturated = utilization >= 1.0;
+            }
+            return !saturated;
+        }
+    }
+}
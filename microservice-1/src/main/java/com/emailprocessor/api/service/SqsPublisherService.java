@@ -1,96 +1,274 @@
 package com.emailprocessor.api.service;
 
+import com.emailprocessor.api.config.IngestStageTimers;
+import com.emailprocessor.api.jfr.EnvelopeSerializationEvent;
+import com.emailprocessor.api.jfr.SqsSendEvent;
+import com.emailprocessor.common.config.CorrelationIdExemplarSampler;
+import com.emailprocessor.common.service.SenderTracker;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.MDC;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
 import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
 import software.amazon.awssdk.services.sqs.model.SqsException;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
 public class SqsPublisherService {
     
+    private static final String FIFO_SUFFIX = ".fifo";
+    // 128 bits of the sender hash; plenty to keep unrelated senders in separate groups
+    private static final int GROUP_ID_BYTES = 16;
+    
     private final SqsClient sqsClient;
-    private final String queueUrl;
+    private final Optional<SqsAsyncClient> sqsAsyncClient;
+    private final LaneRouter laneRouter;
+    private final SenderTracker senderTracker;
+    private final Tracer tracer;
+    private final Propagator propagator;
     private final ObjectMapper objectMapper;
+    private final IngestStageTimers ingestStageTimers;
     private final Counter messagesSentCounter;
     private final Counter messagesSentFailureCounter;
     private final Timer publishTimer;
+    private final AtomicInteger inFlight = new AtomicInteger();
     
     public SqsPublisherService(SqsClient sqsClient, 
-                              @Value("${sqs.queue-url}") String queueUrl,
+                              Optional<SqsAsyncClient> sqsAsyncClient,
+                              LaneRouter laneRouter,
+                              SenderTracker senderTracker,
+                              Tracer tracer,
+                              Propagator propagator,
                               ObjectMapper objectMapper,
+                              IngestStageTimers ingestStageTimers,
                               Counter sqsMessagesSentCounter,
                               Counter sqsMessagesSentFailureCounter,
                               Timer sqsPublishTimer) {
         this.sqsClient = sqsClient;
-        this.queueUrl = queueUrl;
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.laneRouter = laneRouter;
+        this.senderTracker = senderTracker;
+        this.tracer = tracer;
+        this.propagator = propagator;
         this.objectMapper = objectMapper;
+        this.ingestStageTimers = ingestStageTimers;
         this.messagesSentCounter = sqsMessagesSentCounter;
         this.messagesSentFailureCounter = sqsMessagesSentFailureCounter;
         this.publishTimer = sqsPublishTimer;
     }
     
     public String publishEmailMessage(com.emailprocessor.api.dto.EmailRequest.EmailData emailData, String correlationId) {
+        return publishEmailMessage(emailData, correlationId, null);
+    }
+    
+    public String publishEmailMessage(com.emailprocessor.api.dto.EmailRequest.EmailData emailData, String correlationId,
+                                      String priority) {
         return publishTimer.record(() -> {
+            inFlight.incrementAndGet();
+            Span span = tracer.spanBuilder().name("sqs.publish").kind(Span.Kind.PRODUCER).start();
             try {
-                // Create message payload
-                Map<String, Object> messagePayload = new HashMap<>();
-                messagePayload.put("emailSubject", emailData.getEmailSubject());
-                messagePayload.put("emailSender", emailData.getEmailSender());
-                messagePayload.put("emailTimestream", emailData.getEmailTimestream());
-                messagePayload.put("emailContent", emailData.getEmailContent());
-                messagePayload.put("correlationId", correlationId);
-                messagePayload.put("timestamp", System.currentTimeMillis());
-                
-                String messageBody = objectMapper.writeValueAsString(messagePayload);
-                
-                // Create message attributes
-                Map<String, software.amazon.awssdk.services.sqs.model.MessageAttributeValue> messageAttributes = new HashMap<>();
-                messageAttributes.put("correlationId", 
-                    software.amazon.awssdk.services.sqs.model.MessageAttributeValue.builder()
-                        .stringValue(correlationId)
-                        .dataType("String")
-                        .build());
-                messageAttributes.put("sender", 
-                    software.amazon.awssdk.services.sqs.model.MessageAttributeValue.builder()
-                        .stringValue(emailData.getEmailSender())
-                        .dataType("String")
-                        .build());
-                
-                SendMessageRequest request = SendMessageRequest.builder()
-                        .queueUrl(queueUrl)
-                        .messageBody(messageBody)
-                        .messageAttributes(messageAttributes)
-                        .build();
+                OutgoingMessage outgoing = prepare(emailData, correlationId, priority, span);
                 
-                SendMessageResponse response = sqsClient.sendMessage(request);
-                
-                messagesSentCounter.increment();
-                
-                log.info("Successfully published message to SQS. MessageId: {}, CorrelationId: {}", 
-                        response.messageId(), correlationId);
+                SqsSendEvent sendEvent = new SqsSendEvent();
+                sendEvent.begin();
+                long stageStart = System.nanoTime();
+                SendMessageResponse response = sqsClient.sendMessage(outgoing.request());
+                ingestStageTimers.record(IngestStageTimers.Stage.SQS_SEND, stageStart);
+                sendEvent.complete(correlationId, outgoing.bodyLength());
                 
+                recordSent(outgoing, emailData, correlationId, response, span);
                 return response.messageId();
                 
             } catch (SqsException e) {
+                span.error(e);
                 messagesSentFailureCounter.increment();
                 log.error("Failed to publish message to SQS. CorrelationId: {}", correlationId, e);
                 throw new RuntimeException("Failed to publish message to SQS", e);
             } catch (Exception e) {
+                span.error(e);
                 messagesSentFailureCounter.increment();
                 log.error("Unexpected error publishing message to SQS. CorrelationId: {}", correlationId, e);
                 throw new RuntimeException("Unexpected error publishing message to SQS", e);
+            } finally {
+                span.end();
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+    
+    /**
+     * Same message, metrics and failure handling as {@link #publishEmailMessage}, sent with the async SQS client so
+     * the calling thread is not held while SQS answers. Only available on the reactive stack.
+     */
+    public CompletableFuture<String> publishEmailMessageAsync(com.emailprocessor.api.dto.EmailRequest.EmailData emailData,
+                                                              String correlationId, String priority) {
+        if (sqsAsyncClient.isEmpty()) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Async SQS client is only available on the reactive stack"));
+        }
+        long publishStart = System.nanoTime();
+        inFlight.incrementAndGet();
+        Span span = tracer.spanBuilder().name("sqs.publish").kind(Span.Kind.PRODUCER).start();
+        OutgoingMessage outgoing;
+        try {
+            outgoing = prepare(emailData, correlationId, priority, span);
+        } catch (Exception e) {
+            span.error(e);
+            messagesSentFailureCounter.increment();
+            log.error("Unexpected error publishing message to SQS. CorrelationId: {}", correlationId, e);
+            finishAsync(span, publishStart);
+            return CompletableFuture.failedFuture(new RuntimeException("Unexpected error publishing message to SQS", e));
+        }
+        
+        SqsSendEvent sendEvent = new SqsSendEvent();
+        sendEvent.begin();
+        long stageStart = System.nanoTime();
+        return sqsAsyncClient.get().sendMessage(outgoing.request()).handle((response, error) -> {
+            // Runs on an SDK thread, so the caller's MDC is not there for the publish timer's exemplar
+            try (MDC.MDCCloseable ignored = MDC.putCloseable(CorrelationIdExemplarSampler.MDC_KEY, correlationId)) {
+                try {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        span.error(cause);
+                        messagesSentFailureCounter.increment();
+                        log.error("Failed to publish message to SQS. CorrelationId: {}", correlationId, cause);
+                        throw new CompletionException(new RuntimeException("Failed to publish message to SQS", cause));
+                    }
+                    ingestStageTimers.record(IngestStageTimers.Stage.SQS_SEND, stageStart);
+                    sendEvent.complete(correlationId, outgoing.bodyLength());
+                    recordSent(outgoing, emailData, correlationId, response, span);
+                    return response.messageId();
+                } finally {
+                    finishAsync(span, publishStart);
+                }
             }
         });
     }
+    
+    private void finishAsync(Span span, long publishStart) {
+        span.end();
+        inFlight.decrementAndGet();
+        publishTimer.record(System.nanoTime() - publishStart, TimeUnit.NANOSECONDS);
+    }
+    
+    private record OutgoingMessage(LaneRouter.Lane lane, SendMessageRequest request, int bodyLength) {
+    }
+    
+    /**
+     * Serializes the envelope and builds the send request, with the trace context of {@code span} attached.
+     */
+    private OutgoingMessage prepare(com.emailprocessor.api.dto.EmailRequest.EmailData emailData, String correlationId,
+                                    String priority, Span span) throws JsonProcessingException {
+        LaneRouter.Lane lane = laneRouter.resolve(priority);
+        span.tag("messaging.system", "aws_sqs").tag("messaging.destination.name", lane.tag());
+        
+        // Create message payload
+        Map<String, Object> messagePayload = new HashMap<>();
+        messagePayload.put("emailSubject", emailData.getEmailSubject());
+        messagePayload.put("emailSender", emailData.getEmailSender());
+        messagePayload.put("emailTimestream", emailData.getEmailTimestream());
+        messagePayload.put("emailContent", emailData.getEmailContent());
+        messagePayload.put("correlationId", correlationId);
+        messagePayload.put("timestamp", System.currentTimeMillis());
+        
+        EnvelopeSerializationEvent serializationEvent = new EnvelopeSerializationEvent();
+        serializationEvent.begin();
+        long stageStart = System.nanoTime();
+        String messageBody = objectMapper.writeValueAsString(messagePayload);
+        ingestStageTimers.record(IngestStageTimers.Stage.SERIALIZATION, stageStart);
+        serializationEvent.complete(correlationId, messageBody.length());
+        
+        // Create message attributes
+        Map<String, software.amazon.awssdk.services.sqs.model.MessageAttributeValue> messageAttributes = new HashMap<>();
+        messageAttributes.put("correlationId", 
+            software.amazon.awssdk.services.sqs.model.MessageAttributeValue.builder()
+                .stringValue(correlationId)
+                .dataType("String")
+                .build());
+        messageAttributes.put("lane", 
+            software.amazon.awssdk.services.sqs.model.MessageAttributeValue.builder()
+                .stringValue(lane.tag())
+                .dataType("String")
+                .build());
+        messageAttributes.put("sender", 
+            software.amazon.awssdk.services.sqs.model.MessageAttributeValue.builder()
+                .stringValue(emailData.getEmailSender())
+                .dataType("String")
+                .build());
+        
+        // W3C trace context, so the consumer continues this trace across the queue
+        propagator.inject(span.context(), messageAttributes, (attributes, key, value) -> attributes.put(key,
+            software.amazon.awssdk.services.sqs.model.MessageAttributeValue.builder()
+                .stringValue(value)
+                .dataType("String")
+                .build()));
+        
+        String queueUrl = laneRouter.queueUrl(lane, emailData.getEmailSender());
+        SendMessageRequest.Builder request = SendMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .messageBody(messageBody)
+                .messageAttributes(messageAttributes);
+        
+        if (queueUrl.endsWith(FIFO_SUFFIX)) {
+            // Keeps each sender's emails in arrival order without serialising unrelated senders
+            request.messageGroupId(messageGroupId(emailData.getEmailSender()))
+                    .messageDeduplicationId(correlationId);
+        }
+        return new OutgoingMessage(lane, request.build(), messageBody.length());
+    }
+    
+    private void recordSent(OutgoingMessage outgoing, com.emailprocessor.api.dto.EmailRequest.EmailData emailData,
+                            String correlationId, SendMessageResponse response, Span span) {
+        messagesSentCounter.increment();
+        laneRouter.recordPublished(outgoing.lane(), outgoing.request().queueUrl());
+        senderTracker.record(emailData.getEmailSender(), outgoing.bodyLength());
+        
+        span.tag("messaging.message.id", response.messageId());
+        log.info("Successfully published message to SQS. MessageId: {}, Lane: {}, CorrelationId: {}", 
+                response.messageId(), outgoing.lane().tag(), correlationId);
+    }
+    
+    /**
+     * Publishes currently waiting on SQS.
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+    
+    /**
+     * Hashed so sender addresses do not show up in queue metadata.
+     */
+    static String messageGroupId(String emailSender) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(emailSender.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, GROUP_ID_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
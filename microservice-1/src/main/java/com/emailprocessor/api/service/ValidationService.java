@@ -1,8 +1,10 @@
 package com.emailprocessor.api.service;
 
+import com.emailprocessor.api.jfr.TokenValidationEvent;
 import io.micrometer.core.instrument.Counter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.ssm.SsmClient;
 import software.amazon.awssdk.services.ssm.model.GetParameterRequest;
@@ -22,6 +24,7 @@ public class ValidationService {
     private final Counter validationSuccessCounter;
     private final Counter tokenValidationFailureCounter;
     private final Counter emailDataValidationFailureCounter;
+    private volatile long tokenLoadedAt;
     
     public ValidationService(SsmClient ssmClient, 
                             @Value("${ssm.parameter-name}") String parameterName,
@@ -37,6 +40,16 @@ public class ValidationService {
     }
     
     public boolean validateToken(String providedToken) {
+        TokenValidationEvent event = new TokenValidationEvent();
+        event.begin();
+        try {
+            return checkToken(providedToken);
+        } finally {
+            event.complete(null, providedToken != null ? providedToken.length() : 0);
+        }
+    }
+    
+    private boolean checkToken(String providedToken) {
         try {
             String cachedToken = tokenCache.get(CACHE_KEY);
             if (cachedToken == null) {
@@ -114,6 +127,7 @@ public class ValidationService {
             String token = response.parameter().value();
             
             tokenCache.put(CACHE_KEY, token);
+            tokenLoadedAt = System.currentTimeMillis();
             log.info("Successfully loaded token from SSM parameter: {}", parameterName);
             
         } catch (SsmException e) {
@@ -126,4 +140,21 @@ public class ValidationService {
         log.info("Refreshing token from SSM");
         loadTokenFromSSM();
     }
+    
+    @Scheduled(fixedDelayString = "${ssm.refresh-interval-ms:300000}", initialDelayString = "${ssm.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        try {
+            refreshToken();
+        } catch (RuntimeException e) {
+            // Keep serving with the cached token; readiness reports it as stale once it is too old
+            log.warn("Scheduled token refresh failed, keeping cached token");
+        }
+    }
+    
+    /**
+     * Time since the token was last loaded from SSM, or {@link Long#MAX_VALUE} when it never was.
+     */
+    public long tokenAgeMillis() {
+        return tokenLoadedAt == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - tokenLoadedAt;
+    }
 }
@@ -1,26 +1,40 @@
 package com.emailprocessor.api.controller;
 
+import com.emailprocessor.api.config.IngestStageTimers;
 import com.emailprocessor.api.dto.EmailRequest;
+import com.emailprocessor.api.service.ReadinessService;
 import com.emailprocessor.api.service.SqsPublisherService;
 import com.emailprocessor.api.service.ValidationService;
+import com.emailprocessor.common.config.IdGeneratorConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(EmailController.class)
+@Import(IdGeneratorConfig.class)
 class EmailControllerTest {
 
     @Autowired
@@ -35,6 +49,12 @@ class EmailControllerTest {
     @MockBean
     private SqsPublisherService sqsPublisherService;
 
+    @MockBean
+    private ReadinessService readinessService;
+
+    @MockBean
+    private IngestStageTimers ingestStageTimers;
+
     private EmailRequest validRequest;
 
     @BeforeEach
@@ -47,6 +67,7 @@ class EmailControllerTest {
         emailData.setEmailContent("Just want to say... Happy new year!!!");
         validRequest.setData(emailData);
         validRequest.setToken("$DJISA<$#45ex3RtYr");
+        when(readinessService.check()).thenReturn(new ReadinessService.Readiness(true, false, List.of()));
     }
 
     @Test
@@ -54,7 +75,7 @@ class EmailControllerTest {
         // Given
         when(validationService.validateToken(anyString())).thenReturn(true);
         when(validationService.validateEmailData(any())).thenReturn(true);
-        when(sqsPublisherService.publishEmailMessage(any(), anyString())).thenReturn("message-id-123");
+        when(sqsPublisherService.publishEmailMessage(any(), anyString(), any())).thenReturn("message-id-123");
 
         // When & Then
         mockMvc.perform(post("/api/email")
@@ -66,6 +87,30 @@ class EmailControllerTest {
                 .andExpect(jsonPath("$.correlationId").exists());
     }
 
+    @Test
+    void testProcessEmail_RecordsStageTimings() throws Exception {
+        // Given
+        when(validationService.validateToken(anyString())).thenReturn(true);
+        when(validationService.validateEmailData(any())).thenReturn(true);
+        when(sqsPublisherService.publishEmailMessage(any(), anyString(), any())).thenReturn("message-id-123");
+
+        // When
+        mockMvc.perform(post("/api/email")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validRequest)))
+                .andExpect(status().isOk());
+
+        // Then
+        InOrder stages = inOrder(ingestStageTimers);
+        stages.verify(ingestStageTimers).mark();
+        stages.verify(ingestStageTimers).recordSinceMark(IngestStageTimers.Stage.BODY_BINDING);
+        stages.verify(ingestStageTimers).mark();
+        stages.verify(ingestStageTimers).recordSinceMark(IngestStageTimers.Stage.BEAN_VALIDATION);
+        stages.verify(ingestStageTimers).record(eq(IngestStageTimers.Stage.TOKEN_VALIDATION), anyLong());
+        stages.verify(ingestStageTimers).record(eq(IngestStageTimers.Stage.DATA_VALIDATION), anyLong());
+        stages.verify(ingestStageTimers).recordRequest(anyLong());
+    }
+
     @Test
     void testProcessEmail_InvalidToken() throws Exception {
         // Given
@@ -126,7 +171,7 @@ class EmailControllerTest {
         // Given
         when(validationService.validateToken(anyString())).thenReturn(true);
         when(validationService.validateEmailData(any())).thenReturn(true);
-        when(sqsPublisherService.publishEmailMessage(any(), anyString()))
+        when(sqsPublisherService.publishEmailMessage(any(), anyString(), any()))
                 .thenThrow(new RuntimeException("SQS connection failed"));
 
         // When & Then
@@ -138,11 +183,49 @@ class EmailControllerTest {
                 .andExpect(jsonPath("$.message").value("Internal server error"));
     }
 
+    @Test
+    void testProcessEmail_ShedsWhileNotReady() throws Exception {
+        // Given
+        when(readinessService.check()).thenReturn(new ReadinessService.Readiness(false, false,
+                List.of(new ReadinessService.Check("publishInFlight", false, "100/100"))));
+
+        // When & Then
+        mockMvc.perform(post("/api/email")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.correlationId").exists());
+        verify(validationService, never()).validateToken(anyString());
+        verify(sqsPublisherService, never()).publishEmailMessage(any(), anyString(), any());
+    }
+
     @Test
     void testHealthEndpoint() throws Exception {
         mockMvc.perform(get("/api/health"))
                 .andExpect(status().isOk())
                 .andExpect(result -> result.getResponse().getContentAsString().equals("Service is healthy"));
     }
-}
 
+    @Test
+    void testReadyEndpoint_Ready() throws Exception {
+        when(readinessService.check()).thenReturn(new ReadinessService.Readiness(true, false,
+                List.of(new ReadinessService.Check("publishInFlight", true, "3/100"))));
+
+        mockMvc.perform(get("/api/ready"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ready").value(true))
+                .andExpect(jsonPath("$.checks[0].name").value("publishInFlight"));
+    }
+
+    @Test
+    void testReadyEndpoint_SaturatedReturnsServiceUnavailable() throws Exception {
+        when(readinessService.check()).thenReturn(new ReadinessService.Readiness(false, false,
+                List.of(new ReadinessService.Check("publishInFlight", false, "100/100"))));
+
+        mockMvc.perform(get("/api/ready"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.ready").value(false));
+    }
+}
@@ -0,0 +1,206 @@
+package com.emailprocessor.api.controller;
+
+import com.emailprocessor.api.config.IngestStageTimers;
+import com.emailprocessor.api.dto.EmailRequest;
+import com.emailprocessor.api.dto.EmailResponse;
+import com.emailprocessor.api.service.ReadinessService;
+import com.emailprocessor.api.service.SqsPublisherService;
+import com.emailprocessor.api.service.ValidationService;
+import com.emailprocessor.common.config.CorrelationIdExemplarSampler;
+import com.emailprocessor.common.config.IdGeneratorConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(controllers = ReactiveEmailController.class, properties = "spring.main.web-application-type=reactive")
+@Import(IdGeneratorConfig.class)
+class ReactiveEmailControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ValidationService validationService;
+
+    @MockBean
+    private SqsPublisherService sqsPublisherService;
+
+    @MockBean
+    private ReadinessService readinessService;
+
+    @MockBean
+    private IngestStageTimers ingestStageTimers;
+
+    private EmailRequest validRequest;
+
+    @BeforeEach
+    void setUp() {
+        validRequest = new EmailRequest();
+        EmailRequest.EmailData emailData = new EmailRequest.EmailData();
+        emailData.setEmailSubject("Happy new year!");
+        emailData.setEmailSender("John doe");
+        emailData.setEmailTimestream("1693561101");
+        emailData.setEmailContent("Just want to say... Happy new year!!!");
+        validRequest.setData(emailData);
+        validRequest.setToken("$DJISA<$#45ex3RtYr");
+        when(readinessService.check()).thenReturn(new ReadinessService.Readiness(true, false, List.of()));
+    }
+
+    @Test
+    void testProcessEmail_Success() {
+        // Given
+        when(validationService.validateToken(anyString())).thenReturn(true);
+        when(validationService.validateEmailData(any())).thenReturn(true);
+        when(sqsPublisherService.publishEmailMessageAsync(any(), anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture("message-id-123"));
+
+        // When & Then
+        webTestClient.post().uri("/api/email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true)
+                .jsonPath("$.message").isEqualTo("Email processed successfully and queued for storage")
+                .jsonPath("$.correlationId").exists();
+        verify(ingestStageTimers).record(eq(IngestStageTimers.Stage.BODY_BINDING), anyLong());
+        verify(ingestStageTimers).record(eq(IngestStageTimers.Stage.BEAN_VALIDATION), anyLong());
+        verify(ingestStageTimers).recordRequest(anyLong());
+    }
+
+    @Test
+    void testProcessEmail_CorrelationIdInMdcForExemplars() {
+        // Given
+        when(validationService.validateToken(anyString())).thenReturn(true);
+        when(validationService.validateEmailData(any())).thenReturn(true);
+        AtomicReference<String> publishedWith = new AtomicReference<>();
+        when(sqsPublisherService.publishEmailMessageAsync(any(), anyString(), any())).thenAnswer(invocation -> {
+            publishedWith.set(MDC.get(CorrelationIdExemplarSampler.MDC_KEY));
+            return CompletableFuture.completedFuture("message-id-123");
+        });
+        AtomicReference<String> timedWith = new AtomicReference<>();
+        doAnswer(invocation -> {
+            timedWith.set(MDC.get(CorrelationIdExemplarSampler.MDC_KEY));
+            return null;
+        }).when(ingestStageTimers).recordRequest(anyLong());
+
+        // When
+        EmailResponse response = webTestClient.post().uri("/api/email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(EmailResponse.class)
+                .returnResult().getResponseBody();
+
+        // Then
+        assertNotNull(response);
+        assertEquals(response.getCorrelationId(), publishedWith.get());
+        assertEquals(response.getCorrelationId(), timedWith.get());
+    }
+
+    @Test
+    void testProcessEmail_InvalidToken() {
+        // Given
+        when(validationService.validateToken(anyString())).thenReturn(false);
+
+        // When & Then
+        webTestClient.post().uri("/api/email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest)
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.message").isEqualTo("Invalid token");
+        verify(sqsPublisherService, never()).publishEmailMessageAsync(any(), anyString(), any());
+    }
+
+    @Test
+    void testProcessEmail_MissingTokenFailsBeanValidation() {
+        // Given
+        validRequest.setToken(null);
+
+        // When & Then
+        webTestClient.post().uri("/api/email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(validationService, never()).validateToken(any());
+    }
+
+    @Test
+    void testProcessEmail_PublishFailure() {
+        // Given
+        when(validationService.validateToken(anyString())).thenReturn(true);
+        when(validationService.validateEmailData(any())).thenReturn(true);
+        when(sqsPublisherService.publishEmailMessageAsync(any(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Failed to publish message to SQS")));
+
+        // When & Then
+        webTestClient.post().uri("/api/email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest)
+                .exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Internal server error");
+    }
+
+    @Test
+    void testProcessEmail_ShedsWhileNotReady() {
+        // Given
+        when(readinessService.check()).thenReturn(new ReadinessService.Readiness(false, false,
+                List.of(new ReadinessService.Check("publishInFlight", false, "100/100"))));
+
+        // When & Then
+        webTestClient.post().uri("/api/email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validRequest)
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals("Retry-After", "1")
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.correlationId").exists();
+        verify(validationService, never()).validateToken(anyString());
+        verify(sqsPublisherService, never()).publishEmailMessageAsync(any(), anyString(), any());
+    }
+
+    @Test
+    void testReady_NotReady() {
+        // Given
+        when(readinessService.check()).thenReturn(new ReadinessService.Readiness(false, false,
+                List.of(new ReadinessService.Check("connectionWarmup", false, "in progress"))));
+
+        // When & Then
+        webTestClient.get().uri("/api/ready")
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectBody()
+                .jsonPath("$.checks[0].name").isEqualTo("connectionWarmup");
+    }
+}
@@ -0,0 +1,122 @@
+package com.emailprocessor.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionWarmupTest {
+
+    @Mock(lenient = true)
+    private SqsClient sqsClient;
+
+    @Mock(lenient = true)
+    private SqsAsyncClient sqsAsyncClient;
+
+    private LaneRouter laneRouter;
+
+    @BeforeEach
+    void setUp() {
+        laneRouter = new LaneRouter("normal-url", "", "", "normal", "high,normal,bulk",
+                "", "", "sender-hash", new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testWarmUp_CallsSqsConcurrently() {
+        // Given - each call waits until all of them are in flight, as they would on separate connections
+        CountDownLatch allInFlight = new CountDownLatch(3);
+        when(sqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenAnswer(invocation -> {
+            allInFlight.countDown();
+            allInFlight.await();
+            return GetQueueAttributesResponse.builder().build();
+        });
+        ConnectionWarmup warmup = new ConnectionWarmup(sqsClient, Optional.empty(), laneRouter, true, 3, 5000);
+        assertFalse(warmup.isComplete());
+
+        // When
+        warmup.warmUp();
+
+        // Then
+        verify(sqsClient, times(3)).getQueueAttributes(
+                argThat((GetQueueAttributesRequest request) -> request.queueUrl().equals("normal-url")));
+        assertEquals(0, allInFlight.getCount());
+        assertTrue(warmup.isComplete());
+    }
+
+    @Test
+    void testWarmUp_CompletesWhenSqsFails() {
+        // Given
+        when(sqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class)))
+                .thenThrow(SqsException.builder().message("Access denied").build());
+        ConnectionWarmup warmup = new ConnectionWarmup(sqsClient, Optional.empty(), laneRouter, true, 2, 5000);
+
+        // When
+        warmup.warmUp();
+
+        // Then
+        assertTrue(warmup.isComplete());
+    }
+
+    @Test
+    void testWarmUp_CompletesAfterTimeout() {
+        // Given
+        when(sqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return GetQueueAttributesResponse.builder().build();
+        });
+        ConnectionWarmup warmup = new ConnectionWarmup(sqsClient, Optional.empty(), laneRouter, true, 2, 100);
+
+        // When
+        warmup.warmUp();
+
+        // Then
+        assertTrue(warmup.isComplete());
+    }
+
+    @Test
+    void testWarmUp_DisabledIsCompleteWithoutCalls() {
+        // Given
+        ConnectionWarmup warmup = new ConnectionWarmup(sqsClient, Optional.empty(), laneRouter, false, 4, 5000);
+
+        // When
+        warmup.warmUp();
+
+        // Then
+        assertTrue(warmup.isComplete());
+        verifyNoInteractions(sqsClient);
+    }
+
+    @Test
+    void testWarmUp_UsesAsyncClientOnReactiveStack() {
+        // Given
+        when(sqsAsyncClient.getQueueAttributes(any(GetQueueAttributesRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(GetQueueAttributesResponse.builder().build()));
+        ConnectionWarmup warmup = new ConnectionWarmup(sqsClient, Optional.of(sqsAsyncClient), laneRouter, true, 3,
+                5000);
+
+        // When
+        warmup.warmUp();
+
+        // Then
+        verify(sqsAsyncClient, times(3)).getQueueAttributes(any(GetQueueAttributesRequest.class));
+        verifyNoInteractions(sqsClient);
+        assertTrue(warmup.isComplete());
+    }
+}
@@ -0,0 +1,113 @@
+package com.emailprocessor.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueShardsTest {
+
+    private static final String MAIN = "https://sqs.us-west-1.amazonaws.com/123456789/email-queue";
+    private static final String SHARD_A = "https://sqs.us-west-1.amazonaws.com/123456789/email-queue-a";
+    private static final String SHARD_B = "https://sqs.us-west-1.amazonaws.com/123456789/email-queue-b";
+    private static final String SHARD_C = "https://sqs.us-west-1.amazonaws.com/123456789/email-queue-c";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private QueueShards shards(String shardUrls, String draining, String strategy) {
+        return new QueueShards(MAIN, shardUrls, draining, strategy, meterRegistry);
+    }
+
+    @Test
+    void testSelect_WithoutShardsUsesMainQueue() {
+        // Given
+        QueueShards shards = shards("", "", "sender-hash");
+
+        // When / Then
+        assertEquals(1, shards.size());
+        assertEquals(MAIN, shards.select("sender@example.com"));
+    }
+
+    @Test
+    void testSelect_SenderHashIsStableAndSpreads() {
+        // Given
+        QueueShards shards = shards(SHARD_A + "," + SHARD_B + "," + SHARD_C, "", "sender-hash");
+        Map<String, Integer> perShard = new HashMap<>();
+
+        // When
+        for (int i = 0; i < 4000; i++) {
+            String sender = "sender-" + i + "@example.com";
+            String selected = shards.select(sender);
+            assertEquals(selected, shards.select(" " + sender.toUpperCase() + " "));
+            perShard.merge(selected, 1, Integer::sum);
+        }
+
+        // Then - every shard takes a reasonable share
+        assertEquals(4, perShard.size());
+        perShard.values().forEach(count -> assertTrue(count > 700, "uneven spread: " + perShard));
+    }
+
+    @Test
+    void testSelect_DrainingMovesOnlyItsSenders() {
+        // Given
+        QueueShards before = shards(SHARD_A + "," + SHARD_B, "", "sender-hash");
+        QueueShards during = shards(SHARD_A + "," + SHARD_B, SHARD_B, "sender-hash");
+
+        // When / Then
+        for (int i = 0; i < 1000; i++) {
+            String sender = "sender-" + i;
+            String was = before.select(sender);
+            String now = during.select(sender);
+            assertNotEquals(SHARD_B, now);
+            if (!was.equals(SHARD_B)) {
+                assertEquals(was, now);
+            }
+        }
+        assertEquals(List.of(MAIN, SHARD_A), during.activeUrls());
+    }
+
+    @Test
+    void testSelect_RoundRobinCyclesActiveShards() {
+        // Given
+        QueueShards shards = shards(SHARD_A + "," + SHARD_B, "", "round-robin");
+        Set<String> picked = new HashSet<>();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            picked.add(shards.select("same-sender"));
+        }
+
+        // Then
+        assertEquals(Set.of(MAIN, SHARD_A, SHARD_B), picked);
+    }
+
+    @Test
+    void testConstructor_RejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> shards(SHARD_A, MAIN + "," + SHARD_A, "sender-hash"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new QueueShards(MAIN + ".fifo", SHARD_A + ".fifo", "", "round-robin", meterRegistry));
+        assertThrows(IllegalArgumentException.class, () -> shards("", "", "random"));
+    }
+
+    @Test
+    void testRecordPublished_CountsPerShard() {
+        // Given
+        QueueShards shards = shards(SHARD_A, "", "sender-hash");
+
+        // When
+        shards.recordPublished(SHARD_A);
+        shards.recordPublished("https://sqs.us-west-1.amazonaws.com/123456789/email-queue-high");
+
+        // Then
+        assertEquals(1.0, meterRegistry.get("sqs.shard.messages.published").tag("shard", "email-queue-a")
+                .counter().count());
+        assertEquals(0.0, meterRegistry.get("sqs.shard.messages.published").tag("shard", "email-queue")
+                .counter().count());
+    }
+}
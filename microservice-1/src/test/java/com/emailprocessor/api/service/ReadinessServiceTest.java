@@ -0,0 +1,99 @@
+package com.emailprocessor.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReadinessServiceTest {
+
+    @Mock(lenient = true)
+    private SqsPublisherService sqsPublisherService;
+
+    @Mock(lenient = true)
+    private ValidationService validationService;
+
+    @Mock(lenient = true)
+    private ConnectionWarmup connectionWarmup;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReadinessService readinessService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        readinessService = new ReadinessService(sqsPublisherService, validationService, connectionWarmup, 10, 60000,
+                0.8, meterRegistry);
+        when(validationService.tokenAgeMillis()).thenReturn(1000L);
+        when(connectionWarmup.isComplete()).thenReturn(true);
+    }
+
+    @Test
+    void testCheck_ReadyWhenBelowLimits() {
+        when(sqsPublisherService.inFlight()).thenReturn(5);
+
+        ReadinessService.Readiness readiness = readinessService.check();
+
+        assertTrue(readiness.ready());
+        assertFalse(readiness.degraded());
+        assertEquals(3, readiness.checks().size());
+        assertEquals(1.0, meterRegistry.get("service.ready").gauge().value());
+        assertEquals(0.0, meterRegistry.get("service.degraded").gauge().value());
+    }
+
+    @Test
+    void testCheck_PublishSaturationUsesHysteresis() {
+        // Given - saturated at the limit
+        when(sqsPublisherService.inFlight()).thenReturn(10);
+        assertFalse(readinessService.check().ready());
+
+        // When - back under the limit but above the resume ratio
+        when(sqsPublisherService.inFlight()).thenReturn(9);
+
+        // Then - still shedding until load falls to 80% of the limit
+        assertFalse(readinessService.check().ready());
+        when(sqsPublisherService.inFlight()).thenReturn(8);
+        assertTrue(readinessService.check().ready());
+    }
+
+    @Test
+    void testCheck_StaleTokenDegradesWithoutShedding() {
+        // Given
+        when(sqsPublisherService.inFlight()).thenReturn(0);
+        when(validationService.tokenAgeMillis()).thenReturn(120000L);
+
+        // When
+        ReadinessService.Readiness readiness = readinessService.check();
+
+        // Then
+        assertTrue(readiness.ready());
+        assertTrue(readiness.degraded());
+        assertFalse(readiness.checks().stream()
+                .filter(check -> check.name().equals("ssmToken"))
+                .findFirst().orElseThrow().ready());
+        assertEquals(1.0, meterRegistry.get("service.ready").gauge().value());
+        assertEquals(1.0, meterRegistry.get("service.degraded").gauge().value());
+    }
+
+    @Test
+    void testCheck_NotReadyUntilConnectionsAreWarm() {
+        // Given
+        when(sqsPublisherService.inFlight()).thenReturn(0);
+        when(connectionWarmup.isComplete()).thenReturn(false);
+
+        // When
+        ReadinessService.Readiness readiness = readinessService.check();
+
+        // Then
+        assertFalse(readiness.ready());
+        assertEquals("in progress", readiness.checks().stream()
+                .filter(check -> check.name().equals("connectionWarmup"))
+                .findFirst().orElseThrow().detail());
+    }
+}
@@ -1,22 +1,46 @@
 package com.emailprocessor.api.service;
 
+import com.emailprocessor.api.config.IngestStageTimers;
 import com.emailprocessor.api.dto.EmailRequest;
+import com.emailprocessor.common.config.CorrelationIdExemplarSampler;
+import com.emailprocessor.common.service.SenderTracker;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.micrometer.tracing.propagation.Propagator;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
 import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
 import software.amazon.awssdk.services.sqs.model.SqsException;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.lenient;
 
@@ -26,6 +50,9 @@ class SqsPublisherServiceTest {
     @Mock(lenient = true)
     private SqsClient sqsClient;
 
+    @Mock(lenient = true)
+    private SqsAsyncClient sqsAsyncClient;
+
     @Mock(lenient = true)
     private Counter messagesSentCounter;
 
@@ -35,9 +62,22 @@ class SqsPublisherServiceTest {
     @Mock(lenient = true)
     private Timer publishTimer;
 
+    @Mock(lenient = true)
+    private SenderTracker senderTracker;
+
     private SqsPublisherService sqsPublisherService;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IngestStageTimers ingestStageTimers = new IngestStageTimers(meterRegistry,
+            Timer.builder("api.request.duration").register(meterRegistry));
+
+    private final io.opentelemetry.api.trace.Tracer otelTracer = SdkTracerProvider.builder().build().get("test");
+    private final Tracer tracer = new OtelTracer(otelTracer, new OtelCurrentTraceContext(), event -> { });
+    private final Propagator propagator = new OtelPropagator(
+            ContextPropagators.create(W3CTraceContextPropagator.getInstance()), otelTracer);
+
     private final String queueUrl = "https://sqs.us-west-1.amazonaws.com/123456789/test-queue";
+    private final String highQueueUrl = "https://sqs.us-west-1.amazonaws.com/123456789/test-queue-high";
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
@@ -48,8 +88,11 @@ class SqsPublisherServiceTest {
                     java.util.function.Supplier<?> supplier = invocation.getArgument(0);
                     return supplier.get();
                 });
-        sqsPublisherService = new SqsPublisherService(sqsClient, queueUrl, objectMapper,
-                messagesSentCounter, messagesSentFailureCounter, publishTimer);
+        LaneRouter laneRouter = new LaneRouter(queueUrl, highQueueUrl, "", "normal", "high,normal,bulk",
+                "", "", "sender-hash", new SimpleMeterRegistry());
+        sqsPublisherService = new SqsPublisherService(sqsClient, Optional.of(sqsAsyncClient), laneRouter,
+                senderTracker, tracer, propagator, objectMapper, ingestStageTimers, messagesSentCounter, messagesSentFailureCounter,
+                publishTimer);
     }
 
     @Test
@@ -75,6 +118,7 @@ class SqsPublisherServiceTest {
         // Then
         assertEquals("message-123", messageId);
         verify(sqsClient, times(1)).sendMessage(any(SendMessageRequest.class));
+        verify(senderTracker).record(eq(emailData.getEmailSender()), anyLong());
     }
 
     @Test
@@ -112,6 +156,57 @@ class SqsPublisherServiceTest {
         assertNotNull(capturedRequest.messageAttributes().get("sender"));
     }
 
+    @Test
+    void testPublishEmailMessage_RecordsStageTimers() {
+        // Given
+        EmailRequest.EmailData emailData = new EmailRequest.EmailData();
+        emailData.setEmailSubject("Subject");
+        emailData.setEmailSender("Sender");
+        emailData.setEmailTimestream("1693561101");
+        emailData.setEmailContent("Content");
+
+        when(sqsClient.sendMessage(any(SendMessageRequest.class)))
+                .thenReturn(SendMessageResponse.builder().messageId("message-123").build());
+
+        // When
+        sqsPublisherService.publishEmailMessage(emailData, "corr-1");
+
+        // Then
+        for (String stage : List.of("serialization", "sqs_send")) {
+            assertEquals(1, meterRegistry.get("api.request.stage.duration").tag("stage", stage).timer().count());
+        }
+        assertEquals(0, meterRegistry.get("api.request.stage.duration").tag("stage", "token_validation").timer().count());
+    }
+
+    @Test
+    void testPublishEmailMessage_CarriesTraceContext() {
+        // Given
+        EmailRequest.EmailData emailData = new EmailRequest.EmailData();
+        emailData.setEmailSubject("Subject");
+        emailData.setEmailSender("Sender");
+        emailData.setEmailTimestream("1693561101");
+        emailData.setEmailContent("Content");
+
+        when(sqsClient.sendMessage(any(SendMessageRequest.class)))
+                .thenReturn(SendMessageResponse.builder().messageId("message-123").build());
+
+        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+
+        // When
+        io.micrometer.tracing.Span parent = tracer.nextSpan().name("http").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(parent)) {
+            sqsPublisherService.publishEmailMessage(emailData, "corr-1");
+        } finally {
+            parent.end();
+        }
+
+        // Then
+        verify(sqsClient).sendMessage(requestCaptor.capture());
+        String traceparent = requestCaptor.getValue().messageAttributes().get("traceparent").stringValue();
+        assertTrue(traceparent.matches("00-" + parent.context().traceId() + "-[0-9a-f]{16}-01"));
+        assertFalse(traceparent.contains(parent.context().spanId()));
+    }
+
     @Test
     void testPublishEmailMessage_SqsException() {
         // Given
@@ -133,5 +228,184 @@ class SqsPublisherServiceTest {
 
         assertTrue(exception.getMessage().contains("Failed to publish message to SQS"));
     }
-}
 
+    @Test
+    void testPublishEmailMessage_RoutesToRequestedLane() {
+        // Given
+        EmailRequest.EmailData emailData = new EmailRequest.EmailData();
+        emailData.setEmailSubject("Subject");
+        emailData.setEmailSender("Sender");
+        emailData.setEmailTimestream("1693561101");
+        emailData.setEmailContent("Content");
+
+        when(sqsClient.sendMessage(any(SendMessageRequest.class)))
+                .thenReturn(SendMessageResponse.builder().messageId("message-123").build());
+
+        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+
+        // When - bulk has no queue configured, so it falls back to the default lane
+        sqsPublisherService.publishEmailMessage(emailData, "corr-1", "HIGH");
+        sqsPublisherService.publishEmailMessage(emailData, "corr-2", "bulk");
+
+        // Then
+        verify(sqsClient, times(2)).sendMessage(requestCaptor.capture());
+        assertEquals(highQueueUrl, requestCaptor.getAllValues().get(0).queueUrl());
+        assertEquals("high", requestCaptor.getAllValues().get(0).messageAttributes().get("lane").stringValue());
+        assertEquals(queueUrl, requestCaptor.getAllValues().get(1).queueUrl());
+        assertEquals("normal", requestCaptor.getAllValues().get(1).messageAttributes().get("lane").stringValue());
+    }
+
+    @Test
+    void testLaneRouter_DisallowedLaneUsesDefault() {
+        LaneRouter laneRouter = new LaneRouter(queueUrl, highQueueUrl, "", "normal", "normal,bulk",
+                "", "", "sender-hash", new SimpleMeterRegistry());
+
+        assertEquals(LaneRouter.Lane.NORMAL, laneRouter.resolve("high"));
+        assertEquals(LaneRouter.Lane.NORMAL, laneRouter.resolve(null));
+    }
+
+    @Test
+    void testLaneRouter_ShardsOnlyTheNormalLane() {
+        String shardUrl = queueUrl + "-a";
+        LaneRouter laneRouter = new LaneRouter(queueUrl, highQueueUrl, "", "normal", "high,normal,bulk",
+                shardUrl, "", "round-robin", new SimpleMeterRegistry());
+
+        assertEquals(Set.of(queueUrl, shardUrl), Set.of(laneRouter.queueUrl(LaneRouter.Lane.NORMAL, "sender"),
+                laneRouter.queueUrl(LaneRouter.Lane.NORMAL, "sender")));
+        assertEquals(highQueueUrl, laneRouter.queueUrl(LaneRouter.Lane.HIGH, "sender"));
+        assertEquals(queueUrl, laneRouter.queueUrl(LaneRouter.Lane.NORMAL));
+    }
+
+    @Test
+    void testPublishEmailMessage_FifoQueueGroupsBySender() {
+        // Given
+        String fifoQueueUrl = "https://sqs.us-west-1.amazonaws.com/123456789/test-queue.fifo";
+        LaneRouter laneRouter = new LaneRouter(fifoQueueUrl, "", "", "normal", "high,normal,bulk",
+                "", "", "sender-hash", new SimpleMeterRegistry());
+        SqsPublisherService fifoPublisher = new SqsPublisherService(sqsClient, Optional.empty(), laneRouter,
+                senderTracker, tracer, propagator, objectMapper, ingestStageTimers, messagesSentCounter, messagesSentFailureCounter,
+                publishTimer);
+
+        EmailRequest.EmailData emailData = new EmailRequest.EmailData();
+        emailData.setEmailSubject("Subject");
+        emailData.setEmailSender("Sender@Example.com");
+        emailData.setEmailTimestream("1693561101");
+        emailData.setEmailContent("Content");
+
+        when(sqsClient.sendMessage(any(SendMessageRequest.class)))
+                .thenReturn(SendMessageResponse.builder().messageId("message-123").build());
+
+        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+
+        // When
+        fifoPublisher.publishEmailMessage(emailData, "corr-1");
+
+        // Then
+        verify(sqsClient).sendMessage(requestCaptor.capture());
+        SendMessageRequest request = requestCaptor.getValue();
+        assertEquals(SqsPublisherService.messageGroupId(" sender@example.com"), request.messageGroupId());
+        assertEquals(32, request.messageGroupId().length());
+        assertFalse(request.messageGroupId().contains("sender"));
+        assertEquals("corr-1", request.messageDeduplicationId());
+    }
+
+    @Test
+    void testPublishEmailMessage_StandardQueueHasNoGroup() {
+        // Given
+        EmailRequest.EmailData emailData = new EmailRequest.EmailData();
+        emailData.setEmailSubject("Subject");
+        emailData.setEmailSender("Sender");
+        emailData.setEmailTimestream("1693561101");
+        emailData.setEmailContent("Content");
+
+        when(sqsClient.sendMessage(any(SendMessageRequest.class)))
+                .thenReturn(SendMessageResponse.builder().messageId("message-123").build());
+
+        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+
+        // When
+        sqsPublisherService.publishEmailMessage(emailData, "corr-1");
+
+        // Then
+        verify(sqsClient).sendMessage(requestCaptor.capture());
+        assertNull(requestCaptor.getValue().messageGroupId());
+        assertNull(requestCaptor.getValue().messageDeduplicationId());
+    }
+
+    @Test
+    void testPublishEmailMessageAsync_Success() {
+        // Given
+        EmailRequest.EmailData emailData = new EmailRequest.EmailData();
+        emailData.setEmailSubject("Subject");
+        emailData.setEmailSender("Sender");
+        emailData.setEmailTimestream("1693561101");
+        emailData.setEmailContent("Content");
+
+        when(sqsAsyncClient.sendMessage(any(SendMessageRequest.class))).thenReturn(
+                CompletableFuture.completedFuture(SendMessageResponse.builder().messageId("message-123").build()));
+
+        // When
+        String messageId = sqsPublisherService.publishEmailMessageAsync(emailData, "corr-1", "high").join();
+
+        // Then
+        assertEquals("message-123", messageId);
+        verify(sqsAsyncClient).sendMessage(argThat((SendMessageRequest request) ->
+                request.queueUrl().equals(highQueueUrl) && request.messageAttributes().containsKey("traceparent")));
+        verify(messagesSentCounter).increment();
+        verify(publishTimer).record(anyLong(), eq(TimeUnit.NANOSECONDS));
+        verifyNoInteractions(sqsClient);
+        assertEquals(0, sqsPublisherService.inFlight());
+    }
+
+    @Test
+    void testPublishEmailMessageAsync_TimerSeesCorrelationIdOnCompletionThread() {
+        // Given - the send completes on another thread, as it does on the SDK's event loop
+        EmailRequest.EmailData emailData = new EmailRequest.EmailData();
+        emailData.setEmailSubject("Subject");
+        emailData.setEmailSender("Sender");
+        emailData.setEmailTimestream("1693561101");
+        emailData.setEmailContent("Content");
+
+        CompletableFuture<SendMessageResponse> sent = new CompletableFuture<>();
+        when(sqsAsyncClient.sendMessage(any(SendMessageRequest.class))).thenReturn(sent);
+        AtomicReference<String> recordedWith = new AtomicReference<>();
+        doAnswer(invocation -> {
+            recordedWith.set(MDC.get(CorrelationIdExemplarSampler.MDC_KEY));
+            return null;
+        }).when(publishTimer).record(anyLong(), eq(TimeUnit.NANOSECONDS));
+
+        // When
+        CompletableFuture<String> result = sqsPublisherService.publishEmailMessageAsync(emailData, "corr-1", null);
+        CompletableFuture.runAsync(() -> sent.complete(SendMessageResponse.builder().messageId("message-123").build()))
+                .join();
+
+        // Then
+        assertEquals("message-123", result.join());
+        assertEquals("corr-1", recordedWith.get());
+        assertNull(MDC.get(CorrelationIdExemplarSampler.MDC_KEY));
+    }
+
+    @Test
+    void testPublishEmailMessageAsync_SqsException() {
+        // Given
+        EmailRequest.EmailData emailData = new EmailRequest.EmailData();
+        emailData.setEmailSubject("Subject");
+        emailData.setEmailSender("Sender");
+        emailData.setEmailTimestream("1693561101");
+        emailData.setEmailContent("Content");
+
+        when(sqsAsyncClient.sendMessage(any(SendMessageRequest.class))).thenReturn(CompletableFuture.failedFuture(
+                SqsException.builder().message("SQS error").build()));
+
+        // When
+        CompletableFuture<String> result = sqsPublisherService.publishEmailMessageAsync(emailData, "corr-1", null);
+
+        // Then
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertEquals("Failed to publish message to SQS", exception.getCause().getMessage());
+        assertInstanceOf(SqsException.class, exception.getCause().getCause());
+        verify(messagesSentFailureCounter).increment();
+        verify(messagesSentCounter, never()).increment();
+        assertEquals(0, sqsPublisherService.inFlight());
+    }
+}
@@ -0,0 +1,81 @@
+package com.emailprocessor.processor.archive;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ColumnarArchiveFooter {
+
+    private int version;
+    private String codec;
+    private long rowCount;
+    private List<ColumnSchema> schema = new ArrayList<>();
+    private List<RowGroup> rowGroups = new ArrayList<>();
+
+    // File-level statistics, merged from all row groups
+    private Map<String, ColumnStats> stats = new LinkedHashMap<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ColumnSchema {
+        private String name;
+        private String type;
+    }
+
+    @Data
+    public static class RowGroup {
+        private int rowCount;
+        private Map<String, ColumnChunk> columns = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class ColumnChunk {
+        private long offset;
+        private int compressedLength;
+        private int uncompressedLength;
+        private ColumnStats stats;
+    }
+
+    @Data
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ColumnStats {
+        private int nullCount;
+        private String minString;
+        private String maxString;
+        private Long minLong;
+        private Long maxLong;
+
+        // False when some value was too long to keep as a string bound
+        private boolean boundsComplete = true;
+
+        public boolean hasBounds() {
+            return boundsComplete && (minString != null || minLong != null);
+        }
+
+        void merge(ColumnStats other) {
+            nullCount += other.nullCount;
+            boundsComplete &= other.boundsComplete;
+            if (other.minString != null && (minString == null || other.minString.compareTo(minString) < 0)) {
+                minString = other.minString;
+            }
+            if (other.maxString != null && (maxString == null || other.maxString.compareTo(maxString) > 0)) {
+                maxString = other.maxString;
+            }
+            if (other.minLong != null && (minLong == null || other.minLong < minLong)) {
+                minLong = other.minLong;
+            }
+            if (other.maxLong != null && (maxLong == null || other.maxLong > maxLong)) {
+                maxLong = other.maxLong;
+            }
+        }
+    }
+}
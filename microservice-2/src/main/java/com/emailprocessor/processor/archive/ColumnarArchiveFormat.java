@@ -0,0 +1,160 @@
+package com.emailprocessor.processor.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Layout of the columnar email archive (".emca" files):
+ *
+ * <pre>
+ * MAGIC | row group 0 column chunks | row group 1 column chunks | ... | footer JSON | footer length (int32 BE) | MAGIC
+ * </pre>
+ *
+ * Every column chunk is deflate-compressed on its own, so a reader only inflates the columns it needs.
+ * The footer carries the schema, chunk offsets and per row group / per file min-max statistics.
+ */
+public final class ColumnarArchiveFormat {
+
+    public static final byte[] MAGIC = "EMCA".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+    public static final String CODEC = "DEFLATE";
+    public static final String FILE_EXTENSION = ".emca";
+
+    public static final String COL_SENDER = "email_sender";
+    public static final String COL_SUBJECT = "email_subject";
+    public static final String COL_TIMESTREAM = "email_timestream";
+    public static final String COL_INGEST_TIMESTAMP = "ingest_timestamp";
+    public static final String COL_CORRELATION_ID = "correlation_id";
+    public static final String COL_CONTENT = "email_content";
+
+    public static final String TYPE_STRING = "STRING";
+    public static final String TYPE_INT64 = "INT64";
+
+    // Column order is the on-disk order within a row group
+    public static final List<ColumnarArchiveFooter.ColumnSchema> SCHEMA = List.of(
+            new ColumnarArchiveFooter.ColumnSchema(COL_SENDER, TYPE_STRING),
+            new ColumnarArchiveFooter.ColumnSchema(COL_SUBJECT, TYPE_STRING),
+            new ColumnarArchiveFooter.ColumnSchema(COL_TIMESTREAM, TYPE_INT64),
+            new ColumnarArchiveFooter.ColumnSchema(COL_INGEST_TIMESTAMP, TYPE_INT64),
+            new ColumnarArchiveFooter.ColumnSchema(COL_CORRELATION_ID, TYPE_STRING),
+            new ColumnarArchiveFooter.ColumnSchema(COL_CONTENT, TYPE_STRING));
+
+    // String statistics longer than this are not recorded; readers then cannot skip on that column
+    static final int MAX_STRING_STAT_LENGTH = 256;
+
+    private ColumnarArchiveFormat() {
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static byte[] deflate(byte[] data, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] data, int offset, int length, int uncompressedLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            byte[] out = new byte[uncompressedLength];
+            int read = 0;
+            while (read < uncompressedLength && !inflater.finished()) {
+                int n = inflater.inflate(out, read, uncompressedLength - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != uncompressedLength) {
+                throw new IOException("Truncated column chunk: expected " + uncompressedLength + " bytes, got " + read);
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column chunk", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Sequential decoder over an inflated column chunk.
+     */
+    static final class ChunkDecoder {
+        private final byte[] data;
+        private int position;
+
+        ChunkDecoder(byte[] data) {
+            this.data = data;
+        }
+
+        long readVarLong() throws IOException {
+            long result = 0;
+            int shift = 0;
+            while (shift < 64) {
+                if (position >= data.length) {
+                    throw new IOException("Unexpected end of column chunk");
+                }
+                byte b = data[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+            throw new IOException("Malformed varint in column chunk");
+        }
+
+        String readString() throws IOException {
+            long header = readVarLong();
+            if (header == 0) {
+                return null;
+            }
+            int length = (int) (header - 1);
+            if (position + length > data.length) {
+                throw new IOException("String value overruns column chunk");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        boolean readBit(int index) {
+            return (data[position + (index >>> 3)] & (1 << (index & 7))) != 0;
+        }
+
+        void skip(int bytes) {
+            position += bytes;
+        }
+    }
+}
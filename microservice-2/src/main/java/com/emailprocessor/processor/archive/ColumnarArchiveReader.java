@@ -0,0 +1,256 @@
+package com.emailprocessor.processor.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.emailprocessor.processor.archive.ColumnarArchiveFormat.*;
+
+/**
+ * Local reader for columnar archive files with predicate pushdown on sender and email timestamp.
+ * Files and row groups whose footer statistics cannot match are skipped without inflating any column,
+ * and the wide columns (subject, content) are only decoded for row groups that contain a match.
+ *
+ * <p>Run against downloaded files with:
+ * <pre>
+ * java -cp app.jar -Dloader.main=com.emailprocessor.processor.archive.ColumnarArchiveReader \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher --sender "John doe" --from 1693526400 --to 1693612799 part-*.emca
+ * </pre>
+ */
+public class ColumnarArchiveReader {
+
+    private final ObjectMapper objectMapper;
+    private final ScanStats scanStats = new ScanStats();
+
+    public ColumnarArchiveReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public ScanStats getScanStats() {
+        return scanStats;
+    }
+
+    public ColumnarArchiveFooter readFooter(byte[] file) throws IOException {
+        int length = file.length;
+        if (length < MAGIC.length * 2 + 4
+                || !Arrays.equals(file, 0, MAGIC.length, MAGIC, 0, MAGIC.length)
+                || !Arrays.equals(file, length - MAGIC.length, length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a columnar email archive");
+        }
+        int footerLength = ByteBuffer.wrap(file, length - MAGIC.length - 4, 4).getInt();
+        int footerStart = length - MAGIC.length - 4 - footerLength;
+        if (footerLength <= 0 || footerStart < MAGIC.length) {
+            throw new IOException("Invalid footer length: " + footerLength);
+        }
+        ColumnarArchiveFooter footer = objectMapper.readValue(file, footerStart, footerLength, ColumnarArchiveFooter.class);
+        if (footer.getVersion() != VERSION) {
+            throw new IOException("Unsupported archive version: " + footer.getVersion());
+        }
+        return footer;
+    }
+
+    public List<Row> scan(byte[] file, ScanPredicate predicate) throws IOException {
+        ColumnarArchiveFooter footer = readFooter(file);
+        scanStats.filesScanned++;
+        List<Row> result = new ArrayList<>();
+
+        if (!predicate.mightMatch(footer.getStats())) {
+            scanStats.filesSkipped++;
+            scanStats.rowGroupsSkipped += footer.getRowGroups().size();
+            return result;
+        }
+
+        for (ColumnarArchiveFooter.RowGroup rowGroup : footer.getRowGroups()) {
+            if (!predicate.mightMatch(rowGroup.getColumns())) {
+                scanStats.rowGroupsSkipped++;
+                continue;
+            }
+            scanStats.rowGroupsScanned++;
+            scanRowGroup(file, rowGroup, predicate, result);
+        }
+        return result;
+    }
+
+    public List<Row> scan(Path path, ScanPredicate predicate) throws IOException {
+        return scan(Files.readAllBytes(path), predicate);
+    }
+
+    private void scanRowGroup(byte[] file, ColumnarArchiveFooter.RowGroup rowGroup,
+                              ScanPredicate predicate, List<Row> result) throws IOException {
+        int rows = rowGroup.getRowCount();
+
+        // Decode only the predicate columns first
+        String[] senders = decodeStrings(file, rowGroup.getColumns().get(COL_SENDER), rows);
+        Long[] timestreams = decodeLongs(file, rowGroup.getColumns().get(COL_TIMESTREAM), rows);
+
+        List<Integer> matches = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            if (predicate.matches(senders[i], timestreams[i])) {
+                matches.add(i);
+            }
+        }
+        if (matches.isEmpty()) {
+            return;
+        }
+
+        String[] subjects = decodeStrings(file, rowGroup.getColumns().get(COL_SUBJECT), rows);
+        Long[] ingestTimestamps = decodeLongs(file, rowGroup.getColumns().get(COL_INGEST_TIMESTAMP), rows);
+        String[] correlationIds = decodeStrings(file, rowGroup.getColumns().get(COL_CORRELATION_ID), rows);
+        String[] contents = decodeStrings(file, rowGroup.getColumns().get(COL_CONTENT), rows);
+
+        for (int i : matches) {
+            result.add(new Row(senders[i], subjects[i], timestreams[i], ingestTimestamps[i],
+                    correlationIds[i], contents[i]));
+        }
+        scanStats.rowsMatched += matches.size();
+    }
+
+    private String[] decodeStrings(byte[] file, ColumnarArchiveFooter.ColumnChunk chunk, int rows) throws IOException {
+        ChunkDecoder decoder = new ChunkDecoder(inflateChunk(file, chunk));
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = decoder.readString();
+        }
+        return values;
+    }
+
+    private Long[] decodeLongs(byte[] file, ColumnarArchiveFooter.ColumnChunk chunk, int rows) throws IOException {
+        ChunkDecoder decoder = new ChunkDecoder(inflateChunk(file, chunk));
+        boolean[] present = new boolean[rows];
+        for (int i = 0; i < rows; i++) {
+            present[i] = decoder.readBit(i);
+        }
+        decoder.skip((rows + 7) / 8);
+
+        Long[] values = new Long[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            if (present[i]) {
+                previous += zigZagDecode(decoder.readVarLong());
+                values[i] = previous;
+            }
+        }
+        return values;
+    }
+
+    private byte[] inflateChunk(byte[] file, ColumnarArchiveFooter.ColumnChunk chunk) throws IOException {
+        if (chunk == null) {
+            throw new IOException("Missing column chunk");
+        }
+        scanStats.chunksInflated++;
+        return inflate(file, (int) chunk.getOffset(), chunk.getCompressedLength(), chunk.getUncompressedLength());
+    }
+
+    /**
+     * Conjunction of an optional exact sender match and an optional inclusive epoch-second range.
+     */
+    public record ScanPredicate(String sender, Long fromEpochSeconds, Long toEpochSeconds) {
+
+        public static ScanPredicate all() {
+            return new ScanPredicate(null, null, null);
+        }
+
+        boolean matches(String rowSender, Long rowTimestream) {
+            if (sender != null && !sender.equals(rowSender)) {
+                return false;
+            }
+            if (fromEpochSeconds != null || toEpochSeconds != null) {
+                if (rowTimestream == null) {
+                    return false;
+                }
+                if (fromEpochSeconds != null && rowTimestream < fromEpochSeconds) {
+                    return false;
+                }
+                return toEpochSeconds == null || rowTimestream <= toEpochSeconds;
+            }
+            return true;
+        }
+
+        boolean mightMatch(Map<String, ?> columns) {
+            return senderMightMatch(statsOf(columns.get(COL_SENDER))) && timeMightMatch(statsOf(columns.get(COL_TIMESTREAM)));
+        }
+
+        private boolean senderMightMatch(ColumnarArchiveFooter.ColumnStats stats) {
+            if (sender == null || stats == null || !stats.hasBounds()) {
+                return true;
+            }
+            return sender.compareTo(stats.getMinString()) >= 0 && sender.compareTo(stats.getMaxString()) <= 0;
+        }
+
+        private boolean timeMightMatch(ColumnarArchiveFooter.ColumnStats stats) {
+            if ((fromEpochSeconds == null && toEpochSeconds == null) || stats == null || !stats.hasBounds()) {
+                return true;
+            }
+            if (fromEpochSeconds != null && stats.getMaxLong() < fromEpochSeconds) {
+                return false;
+            }
+            return toEpochSeconds == null || stats.getMinLong() <= toEpochSeconds;
+        }
+
+        private static ColumnarArchiveFooter.ColumnStats statsOf(Object entry) {
+            if (entry instanceof ColumnarArchiveFooter.ColumnChunk chunk) {
+                return chunk.getStats();
+            }
+            return (ColumnarArchiveFooter.ColumnStats) entry;
+        }
+    }
+
+    public record Row(String emailSender, String emailSubject, Long emailTimestream, Long ingestTimestamp,
+                      String correlationId, String emailContent) {
+    }
+
+    @Data
+    public static class ScanStats {
+        private long filesScanned;
+        private long filesSkipped;
+        private long rowGroupsScanned;
+        private long rowGroupsSkipped;
+        private long chunksInflated;
+        private long rowsMatched;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String sender = null;
+        Long from = null;
+        Long to = null;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sender" -> sender = args[++i];
+                case "--from" -> from = Long.parseLong(args[++i]);
+                case "--to" -> to = Long.parseLong(args[++i]);
+                default -> files.add(Path.of(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: ColumnarArchiveReader [--sender <sender>] [--from <epochSeconds>] [--to <epochSeconds>] <file>...");
+            System.exit(1);
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ColumnarArchiveReader reader = new ColumnarArchiveReader(objectMapper);
+        ScanPredicate predicate = new ScanPredicate(sender, from, to);
+        for (Path file : files) {
+            for (Row row : reader.scan(file, predicate)) {
+                Map<String, Object> out = new LinkedHashMap<>();
+                out.put("file", file.getFileName().toString());
+                out.put("emailSender", row.emailSender());
+                out.put("emailSubject", row.emailSubject());
+                out.put("emailTimestream", row.emailTimestream());
+                out.put("correlationId", row.correlationId());
+                out.put("contentLength", row.emailContent() == null ? 0 : row.emailContent().length());
+                System.out.println(objectMapper.writeValueAsString(out));
+            }
+        }
+        System.err.println("Scan stats: " + objectMapper.writeValueAsString(reader.getScanStats()));
+    }
+}
@@ -0,0 +1,217 @@
+package com.emailprocessor.processor.archive;
+
+import com.emailprocessor.processor.dto.EmailMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.emailprocessor.processor.archive.ColumnarArchiveFormat.*;
+
+/**
+ * Builds a single columnar archive file in memory. Rows are buffered until a row group is full, then each
+ * column of the group is encoded and compressed separately. Not thread-safe.
+ */
+public class ColumnarArchiveWriter {
+
+    private final ObjectMapper objectMapper;
+    private final int rowGroupSize;
+    private final ByteArrayOutputStream file = new ByteArrayOutputStream();
+    private final ColumnarArchiveFooter footer = new ColumnarArchiveFooter();
+
+    private final List<String> senders = new ArrayList<>();
+    private final List<String> subjects = new ArrayList<>();
+    private final List<Long> timestreams = new ArrayList<>();
+    private final List<Long> ingestTimestamps = new ArrayList<>();
+    private final List<String> correlationIds = new ArrayList<>();
+    private final List<String> contents = new ArrayList<>();
+
+    private long rowCount;
+    private long bufferedBytes;
+
+    public ColumnarArchiveWriter(ObjectMapper objectMapper, int rowGroupSize) {
+        if (rowGroupSize <= 0) {
+            throw new IllegalArgumentException("rowGroupSize must be positive");
+        }
+        this.objectMapper = objectMapper;
+        this.rowGroupSize = rowGroupSize;
+        this.file.writeBytes(MAGIC);
+        this.footer.setVersion(VERSION);
+        this.footer.setCodec(CODEC);
+        this.footer.setSchema(new ArrayList<>(SCHEMA));
+    }
+
+    public void append(EmailMessage emailMessage, String correlationId) {
+        senders.add(emailMessage.getEmailSender());
+        subjects.add(emailMessage.getEmailSubject());
+        timestreams.add(parseEpochSeconds(emailMessage.getEmailTimestream()));
+        ingestTimestamps.add(emailMessage.getTimestamp());
+        correlationIds.add(correlationId);
+        contents.add(emailMessage.getEmailContent());
+        rowCount++;
+        bufferedBytes += estimateSize(emailMessage);
+
+        if (senders.size() >= rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Approximate uncompressed size of everything appended so far, used to cap memory per file.
+     */
+    public long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    public ColumnarArchiveFooter getFooter() {
+        return footer;
+    }
+
+    /**
+     * Flushes any pending row group and returns the complete file, footer included.
+     * The writer must not be appended to afterwards.
+     */
+    public byte[] finish() throws IOException {
+        flushRowGroup();
+        footer.setRowCount(rowCount);
+
+        byte[] footerBytes = objectMapper.writeValueAsBytes(footer);
+        file.writeBytes(footerBytes);
+        file.writeBytes(ByteBuffer.allocate(4).putInt(footerBytes.length).array());
+        file.writeBytes(MAGIC);
+        return file.toByteArray();
+    }
+
+    private void flushRowGroup() {
+        int rows = senders.size();
+        if (rows == 0) {
+            return;
+        }
+
+        ColumnarArchiveFooter.RowGroup rowGroup = new ColumnarArchiveFooter.RowGroup();
+        rowGroup.setRowCount(rows);
+        writeStringColumn(rowGroup, COL_SENDER, senders, true);
+        writeStringColumn(rowGroup, COL_SUBJECT, subjects, true);
+        writeLongColumn(rowGroup, COL_TIMESTREAM, timestreams);
+        writeLongColumn(rowGroup, COL_INGEST_TIMESTAMP, ingestTimestamps);
+        writeStringColumn(rowGroup, COL_CORRELATION_ID, correlationIds, true);
+        writeStringColumn(rowGroup, COL_CONTENT, contents, false);
+        footer.getRowGroups().add(rowGroup);
+
+        senders.clear();
+        subjects.clear();
+        timestreams.clear();
+        ingestTimestamps.clear();
+        correlationIds.clear();
+        contents.clear();
+    }
+
+    private void writeStringColumn(ColumnarArchiveFooter.RowGroup rowGroup, String name,
+                                   List<String> values, boolean collectBounds) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        ColumnarArchiveFooter.ColumnStats stats = new ColumnarArchiveFooter.ColumnStats();
+        stats.setBoundsComplete(collectBounds);
+
+        for (String value : values) {
+            if (value == null) {
+                writeVarLong(raw, 0);
+                stats.setNullCount(stats.getNullCount() + 1);
+                continue;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(raw, bytes.length + 1L);
+            raw.writeBytes(bytes);
+
+            if (!stats.isBoundsComplete()) {
+                continue;
+            }
+            if (value.length() > MAX_STRING_STAT_LENGTH) {
+                stats.setBoundsComplete(false);
+                stats.setMinString(null);
+                stats.setMaxString(null);
+                continue;
+            }
+            if (stats.getMinString() == null || value.compareTo(stats.getMinString()) < 0) {
+                stats.setMinString(value);
+            }
+            if (stats.getMaxString() == null || value.compareTo(stats.getMaxString()) > 0) {
+                stats.setMaxString(value);
+            }
+        }
+        writeChunk(rowGroup, name, raw, stats);
+    }
+
+    // INT64 chunk: null bitmap (1 bit per row), then zig-zag varint deltas of the non-null values
+    private void writeLongColumn(ColumnarArchiveFooter.RowGroup rowGroup, String name, List<Long> values) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        ColumnarArchiveFooter.ColumnStats stats = new ColumnarArchiveFooter.ColumnStats();
+
+        byte[] presence = new byte[(values.size() + 7) / 8];
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) != null) {
+                presence[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        raw.writeBytes(presence);
+
+        long previous = 0;
+        for (Long value : values) {
+            if (value == null) {
+                stats.setNullCount(stats.getNullCount() + 1);
+                continue;
+            }
+            writeVarLong(raw, zigZagEncode(value - previous));
+            previous = value;
+            if (stats.getMinLong() == null || value < stats.getMinLong()) {
+                stats.setMinLong(value);
+            }
+            if (stats.getMaxLong() == null || value > stats.getMaxLong()) {
+                stats.setMaxLong(value);
+            }
+        }
+        writeChunk(rowGroup, name, raw, stats);
+    }
+
+    private void writeChunk(ColumnarArchiveFooter.RowGroup rowGroup, String name,
+                            ByteArrayOutputStream raw, ColumnarArchiveFooter.ColumnStats stats) {
+        byte[] compressed = deflate(raw.toByteArray(), raw.size());
+
+        ColumnarArchiveFooter.ColumnChunk chunk = new ColumnarArchiveFooter.ColumnChunk();
+        chunk.setOffset(file.size());
+        chunk.setCompressedLength(compressed.length);
+        chunk.setUncompressedLength(raw.size());
+        chunk.setStats(stats);
+        file.writeBytes(compressed);
+        rowGroup.getColumns().put(name, chunk);
+
+        footer.getStats().computeIfAbsent(name, k -> new ColumnarArchiveFooter.ColumnStats()).merge(stats);
+    }
+
+    private static Long parseEpochSeconds(String emailTimestream) {
+        if (emailTimestream == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(emailTimestream.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long estimateSize(EmailMessage emailMessage) {
+        return length(emailMessage.getEmailSender()) + length(emailMessage.getEmailSubject())
+                + length(emailMessage.getEmailContent()) + length(emailMessage.getCorrelationId()) + 32;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -1,10 +1,13 @@
 package com.emailprocessor.processor.config;
 
+import com.emailprocessor.common.config.SdkHttpClientFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.ecs.EcsClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.sqs.SqsClient;
 
@@ -14,19 +17,52 @@ public class AwsConfig {
     @Value("${aws.region}")
     private String awsRegion;
     
+    @Value("${aws.http.sqs.max-connections:50}")
+    private int sqsMaxConnections;
+    
+    @Value("${aws.http.s3.max-connections:64}")
+    private int s3MaxConnections;
+    
+    @Value("${aws.http.control.max-connections:2}")
+    private int controlMaxConnections;
+    
     @Bean
-    public SqsClient sqsClient() {
+    public SqsClient sqsClient(SdkHttpClientFactory httpClients) {
         return SqsClient.builder()
                 .region(Region.of(awsRegion))
                 .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClient(httpClients.create("sqs", sqsMaxConnections))
+                .overrideConfiguration(config -> config.addMetricPublisher(httpClients.poolMetrics("sqs")))
                 .build();
     }
     
     @Bean
-    public S3Client s3Client() {
+    public S3Client s3Client(SdkHttpClientFactory httpClients) {
         return S3Client.builder()
                 .region(Region.of(awsRegion))
                 .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClient(httpClients.create("s3", s3MaxConnections))
+                .overrideConfiguration(config -> config.addMetricPublisher(httpClients.poolMetrics("s3")))
+                .build();
+    }
+    
+    @Bean
+    public CloudWatchClient cloudWatchClient(SdkHttpClientFactory httpClients) {
+        return CloudWatchClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClient(httpClients.create("cloudwatch", controlMaxConnections))
+                .overrideConfiguration(config -> config.addMetricPublisher(httpClients.poolMetrics("cloudwatch")))
+                .build();
+    }
+    
+    @Bean
+    public EcsClient ecsClient(SdkHttpClientFactory httpClients) {
+        return EcsClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClient(httpClients.create("ecs", controlMaxConnections))
+                .overrideConfiguration(config -> config.addMetricPublisher(httpClients.poolMetrics("ecs")))
                 .build();
     }
 }
@@ -1,11 +1,15 @@
 package com.emailprocessor.processor.config;
 
+import com.emailprocessor.common.config.CorrelationIdExemplarSampler;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.prometheus.client.exemplars.ExemplarSampler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class MetricsConfig {
@@ -78,5 +82,211 @@ public class MetricsConfig {
                 .baseUnit("bytes")
                 .register(registry);
     }
-}
 
+    @Bean
+    public Counter archiveFilesSuccessCounter(MeterRegistry registry) {
+        return Counter.builder("archive.columnar.files")
+                .description("Total number of columnar archive files written")
+                .tag("service", "microservice-2")
+                .tag("status", "success")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter archiveFilesFailureCounter(MeterRegistry registry) {
+        return Counter.builder("archive.columnar.files")
+                .description("Total number of columnar archive files that failed to write")
+                .tag("service", "microservice-2")
+                .tag("status", "failure")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter archiveRowsCounter(MeterRegistry registry) {
+        return Counter.builder("archive.columnar.rows")
+                .description("Total number of emails written to columnar archive files")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter dedupCacheHitCounter(MeterRegistry registry) {
+        return Counter.builder("consumer.dedup.lookups")
+                .description("Redelivered messages recognised by the recent-ID cache")
+                .tag("service", "microservice-2")
+                .tag("result", "cache_hit")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter dedupBloomConfirmedCounter(MeterRegistry registry) {
+        return Counter.builder("consumer.dedup.lookups")
+                .description("Bloom filter hits confirmed as already stored in S3")
+                .tag("service", "microservice-2")
+                .tag("result", "bloom_confirmed")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter dedupBloomFalsePositiveCounter(MeterRegistry registry) {
+        return Counter.builder("consumer.dedup.lookups")
+                .description("Bloom filter hits that were not stored in S3")
+                .tag("service", "microservice-2")
+                .tag("result", "bloom_false_positive")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter dedupMissCounter(MeterRegistry registry) {
+        return Counter.builder("consumer.dedup.lookups")
+                .description("Messages not seen before by the dedup filter")
+                .tag("service", "microservice-2")
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    @Bean
+    public Timer consumerDrainTimer(MeterRegistry registry) {
+        return Timer.builder("sqs.consumer.drain.duration")
+                .description("Time taken to drain the SQS consumer on shutdown")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter consumerDrainReleasedCounter(MeterRegistry registry) {
+        return Counter.builder("sqs.consumer.drain.released")
+                .description("Total number of unstarted messages released back to SQS on shutdown")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter messagesQuarantinedCounter(MeterRegistry registry) {
+        return Counter.builder("sqs.messages.quarantined")
+                .description("Total number of permanently failing messages moved out of the main queue")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter messagesRetryDeferredCounter(MeterRegistry registry) {
+        return Counter.builder("sqs.messages.retry.deferred")
+                .description("Total number of transiently failing messages given a backoff visibility timeout")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter dlqRedriveRedrivenCounter(MeterRegistry registry) {
+        return Counter.builder("dlq.redrive.messages")
+                .description("DLQ messages re-published or processed by a redrive")
+                .tag("service", "microservice-2")
+                .tag("outcome", "redriven")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter dlqRedriveSkippedCounter(MeterRegistry registry) {
+        return Counter.builder("dlq.redrive.messages")
+                .description("DLQ messages left in place because they did not match the redrive filters")
+                .tag("service", "microservice-2")
+                .tag("outcome", "skipped")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter dlqRedriveFailedCounter(MeterRegistry registry) {
+        return Counter.builder("dlq.redrive.messages")
+                .description("DLQ messages a redrive could not re-publish or process")
+                .tag("service", "microservice-2")
+                .tag("outcome", "failed")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter s3MultipartUploadsCounter(MeterRegistry registry) {
+        return Counter.builder("s3.uploads.multipart")
+                .description("Total number of objects uploaded with multipart upload")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter s3MultipartAbortsCounter(MeterRegistry registry) {
+        return Counter.builder("s3.uploads.multipart.aborted")
+                .description("Total number of multipart uploads aborted after a failure")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter contentCacheHitCounter(MeterRegistry registry) {
+        return Counter.builder("s3.content.lookups")
+                .description("Email bodies found in the known-hash cache")
+                .tag("service", "microservice-2")
+                .tag("result", "cache_hit")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter contentCacheMissCounter(MeterRegistry registry) {
+        return Counter.builder("s3.content.lookups")
+                .description("Email bodies not in the known-hash cache, checked against S3")
+                .tag("service", "microservice-2")
+                .tag("result", "cache_miss")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter contentBytesSavedCounter(MeterRegistry registry) {
+        return Counter.builder("s3.content.bytes.saved")
+                .description("Body bytes not written because an identical body was already stored")
+                .tag("service", "microservice-2")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter contentBodiesStoredCounter(MeterRegistry registry) {
+        return Counter.builder("s3.content.bodies.stored")
+                .description("Distinct email bodies written to content-addressed storage")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public Timer endToEndLatencyTimer(MeterRegistry registry) {
+        return Timer.builder("email.pipeline.latency")
+                .description("Time from ingest by the API to the durable write of the record")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public Timer sqsMessageDwellTimer(MeterRegistry registry) {
+        return Timer.builder("sqs.message.dwell")
+                .description("Time a message waited in SQS before its first receive")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    @Bean
+    public DistributionSummary sqsReceiveCountSummary(MeterRegistry registry) {
+        return DistributionSummary.builder("sqs.message.receive.count")
+                .description("Receives a message needed before it left the queue")
+                .tag("service", "microservice-2")
+                .register(registry);
+    }
+
+    /**
+     * Picked up by the Prometheus registry in place of the trace-based default, which Boot also registers now that
+     * a tracer is present; exemplars are only exposed in the OpenMetrics format.
+     */
+    @Bean
+    @Primary
+    public ExemplarSampler correlationIdExemplarSampler(
+            @Value("${metrics.exemplars.min-retention-ms:10000}") long minRetentionMs) {
+        return new CorrelationIdExemplarSampler(minRetentionMs);
+    }
+}
@@ -0,0 +1,53 @@
+package com.emailprocessor.processor.controller;
+
+import com.emailprocessor.processor.dto.RedriveRequest;
+import com.emailprocessor.processor.dto.RedriveStatus;
+import com.emailprocessor.processor.service.DlqRedriveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/dlq/redrive")
+@ConditionalOnProperty(name = "dlq.redrive.enabled", havingValue = "true")
+public class DlqRedriveController {
+    
+    private final DlqRedriveService dlqRedriveService;
+    
+    public DlqRedriveController(DlqRedriveService dlqRedriveService) {
+        this.dlqRedriveService = dlqRedriveService;
+    }
+    
+    @PostMapping
+    public ResponseEntity<RedriveStatus> start(@RequestBody(required = false) RedriveRequest request) {
+        try {
+            RedriveStatus status = dlqRedriveService.start(request != null ? request : new RedriveRequest());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected DLQ redrive request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(errorStatus(e.getMessage()));
+        } catch (IllegalStateException e) {
+            log.warn("Could not start DLQ redrive: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(dlqRedriveService.status());
+        }
+    }
+    
+    @GetMapping
+    public ResponseEntity<RedriveStatus> status() {
+        return ResponseEntity.ok(dlqRedriveService.status());
+    }
+    
+    @DeleteMapping
+    public ResponseEntity<RedriveStatus> cancel() {
+        return ResponseEntity.ok(dlqRedriveService.cancel());
+    }
+    
+    private RedriveStatus errorStatus(String message) {
+        RedriveStatus status = dlqRedriveService.status();
+        status.setError(message);
+        return status;
+    }
+}
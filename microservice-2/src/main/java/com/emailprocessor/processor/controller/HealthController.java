@@ -1,5 +1,7 @@
 package com.emailprocessor.processor.controller;
 
+import com.emailprocessor.processor.service.ReadinessService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -9,8 +11,24 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api")
 public class HealthController {
     
+    private final ReadinessService readinessService;
+    
+    public HealthController(ReadinessService readinessService) {
+        this.readinessService = readinessService;
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Service is healthy");
     }
+    
+    /**
+     * 503 while a consumer stage is saturated or S3 uploads are mostly failing.
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<ReadinessService.Readiness> ready() {
+        ReadinessService.Readiness readiness = readinessService.check();
+        return ResponseEntity.status(readiness.ready() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(readiness);
+    }
 }
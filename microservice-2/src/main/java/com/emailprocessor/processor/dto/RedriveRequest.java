@@ -0,0 +1,25 @@
+package com.emailprocessor.processor.dto;
+
+import lombok.Data;
+
+@Data
+public class RedriveRequest {
+    
+    public enum Mode { REPUBLISH, PROCESS }
+    
+    // REPUBLISH sends messages back to the main queue, PROCESS writes them to S3 from this task
+    private Mode mode = Mode.REPUBLISH;
+    
+    // Falls back to dlq.redrive.max-messages-per-second / parallelism when not set
+    private Double maxMessagesPerSecond;
+    private Integer parallelism;
+    
+    // Stop after this many messages have been redriven; 0 means drain everything that matches
+    private long maxMessages;
+    
+    // Optional filters; a message must match all of the ones that are set
+    private String sender;
+    private Long fromEpochSeconds;
+    private Long toEpochSeconds;
+    private String failureReason;
+}
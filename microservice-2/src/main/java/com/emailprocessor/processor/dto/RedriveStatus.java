@@ -0,0 +1,22 @@
+package com.emailprocessor.processor.dto;
+
+import lombok.Data;
+
+@Data
+public class RedriveStatus {
+    
+    public enum State { IDLE, RUNNING, COMPLETED, CANCELLED, FAILED }
+    
+    private State state;
+    private RedriveRequest request;
+    private Long startedAt;
+    private Long finishedAt;
+    private long initialBacklog;
+    private long received;
+    private long redriven;
+    private long skipped;
+    private long failed;
+    private double messagesPerSecond;
+    private Long etaSeconds;
+    private String error;
+}
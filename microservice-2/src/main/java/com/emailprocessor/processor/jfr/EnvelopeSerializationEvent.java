@@ -0,0 +1,12 @@
+package com.emailprocessor.processor.jfr;
+
+import com.emailprocessor.common.jfr.PipelineEvent;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.emailprocessor.EnvelopeSerialization")
+@Label("Envelope Serialization")
+@Description("Encoding the stored document from the message body")
+public class EnvelopeSerializationEvent extends PipelineEvent {
+}
@@ -0,0 +1,12 @@
+package com.emailprocessor.processor.jfr;
+
+import com.emailprocessor.common.jfr.PipelineEvent;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.emailprocessor.Parse")
+@Label("Parse")
+@Description("Parsing and validating a message body")
+public class ParseEvent extends PipelineEvent {
+}
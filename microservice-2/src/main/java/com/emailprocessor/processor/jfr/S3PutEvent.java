@@ -0,0 +1,12 @@
+package com.emailprocessor.processor.jfr;
+
+import com.emailprocessor.common.jfr.PipelineEvent;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.emailprocessor.S3Put")
+@Label("S3 PUT")
+@Description("Writing one record to S3, single or multipart")
+public class S3PutEvent extends PipelineEvent {
+}
@@ -0,0 +1,12 @@
+package com.emailprocessor.processor.jfr;
+
+import com.emailprocessor.common.jfr.PipelineEvent;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.emailprocessor.SqsDelete")
+@Label("SQS Delete")
+@Description("DeleteMessage call after a message was stored or quarantined")
+public class SqsDeleteEvent extends PipelineEvent {
+}
@@ -0,0 +1,23 @@
+package com.emailprocessor.processor.jfr;
+
+import com.emailprocessor.common.jfr.PipelineEvent;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.emailprocessor.SqsReceive")
+@Label("SQS Receive")
+@Description("ReceiveMessage call for one lane; payload is the total body size of the batch")
+public class SqsReceiveEvent extends PipelineEvent {
+
+    @Label("Lane")
+    String lane;
+
+    @Label("Messages")
+    int messages;
+
+    public void setBatch(String lane, int messages) {
+        this.lane = lane;
+        this.messages = messages;
+    }
+}
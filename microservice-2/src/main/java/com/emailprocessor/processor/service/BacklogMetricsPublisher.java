@@ -0,0 +1,208 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.GetMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.GetMetricDataResponse;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDataQuery;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDataResult;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.ScanBy;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.ecs.EcsClient;
+import software.amazon.awssdk.services.ecs.model.DescribeServicesRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeServicesResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes the consumer backlog to CloudWatch for target-tracking autoscaling: visible messages across all lanes
+ * divided by the running consumer tasks, and the age of the oldest message waiting. This consumer spends its time
+ * waiting on SQS and S3, so CPU stays flat while the backlog grows; these metrics follow the backlog itself.
+ *
+ * <p>Every task publishes the same figures under the same dimension and target tracking averages them, so no task
+ * has to be elected to do it. The running task count comes from the ECS service.
+ *
+ * <p>The oldest age is the largest {@code ApproximateAgeOfOldestMessage} SQS reports to CloudWatch across the lane
+ * queues, so it covers messages no task has received yet. SQS has no queue attribute for it. The metric arrives a
+ * minute or so late; while it has no recent data point the last value is kept, or zero once the lanes are empty.
+ */
+@Slf4j
+@Component
+public class BacklogMetricsPublisher {
+
+    static final String BACKLOG_PER_TASK = "BacklogPerTask";
+    static final String OLDEST_MESSAGE_AGE = "OldestMessageAge";
+    private static final String SQS_NAMESPACE = "AWS/SQS";
+    private static final String SQS_OLDEST_AGE = "ApproximateAgeOfOldestMessage";
+    // SQS metrics come in one-minute periods and can trail by a few minutes
+    private static final Duration SQS_METRIC_LOOKBACK = Duration.ofMinutes(5);
+
+    private final QueueLanes queueLanes;
+    private final CloudWatchClient cloudWatchClient;
+    private final EcsClient ecsClient;
+    private final boolean enabled;
+    private final String namespace;
+    private final String clusterName;
+    private final String serviceName;
+
+    private volatile int runningTasks = 1;
+    private volatile double backlogPerTask;
+    private volatile long oldestAgeMillis;
+
+    public BacklogMetricsPublisher(QueueLanes queueLanes,
+                                   CloudWatchClient cloudWatchClient,
+                                   EcsClient ecsClient,
+                                   @Value("${autoscaling.metrics.enabled:false}") boolean enabled,
+                                   @Value("${autoscaling.metrics.namespace:EmailProcessor}") String namespace,
+                                   @Value("${autoscaling.metrics.cluster-name:}") String clusterName,
+                                   @Value("${autoscaling.metrics.service-name:microservice-2}") String serviceName,
+                                   MeterRegistry meterRegistry) {
+        this.queueLanes = queueLanes;
+        this.cloudWatchClient = cloudWatchClient;
+        this.ecsClient = ecsClient;
+        this.enabled = enabled;
+        this.namespace = namespace;
+        this.clusterName = clusterName;
+        this.serviceName = serviceName;
+        if (enabled) {
+            Gauge.builder("consumer.backlog.per.task", this, publisher -> publisher.backlogPerTask)
+                    .description("Visible messages across all lanes per running consumer task")
+                    .tag("service", "microservice-2")
+                    .register(meterRegistry);
+            Gauge.builder("consumer.oldest.message.age", this, publisher -> publisher.oldestAgeSeconds())
+                    .description("Approximate age of the oldest message waiting")
+                    .tag("service", "microservice-2")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${autoscaling.metrics.interval-ms:60000}")
+    public synchronized void publish() {
+        if (!enabled) {
+            return;
+        }
+        queueLanes.refreshBacklog();
+        long backlog = 0;
+        for (QueueLanes.Lane lane : queueLanes.all()) {
+            backlog += lane.getBacklog();
+        }
+
+        long now = System.currentTimeMillis();
+        if (backlog == 0) {
+            oldestAgeMillis = 0;
+        } else {
+            long oldestAgeSeconds = readOldestAgeSeconds(Instant.ofEpochMilli(now));
+            if (oldestAgeSeconds >= 0) {
+                oldestAgeMillis = oldestAgeSeconds * 1000;
+            }
+        }
+        runningTasks = readRunningTasks();
+        backlogPerTask = (double) backlog / runningTasks;
+
+        try {
+            Instant timestamp = Instant.ofEpochMilli(now);
+            cloudWatchClient.putMetricData(PutMetricDataRequest.builder()
+                    .namespace(namespace)
+                    .metricData(datum(BACKLOG_PER_TASK, backlogPerTask, StandardUnit.COUNT, timestamp),
+                            datum(OLDEST_MESSAGE_AGE, oldestAgeSeconds(), StandardUnit.SECONDS, timestamp))
+                    .build());
+            log.debug("Published backlog metrics. Backlog: {}, RunningTasks: {}, OldestAgeSeconds: {}",
+                    backlog, runningTasks, oldestAgeSeconds());
+        } catch (Exception e) {
+            log.warn("Could not publish backlog metrics to CloudWatch", e);
+        }
+    }
+
+    public double backlogPerTask() {
+        return backlogPerTask;
+    }
+
+    public double oldestAgeSeconds() {
+        return oldestAgeMillis / 1000.0;
+    }
+
+    /**
+     * The latest {@code ApproximateAgeOfOldestMessage} of the oldest lane, in seconds.
+     *
+     * @return -1 when no lane has a recent data point or CloudWatch cannot be reached
+     */
+    private long readOldestAgeSeconds(Instant now) {
+        List<QueueLanes.Lane> lanes = queueLanes.all();
+        List<MetricDataQuery> queries = new ArrayList<>(lanes.size());
+        for (int i = 0; i < lanes.size(); i++) {
+            String queueName = lanes.get(i).getShard();
+            queries.add(MetricDataQuery.builder()
+                    .id("lane" + i)
+                    .metricStat(stat -> stat
+                            .metric(metric -> metric
+                                    .namespace(SQS_NAMESPACE)
+                                    .metricName(SQS_OLDEST_AGE)
+                                    .dimensions(Dimension.builder().name("QueueName").value(queueName).build()))
+                            .period(60)
+                            .stat("Maximum"))
+                    .build());
+        }
+        try {
+            GetMetricDataResponse response = cloudWatchClient.getMetricData(GetMetricDataRequest.builder()
+                    .startTime(now.minus(SQS_METRIC_LOOKBACK))
+                    .endTime(now)
+                    .scanBy(ScanBy.TIMESTAMP_DESCENDING)
+                    .metricDataQueries(queries)
+                    .build());
+            long oldest = -1;
+            for (MetricDataResult result : response.metricDataResults()) {
+                if (!result.values().isEmpty()) {
+                    oldest = Math.max(oldest, result.values().get(0).longValue());
+                }
+            }
+            return oldest;
+        } catch (Exception e) {
+            log.warn("Could not read {} from CloudWatch, keeping {}s", SQS_OLDEST_AGE, oldestAgeSeconds(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Keeps the last known count when ECS cannot be reached; never below one, since this task is running.
+     */
+    private int readRunningTasks() {
+        if (clusterName.isBlank()) {
+            return 1;
+        }
+        try {
+            DescribeServicesResponse response = ecsClient.describeServices(DescribeServicesRequest.builder()
+                    .cluster(clusterName)
+                    .services(serviceName)
+                    .build());
+            if (!response.services().isEmpty()) {
+                return Math.max(response.services().get(0).runningCount(), 1);
+            }
+            log.warn("ECS service {} not found in cluster {}", serviceName, clusterName);
+        } catch (Exception e) {
+            log.warn("Could not read running task count, keeping {}", runningTasks, e);
+        }
+        return runningTasks;
+    }
+
+    private MetricDatum datum(String name, double value, StandardUnit unit, Instant timestamp) {
+        return MetricDatum.builder()
+                .metricName(name)
+                .dimensions(Dimension.builder().name("ServiceName").value(serviceName).build())
+                .value(value)
+                .unit(unit)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,166 @@
+package com.emailprocessor.processor.service;
+
+import com.emailprocessor.common.id.IdGenerator;
+import com.emailprocessor.processor.archive.ColumnarArchiveFooter;
+import com.emailprocessor.processor.archive.ColumnarArchiveFormat;
+import com.emailprocessor.processor.archive.ColumnarArchiveWriter;
+import com.emailprocessor.processor.dto.EmailMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Batches processed emails into columnar archive files and writes them under the archive prefix.
+ * The per-email JSON objects remain the source of truth; the archive is a derived copy for analytical scans.
+ */
+@Slf4j
+@Service
+public class ColumnarArchiveService {
+
+    private final S3MultipartUploader s3MultipartUploader;
+    private final String bucketName;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String prefix;
+    private final int rowGroupSize;
+    private final int maxRowsPerFile;
+    private final long maxBytesPerFile;
+    private final Counter archiveFilesSuccessCounter;
+    private final Counter archiveFilesFailureCounter;
+    private final Counter archiveRowsCounter;
+    private final IdGenerator idGenerator;
+
+    private ColumnarArchiveWriter currentWriter;
+
+    public ColumnarArchiveService(S3MultipartUploader s3MultipartUploader,
+                                  @Value("${s3.bucket-name}") String bucketName,
+                                  ObjectMapper objectMapper,
+                                  @Value("${archive.columnar.enabled:false}") boolean enabled,
+                                  @Value("${archive.columnar.prefix:archive/columnar}") String prefix,
+                                  @Value("${archive.columnar.row-group-size:1000}") int rowGroupSize,
+                                  @Value("${archive.columnar.max-rows-per-file:50000}") int maxRowsPerFile,
+                                  @Value("${archive.columnar.max-bytes-per-file:67108864}") long maxBytesPerFile,
+                                  Counter archiveFilesSuccessCounter,
+                                  Counter archiveFilesFailureCounter,
+                                  Counter archiveRowsCounter,
+                                  IdGenerator idGenerator) {
+        this.s3MultipartUploader = s3MultipartUploader;
+        this.bucketName = bucketName;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.prefix = prefix;
+        this.rowGroupSize = rowGroupSize;
+        this.maxRowsPerFile = maxRowsPerFile;
+        this.maxBytesPerFile = maxBytesPerFile;
+        this.archiveFilesSuccessCounter = archiveFilesSuccessCounter;
+        this.archiveFilesFailureCounter = archiveFilesFailureCounter;
+        this.archiveRowsCounter = archiveRowsCounter;
+        this.idGenerator = idGenerator;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void append(EmailMessage emailMessage, String correlationId) {
+        if (!enabled) {
+            return;
+        }
+
+        ColumnarArchiveWriter full = null;
+        synchronized (this) {
+            if (currentWriter == null) {
+                currentWriter = new ColumnarArchiveWriter(objectMapper, rowGroupSize);
+            }
+            currentWriter.append(emailMessage, correlationId);
+            if (currentWriter.getRowCount() >= maxRowsPerFile || currentWriter.getBufferedBytes() >= maxBytesPerFile) {
+                full = currentWriter;
+                currentWriter = null;
+            }
+        }
+
+        // Upload outside the lock so appends from other threads are not blocked on S3
+        if (full != null) {
+            writeFile(full);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${archive.columnar.flush-interval-ms:60000}")
+    public void flush() {
+        ColumnarArchiveWriter pending;
+        synchronized (this) {
+            pending = currentWriter;
+            currentWriter = null;
+        }
+        if (pending != null) {
+            writeFile(pending);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (enabled) {
+            log.info("Flushing columnar archive before shutdown");
+            flush();
+        }
+    }
+
+    private void writeFile(ColumnarArchiveWriter writer) {
+        String s3Key = null;
+        try {
+            byte[] content = writer.finish();
+            ColumnarArchiveFooter footer = writer.getFooter();
+            s3Key = generateKey();
+
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .contentType("application/octet-stream")
+                    .metadata(createMetadata(footer))
+                    .build();
+
+            // Archive files run to tens of megabytes, so large ones go up as parallel parts
+            s3MultipartUploader.upload(putObjectRequest, content);
+
+            archiveFilesSuccessCounter.increment();
+            archiveRowsCounter.increment(footer.getRowCount());
+            log.info("Wrote columnar archive file. Key: {}, Rows: {}, RowGroups: {}, Bytes: {}",
+                    s3Key, footer.getRowCount(), footer.getRowGroups().size(), content.length);
+
+        } catch (Exception e) {
+            // The per-email JSON objects are already stored, so the archive can be rebuilt from them
+            archiveFilesFailureCounter.increment();
+            log.error("Error writing columnar archive file. Key: {}, Rows: {}", s3Key, writer.getRowCount(), e);
+        }
+    }
+
+    private String generateKey() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        // Time-ordered IDs keep the files of a day listed in the order they were written
+        return prefix + "/dt=" + today + "/part-" + idGenerator.next() + ColumnarArchiveFormat.FILE_EXTENSION;
+    }
+
+    // File-level bounds are duplicated into object metadata so readers can skip files with a HEAD request
+    private Map<String, String> createMetadata(ColumnarArchiveFooter footer) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("format-version", String.valueOf(footer.getVersion()));
+        metadata.put("row-count", String.valueOf(footer.getRowCount()));
+
+        ColumnarArchiveFooter.ColumnStats timestream = footer.getStats().get(ColumnarArchiveFormat.COL_TIMESTREAM);
+        if (timestream != null && timestream.hasBounds()) {
+            metadata.put("min-email-timestream", String.valueOf(timestream.getMinLong()));
+            metadata.put("max-email-timestream", String.valueOf(timestream.getMaxLong()));
+        }
+        return metadata;
+    }
+}
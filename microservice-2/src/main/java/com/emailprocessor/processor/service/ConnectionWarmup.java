@@ -0,0 +1,107 @@
+package com.emailprocessor.processor.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Opens pooled SQS and S3 connections at startup, so the first batches after a deploy or scale-out do not pay for
+ * DNS, TCP and TLS setup on every upload. {@link ReadinessService} reports not-ready until this has run.
+ *
+ * <p>The calls for each client run concurrently, which makes its pool open one connection per call. S3 gets a
+ * {@code HeadObject} for a key that does not exist: the task may not list the bucket, so the answer is 403 or 404,
+ * but either leaves a connection behind. Failures are only logged, and the warm-up gives up after
+ * {@code timeout-ms} so an unreachable endpoint cannot hold the task back.
+ */
+@Slf4j
+@Component
+public class ConnectionWarmup {
+
+    static final String S3_PROBE_KEY = "warmup/connection-probe";
+
+    private final SqsClient sqsClient;
+    private final S3Client s3Client;
+    private final QueueLanes queueLanes;
+    private final String bucketName;
+    private final boolean enabled;
+    private final int connections;
+    private final long timeoutMs;
+    private volatile boolean complete;
+
+    public ConnectionWarmup(SqsClient sqsClient,
+                            S3Client s3Client,
+                            QueueLanes queueLanes,
+                            @Value("${s3.bucket-name}") String bucketName,
+                            @Value("${aws.http.warmup.enabled:true}") boolean enabled,
+                            @Value("${aws.http.warmup.connections:4}") int connections,
+                            @Value("${aws.http.warmup.timeout-ms:10000}") long timeoutMs) {
+        this.sqsClient = sqsClient;
+        this.s3Client = s3Client;
+        this.queueLanes = queueLanes;
+        this.bucketName = bucketName;
+        this.enabled = enabled;
+        this.connections = connections;
+        this.timeoutMs = timeoutMs;
+        this.complete = !enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        String queueUrl = queueLanes.all().get(0).getQueueUrl();
+        ExecutorService executor = Executors.newFixedThreadPool(connections * 2);
+        try {
+            List<CompletableFuture<Void>> calls = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                calls.add(CompletableFuture.runAsync(() -> sqsClient.getQueueAttributes(
+                        GetQueueAttributesRequest.builder()
+                                .queueUrl(queueUrl)
+                                .attributeNames(QueueAttributeName.QUEUE_ARN)
+                                .build()), executor));
+                calls.add(CompletableFuture.runAsync(this::headProbeKey, executor));
+            }
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(timeoutMs, TimeUnit.MILLISECONDS);
+            log.info("Warmed {} SQS and {} S3 connections in {} ms", connections, connections,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (TimeoutException e) {
+            log.warn("Connection warm-up did not finish within {} ms, continuing", timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Connection warm-up failed, continuing", e);
+        } finally {
+            executor.shutdownNow();
+            complete = true;
+        }
+    }
+
+    private void headProbeKey() {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(S3_PROBE_KEY).build());
+        } catch (Exception e) {
+            log.debug("S3 warm-up probe answered {}", e.getClass().getSimpleName());
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+}
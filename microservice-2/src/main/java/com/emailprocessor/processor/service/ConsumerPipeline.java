@@ -0,0 +1,70 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Settings for the staged consumer. When enabled, received messages flow through parse, upload and ack stages,
+ * each with its own bounded queue and worker count, instead of being handled inline on the polling thread.
+ */
+@Component
+public class ConsumerPipeline {
+
+    public enum Stage {
+        PARSE, UPLOAD, ACK;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Sizing> sizing = new EnumMap<>(Stage.class);
+    private final List<PipelineStage<?>> started = new CopyOnWriteArrayList<>();
+
+    public ConsumerPipeline(@Value("${consumer.pipeline.enabled:false}") boolean enabled,
+                            @Value("${consumer.pipeline.parse.concurrency:2}") int parseConcurrency,
+                            @Value("${consumer.pipeline.parse.capacity:20}") int parseCapacity,
+                            @Value("${consumer.pipeline.upload.concurrency:8}") int uploadConcurrency,
+                            @Value("${consumer.pipeline.upload.capacity:20}") int uploadCapacity,
+                            @Value("${consumer.pipeline.ack.concurrency:2}") int ackConcurrency,
+                            @Value("${consumer.pipeline.ack.capacity:50}") int ackCapacity,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+        sizing.put(Stage.PARSE, new Sizing(parseConcurrency, parseCapacity));
+        sizing.put(Stage.UPLOAD, new Sizing(uploadConcurrency, uploadCapacity));
+        sizing.put(Stage.ACK, new Sizing(ackConcurrency, ackCapacity));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <T> PipelineStage<T> start(Stage stage, Consumer<T> handler) {
+        Sizing size = sizing.get(stage);
+        PipelineStage<T> pipelineStage = new PipelineStage<>(stage.tag(), size.concurrency(), size.capacity(), handler,
+                meterRegistry);
+        started.add(pipelineStage);
+        return pipelineStage;
+    }
+
+    /**
+     * Stages started so far, for saturation checks.
+     */
+    public List<PipelineStage<?>> stages() {
+        return started;
+    }
+
+    private record Sizing(int concurrency, int capacity) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed storage for email bodies. Each distinct body is written once, keyed by the SHA-256 of its
+ * UTF-8 bytes, and email records reference it by hash. A bounded LRU of hashes known to be stored lets repeated
+ * bodies (newsletters, automated notifications) skip the existence check entirely.
+ *
+ * <p>Bodies are shared between records, so they must not be expired or deleted along with a single email.
+ */
+@Slf4j
+@Service
+public class ContentStore {
+
+    private final S3Client s3Client;
+    private final S3MultipartUploader s3MultipartUploader;
+    private final String bucketName;
+    private final boolean enabled;
+    private final String prefix;
+    private final Map<String, Boolean> knownHashes;
+    private final Counter contentCacheHitCounter;
+    private final Counter contentCacheMissCounter;
+    private final Counter contentBytesSavedCounter;
+    private final Counter contentBodiesStoredCounter;
+
+    public ContentStore(S3Client s3Client,
+                        S3MultipartUploader s3MultipartUploader,
+                        @Value("${s3.bucket-name}") String bucketName,
+                        @Value("${s3.content-addressed.enabled:false}") boolean enabled,
+                        @Value("${s3.content-addressed.prefix:bodies}") String prefix,
+                        @Value("${s3.content-addressed.cache-size:100000}") int cacheSize,
+                        Counter contentCacheHitCounter,
+                        Counter contentCacheMissCounter,
+                        Counter contentBytesSavedCounter,
+                        Counter contentBodiesStoredCounter,
+                        MeterRegistry meterRegistry) {
+        this.s3Client = s3Client;
+        this.s3MultipartUploader = s3MultipartUploader;
+        this.bucketName = bucketName;
+        this.enabled = enabled;
+        this.prefix = prefix;
+        this.knownHashes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.contentCacheHitCounter = contentCacheHitCounter;
+        this.contentCacheMissCounter = contentCacheMissCounter;
+        this.contentBytesSavedCounter = contentBytesSavedCounter;
+        this.contentBodiesStoredCounter = contentBodiesStoredCounter;
+
+        Gauge.builder("s3.content.cache.size", knownHashes, Map::size)
+                .description("Number of body hashes held in the known-hash cache")
+                .tag("service", "microservice-2")
+                .register(meterRegistry);
+        Gauge.builder("s3.content.cache.hit.ratio", this, ContentStore::cacheHitRatio)
+                .description("Share of body lookups answered by the known-hash cache")
+                .tag("service", "microservice-2")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Makes sure the body is stored and returns the reference to embed in the email record.
+     */
+    public ContentReference store(String content, String correlationId) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String sha256 = sha256Hex(bytes);
+        ContentReference reference = new ContentReference(sha256, keyFor(sha256), bytes.length);
+
+        if (knownHashes.get(sha256) != null) {
+            contentCacheHitCounter.increment();
+            contentBytesSavedCounter.increment(bytes.length);
+            log.debug("Body already stored (cached). Sha256: {}, CorrelationId: {}", sha256, correlationId);
+            return reference;
+        }
+        contentCacheMissCounter.increment();
+
+        if (exists(reference.key())) {
+            contentBytesSavedCounter.increment(bytes.length);
+            log.debug("Body already stored. Sha256: {}, CorrelationId: {}", sha256, correlationId);
+        } else {
+            // Concurrent writers of the same body put identical bytes, so a race is harmless
+            s3MultipartUploader.upload(PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(reference.key())
+                    .contentType("text/plain; charset=utf-8")
+                    .metadata(Map.of("sha256", sha256))
+                    .build(), bytes);
+            contentBodiesStoredCounter.increment();
+            log.info("Stored new body. Key: {}, Bytes: {}, CorrelationId: {}", reference.key(), bytes.length, correlationId);
+        }
+        knownHashes.put(sha256, Boolean.TRUE);
+        return reference;
+    }
+
+    String keyFor(String sha256) {
+        // Two-character shard spreads bodies across S3 prefixes
+        return prefix + "/" + sha256.substring(0, 2) + "/" + sha256;
+    }
+
+    private boolean exists(String key) {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        }
+    }
+
+    private double cacheHitRatio() {
+        double hits = contentCacheHitCounter.count();
+        double lookups = hits + contentCacheMissCounter.count();
+        return lookups == 0 ? 0 : hits / lookups;
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Pointer from an email record to its stored body.
+     */
+    public record ContentReference(String sha256, String key, long bytes) {
+    }
+}
@@ -0,0 +1,407 @@
+package com.emailprocessor.processor.service;
+
+import com.emailprocessor.processor.dto.EmailMessage;
+import com.emailprocessor.processor.dto.RedriveRequest;
+import com.emailprocessor.processor.dto.RedriveStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays the dead-letter queue under a messages-per-second ceiling, either by re-publishing to the main queue
+ * or by processing the messages directly. Messages that do not match the run's filters stay in the DLQ; they are
+ * held invisible for the rest of the run so each one is examined only once.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "dlq.redrive.enabled", havingValue = "true")
+public class DlqRedriveService {
+
+    private static final int MAX_BATCH_SIZE = 10;
+    private static final int RECEIVE_WAIT_SECONDS = 5;
+    private static final int EMPTY_RECEIVES_BEFORE_DONE = 2;
+    private static final int MAX_PARALLELISM = 32;
+
+    private final SqsClient sqsClient;
+    private final MessageProcessor messageProcessor;
+    private final ObjectMapper objectMapper;
+    private final String queueUrl;
+    private final String dlqUrl;
+    private final double defaultMessagesPerSecond;
+    private final int defaultParallelism;
+    private final int visibilityTimeoutSeconds;
+    private final Counter redrivenCounter;
+    private final Counter skippedCounter;
+    private final Counter failedCounter;
+    private final AtomicReference<Run> currentRun = new AtomicReference<>();
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    public DlqRedriveService(SqsClient sqsClient,
+                             MessageProcessor messageProcessor,
+                             ObjectMapper objectMapper,
+                             @Value("${sqs.queue-url}") String queueUrl,
+                             @Value("${sqs.dlq-url:}") String dlqUrl,
+                             @Value("${dlq.redrive.max-messages-per-second:50}") double defaultMessagesPerSecond,
+                             @Value("${dlq.redrive.parallelism:4}") int defaultParallelism,
+                             @Value("${dlq.redrive.visibility-timeout-seconds:900}") int visibilityTimeoutSeconds,
+                             Counter dlqRedriveRedrivenCounter,
+                             Counter dlqRedriveSkippedCounter,
+                             Counter dlqRedriveFailedCounter,
+                             MeterRegistry meterRegistry) {
+        this.sqsClient = sqsClient;
+        this.messageProcessor = messageProcessor;
+        this.objectMapper = objectMapper;
+        this.queueUrl = queueUrl;
+        this.dlqUrl = dlqUrl;
+        this.defaultMessagesPerSecond = defaultMessagesPerSecond;
+        this.defaultParallelism = defaultParallelism;
+        this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+        this.redrivenCounter = dlqRedriveRedrivenCounter;
+        this.skippedCounter = dlqRedriveSkippedCounter;
+        this.failedCounter = dlqRedriveFailedCounter;
+
+        Gauge.builder("dlq.redrive.active", currentRun, ref -> ref.get() != null && ref.get().isRunning() ? 1 : 0)
+                .description("1 while a DLQ redrive is running")
+                .tag("service", "microservice-2")
+                .register(meterRegistry);
+        Gauge.builder("dlq.redrive.remaining", currentRun, ref -> ref.get() == null ? 0 : ref.get().remaining())
+                .description("Messages the current DLQ redrive has not examined yet")
+                .tag("service", "microservice-2")
+                .register(meterRegistry);
+        Gauge.builder("dlq.redrive.eta.seconds", currentRun, ref -> ref.get() == null ? 0 : ref.get().etaSeconds())
+                .description("Estimated seconds until the current DLQ redrive finishes")
+                .tag("service", "microservice-2")
+                .register(meterRegistry);
+    }
+
+    public synchronized RedriveStatus start(RedriveRequest request) {
+        Run existing = currentRun.get();
+        if (existing != null && existing.isRunning()) {
+            throw new IllegalStateException("A DLQ redrive is already running");
+        }
+        if (dlqUrl == null || dlqUrl.isBlank()) {
+            throw new IllegalStateException("sqs.dlq-url is not configured");
+        }
+
+        double messagesPerSecond = request.getMaxMessagesPerSecond() != null
+                ? request.getMaxMessagesPerSecond() : defaultMessagesPerSecond;
+        int parallelism = request.getParallelism() != null ? request.getParallelism() : defaultParallelism;
+        if (messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("maxMessagesPerSecond must be positive");
+        }
+        if (parallelism < 1 || parallelism > MAX_PARALLELISM) {
+            throw new IllegalArgumentException("parallelism must be between 1 and " + MAX_PARALLELISM);
+        }
+
+        Run run = new Run(request, new RateLimiter(messagesPerSecond), approximateBacklog());
+        currentRun.set(run);
+        log.info("Starting DLQ redrive. Mode: {}, MaxMessagesPerSecond: {}, Parallelism: {}, Backlog: {}",
+                request.getMode(), messagesPerSecond, parallelism, run.initialBacklog);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "dlq-redrive-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = CompletableFuture.runAsync(() -> work(run), executor);
+        }
+        CompletableFuture.allOf(workers).whenComplete((ignored, error) -> {
+            run.finish();
+            executor.shutdown();
+            RedriveStatus status = run.toStatus();
+            log.info("DLQ redrive {}. Redriven: {}, Skipped: {}, Failed: {}",
+                    status.getState(), status.getRedriven(), status.getSkipped(), status.getFailed());
+        });
+        return run.toStatus();
+    }
+
+    public RedriveStatus status() {
+        Run run = currentRun.get();
+        if (run == null) {
+            RedriveStatus status = new RedriveStatus();
+            status.setState(RedriveStatus.State.IDLE);
+            return status;
+        }
+        return run.toStatus();
+    }
+
+    public RedriveStatus cancel() {
+        Run run = currentRun.get();
+        if (run != null && run.isRunning()) {
+            run.cancelled = true;
+            log.info("Cancelling DLQ redrive");
+        }
+        return status();
+    }
+
+    private void work(Run run) {
+        int emptyReceives = 0;
+        while (!run.isStopped()) {
+            List<Message> messages;
+            try {
+                messages = sqsClient.receiveMessage(ReceiveMessageRequest.builder()
+                        .queueUrl(dlqUrl)
+                        .maxNumberOfMessages(MAX_BATCH_SIZE)
+                        .waitTimeSeconds(RECEIVE_WAIT_SECONDS)
+                        .visibilityTimeout(visibilityTimeoutSeconds)
+                        .messageAttributeNames("All")
+                        .attributeNamesWithStrings(FifoQueues.MESSAGE_GROUP_ID_ATTRIBUTE)
+                        .build()).messages();
+            } catch (Exception e) {
+                log.error("Error receiving from DLQ, stopping redrive", e);
+                run.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+                return;
+            }
+
+            if (messages.isEmpty()) {
+                if (++emptyReceives >= EMPTY_RECEIVES_BEFORE_DONE) {
+                    return;
+                }
+                continue;
+            }
+            emptyReceives = 0;
+            run.received.addAndGet(messages.size());
+
+            for (Message message : messages) {
+                if (run.isStopped()) {
+                    release(message);
+                } else if (!matches(message, run.request)) {
+                    run.skipped.incrementAndGet();
+                    skippedCounter.increment();
+                } else if (!run.reserve()) {
+                    release(message);
+                } else {
+                    try {
+                        run.rateLimiter.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        release(message);
+                        return;
+                    }
+                    if (redrive(message, run.request.getMode())) {
+                        run.redriven.incrementAndGet();
+                        redrivenCounter.increment();
+                    } else {
+                        run.failed.incrementAndGet();
+                        failedCounter.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    boolean matches(Message message, RedriveRequest request) {
+        if (request.getFailureReason() != null) {
+            MessageAttributeValue reason = message.messageAttributes().get(QuarantineService.FAILURE_REASON_ATTRIBUTE);
+            if (reason == null || reason.stringValue() == null || !containsIgnoreCase(reason.stringValue(), request.getFailureReason())) {
+                return false;
+            }
+        }
+        if (request.getSender() == null && request.getFromEpochSeconds() == null && request.getToEpochSeconds() == null) {
+            return true;
+        }
+
+        EmailMessage emailMessage;
+        long timestamp;
+        try {
+            emailMessage = objectMapper.readValue(message.body(), EmailMessage.class);
+            timestamp = Long.parseLong(emailMessage.getEmailTimestream());
+        } catch (Exception e) {
+            // Sender and time filters cannot match a body that does not parse
+            return false;
+        }
+        if (request.getSender() != null
+                && (emailMessage.getEmailSender() == null || !containsIgnoreCase(emailMessage.getEmailSender(), request.getSender()))) {
+            return false;
+        }
+        if (request.getFromEpochSeconds() != null && timestamp < request.getFromEpochSeconds()) {
+            return false;
+        }
+        return request.getToEpochSeconds() == null || timestamp <= request.getToEpochSeconds();
+    }
+
+    private boolean redrive(Message message, RedriveRequest.Mode mode) {
+        try {
+            if (mode == RedriveRequest.Mode.PROCESS) {
+                String correlationId = getCorrelationId(message);
+                ProcessingResult result = messageProcessor.process(message.body(), correlationId, message.messageId());
+                if (!result.isSuccess()) {
+                    log.warn("Redriven message failed again. MessageId: {}, CorrelationId: {}, Reason: {}",
+                            message.messageId(), correlationId, result.reason());
+                    return false;
+                }
+            } else {
+                // The failure details describe the last attempt, not the replayed one
+                Map<String, MessageAttributeValue> attributes = new HashMap<>(message.messageAttributes());
+                attributes.remove(QuarantineService.FAILURE_REASON_ATTRIBUTE);
+                attributes.remove(QuarantineService.FAILURE_CLASS_ATTRIBUTE);
+                sqsClient.sendMessage(FifoQueues.preserveGroup(SendMessageRequest.builder()
+                        .queueUrl(queueUrl)
+                        .messageBody(message.body())
+                        .messageAttributes(attributes), queueUrl, message)
+                        .build());
+            }
+            sqsClient.deleteMessage(DeleteMessageRequest.builder()
+                    .queueUrl(dlqUrl)
+                    .receiptHandle(message.receiptHandle())
+                    .build());
+            return true;
+        } catch (Exception e) {
+            log.error("Error redriving message: {}", message.messageId(), e);
+            return false;
+        }
+    }
+
+    private void release(Message message) {
+        try {
+            sqsClient.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                    .queueUrl(dlqUrl)
+                    .receiptHandle(message.receiptHandle())
+                    .visibilityTimeout(0)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Could not release DLQ message: {}", message.messageId(), e);
+        }
+    }
+
+    private long approximateBacklog() {
+        try {
+            String count = sqsClient.getQueueAttributes(GetQueueAttributesRequest.builder()
+                    .queueUrl(dlqUrl)
+                    .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES)
+                    .build())
+                    .attributes()
+                    .get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES);
+            return count == null ? 0 : Long.parseLong(count);
+        } catch (Exception e) {
+            log.warn("Could not read DLQ backlog, ETA will be unavailable", e);
+            return 0;
+        }
+    }
+
+    private String getCorrelationId(Message message) {
+        MessageAttributeValue correlationId = message.messageAttributes().get("correlationId");
+        return correlationId != null && correlationId.stringValue() != null ? correlationId.stringValue() : "unknown";
+    }
+
+    private static boolean containsIgnoreCase(String value, String fragment) {
+        return value.toLowerCase(Locale.ROOT).contains(fragment.toLowerCase(Locale.ROOT));
+    }
+
+    private static final class Run {
+
+        private final RedriveRequest request;
+        private final RateLimiter rateLimiter;
+        private final long initialBacklog;
+        private final long startedAt = System.currentTimeMillis();
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong redriven = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong reserved = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile boolean limitReached;
+        private volatile String error;
+        private volatile RedriveStatus.State state = RedriveStatus.State.RUNNING;
+        private volatile Long finishedAt;
+
+        private Run(RedriveRequest request, RateLimiter rateLimiter, long initialBacklog) {
+            this.request = request;
+            this.rateLimiter = rateLimiter;
+            this.initialBacklog = initialBacklog;
+        }
+
+        private boolean isRunning() {
+            return state == RedriveStatus.State.RUNNING;
+        }
+
+        private boolean isStopped() {
+            return cancelled || limitReached || error != null;
+        }
+
+        private boolean reserve() {
+            if (request.getMaxMessages() > 0 && reserved.incrementAndGet() > request.getMaxMessages()) {
+                limitReached = true;
+                return false;
+            }
+            return true;
+        }
+
+        private void finish() {
+            finishedAt = System.currentTimeMillis();
+            if (error != null) {
+                state = RedriveStatus.State.FAILED;
+            } else if (cancelled) {
+                state = RedriveStatus.State.CANCELLED;
+            } else {
+                state = RedriveStatus.State.COMPLETED;
+            }
+        }
+
+        private double messagesPerSecond() {
+            long end = finishedAt != null ? finishedAt : System.currentTimeMillis();
+            double elapsedSeconds = Math.max(end - startedAt, 1) / 1000.0;
+            return (redriven.get() + failed.get()) / elapsedSeconds;
+        }
+
+        private long remaining() {
+            if (!isRunning()) {
+                return 0;
+            }
+            long remaining = Math.max(initialBacklog - redriven.get() - failed.get() - skipped.get(), 0);
+            if (request.getMaxMessages() > 0) {
+                remaining = Math.min(remaining, Math.max(request.getMaxMessages() - redriven.get() - failed.get(), 0));
+            }
+            return remaining;
+        }
+
+        private long etaSeconds() {
+            double rate = messagesPerSecond();
+            return rate > 0 ? (long) Math.ceil(remaining() / rate) : 0;
+        }
+
+        private RedriveStatus toStatus() {
+            RedriveStatus status = new RedriveStatus();
+            status.setState(state);
+            status.setRequest(request);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setInitialBacklog(initialBacklog);
+            status.setReceived(received.get());
+            status.setRedriven(redriven.get());
+            status.setSkipped(skipped.get());
+            status.setFailed(failed.get());
+            status.setMessagesPerSecond(messagesPerSecond());
+            status.setEtaSeconds(isRunning() && messagesPerSecond() > 0 ? etaSeconds() : null);
+            status.setError(error);
+            return status;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.emailprocessor.processor.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+
+/**
+ * Builds the stored S3 document from the original message JSON in one streaming pass: source tokens are copied
+ * straight into the output buffer and the enrichment fields are appended before the closing brace. The email
+ * body is never materialised as a Java object, map or intermediate string.
+ */
+@Component
+public class EnvelopeEnricher {
+
+    // Replaced by the enrichment fields rather than copied
+    private static final Set<String> REPLACED_FIELDS = Set.of("correlationId", "timestamp", "originalTimestamp",
+            "processedAt", "s3Key", "emailContentRef");
+    // Dropped when the body is stored by reference
+    private static final String CONTENT_FIELD = "emailContent";
+    private static final int ENRICHMENT_HEADROOM = 256;
+
+    private final JsonFactory jsonFactory;
+
+    public EnvelopeEnricher(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public Envelope enrich(String sourceJson, String correlationId, Long originalTimestamp, long processedAt, String s3Key)
+            throws IOException {
+        return enrich(sourceJson, correlationId, originalTimestamp, processedAt, s3Key, null);
+    }
+
+    /**
+     * @param contentRef when set, {@code emailContent} is left out and an {@code emailContentRef} object with the
+     *                   body's hash, key and size is written instead
+     */
+    public Envelope enrich(String sourceJson, String correlationId, Long originalTimestamp, long processedAt, String s3Key,
+                           ContentStore.ContentReference contentRef) throws IOException {
+        Buffer buffer = new Buffer(sourceJson.length() + ENRICHMENT_HEADROOM);
+        try (JsonParser parser = jsonFactory.createParser(sourceJson);
+             JsonGenerator generator = jsonFactory.createGenerator(buffer, JsonEncoding.UTF8)) {
+            write(parser, generator, correlationId, originalTimestamp, processedAt, s3Key, contentRef);
+        }
+        return new Envelope(buffer.array(), buffer.size());
+    }
+
+    public Envelope enrich(byte[] sourceJson, String correlationId, Long originalTimestamp, long processedAt, String s3Key)
+            throws IOException {
+        return enrich(sourceJson, correlationId, originalTimestamp, processedAt, s3Key, null);
+    }
+
+    public Envelope enrich(byte[] sourceJson, String correlationId, Long originalTimestamp, long processedAt, String s3Key,
+                           ContentStore.ContentReference contentRef) throws IOException {
+        Buffer buffer = new Buffer(sourceJson.length + ENRICHMENT_HEADROOM);
+        try (JsonParser parser = jsonFactory.createParser(sourceJson);
+             JsonGenerator generator = jsonFactory.createGenerator(buffer, JsonEncoding.UTF8)) {
+            write(parser, generator, correlationId, originalTimestamp, processedAt, s3Key, contentRef);
+        }
+        return new Envelope(buffer.array(), buffer.size());
+    }
+
+    /**
+     * Streams the document into {@code out} without buffering it; {@code out} is flushed but not closed.
+     */
+    public void writeTo(String sourceJson, OutputStream out, String correlationId, Long originalTimestamp,
+                        long processedAt, String s3Key) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(sourceJson);
+             JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            write(parser, generator, correlationId, originalTimestamp, processedAt, s3Key, null);
+        }
+    }
+
+    private void write(JsonParser parser, JsonGenerator generator, String correlationId, Long originalTimestamp,
+                       long processedAt, String s3Key, ContentStore.ContentReference contentRef) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Message body is not a JSON object");
+        }
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (REPLACED_FIELDS.contains(field) || (contentRef != null && CONTENT_FIELD.equals(field))) {
+                parser.skipChildren();
+                continue;
+            }
+            generator.writeFieldName(field);
+            generator.copyCurrentStructure(parser);
+        }
+        generator.writeStringField("correlationId", correlationId);
+        if (originalTimestamp != null) {
+            generator.writeNumberField("originalTimestamp", originalTimestamp);
+        } else {
+            generator.writeNullField("originalTimestamp");
+        }
+        generator.writeNumberField("processedAt", processedAt);
+        generator.writeStringField("s3Key", s3Key);
+        if (contentRef != null) {
+            generator.writeObjectFieldStart("emailContentRef");
+            generator.writeStringField("sha256", contentRef.sha256());
+            generator.writeStringField("key", contentRef.key());
+            generator.writeNumberField("bytes", contentRef.bytes());
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Encoded document. Exposes the backing array so the upload reads the bytes that were written, without a copy.
+     */
+    public static final class Envelope {
+
+        private final byte[] bytes;
+        private final int length;
+
+        private Envelope(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public InputStream newInputStream() {
+            return new ByteArrayInputStream(bytes, 0, length);
+        }
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private Buffer(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.emailprocessor.processor.service;
+
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+/**
+ * FIFO queues reject sends without a message group, so re-publishing a received message (redrive, quarantine)
+ * carries its group over and deduplicates on the original message ID.
+ */
+final class FifoQueues {
+
+    static final String MESSAGE_GROUP_ID_ATTRIBUTE = "MessageGroupId";
+
+    private static final String DEFAULT_GROUP = "default";
+
+    private FifoQueues() {
+    }
+
+    static boolean isFifo(String queueUrl) {
+        return queueUrl != null && queueUrl.endsWith(".fifo");
+    }
+
+    static String groupId(Message message) {
+        return message.attributesAsStrings().get(MESSAGE_GROUP_ID_ATTRIBUTE);
+    }
+
+    static SendMessageRequest.Builder preserveGroup(SendMessageRequest.Builder request, String queueUrl, Message source) {
+        if (!isFifo(queueUrl)) {
+            return request;
+        }
+        String groupId = groupId(source);
+        return request
+                .messageGroupId(groupId != null ? groupId : DEFAULT_GROUP)
+                .messageDeduplicationId(source.messageId());
+    }
+}
@@ -0,0 +1,196 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Detects SQS redeliveries of messages that were already written to S3.
+ *
+ * <p>Keys are kept in a bounded LRU of recent IDs, which is exact. Optionally they are also added to a
+ * two-generation Bloom filter that is persisted to local disk and survives restarts. A Bloom hit alone only
+ * means "possibly processed", so the caller confirms it against S3 and reports the outcome through
+ * {@link #recordBloomOutcome(String, boolean)}.
+ */
+@Slf4j
+@Service
+public class IdempotencyFilter {
+
+    public enum Verdict { PROCESSED, POSSIBLY_PROCESSED, NEW }
+
+    private static final String UNKNOWN_CORRELATION_ID = "unknown";
+
+    private final boolean enabled;
+    private final boolean bloomEnabled;
+    private final Path bloomPath;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Map<String, Boolean> recentIds;
+    private final Counter dedupCacheHitCounter;
+    private final Counter dedupBloomConfirmedCounter;
+    private final Counter dedupBloomFalsePositiveCounter;
+    private final Counter dedupMissCounter;
+
+    private volatile BloomFilter currentGeneration;
+    private volatile BloomFilter previousGeneration;
+
+    public IdempotencyFilter(@Value("${consumer.dedup.enabled:true}") boolean enabled,
+                             @Value("${consumer.dedup.cache-size:100000}") int cacheSize,
+                             @Value("${consumer.dedup.bloom.enabled:false}") boolean bloomEnabled,
+                             @Value("${consumer.dedup.bloom.path:/tmp/email-processor/dedup.bloom}") String bloomPath,
+                             @Value("${consumer.dedup.bloom.expected-insertions:500000}") long expectedInsertions,
+                             @Value("${consumer.dedup.bloom.false-positive-rate:0.001}") double falsePositiveRate,
+                             Counter dedupCacheHitCounter,
+                             Counter dedupBloomConfirmedCounter,
+                             Counter dedupBloomFalsePositiveCounter,
+                             Counter dedupMissCounter,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.bloomEnabled = enabled && bloomEnabled;
+        this.bloomPath = Path.of(bloomPath);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.recentIds = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.dedupCacheHitCounter = dedupCacheHitCounter;
+        this.dedupBloomConfirmedCounter = dedupBloomConfirmedCounter;
+        this.dedupBloomFalsePositiveCounter = dedupBloomFalsePositiveCounter;
+        this.dedupMissCounter = dedupMissCounter;
+
+        Gauge.builder("consumer.dedup.cache.size", recentIds, Map::size)
+                .description("Number of message IDs held in the recent-ID cache")
+                .tag("service", "microservice-2")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Prefers the correlation ID, which survives re-publishing; falls back to the SQS message ID.
+     */
+    public String keyFor(String correlationId, String messageId) {
+        if (correlationId != null && !correlationId.isBlank() && !UNKNOWN_CORRELATION_ID.equals(correlationId)) {
+            return correlationId;
+        }
+        return messageId;
+    }
+
+    public Verdict check(String key) {
+        if (!enabled || key == null) {
+            return Verdict.NEW;
+        }
+        if (recentIds.get(key) != null) {
+            dedupCacheHitCounter.increment();
+            return Verdict.PROCESSED;
+        }
+        if (bloomEnabled && bloomMightContain(key)) {
+            return Verdict.POSSIBLY_PROCESSED;
+        }
+        dedupMissCounter.increment();
+        return Verdict.NEW;
+    }
+
+    public void recordProcessed(String key) {
+        if (!enabled || key == null) {
+            return;
+        }
+        recentIds.put(key, Boolean.TRUE);
+        if (bloomEnabled) {
+            BloomFilter generation = currentGeneration;
+            generation.put(key);
+            if (generation.getInsertions() >= expectedInsertions) {
+                rotate(generation);
+            }
+        }
+    }
+
+    public void recordBloomOutcome(String key, boolean alreadyStored) {
+        if (alreadyStored) {
+            dedupBloomConfirmedCounter.increment();
+            recentIds.put(key, Boolean.TRUE);
+        } else {
+            dedupBloomFalsePositiveCounter.increment();
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!bloomEnabled) {
+            return;
+        }
+        currentGeneration = BloomFilter.create(expectedInsertions, falsePositiveRate);
+        if (!Files.exists(bloomPath)) {
+            log.info("No persisted dedup bloom filter at {}, starting empty", bloomPath);
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(bloomPath)))) {
+            currentGeneration = BloomFilter.readFrom(in);
+            previousGeneration = in.readBoolean() ? BloomFilter.readFrom(in) : null;
+            log.info("Loaded dedup bloom filter from {}. Insertions: {}", bloomPath, currentGeneration.getInsertions());
+        } catch (IOException e) {
+            log.warn("Could not load dedup bloom filter from {}, starting empty", bloomPath, e);
+            currentGeneration = BloomFilter.create(expectedInsertions, falsePositiveRate);
+            previousGeneration = null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${consumer.dedup.bloom.persist-interval-ms:60000}")
+    @PreDestroy
+    public void persist() {
+        if (!bloomEnabled) {
+            return;
+        }
+        BloomFilter current = currentGeneration;
+        BloomFilter previous = previousGeneration;
+        try {
+            Files.createDirectories(bloomPath.toAbsolutePath().getParent());
+            Path tmp = bloomPath.resolveSibling(bloomPath.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                current.writeTo(out);
+                out.writeBoolean(previous != null);
+                if (previous != null) {
+                    previous.writeTo(out);
+                }
+            }
+            Files.move(tmp, bloomPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Persisted dedup bloom filter to {}", bloomPath);
+        } catch (IOException e) {
+            log.warn("Could not persist dedup bloom filter to {}", bloomPath, e);
+        }
+    }
+
+    private boolean bloomMightContain(String key) {
+        BloomFilter previous = previousGeneration;
+        return currentGeneration.mightContain(key) || (previous != null && previous.mightContain(key));
+    }
+
+    // A full filter loses precision, so start a fresh generation and keep the last one for lookups
+    private synchronized void rotate(BloomFilter full) {
+        if (currentGeneration != full) {
+            return;
+        }
+        previousGeneration = full;
+        currentGeneration = BloomFilter.create(expectedInsertions, falsePositiveRate);
+        log.info("Rotated dedup bloom filter generation after {} insertions", full.getInsertions());
+    }
+}
@@ -0,0 +1,46 @@
+package com.emailprocessor.processor.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of single-threaded partitions keyed by message group. Work for one group always lands on the same
+ * partition and runs in submission order; different groups run in parallel.
+ */
+@Component
+public class MessageGroupExecutor {
+
+    private final ExecutorService[] partitions;
+
+    public MessageGroupExecutor(@Value("${consumer.fifo.parallelism:4}") int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("consumer.fifo.parallelism must be at least 1");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.partitions = new ExecutorService[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            partitions[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sqs-group-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public CompletableFuture<Void> submit(String groupId, Runnable task) {
+        return CompletableFuture.runAsync(task, partitions[Math.floorMod(groupId.hashCode(), partitions.length)]);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService partition : partitions) {
+            partition.shutdown();
+        }
+    }
+}
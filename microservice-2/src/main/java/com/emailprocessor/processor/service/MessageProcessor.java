@@ -1,72 +1,227 @@
 package com.emailprocessor.processor.service;
 
+import com.emailprocessor.common.service.SenderTracker;
 import com.emailprocessor.processor.dto.EmailMessage;
+import com.emailprocessor.processor.jfr.ParseEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Slf4j
 @Service
 public class MessageProcessor {
     
     private final S3UploaderService s3UploaderService;
+    private final ColumnarArchiveService columnarArchiveService;
+    private final IdempotencyFilter idempotencyFilter;
+    private final SenderTracker senderTracker;
+    private final Tracer tracer;
     private final ObjectMapper objectMapper;
     private final Counter messagesProcessedSuccessCounter;
     private final Counter messagesProcessedFailureCounter;
     private final Timer messageProcessingTimer;
+    private final Timer endToEndLatencyTimer;
     
     public MessageProcessor(S3UploaderService s3UploaderService, 
+                           ColumnarArchiveService columnarArchiveService,
+                           IdempotencyFilter idempotencyFilter,
+                           SenderTracker senderTracker,
+                           Tracer tracer,
                            ObjectMapper objectMapper,
                            Counter sqsMessagesProcessedSuccessCounter,
                            Counter sqsMessagesProcessedFailureCounter,
-                           Timer messageProcessingTimer) {
+                           Timer messageProcessingTimer,
+                           Timer endToEndLatencyTimer) {
         this.s3UploaderService = s3UploaderService;
+        this.columnarArchiveService = columnarArchiveService;
+        this.idempotencyFilter = idempotencyFilter;
+        this.senderTracker = senderTracker;
+        this.tracer = tracer;
         this.objectMapper = objectMapper;
         this.messagesProcessedSuccessCounter = sqsMessagesProcessedSuccessCounter;
         this.messagesProcessedFailureCounter = sqsMessagesProcessedFailureCounter;
         this.messageProcessingTimer = messageProcessingTimer;
+        this.endToEndLatencyTimer = endToEndLatencyTimer;
     }
     
     public boolean processMessage(String messageBody, String correlationId) {
+        return processMessage(messageBody, correlationId, null);
+    }
+    
+    public boolean processMessage(String messageBody, String correlationId, String messageId) {
+        return process(messageBody, correlationId, messageId).isSuccess();
+    }
+    
+    public ProcessingResult process(String messageBody, String correlationId, String messageId) {
         return messageProcessingTimer.record(() -> {
+            PreparedMessage prepared = prepare(messageBody, correlationId, messageId);
+            return prepared.isComplete() ? prepared.result() : store(prepared);
+        });
+    }
+    
+    /**
+     * For callers that run {@link #prepare} and {@link #store} separately, so they report the same timer as
+     * {@link #process}.
+     */
+    public void recordProcessingTime(long startNanos) {
+        messageProcessingTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Dedup check, parse and validation; no S3 calls. The result is complete when the message needs no upload.
+     */
+    public PreparedMessage prepare(String messageBody, String correlationId, String messageId) {
+        try {
+            log.info("Processing message. CorrelationId: {}", correlationId);
+            
+            // Redeliveries of messages that were already written are acknowledged without parsing
+            String dedupKey = idempotencyFilter.keyFor(correlationId, messageId);
+            IdempotencyFilter.Verdict verdict = idempotencyFilter.check(dedupKey);
+            if (verdict == IdempotencyFilter.Verdict.PROCESSED) {
+                log.info("Skipping already processed message. CorrelationId: {}, MessageId: {}", correlationId, messageId);
+                return PreparedMessage.complete(ProcessingResult.success());
+            }
+            
+            // Parse and validate the message; a body that does not parse now never will
+            EmailMessage emailMessage;
+            List<String> missingFields;
+            ParseEvent parseEvent = new ParseEvent();
+            Span parseSpan = tracer.nextSpan().name("email.parse").start();
+            parseEvent.begin();
             try {
-                log.info("Processing message. CorrelationId: {}", correlationId);
-                
-                // Parse the message
-                EmailMessage emailMessage = objectMapper.readValue(messageBody, EmailMessage.class);
-                
-                // Validate the message
-                if (!isValidEmailMessage(emailMessage)) {
-                    log.warn("Invalid email message received. CorrelationId: {}", correlationId);
-                    messagesProcessedFailureCounter.increment();
-                    return false;
-                }
-                
-                // Upload to S3
-                String s3Key = s3UploaderService.uploadToS3(emailMessage, correlationId);
-                
-                messagesProcessedSuccessCounter.increment();
-                log.info("Message processed successfully. S3Key: {}, CorrelationId: {}", s3Key, correlationId);
-                return true;
-                
-            } catch (Exception e) {
-                log.error("Error processing message. CorrelationId: {}", correlationId, e);
+                emailMessage = objectMapper.readValue(messageBody, EmailMessage.class);
+                missingFields = findMissingFields(emailMessage);
+            } catch (JsonProcessingException e) {
+                parseSpan.error(e);
+                log.warn("Malformed message body. CorrelationId: {}", correlationId);
                 messagesProcessedFailureCounter.increment();
-                return false;
+                return PreparedMessage.complete(ProcessingResult.permanentFailure("Malformed JSON: " + e.getOriginalMessage()));
+            } finally {
+                parseEvent.complete(correlationId, messageBody.length());
+                parseSpan.end();
             }
-        });
+            
+            if (!missingFields.isEmpty()) {
+                log.warn("Invalid email message received. CorrelationId: {}, MissingFields: {}", correlationId, missingFields);
+                messagesProcessedFailureCounter.increment();
+                return PreparedMessage.complete(
+                        ProcessingResult.permanentFailure("Missing required fields: " + String.join(", ", missingFields)));
+            }
+            
+            // Every delivery that gets this far costs an upload, retries included
+            senderTracker.record(emailMessage.getEmailSender(), messageBody.length());
+            
+            return new PreparedMessage(emailMessage, messageBody, correlationId, messageId, dedupKey, verdict, null);
+            
+        } catch (Exception e) {
+            log.error("Error processing message. CorrelationId: {}", correlationId, e);
+            messagesProcessedFailureCounter.increment();
+            return PreparedMessage.complete(ProcessingResult.transientFailure(e.getClass().getSimpleName() + ": " + e.getMessage()));
+        }
     }
     
-    private boolean isValidEmailMessage(EmailMessage emailMessage) {
+    /**
+     * Upload and archive a message that {@link #prepare} accepted.
+     */
+    public ProcessingResult store(PreparedMessage prepared) {
+        EmailMessage emailMessage = prepared.emailMessage();
+        String correlationId = prepared.correlationId();
+        try {
+            // A bloom filter hit may be a false positive, so confirm against S3 before skipping the upload
+            if (prepared.verdict() == IdempotencyFilter.Verdict.POSSIBLY_PROCESSED) {
+                boolean alreadyStored = s3UploaderService.isStored(emailMessage, correlationId);
+                idempotencyFilter.recordBloomOutcome(prepared.dedupKey(), alreadyStored);
+                if (alreadyStored) {
+                    log.info("Skipping message already stored in S3. CorrelationId: {}, MessageId: {}",
+                            correlationId, prepared.messageId());
+                    return ProcessingResult.success();
+                }
+            }
+            
+            // Upload to S3; the stored document is built from the original body, not the parsed copy
+            String s3Key = s3UploaderService.uploadToS3(emailMessage, prepared.messageBody(), correlationId);
+            idempotencyFilter.recordProcessed(prepared.dedupKey());
+            recordEndToEndLatency(emailMessage);
+            
+            // Add to the columnar archive; failures here must not fail the message
+            archive(emailMessage, correlationId);
+            
+            messagesProcessedSuccessCounter.increment();
+            log.info("Message processed successfully. S3Key: {}, CorrelationId: {}", s3Key, correlationId);
+            return ProcessingResult.success();
+            
+        } catch (Exception e) {
+            // S3 and other downstream errors may clear up, so the message is retried
+            log.error("Error processing message. CorrelationId: {}", correlationId, e);
+            messagesProcessedFailureCounter.increment();
+            return ProcessingResult.transientFailure(e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Ingest time is the timestamp the API put in the payload when it accepted the request.
+     */
+    private void recordEndToEndLatency(EmailMessage emailMessage) {
+        Long ingestedAt = emailMessage.getTimestamp();
+        if (ingestedAt != null && ingestedAt > 0) {
+            endToEndLatencyTimer.record(Math.max(System.currentTimeMillis() - ingestedAt, 0), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void archive(EmailMessage emailMessage, String correlationId) {
+        try {
+            columnarArchiveService.append(emailMessage, correlationId);
+        } catch (Exception e) {
+            log.error("Error adding message to columnar archive. CorrelationId: {}", correlationId, e);
+        }
+    }
+    
+    private List<String> findMissingFields(EmailMessage emailMessage) {
         if (emailMessage == null) {
-            return false;
+            return List.of("body");
         }
         
-        return emailMessage.getEmailSubject() != null && !emailMessage.getEmailSubject().trim().isEmpty() &&
-               emailMessage.getEmailSender() != null && !emailMessage.getEmailSender().trim().isEmpty() &&
-               emailMessage.getEmailTimestream() != null && !emailMessage.getEmailTimestream().trim().isEmpty() &&
-               emailMessage.getEmailContent() != null && !emailMessage.getEmailContent().trim().isEmpty();
+        List<String> missingFields = new ArrayList<>(4);
+        if (isBlank(emailMessage.getEmailSubject())) {
+            missingFields.add("emailSubject");
+        }
+        if (isBlank(emailMessage.getEmailSender())) {
+            missingFields.add("emailSender");
+        }
+        if (isBlank(emailMessage.getEmailTimestream())) {
+            missingFields.add("emailTimestream");
+        }
+        if (isBlank(emailMessage.getEmailContent())) {
+            missingFields.add("emailContent");
+        }
+        return missingFields;
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+    
+    /**
+     * Output of {@link #prepare}: either a final result or a parsed message ready for {@link #store}.
+     */
+    public record PreparedMessage(EmailMessage emailMessage, String messageBody, String correlationId, String messageId,
+                                  String dedupKey, IdempotencyFilter.Verdict verdict, ProcessingResult result) {
+        
+        static PreparedMessage complete(ProcessingResult result) {
+            return new PreparedMessage(null, null, null, null, null, null, result);
+        }
+        
+        public boolean isComplete() {
+            return result != null;
+        }
     }
 }
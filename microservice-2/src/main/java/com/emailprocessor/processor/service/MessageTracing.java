@@ -0,0 +1,64 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continues the API's trace on this side of the queue. The publisher puts a W3C {@code traceparent} in the message
+ * attributes; each message gets an {@code sqs.dwell} span for its wait in the queue and an {@code sqs.process} span
+ * that the parse and upload spans hang off.
+ *
+ * <p>The sampling decision travels with the trace context, so a trace is kept or dropped as a whole;
+ * {@code management.tracing.sampling.probability} only decides for messages that arrive without one.
+ */
+@Component
+public class MessageTracing {
+
+    private static final Propagator.Getter<Message> ATTRIBUTE_GETTER = (message, key) -> {
+        MessageAttributeValue value = message.messageAttributes().get(key);
+        return value != null ? value.stringValue() : null;
+    };
+
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public MessageTracing(Tracer tracer, Propagator propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    /**
+     * Records the time between the send and the first receive, as SQS reports them.
+     */
+    public void recordDwell(Message message, long sentTimestamp, long firstReceiveTimestamp) {
+        propagator.extract(message, ATTRIBUTE_GETTER)
+                .name("sqs.dwell")
+                .tag("messaging.message.id", message.messageId())
+                .startTimestamp(sentTimestamp, TimeUnit.MILLISECONDS)
+                .start()
+                .end(Math.max(firstReceiveTimestamp, sentTimestamp), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts the span covering this delivery; the caller puts it in scope while working on the message and ends it.
+     */
+    public Span startProcessing(Message message, String lane) {
+        return propagator.extract(message, ATTRIBUTE_GETTER)
+                .name("sqs.process")
+                .kind(Span.Kind.CONSUMER)
+                .tag("messaging.system", "aws_sqs")
+                .tag("messaging.destination.name", lane)
+                .tag("messaging.message.id", message.messageId())
+                .start();
+    }
+
+    public Tracer.SpanInScope withSpan(Span span) {
+        return tracer.withSpan(span);
+    }
+}
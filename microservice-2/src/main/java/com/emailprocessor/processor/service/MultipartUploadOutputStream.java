@@ -0,0 +1,228 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Streams an object to S3 in pooled part buffers. The multipart upload is only created once the first part fills;
+ * anything that closes within one part is sent as a single PUT. Any failure aborts the upload so no orphaned parts
+ * are left behind.
+ */
+@Slf4j
+class MultipartUploadOutputStream extends OutputStream {
+
+    private final S3Client s3Client;
+    private final PutObjectRequest target;
+    private final PartBufferPool bufferPool;
+    private final ExecutorService partExecutor;
+    private final Counter multipartUploadsCounter;
+    private final Counter multipartAbortsCounter;
+    private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+
+    private byte[] current;
+    private int position;
+    private String uploadId;
+    private long bytesWritten;
+    private boolean closed;
+
+    MultipartUploadOutputStream(S3Client s3Client, PutObjectRequest target, PartBufferPool bufferPool,
+                                ExecutorService partExecutor, Counter multipartUploadsCounter,
+                                Counter multipartAbortsCounter) throws IOException {
+        this.s3Client = s3Client;
+        this.target = target;
+        this.bufferPool = bufferPool;
+        this.partExecutor = partExecutor;
+        this.multipartUploadsCounter = multipartUploadsCounter;
+        this.multipartAbortsCounter = multipartAbortsCounter;
+        this.current = acquireBuffer();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == current.length) {
+            submitPart();
+        }
+        current[position++] = (byte) b;
+        bytesWritten++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (position == current.length) {
+                submitPart();
+            }
+            int chunk = Math.min(length, current.length - position);
+            System.arraycopy(bytes, offset, current, position, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+            bytesWritten += chunk;
+        }
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    boolean isMultipart() {
+        return uploadId != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (uploadId == null) {
+                // Fits in one part; a single PUT is cheaper than create/upload/complete
+                s3Client.putObject(target, RequestBody.fromInputStream(new ByteArrayInputStream(current, 0, position), position));
+                return;
+            }
+            if (position > 0) {
+                submitPart();
+            }
+            List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completedParts.add(part.join());
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(target.bucket())
+                    .key(target.key())
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+            multipartUploadsCounter.increment();
+            log.debug("Completed multipart upload. Key: {}, Parts: {}, Bytes: {}", target.key(), completedParts.size(), bytesWritten);
+        } catch (CompletionException e) {
+            abort();
+            throw new IOException("Multipart upload failed for " + target.key(), e.getCause());
+        } catch (RuntimeException | IOException e) {
+            abort();
+            throw e;
+        } finally {
+            releaseCurrent();
+        }
+    }
+
+    /**
+     * Discards everything written so far. Safe to call more than once.
+     */
+    void abort() {
+        closed = true;
+        releaseCurrent();
+        if (uploadId == null) {
+            return;
+        }
+        String abortedUploadId = uploadId;
+        uploadId = null;
+        // Wait for running part uploads, otherwise a part finishing after the abort would be stored and billed
+        for (CompletableFuture<CompletedPart> part : parts) {
+            try {
+                part.join();
+            } catch (Exception ignored) {
+                // Already failed or cancelled
+            }
+        }
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(target.bucket())
+                    .key(target.key())
+                    .uploadId(abortedUploadId)
+                    .build());
+            multipartAbortsCounter.increment();
+            log.warn("Aborted multipart upload. Key: {}, UploadId: {}", target.key(), abortedUploadId);
+        } catch (Exception e) {
+            log.error("Error aborting multipart upload, parts remain until the bucket lifecycle rule removes them. "
+                    + "Key: {}, UploadId: {}", target.key(), abortedUploadId, e);
+        }
+    }
+
+    private void submitPart() throws IOException {
+        if (uploadId == null) {
+            uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(target.bucket())
+                    .key(target.key())
+                    .contentType(target.contentType())
+                    .metadata(target.metadata())
+                    .build()).uploadId();
+        }
+        for (CompletableFuture<CompletedPart> part : parts) {
+            if (part.isCompletedExceptionally()) {
+                abort();
+                throw new IOException("Part upload failed for " + target.key());
+            }
+        }
+
+        byte[] buffer = current;
+        int length = position;
+        int partNumber = parts.size() + 1;
+        String partUploadId = uploadId;
+        current = null;
+        parts.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(target.bucket())
+                                .key(target.key())
+                                .uploadId(partUploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) length)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length)).eTag();
+                return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+            } finally {
+                bufferPool.release(buffer);
+            }
+        }, partExecutor));
+
+        // Blocks while every pooled buffer is in flight, which is what keeps memory bounded
+        current = acquireBuffer();
+        position = 0;
+    }
+
+    private byte[] acquireBuffer() throws IOException {
+        try {
+            return bufferPool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new InterruptedIOException("Interrupted waiting for a part buffer");
+        }
+    }
+
+    private void releaseCurrent() {
+        if (current != null) {
+            bufferPool.release(current);
+            current = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.emailprocessor.processor.service;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-capacity pool of part-sized buffers. Buffers are allocated on first use up to the capacity; after that
+ * {@link #acquire()} blocks until a part upload returns one, which bounds heap use across all concurrent uploads.
+ */
+class PartBufferPool {
+
+    private final int bufferSize;
+    private final int capacity;
+    private final BlockingQueue<byte[]> available = new LinkedBlockingQueue<>();
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    PartBufferPool(int bufferSize, int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("A multipart upload needs at least two part buffers");
+        }
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+    }
+
+    byte[] acquire() throws InterruptedException {
+        byte[] buffer = available.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        while (true) {
+            int current = allocated.get();
+            if (current >= capacity) {
+                return available.take();
+            }
+            if (allocated.compareAndSet(current, current + 1)) {
+                return new byte[bufferSize];
+            }
+        }
+    }
+
+    void release(byte[] buffer) {
+        available.offer(buffer);
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    int allocated() {
+        return allocated.get();
+    }
+}
@@ -0,0 +1,181 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * One stage of the consumer pipeline: a bounded queue in front of a fixed set of workers. {@link #submit} blocks
+ * while the queue is full, so a slow stage pushes back on the stage before it instead of letting work pile up.
+ *
+ * <p>Meters, all tagged with the stage name: queue size and capacity gauges, busy worker gauge, time spent
+ * waiting in the queue, time spent in the handler, and time producers spent blocked on a full queue.
+ */
+@Slf4j
+public class PipelineStage<T> {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final String name;
+    private final int capacity;
+    private final BlockingQueue<Entry<T>> queue;
+    private final Consumer<T> handler;
+    private final List<Thread> workers;
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Timer serviceTimer;
+    private final Timer blockedTimer;
+    private volatile boolean accepting = true;
+    private volatile boolean running = true;
+
+    public PipelineStage(String name, int concurrency, int capacity, Consumer<T> handler, MeterRegistry meterRegistry) {
+        if (concurrency < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Pipeline stage " + name + " needs at least one worker and one slot");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.handler = handler;
+
+        Gauge.builder("consumer.pipeline.stage.queue.size", queue, BlockingQueue::size)
+                .description("Items waiting in front of a consumer pipeline stage")
+                .tag("service", "microservice-2")
+                .tag("stage", name)
+                .register(meterRegistry);
+        Gauge.builder("consumer.pipeline.stage.queue.capacity", () -> capacity)
+                .description("Queue capacity of a consumer pipeline stage")
+                .tag("service", "microservice-2")
+                .tag("stage", name)
+                .register(meterRegistry);
+        Gauge.builder("consumer.pipeline.stage.busy", busyWorkers, AtomicInteger::get)
+                .description("Workers of a consumer pipeline stage currently handling an item")
+                .tag("service", "microservice-2")
+                .tag("stage", name)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("consumer.pipeline.stage.wait")
+                .description("Time items spent queued in front of a consumer pipeline stage")
+                .tag("service", "microservice-2")
+                .tag("stage", name)
+                .register(meterRegistry);
+        this.serviceTimer = Timer.builder("consumer.pipeline.stage.service")
+                .description("Time a consumer pipeline stage spent handling an item")
+                .tag("service", "microservice-2")
+                .tag("stage", name)
+                .register(meterRegistry);
+        this.blockedTimer = Timer.builder("consumer.pipeline.stage.blocked")
+                .description("Time producers were blocked on a full consumer pipeline stage queue")
+                .tag("service", "microservice-2")
+                .tag("stage", name)
+                .register(meterRegistry);
+
+        this.workers = new ArrayList<>(concurrency);
+        for (int i = 1; i <= concurrency; i++) {
+            Thread worker = new Thread(this::work, "pipeline-" + name + "-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Waits for room in the queue.
+     *
+     * @return false when the stage stopped accepting work before the item could be queued
+     */
+    public boolean submit(T item) throws InterruptedException {
+        Entry<T> entry = new Entry<>(item, System.nanoTime());
+        if (queue.offer(entry)) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            while (accepting) {
+                entry = new Entry<>(item, System.nanoTime());
+                if (queue.offer(entry, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            blockedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops taking new work; blocked producers give up. Workers keep going until {@link #close()}.
+     */
+    public void stopAccepting() {
+        accepting = false;
+    }
+
+    /**
+     * Removes and returns items that no worker has started yet.
+     */
+    public List<T> drainQueued() {
+        List<Entry<T>> entries = new ArrayList<>();
+        queue.drainTo(entries);
+        List<T> items = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries) {
+            items.add(entry.item());
+        }
+        return items;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void close() {
+        accepting = false;
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void work() {
+        while (running) {
+            Entry<T> entry;
+            try {
+                entry = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            waitTimer.record(start - entry.enqueuedAt(), TimeUnit.NANOSECONDS);
+            busyWorkers.incrementAndGet();
+            try {
+                handler.accept(entry.item());
+            } catch (Exception e) {
+                log.error("Unhandled error in pipeline stage {}", name, e);
+            } finally {
+                busyWorkers.decrementAndGet();
+                serviceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private record Entry<T>(T item, long enqueuedAt) {
+    }
+}
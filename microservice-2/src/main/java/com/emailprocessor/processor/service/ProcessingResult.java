@@ -0,0 +1,28 @@
+package com.emailprocessor.processor.service;
+
+/**
+ * Outcome of processing one message. Permanent failures will fail the same way on every redelivery and are
+ * quarantined; transient failures are retried with backoff.
+ */
+public record ProcessingResult(Outcome outcome, String reason) {
+
+    public enum Outcome { SUCCESS, TRANSIENT_FAILURE, PERMANENT_FAILURE }
+
+    private static final ProcessingResult SUCCESS = new ProcessingResult(Outcome.SUCCESS, null);
+
+    public static ProcessingResult success() {
+        return SUCCESS;
+    }
+
+    public static ProcessingResult transientFailure(String reason) {
+        return new ProcessingResult(Outcome.TRANSIENT_FAILURE, reason);
+    }
+
+    public static ProcessingResult permanentFailure(String reason) {
+        return new ProcessingResult(Outcome.PERMANENT_FAILURE, reason);
+    }
+
+    public boolean isSuccess() {
+        return outcome == Outcome.SUCCESS;
+    }
+}
@@ -0,0 +1,137 @@
+package com.emailprocessor.processor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Moves messages that failed permanently out of the main queue on their first delivery, either to the
+ * dead-letter queue or to a quarantine prefix in S3, with the failure reason attached.
+ */
+@Slf4j
+@Service
+public class QuarantineService {
+
+    public enum Target { S3, DLQ }
+
+    public static final String FAILURE_REASON_ATTRIBUTE = "failureReason";
+    public static final String FAILURE_CLASS_ATTRIBUTE = "failureClass";
+
+    private static final int MAX_REASON_LENGTH = 1024;
+    private static final DateTimeFormatter DATE_PATH = DateTimeFormatter.ofPattern("yyyy/MM/dd").withZone(ZoneOffset.UTC);
+
+    private final S3Client s3Client;
+    private final SqsClient sqsClient;
+    private final String bucketName;
+    private final String dlqUrl;
+    private final Target target;
+    private final String prefix;
+    private final ObjectMapper objectMapper;
+    private final Counter messagesQuarantinedCounter;
+
+    public QuarantineService(S3Client s3Client,
+                             SqsClient sqsClient,
+                             @Value("${s3.bucket-name}") String bucketName,
+                             @Value("${sqs.dlq-url:}") String dlqUrl,
+                             @Value("${consumer.quarantine.target:s3}") String target,
+                             @Value("${consumer.quarantine.prefix:quarantine}") String prefix,
+                             ObjectMapper objectMapper,
+                             Counter messagesQuarantinedCounter) {
+        this.s3Client = s3Client;
+        this.sqsClient = sqsClient;
+        this.bucketName = bucketName;
+        this.dlqUrl = dlqUrl;
+        this.target = Target.valueOf(target.trim().toUpperCase(Locale.ROOT));
+        this.prefix = prefix;
+        this.objectMapper = objectMapper;
+        this.messagesQuarantinedCounter = messagesQuarantinedCounter;
+        if (this.target == Target.DLQ && (dlqUrl == null || dlqUrl.isBlank())) {
+            throw new IllegalArgumentException("consumer.quarantine.target=dlq requires sqs.dlq-url");
+        }
+    }
+
+    /**
+     * @return true when the message is safely stored elsewhere and can be deleted from the main queue
+     */
+    public boolean quarantine(Message message, String correlationId, String reason) {
+        String failureReason = truncate(reason);
+        try {
+            if (target == Target.DLQ) {
+                sendToDlq(message, failureReason);
+            } else {
+                writeToS3(message, correlationId, failureReason);
+            }
+            messagesQuarantinedCounter.increment();
+            log.warn("Message quarantined to {}. MessageId: {}, CorrelationId: {}, Reason: {}",
+                    target, message.messageId(), correlationId, failureReason);
+            return true;
+        } catch (Exception e) {
+            log.error("Error quarantining message. MessageId: {}, CorrelationId: {}", message.messageId(), correlationId, e);
+            return false;
+        }
+    }
+
+    private void sendToDlq(Message message, String failureReason) {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>(message.messageAttributes());
+        attributes.put(FAILURE_REASON_ATTRIBUTE, stringAttribute(failureReason));
+        attributes.put(FAILURE_CLASS_ATTRIBUTE, stringAttribute("permanent"));
+
+        sqsClient.sendMessage(FifoQueues.preserveGroup(SendMessageRequest.builder()
+                .queueUrl(dlqUrl)
+                .messageBody(message.body())
+                .messageAttributes(attributes), dlqUrl, message)
+                .build());
+    }
+
+    private void writeToS3(Message message, String correlationId, String failureReason) throws Exception {
+        Instant now = Instant.now();
+        String key = prefix + "/" + DATE_PATH.format(now) + "/" + message.messageId() + ".json";
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("messageId", message.messageId());
+        record.put("correlationId", correlationId);
+        record.put("failureClass", "permanent");
+        record.put("failureReason", failureReason);
+        record.put("quarantinedAt", now.toEpochMilli());
+        record.put("body", message.body());
+
+        s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType("application/json")
+                        .metadata(Map.of("correlation-id", correlationId, "failure-class", "permanent"))
+                        .build(),
+                RequestBody.fromString(objectMapper.writeValueAsString(record)));
+    }
+
+    private static MessageAttributeValue stringAttribute(String value) {
+        return MessageAttributeValue.builder()
+                .dataType("String")
+                .stringValue(value)
+                .build();
+    }
+
+    private static String truncate(String reason) {
+        if (reason == null || reason.isEmpty()) {
+            return "unknown";
+        }
+        return reason.length() <= MAX_REASON_LENGTH ? reason : reason.substring(0, MAX_REASON_LENGTH);
+    }
+}
@@ -0,0 +1,278 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Priority lanes the consumer reads from. The normal lane is the original queue; the high and bulk lanes are used
+ * when their queues are configured. Lanes are picked with smooth weighted round-robin, so under load each lane gets
+ * batches in proportion to its weight, and a lane with nothing to do hands its share to the others.
+ *
+ * <p>The normal lane can be sharded over extra queues ({@code sqs.shards.urls}). The shards take turns within the
+ * normal lane's share, so sharding does not change the mix between lanes, and each carries a {@code shard} tag on
+ * the lane metrics. Shards in
+ * {@code sqs.shards.draining} are still read; once one has no messages left, visible or in flight, it is logged as
+ * drained and can be removed.
+ */
+@Slf4j
+@Component
+public class QueueLanes {
+
+    private final SqsClient sqsClient;
+    private final List<Lane> lanes;
+    private final List<Slot> slots;
+    private final int totalWeight;
+
+    public QueueLanes(SqsClient sqsClient,
+                      @Value("${sqs.queue-url}") String normalQueueUrl,
+                      @Value("${sqs.lanes.normal.weight:3}") int normalWeight,
+                      @Value("${sqs.lanes.high.url:}") String highQueueUrl,
+                      @Value("${sqs.lanes.high.weight:8}") int highWeight,
+                      @Value("${sqs.lanes.bulk.url:}") String bulkQueueUrl,
+                      @Value("${sqs.lanes.bulk.weight:1}") int bulkWeight,
+                      @Value("${sqs.shards.urls:}") String shardQueueUrls,
+                      @Value("${sqs.shards.draining:}") String drainingShardUrls,
+                      MeterRegistry meterRegistry) {
+        this.sqsClient = sqsClient;
+        Set<String> normalQueueUrls = new LinkedHashSet<>();
+        normalQueueUrls.add(normalQueueUrl);
+        normalQueueUrls.addAll(split(shardQueueUrls));
+        Set<String> draining = split(drainingShardUrls);
+
+        List<Slot> configured = new ArrayList<>(3);
+        if (highQueueUrl != null && !highQueueUrl.isBlank()) {
+            configured.add(new Slot(highWeight, List.of(new Lane("high", highQueueUrl, highWeight, false,
+                    meterRegistry))));
+        }
+        List<Lane> normalLanes = new ArrayList<>(normalQueueUrls.size());
+        for (String url : normalQueueUrls) {
+            normalLanes.add(new Lane("normal", url, normalWeight, draining.contains(url), meterRegistry));
+        }
+        configured.add(new Slot(normalWeight, normalLanes));
+        if (bulkQueueUrl != null && !bulkQueueUrl.isBlank()) {
+            configured.add(new Slot(bulkWeight, List.of(new Lane("bulk", bulkQueueUrl, bulkWeight, false,
+                    meterRegistry))));
+        }
+        if (normalQueueUrls.size() > 1) {
+            log.info("Normal lane sharded over {} queues, draining {}", normalQueueUrls.size(), draining);
+        }
+        this.slots = Collections.unmodifiableList(configured);
+        this.lanes = configured.stream().flatMap(slot -> slot.lanes.stream()).toList();
+        this.totalWeight = configured.stream().mapToInt(slot -> slot.weight).sum();
+    }
+
+    public List<Lane> all() {
+        return lanes;
+    }
+
+    public int size() {
+        return lanes.size();
+    }
+
+    public int totalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Next lane to receive from, skipping lanes that came back empty in the current round. A sharded lane hands out
+     * its shards in turn.
+     *
+     * @return null when every lane is exhausted
+     */
+    public synchronized Lane next(Set<Lane> exhausted) {
+        Slot best = null;
+        int activeWeight = 0;
+        for (Slot slot : slots) {
+            if (exhausted.containsAll(slot.lanes)) {
+                continue;
+            }
+            slot.currentWeight += slot.weight;
+            activeWeight += slot.weight;
+            if (best == null || slot.currentWeight > best.currentWeight) {
+                best = slot;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        best.currentWeight -= activeWeight;
+        return best.nextLane(exhausted);
+    }
+
+    @Scheduled(fixedDelayString = "${sqs.lanes.backlog-refresh-ms:30000}")
+    public void refreshBacklog() {
+        for (Lane lane : lanes) {
+            try {
+                GetQueueAttributesRequest.Builder request = GetQueueAttributesRequest.builder()
+                        .queueUrl(lane.queueUrl);
+                if (lane.draining) {
+                    request.attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES,
+                            QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE,
+                            QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED);
+                } else {
+                    request.attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES);
+                }
+                Map<QueueAttributeName, String> attributes = sqsClient.getQueueAttributes(request.build()).attributes();
+                String count = attributes.get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES);
+                if (count != null) {
+                    lane.backlog.set(Long.parseLong(count));
+                }
+                if (lane.draining) {
+                    updateDrained(lane, attributes);
+                }
+            } catch (Exception e) {
+                log.debug("Could not read backlog for lane {}", lane.name, e);
+            }
+        }
+    }
+
+    private void updateDrained(Lane lane, Map<QueueAttributeName, String> attributes) {
+        long remaining = 0;
+        for (String count : attributes.values()) {
+            remaining += Long.parseLong(count);
+        }
+        boolean drained = attributes.size() == 3 && remaining == 0;
+        if (drained && !lane.drained) {
+            log.info("Draining shard {} is empty and can be removed", lane.shard);
+        }
+        lane.drained = drained;
+    }
+
+    private static Set<String> split(String urls) {
+        Set<String> result = new LinkedHashSet<>();
+        if (urls != null) {
+            for (String url : urls.split(",")) {
+                if (!url.isBlank()) {
+                    result.add(url.trim());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * One lane's share of the schedule, rotated over its shards.
+     */
+    private static final class Slot {
+
+        private final int weight;
+        private final List<Lane> lanes;
+        // Smooth weighted round-robin and rotation state, guarded by the owning QueueLanes
+        private int currentWeight;
+        private int nextShard;
+
+        private Slot(int weight, List<Lane> lanes) {
+            this.weight = weight;
+            this.lanes = List.copyOf(lanes);
+        }
+
+        private Lane nextLane(Set<Lane> exhausted) {
+            for (int i = 0; i < lanes.size(); i++) {
+                Lane lane = lanes.get(nextShard);
+                nextShard = (nextShard + 1) % lanes.size();
+                if (!exhausted.contains(lane)) {
+                    return lane;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static final class Lane {
+
+        private final String name;
+        private final String queueUrl;
+        private final String shard;
+        private final int weight;
+        private final boolean draining;
+        private final Counter processedCounter;
+        private final Timer dwellTimer;
+        private final AtomicLong backlog = new AtomicLong();
+        private volatile boolean drained;
+
+        private Lane(String name, String queueUrl, int weight, boolean draining, MeterRegistry meterRegistry) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Weight for lane " + name + " must be at least 1");
+            }
+            this.name = name;
+            this.queueUrl = queueUrl;
+            this.shard = queueUrl.substring(queueUrl.lastIndexOf('/') + 1);
+            this.weight = weight;
+            this.draining = draining;
+            this.processedCounter = Counter.builder("sqs.lane.messages.processed")
+                    .description("Messages processed successfully per priority lane")
+                    .tag("service", "microservice-2")
+                    .tag("lane", name)
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+            this.dwellTimer = Timer.builder("sqs.lane.dwell")
+                    .description("Time from enqueue to successful processing per priority lane")
+                    .tag("service", "microservice-2")
+                    .tag("lane", name)
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+            Gauge.builder("sqs.lane.backlog", backlog, AtomicLong::get)
+                    .description("Approximate number of visible messages per priority lane")
+                    .tag("service", "microservice-2")
+                    .tag("lane", name)
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getQueueUrl() {
+            return queueUrl;
+        }
+
+        public String getShard() {
+            return shard;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public boolean isDraining() {
+            return draining;
+        }
+
+        /**
+         * True once a draining shard has been seen with no visible, in-flight or delayed messages.
+         */
+        public boolean isDrained() {
+            return drained;
+        }
+
+        public long getBacklog() {
+            return backlog.get();
+        }
+
+        public void recordProcessed(long sentTimestampMillis) {
+            processedCounter.increment();
+            if (sentTimestampMillis > 0) {
+                dwellTimer.record(Math.max(System.currentTimeMillis() - sentTimestampMillis, 0), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
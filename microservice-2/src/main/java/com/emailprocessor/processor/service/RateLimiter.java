@@ -0,0 +1,37 @@
+package com.emailprocessor.processor.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out permits evenly spaced at a fixed rate. Shared by all threads of a run, so the ceiling holds
+ * regardless of parallelism.
+ */
+class RateLimiter {
+
+    private final long intervalNanos;
+    private long nextFreeNanos;
+
+    RateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // Idle time does not bank permits, so a pause is never followed by a burst
+            if (nextFreeNanos < now) {
+                nextFreeNanos = now;
+            }
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += intervalNanos;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
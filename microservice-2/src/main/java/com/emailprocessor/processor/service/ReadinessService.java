@@ -0,0 +1,132 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether this task is keeping up, from consumer stage backlogs and the recent S3 error rate, and
+ * reports it on {@code /api/ready}. The poller receives nothing while the task is not ready, so the messages stay
+ * on the queue for other tasks. {@code /api/health} stays a plain liveness check so a saturated task is not
+ * mistaken for a dead one.
+ *
+ * <p>Stage backlogs use hysteresis: a full stage goes not-ready and only turns ready again once its queue has
+ * fallen to {@code resume-ratio} of capacity. The S3 error rate is measured over the last completed window of
+ * {@code s3.window-ms} and ignored while the window has fewer than {@code s3.min-uploads} uploads. A new task is
+ * also not ready until {@link ConnectionWarmup} has opened its SQS and S3 connections.
+ */
+@Slf4j
+@Service
+public class ReadinessService {
+
+    public record Check(String name, boolean ready, String detail) {
+    }
+
+    public record Readiness(boolean ready, List<Check> checks) {
+    }
+
+    private final ConsumerPipeline consumerPipeline;
+    private final ConnectionWarmup connectionWarmup;
+    private final Counter s3UploadsSuccessCounter;
+    private final Counter s3UploadsFailureCounter;
+    private final double resumeRatio;
+    private final double maxS3ErrorRate;
+    private final long minS3Uploads;
+    private final Map<String, Hysteresis> stageSaturation = new ConcurrentHashMap<>();
+    private volatile boolean lastReady = true;
+
+    private double lastSuccessCount;
+    private double lastFailureCount;
+    private volatile long windowUploads;
+    private volatile double windowErrorRate;
+
+    public ReadinessService(ConsumerPipeline consumerPipeline,
+                            ConnectionWarmup connectionWarmup,
+                            Counter s3UploadsSuccessCounter,
+                            Counter s3UploadsFailureCounter,
+                            @Value("${readiness.resume-ratio:0.8}") double resumeRatio,
+                            @Value("${readiness.s3.max-error-rate:0.5}") double maxS3ErrorRate,
+                            @Value("${readiness.s3.min-uploads:10}") long minS3Uploads,
+                            MeterRegistry meterRegistry) {
+        this.consumerPipeline = consumerPipeline;
+        this.connectionWarmup = connectionWarmup;
+        this.s3UploadsSuccessCounter = s3UploadsSuccessCounter;
+        this.s3UploadsFailureCounter = s3UploadsFailureCounter;
+        this.resumeRatio = resumeRatio;
+        this.maxS3ErrorRate = maxS3ErrorRate;
+        this.minS3Uploads = minS3Uploads;
+        Gauge.builder("service.ready", this, service -> service.lastReady ? 1 : 0)
+                .description("1 while the task reports ready")
+                .tag("service", "microservice-2")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Closes the current S3 error-rate window.
+     */
+    @Scheduled(fixedDelayString = "${readiness.s3.window-ms:30000}")
+    public synchronized void sampleS3Uploads() {
+        double successCount = s3UploadsSuccessCounter.count();
+        double failureCount = s3UploadsFailureCounter.count();
+        double successes = successCount - lastSuccessCount;
+        double failures = failureCount - lastFailureCount;
+        lastSuccessCount = successCount;
+        lastFailureCount = failureCount;
+        windowUploads = (long) (successes + failures);
+        windowErrorRate = windowUploads == 0 ? 0 : failures / (successes + failures);
+    }
+
+    public Readiness check() {
+        List<Check> checks = new ArrayList<>();
+        for (PipelineStage<?> stage : consumerPipeline.stages()) {
+            int size = stage.size();
+            boolean ready = stageSaturation.computeIfAbsent(stage.getName(), name -> new Hysteresis(resumeRatio))
+                    .update((double) size / stage.capacity());
+            checks.add(new Check("stage." + stage.getName(), ready, size + "/" + stage.capacity()));
+        }
+        long uploads = windowUploads;
+        double errorRate = windowErrorRate;
+        checks.add(new Check("s3ErrorRate", uploads < minS3Uploads || errorRate <= maxS3ErrorRate,
+                String.format("%.2f of %d uploads", errorRate, uploads)));
+        checks.add(new Check("connectionWarmup", connectionWarmup.isComplete(),
+                connectionWarmup.isComplete() ? "done" : "in progress"));
+
+        boolean ready = checks.stream().allMatch(Check::ready);
+        if (ready != lastReady) {
+            log.warn("Readiness changed to {}: {}", ready ? "ready" : "not ready", checks);
+            lastReady = ready;
+        }
+        return new Readiness(ready, checks);
+    }
+
+    /**
+     * Saturated at a utilization of 1.0; clears again at or below the resume ratio.
+     */
+    static final class Hysteresis {
+
+        private final double resumeRatio;
+        private boolean saturated;
+
+        Hysteresis(double resumeRatio) {
+            this.resumeRatio = resumeRatio;
+        }
+
+        synchronized boolean update(double utilization) {
+            if (saturated) {
+                saturated = utilization > resumeRatio;
+            } else {
+                saturated = utilization >= 1.0;
+            }
+            return !saturated;
+        }
+    }
+}
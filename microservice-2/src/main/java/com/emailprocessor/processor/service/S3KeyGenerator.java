@@ -0,0 +1,153 @@
+package com.emailprocessor.processor.service;
+
+import com.emailprocessor.processor.dto.EmailMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Builds S3 object keys for stored emails.
+ *
+ * <ul>
+ *   <li>{@code date}: {@code emails/{yyyy}/{MM}/{dd}/{timestream}-{sender}.json}, the original layout</li>
+ *   <li>{@code hashed}: {@code emails/{shard}/{yyyy}/{MM}/{dd}/{timestream}-{sender}-{correlationId}.json}, which
+ *       spreads writes over {@code s3.key.shards} prefixes and cannot collide for distinct correlation IDs</li>
+ * </ul>
+ *
+ * Keys are assembled with a single pre-sized StringBuilder and no regex or String.format.
+ */
+@Slf4j
+@Component
+public class S3KeyGenerator {
+
+    public enum Layout { DATE, HASHED }
+
+    private static final String ROOT = "emails/";
+    private static final String EXTENSION = ".json";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private final Layout layout;
+    private final int shardCount;
+    private final int shardWidth;
+
+    public S3KeyGenerator(@Value("${s3.key.layout:date}") String layout,
+                          @Value("${s3.key.shards:16}") int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("s3.key.shards must be at least 1");
+        }
+        this.layout = Layout.valueOf(layout.trim().toUpperCase(Locale.ROOT));
+        this.shardCount = shardCount;
+        this.shardWidth = Math.max(1, (67 - Long.numberOfLeadingZeros(shardCount - 1L)) / 4);
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public String generate(EmailMessage emailMessage, String correlationId) {
+        String timestream = emailMessage.getEmailTimestream();
+        long epochSeconds = parseEpochSeconds(timestream);
+        if (epochSeconds < 0) {
+            log.warn("Error parsing timestamp, using current date. Timestamp: {}", timestream);
+            epochSeconds = System.currentTimeMillis() / 1000;
+            timestream = Long.toString(epochSeconds);
+        }
+
+        String sender = emailMessage.getEmailSender();
+        StringBuilder key = new StringBuilder(64 + timestream.length() + sender.length()
+                + (correlationId == null ? 0 : correlationId.length()));
+        key.append(ROOT);
+
+        if (layout == Layout.HASHED) {
+            appendShard(key, shardOf(correlationId, timestream, sender));
+            key.append('/');
+        }
+
+        appendDate(key, epochSeconds);
+        key.append(timestream).append('-');
+        appendSanitized(key, sender);
+
+        if (layout == Layout.HASHED && correlationId != null) {
+            key.append('-');
+            appendSanitized(key, correlationId);
+        }
+        return key.append(EXTENSION).toString();
+    }
+
+    int shardOf(String correlationId, String timestream, String sender) {
+        int hash = correlationId != null && !"unknown".equals(correlationId)
+                ? correlationId.hashCode()
+                : timestream.hashCode() * 31 + sender.hashCode();
+        // Spread the bits so that sequential IDs do not land on neighbouring shards
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return Math.floorMod(hash, shardCount);
+    }
+
+    private void appendShard(StringBuilder key, int shard) {
+        for (int shift = (shardWidth - 1) * 4; shift >= 0; shift -= 4) {
+            key.append(HEX[(shard >>> shift) & 0xF]);
+        }
+    }
+
+    // Civil date from days since epoch (Howard Hinnant's algorithm), avoids allocating java.time objects
+    private static void appendDate(StringBuilder key, long epochSeconds) {
+        long days = Math.floorDiv(epochSeconds, SECONDS_PER_DAY) + 719_468;
+        long era = Math.floorDiv(days, 146_097);
+        long dayOfEra = days - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthPrime = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthPrime + 2) / 5 + 1);
+        int month = (int) (monthPrime < 10 ? monthPrime + 3 : monthPrime - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        key.append(year).append('/');
+        appendTwoDigits(key, month);
+        key.append('/');
+        appendTwoDigits(key, day);
+        key.append('/');
+    }
+
+    private static void appendTwoDigits(StringBuilder key, int value) {
+        key.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    // Same result as replaceAll("[^a-zA-Z0-9]", "_").toLowerCase() without the regex. The regex matches per code
+    // point, so a surrogate pair (an emoji, say) becomes one underscore, not two.
+    private static void appendSanitized(StringBuilder key, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                key.append((char) (c + ('a' - 'A')));
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                key.append(c);
+            } else {
+                key.append('_');
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+    }
+
+    private static long parseEpochSeconds(String timestream) {
+        if (timestream == null || timestream.isEmpty() || timestream.length() > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < timestream.length(); i++) {
+            char c = timestream.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
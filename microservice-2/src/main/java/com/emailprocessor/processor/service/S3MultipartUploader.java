@@ -0,0 +1,103 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Size-aware upload path for large objects. Records at or above the threshold are streamed through a multipart
+ * upload whose parts are uploaded in parallel from a bounded pool of part buffers.
+ */
+@Service
+public class S3MultipartUploader {
+
+    // S3 rejects non-final parts smaller than 5 MiB
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final long thresholdBytes;
+    private final PartBufferPool bufferPool;
+    private final ExecutorService partExecutor;
+    private final Counter multipartUploadsCounter;
+    private final Counter multipartAbortsCounter;
+
+    public S3MultipartUploader(S3Client s3Client,
+                               @Value("${s3.multipart.threshold-bytes:8388608}") long thresholdBytes,
+                               @Value("${s3.multipart.part-size-bytes:8388608}") int partSizeBytes,
+                               @Value("${s3.multipart.parallelism:4}") int parallelism,
+                               @Value("${s3.multipart.max-buffers:8}") int maxBuffers,
+                               Counter s3MultipartUploadsCounter,
+                               Counter s3MultipartAbortsCounter) {
+        if (partSizeBytes < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("s3.multipart.part-size-bytes must be at least " + MIN_PART_SIZE);
+        }
+        this.s3Client = s3Client;
+        this.thresholdBytes = thresholdBytes;
+        this.bufferPool = new PartBufferPool(partSizeBytes, maxBuffers);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.partExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-upload-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.multipartUploadsCounter = s3MultipartUploadsCounter;
+        this.multipartAbortsCounter = s3MultipartAbortsCounter;
+    }
+
+    public boolean shouldStream(long estimatedBytes) {
+        return estimatedBytes >= thresholdBytes;
+    }
+
+    /**
+     * Produces the object body by writing to a stream.
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Streams the body written by {@code writer} to the bucket and key of {@code target}, with its content type and
+     * metadata. Nothing is stored if the writer or any part upload fails.
+     *
+     * @return number of bytes uploaded
+     */
+    public long upload(PutObjectRequest target, BodyWriter writer) throws IOException {
+        MultipartUploadOutputStream out = new MultipartUploadOutputStream(s3Client, target, bufferPool, partExecutor,
+                multipartUploadsCounter, multipartAbortsCounter);
+        try {
+            writer.writeTo(out);
+        } catch (IOException | RuntimeException e) {
+            out.abort();
+            throw e;
+        }
+        out.close();
+        return out.getBytesWritten();
+    }
+
+    /**
+     * Uploads a fully built object, using multipart when it is at or above the threshold.
+     */
+    public void upload(PutObjectRequest target, byte[] content) throws IOException {
+        if (shouldStream(content.length)) {
+            upload(target, out -> out.write(content));
+        } else {
+            s3Client.putObject(target, RequestBody.fromBytes(content));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partExecutor.shutdown();
+    }
+}
@@ -1,21 +1,25 @@
 package com.emailprocessor.processor.service;
 
 import com.emailprocessor.processor.dto.EmailMessage;
+import com.emailprocessor.processor.jfr.EnvelopeSerializationEvent;
+import com.emailprocessor.processor.jfr.S3PutEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,6 +29,12 @@ public class S3UploaderService {
     
     private final S3Client s3Client;
     private final String bucketName;
+    private final S3KeyGenerator s3KeyGenerator;
+    private final EnvelopeEnricher envelopeEnricher;
+    private final S3MultipartUploader s3MultipartUploader;
+    private final ContentStore contentStore;
+    private final SpillBuffer spillBuffer;
+    private final Tracer tracer;
     private final ObjectMapper objectMapper;
     private final Counter s3UploadsSuccessCounter;
     private final Counter s3UploadsFailureCounter;
@@ -33,6 +43,12 @@ public class S3UploaderService {
     
     public S3UploaderService(S3Client s3Client,
                             @Value("${s3.bucket-name}") String bucketName,
+                            S3KeyGenerator s3KeyGenerator,
+                            EnvelopeEnricher envelopeEnricher,
+                            S3MultipartUploader s3MultipartUploader,
+                            ContentStore contentStore,
+                            SpillBuffer spillBuffer,
+                            Tracer tracer,
                             ObjectMapper objectMapper,
                             Counter s3UploadsSuccessCounter,
                             Counter s3UploadsFailureCounter,
@@ -40,6 +56,12 @@ public class S3UploaderService {
                             DistributionSummary s3FileSizeSummary) {
         this.s3Client = s3Client;
         this.bucketName = bucketName;
+        this.s3KeyGenerator = s3KeyGenerator;
+        this.envelopeEnricher = envelopeEnricher;
+        this.s3MultipartUploader = s3MultipartUploader;
+        this.contentStore = contentStore;
+        this.spillBuffer = spillBuffer;
+        this.tracer = tracer;
         this.objectMapper = objectMapper;
         this.s3UploadsSuccessCounter = s3UploadsSuccessCounter;
         this.s3UploadsFailureCounter = s3UploadsFailureCounter;
@@ -48,92 +70,147 @@ public class S3UploaderService {
     }
     
     public String uploadToS3(EmailMessage emailMessage, String correlationId) {
-        return s3UploadTimer.record(() -> {
-            try {
-                // Generate S3 key with path structure: emails/{year}/{month}/{day}/{timestamp}-{sender}.json
-                String s3Key = generateS3Key(emailMessage);
-                
-                // Create enhanced message with metadata
-                Map<String, Object> enhancedMessage = new HashMap<>();
-                enhancedMessage.put("emailSubject", emailMessage.getEmailSubject());
-                enhancedMessage.put("emailSender", emailMessage.getEmailSender());
-                enhancedMessage.put("emailTimestream", emailMessage.getEmailTimestream());
-                enhancedMessage.put("emailContent", emailMessage.getEmailContent());
-                enhancedMessage.put("correlationId", correlationId);
-                enhancedMessage.put("originalTimestamp", emailMessage.getTimestamp());
-                enhancedMessage.put("processedAt", System.currentTimeMillis());
-                enhancedMessage.put("s3Key", s3Key);
-                
-                String jsonContent = objectMapper.writeValueAsString(enhancedMessage);
+        return uploadToS3(emailMessage, null, correlationId);
+    }
+    
+    /**
+     * @param sourceJson the message body as received; when present its tokens are copied into the stored document
+     *                   instead of re-serializing the parsed fields
+     */
+    public String uploadToS3(EmailMessage emailMessage, String sourceJson, String correlationId) {
+        Span span = tracer.nextSpan().name("s3.upload").tag("s3.bucket", bucketName).start();
+        try {
+            return s3UploadTimer.record(() -> upload(emailMessage, sourceJson, correlationId, span));
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+    
+    private String upload(EmailMessage emailMessage, String sourceJson, String correlationId, Span span) {
+        // Generate S3 key according to the configured layout (date or hash-sharded)
+        String s3Key = s3KeyGenerator.generate(emailMessage, correlationId);
+        try {
+            // While S3 is degraded, skip the attempt that would fail and buffer the record locally
+            if (spillBuffer.isDegraded() && spill(emailMessage, sourceJson, correlationId, s3Key)) {
+                span.tag("s3.spilled", "true");
+                return s3Key;
+            }
+            
+            // Body first, so a record never points at a body that is not there
+            ContentStore.ContentReference contentRef = contentStore.isEnabled()
+                    ? contentStore.store(emailMessage.getEmailContent(), correlationId)
+                    : null;
+            
+            Map<String, String> metadata = createMetadata(emailMessage, correlationId);
+            if (contentRef != null) {
+                metadata.put("content-sha256", contentRef.sha256());
+            }
+            
+            // Upload to S3
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .contentType("application/json")
+                    .metadata(metadata)
+                    .build();
+            
+            // Original fields plus correlationId, originalTimestamp, processedAt and s3Key, encoded once
+            long processedAt = System.currentTimeMillis();
+            if (contentRef == null && sourceJson != null && s3MultipartUploader.shouldStream(utf8Length(sourceJson))) {
+                // Large record: encode straight into pooled part buffers rather than holding the whole document
+                S3PutEvent putEvent = new S3PutEvent();
+                putEvent.begin();
+                long size = s3MultipartUploader.upload(putObjectRequest, out -> envelopeEnricher.writeTo(
+                        sourceJson, out, correlationId, emailMessage.getTimestamp(), processedAt, s3Key));
+                putEvent.complete(correlationId, size);
+                s3FileSizeSummary.record(size);
+                log.info("Successfully streamed email to S3. Key: {}, Bytes: {}, CorrelationId: {}",
+                        s3Key, size, correlationId);
+            } else {
+                EnvelopeSerializationEvent serializationEvent = new EnvelopeSerializationEvent();
+                serializationEvent.begin();
+                EnvelopeEnricher.Envelope envelope = sourceJson != null
+                        ? envelopeEnricher.enrich(sourceJson, correlationId, emailMessage.getTimestamp(), processedAt,
+                                s3Key, contentRef)
+                        : envelopeEnricher.enrich(objectMapper.writeValueAsBytes(emailMessage), correlationId,
+                                emailMessage.getTimestamp(), processedAt, s3Key, contentRef);
+                serializationEvent.complete(correlationId, envelope.length());
                 
                 // Track file size
-                s3FileSizeSummary.record(jsonContent.getBytes().length);
-                
-                // Upload to S3
-                PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                        .bucket(bucketName)
-                        .key(s3Key)
-                        .contentType("application/json")
-                        .metadata(createMetadata(emailMessage, correlationId))
-                        .build();
-                
-                PutObjectResponse response = s3Client.putObject(putObjectRequest, 
-                        software.amazon.awssdk.core.sync.RequestBody.fromString(jsonContent));
+                s3FileSizeSummary.record(envelope.length());
                 
-                s3UploadsSuccessCounter.increment();
+                // Upload the encoded bytes as they are; each retry re-reads the same buffer
+                S3PutEvent putEvent = new S3PutEvent();
+                putEvent.begin();
+                PutObjectResponse response = s3Client.putObject(putObjectRequest,
+                        RequestBody.fromContentProvider(envelope::newInputStream, envelope.length(), "application/json"));
+                putEvent.complete(correlationId, envelope.length());
                 
                 log.info("Successfully uploaded email to S3. Key: {}, ETag: {}, CorrelationId: {}", 
                         s3Key, response.eTag(), correlationId);
-                
-                return s3Key;
-                
-            } catch (Exception e) {
-                s3UploadsFailureCounter.increment();
-                log.error("Error uploading email to S3. CorrelationId: {}", correlationId, e);
-                throw new RuntimeException("Failed to upload email to S3", e);
             }
-        });
-    }
-    
-    private String generateS3Key(EmailMessage emailMessage) {
-        try {
-            // Parse timestamp to get date components
-            long timestamp = Long.parseLong(emailMessage.getEmailTimestream());
-            LocalDateTime dateTime = LocalDateTime.ofInstant(
-                    Instant.ofEpochSecond(timestamp), ZoneOffset.UTC);
-            
-            String year = String.valueOf(dateTime.getYear());
-            String month = String.format("%02d", dateTime.getMonthValue());
-            String day = String.format("%02d", dateTime.getDayOfMonth());
-            
-            // Sanitize sender name for filename
-            String sanitizedSender = emailMessage.getEmailSender()
-                    .replaceAll("[^a-zA-Z0-9]", "_")
-                    .toLowerCase();
             
-            // Create filename: {timestamp}-{sender}.json
-            String filename = String.format("%s-%s.json", 
-                    emailMessage.getEmailTimestream(), sanitizedSender);
+            s3UploadsSuccessCounter.increment();
             
-            return String.format("emails/%s/%s/%s/%s", year, month, day, filename);
+            return s3Key;
             
         } catch (Exception e) {
-            log.warn("Error parsing timestamp, using current date. Timestamp: {}", 
-                    emailMessage.getEmailTimestream());
-            
-            LocalDateTime now = LocalDateTime.now();
-            String year = String.valueOf(now.getYear());
-            String month = String.format("%02d", now.getMonthValue());
-            String day = String.format("%02d", now.getDayOfMonth());
-            
-            String sanitizedSender = emailMessage.getEmailSender()
-                    .replaceAll("[^a-zA-Z0-9]", "_")
-                    .toLowerCase();
-            
-            String filename = String.format("%s-%s.json", 
-                    System.currentTimeMillis() / 1000, sanitizedSender);
-            
-            return String.format("emails/%s/%s/%s/%s", year, month, day, filename);
+            if (spillBuffer.isEnabled() && SpillBuffer.isS3Unavailable(e)) {
+                spillBuffer.markDegraded();
+                if (spill(emailMessage, sourceJson, correlationId, s3Key)) {
+                    span.tag("s3.spilled", "true");
+                    return s3Key;
+                }
+            }
+            s3UploadsFailureCounter.increment();
+            log.error("Error uploading email to S3. CorrelationId: {}", correlationId, e);
+            throw new RuntimeException("Failed to upload email to S3", e);
+        }
+    }
+    
+    /**
+     * Buffers the complete record with its body inline, since content-addressed bodies need S3 as well.
+     */
+    private boolean spill(EmailMessage emailMessage, String sourceJson, String correlationId, String s3Key) {
+        try {
+            long processedAt = System.currentTimeMillis();
+            EnvelopeEnricher.Envelope envelope = sourceJson != null
+                    ? envelopeEnricher.enrich(sourceJson, correlationId, emailMessage.getTimestamp(), processedAt, s3Key)
+                    : envelopeEnricher.enrich(objectMapper.writeValueAsBytes(emailMessage), correlationId,
+                            emailMessage.getTimestamp(), processedAt, s3Key);
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .contentType("application/json")
+                    .metadata(createMetadata(emailMessage, correlationId))
+                    .build();
+            return spillBuffer.spill(putObjectRequest, envelope.newInputStream().readAllBytes(), correlationId);
+        } catch (Exception e) {
+            log.error("Error preparing record for spill buffer. CorrelationId: {}", correlationId, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Checks whether this email was already written, by key and by the correlation ID stored in the object metadata.
+     */
+    public boolean isStored(EmailMessage emailMessage, String correlationId) {
+        String s3Key = s3KeyGenerator.generate(emailMessage, correlationId);
+        try {
+            HeadObjectResponse response = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .build());
+            return correlationId == null || correlationId.equals(response.metadata().get("correlation-id"));
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (Exception e) {
+            log.warn("Could not check for existing S3 object, treating as not stored. Key: {}, CorrelationId: {}",
+                    s3Key, correlationId, e);
+            return false;
         }
     }
     
@@ -146,4 +223,22 @@ public class S3UploaderService {
         metadata.put("processed-at", String.valueOf(System.currentTimeMillis()));
         return metadata;
     }
+    
+    /**
+     * Encoded size of {@code text} in UTF-8, without encoding it. Non-ASCII text takes up to three bytes per char,
+     * so the char count alone would let a record several times the multipart threshold take the in-memory path.
+     */
+    static long utf8Length(CharSequence text) {
+        long bytes = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x800) {
+                // A surrogate pair is four bytes over two chars
+                bytes += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
 }
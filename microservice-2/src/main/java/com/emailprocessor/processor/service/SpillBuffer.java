@@ -0,0 +1,220 @@
+package com.emailprocessor.processor.service;
+
+import com.emailprocessor.processor.spill.SpillLog;
+import com.emailprocessor.processor.spill.SpillRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Local durable buffer for email records while S3 is unavailable. Instead of failing the message, which would
+ * make SQS redeliver it and repeat the receive and parse work, the finished record is appended to a
+ * memory-mapped spill log and the message is acknowledged. A scheduled drain writes spilled records to S3 in
+ * batches once S3 answers again.
+ *
+ * <p>After an S3 failure the buffer is considered degraded for {@code probe-interval-ms}: new records go straight
+ * to the spill log without trying S3, and only the drain probes whether S3 has recovered.
+ *
+ * <p>When full, the buffer refuses new records and the message fails as it would without the buffer, so it is
+ * retried from SQS. Nothing already spilled is ever dropped. The directory must survive a task restart (a mounted
+ * volume) for the acknowledged records to be safe, so there is no default: enabling the buffer without
+ * {@code consumer.spill.path} fails at startup rather than spilling to the task's ephemeral storage.
+ */
+@Slf4j
+@Service
+public class SpillBuffer {
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final long probeIntervalMs;
+    private final int drainBatchSize;
+    private final MeterRegistry meterRegistry;
+    private final Counter spilledCounter;
+    private final Counter rejectedCounter;
+    private final Counter drainedCounter;
+
+    private volatile SpillLog spillLog;
+    private volatile long degradedUntil;
+
+    public SpillBuffer(S3Client s3Client,
+                       @Value("${s3.bucket-name}") String bucketName,
+                       @Value("${consumer.spill.enabled:false}") boolean enabled,
+                       @Value("${consumer.spill.path:}") String directory,
+                       @Value("${consumer.spill.segment-bytes:67108864}") int segmentBytes,
+                       @Value("${consumer.spill.max-segments:16}") int maxSegments,
+                       @Value("${consumer.spill.probe-interval-ms:30000}") long probeIntervalMs,
+                       @Value("${consumer.spill.drain-batch-size:100}") int drainBatchSize,
+                       MeterRegistry meterRegistry) {
+        if (enabled && directory.isBlank()) {
+            throw new IllegalArgumentException(
+                    "consumer.spill.enabled requires consumer.spill.path on a volume that survives a task restart");
+        }
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.probeIntervalMs = probeIntervalMs;
+        this.drainBatchSize = drainBatchSize;
+        this.meterRegistry = meterRegistry;
+        this.spilledCounter = spillCounter("spilled", "Records written to the local spill buffer instead of S3", meterRegistry);
+        this.rejectedCounter = spillCounter("rejected", "Records refused because the spill buffer was full", meterRegistry);
+        this.drainedCounter = spillCounter("drained", "Spilled records written to S3 after recovery", meterRegistry);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        spillLog = new SpillLog(directory, segmentBytes, maxSegments);
+        Gauge.builder("consumer.spill.pending.records", this, buffer -> buffer.spillLog.pendingRecords())
+                .description("Records waiting in the local spill buffer")
+                .tag("service", "microservice-2")
+                .register(meterRegistry);
+        Gauge.builder("consumer.spill.pending.bytes", this, buffer -> buffer.spillLog.pendingBytes())
+                .description("Bytes waiting in the local spill buffer")
+                .tag("service", "microservice-2")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("consumer.spill.capacity.bytes", this, buffer -> buffer.spillLog.capacityBytes())
+                .description("Maximum size of the local spill buffer")
+                .tag("service", "microservice-2")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("consumer.spill.degraded", this, buffer -> buffer.isDegraded() ? 1 : 0)
+                .description("1 while S3 is treated as unavailable and records go to the spill buffer")
+                .tag("service", "microservice-2")
+                .register(meterRegistry);
+        if (spillLog.pendingRecords() > 0) {
+            log.info("Spill buffer has {} records from a previous run", spillLog.pendingRecords());
+        }
+    }
+
+    public boolean isEnabled() {
+        return spillLog != null;
+    }
+
+    public boolean isDegraded() {
+        return isEnabled() && System.currentTimeMillis() < degradedUntil;
+    }
+
+    public void markDegraded() {
+        if (!isDegraded()) {
+            log.warn("S3 unavailable, spilling records locally for at least {} ms", probeIntervalMs);
+        }
+        degradedUntil = System.currentTimeMillis() + probeIntervalMs;
+    }
+
+    /**
+     * @return true when the record is durably buffered and the message can be acknowledged
+     */
+    public boolean spill(PutObjectRequest request, byte[] body, String correlationId) {
+        if (!isEnabled()) {
+            return false;
+        }
+        try {
+            SpillRecord record = new SpillRecord(request.key(), request.contentType(), request.metadata(), body);
+            if (spillLog.append(record.toBytes())) {
+                spilledCounter.increment();
+                log.info("Record spilled locally. Key: {}, CorrelationId: {}", request.key(), correlationId);
+                return true;
+            }
+            rejectedCounter.increment();
+            log.warn("Spill buffer full, message will be retried from SQS. Key: {}, CorrelationId: {}",
+                    request.key(), correlationId);
+            return false;
+        } catch (Exception e) {
+            rejectedCounter.increment();
+            log.error("Could not spill record. Key: {}, CorrelationId: {}", request.key(), correlationId, e);
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${consumer.spill.drain-interval-ms:5000}")
+    public void drain() {
+        if (!isEnabled() || spillLog.pendingRecords() == 0 || isDegraded()) {
+            return;
+        }
+        try {
+            int drained = spillLog.drain(drainBatchSize, this::upload);
+            drainedCounter.increment(drained);
+            if (drained > 0) {
+                log.info("Drained {} spilled records to S3. Remaining: {}", drained, spillLog.pendingRecords());
+            }
+        } catch (IOException e) {
+            log.error("Error draining spill buffer", e);
+        }
+    }
+
+    private boolean upload(byte[] payload) throws IOException {
+        SpillRecord record = SpillRecord.fromBytes(payload);
+        try {
+            s3Client.putObject(PutObjectRequest.builder()
+                            .bucket(bucketName)
+                            .key(record.key())
+                            .contentType(record.contentType())
+                            .metadata(record.metadata())
+                            .build(),
+                    RequestBody.fromBytes(record.body()));
+            degradedUntil = 0;
+            return true;
+        } catch (Exception e) {
+            if (isS3Unavailable(e)) {
+                markDegraded();
+            }
+            log.warn("S3 still unavailable, keeping spilled record. Key: {}", record.key(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Throttling, server errors and connection failures; client errors such as access denied are not spilled.
+     */
+    public static boolean isS3Unavailable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof S3Exception s3Exception) {
+                int status = s3Exception.statusCode();
+                return status >= 500 || status == 429;
+            }
+            if (cause instanceof SdkClientException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (spillLog != null) {
+            spillLog.close();
+        }
+    }
+
+    private static Counter spillCounter(String result, String description, MeterRegistry meterRegistry) {
+        return Counter.builder("consumer.spill.records")
+                .description(description)
+                .tag("service", "microservice-2")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
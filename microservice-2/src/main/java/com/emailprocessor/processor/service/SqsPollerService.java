@@ -1,111 +1,631 @@
 package com.emailprocessor.processor.service;
 
+import com.emailprocessor.common.config.CorrelationIdExemplarSampler;
+import com.emailprocessor.processor.jfr.SqsDeleteEvent;
+import com.emailprocessor.processor.jfr.SqsReceiveEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.*;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class SqsPollerService {
     
+    private static final int MAX_BATCH_SIZE = 10;
+    private static final String RECEIVE_COUNT_ATTRIBUTE = "ApproximateReceiveCount";
+    private static final String SENT_TIMESTAMP_ATTRIBUTE = "SentTimestamp";
+    private static final String FIRST_RECEIVE_TIMESTAMP_ATTRIBUTE = "ApproximateFirstReceiveTimestamp";
+    private static final int LONG_POLL_SECONDS = 20;
+    // Short wait per lane so an empty lane does not hold up the others
+    private static final int LANE_POLL_SECONDS = 1;
+    // How long the pipeline waits before checking again whether the task is ready
+    private static final long NOT_READY_PAUSE_MS = 100;
+    
     private final SqsClient sqsClient;
-    private final String queueUrl;
+    private final QueueLanes queueLanes;
+    private final MessageGroupExecutor groupExecutor;
+    private final ConsumerPipeline consumerPipeline;
+    private final ReadinessService readinessService;
     private final MessageProcessor messageProcessor;
     private final ObjectMapper objectMapper;
     private final Counter messagesReceivedCounter;
+    private final long drainTimeoutMs;
+    private final long maxPollMs;
+    private final Timer drainTimer;
+    private final Counter drainReleasedCounter;
+    private final QuarantineService quarantineService;
+    private final int retryBaseDelaySeconds;
+    private final int retryMaxDelaySeconds;
+    private final Counter retryDeferredCounter;
+    private final Timer dwellTimer;
+    private final DistributionSummary receiveCountSummary;
+    private final MessageTracing messageTracing;
+    
+    // Received but not yet started; handed back to SQS on shutdown
+    private final Deque<ReceivedMessage> pendingMessages = new ConcurrentLinkedDeque<>();
+    // Receives and message handling currently running
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean stopping;
+    
+    // Set when the staged pipeline is enabled; otherwise messages are handled on the polling thread
+    private PipelineStage<Work> parseStage;
+    private PipelineStage<Work> uploadStage;
+    private PipelineStage<Work> ackStage;
     
     public SqsPollerService(SqsClient sqsClient,
-                           @Value("${sqs.queue-url}") String queueUrl,
+                           QueueLanes queueLanes,
+                           MessageGroupExecutor messageGroupExecutor,
+                           ConsumerPipeline consumerPipeline,
+                           ReadinessService readinessService,
                            MessageProcessor messageProcessor,
                            ObjectMapper objectMapper,
-                           Counter sqsMessagesReceivedCounter) {
+                           Counter sqsMessagesReceivedCounter,
+                           @Value("${sqs.drain.timeout-ms:25000}") long drainTimeoutMs,
+                           @Value("${consumer.pipeline.max-poll-ms:30000}") long maxPollMs,
+                           Timer consumerDrainTimer,
+                           Counter consumerDrainReleasedCounter,
+                           QuarantineService quarantineService,
+                           @Value("${consumer.retry.base-delay-seconds:30}") int retryBaseDelaySeconds,
+                           @Value("${consumer.retry.max-delay-seconds:900}") int retryMaxDelaySeconds,
+                           Counter messagesRetryDeferredCounter,
+                           Timer sqsMessageDwellTimer,
+                           DistributionSummary sqsReceiveCountSummary,
+                           MessageTracing messageTracing) {
         this.sqsClient = sqsClient;
-        this.queueUrl = queueUrl;
+        this.queueLanes = queueLanes;
+        this.groupExecutor = messageGroupExecutor;
+        this.consumerPipeline = consumerPipeline;
+        this.readinessService = readinessService;
         this.messageProcessor = messageProcessor;
         this.objectMapper = objectMapper;
         this.messagesReceivedCounter = sqsMessagesReceivedCounter;
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.maxPollMs = maxPollMs;
+        this.drainTimer = consumerDrainTimer;
+        this.drainReleasedCounter = consumerDrainReleasedCounter;
+        this.quarantineService = quarantineService;
+        this.retryBaseDelaySeconds = retryBaseDelaySeconds;
+        this.retryMaxDelaySeconds = retryMaxDelaySeconds;
+        this.retryDeferredCounter = messagesRetryDeferredCounter;
+        this.dwellTimer = sqsMessageDwellTimer;
+        this.receiveCountSummary = sqsReceiveCountSummary;
+        this.messageTracing = messageTracing;
+    }
+    
+    @PostConstruct
+    public void startPipeline() {
+        if (!consumerPipeline.isEnabled() || parseStage != null) {
+            return;
+        }
+        parseStage = consumerPipeline.start(ConsumerPipeline.Stage.PARSE, inMessageContext(this::parse));
+        uploadStage = consumerPipeline.start(ConsumerPipeline.Stage.UPLOAD, inMessageContext(this::upload));
+        ackStage = consumerPipeline.start(ConsumerPipeline.Stage.ACK, inMessageContext(this::acknowledge));
+        log.info("Staged consumer pipeline started");
     }
     
     @Scheduled(fixedRate = 30000) // Poll every 30 seconds
     public void pollMessages() {
+        // One weighted round per poll; with a single lane this is one long-polled batch as before.
+        // The pipeline keeps receiving until the lanes run dry, throttled by its bounded stage queues, but returns
+        // after max-poll-ms so a steady backlog cannot hold the scheduler thread; the next tick picks up from there.
+        int batches = queueLanes.size() == 1 ? 1 : queueLanes.totalWeight();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxPollMs);
+        Set<QueueLanes.Lane> exhausted = new HashSet<>();
+        for (int i = 0; (i < batches || (parseStage != null && System.nanoTime() < deadline)) && !stopping; i++) {
+            // A task that is not keeping up takes no more work until it is ready again; with a failing S3 upload
+            // window it resumes once the window has too few uploads to judge, which probes S3 again.
+            // The pipeline waits out a full stage within this poll instead of until the next tick.
+            ReadinessService.Readiness readiness = readinessService.check();
+            if (!readiness.ready()) {
+                log.debug("Skipping receive while not ready: {}", readiness.checks());
+                if (parseStage == null || !pause(NOT_READY_PAUSE_MS)) {
+                    return;
+                }
+                continue;
+            }
+            QueueLanes.Lane lane = queueLanes.next(exhausted);
+            if (lane == null) {
+                log.debug("No messages found in any lane");
+                return;
+            }
+            if (!receiveBatch(lane)) {
+                exhausted.add(lane);
+            }
+            processPendingMessages();
+        }
+    }
+    
+    /**
+     * @return false when interrupted
+     */
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * @return false when the lane had nothing to hand out
+     */
+    private boolean receiveBatch(QueueLanes.Lane lane) {
+        inFlight.incrementAndGet();
         try {
-            log.debug("Starting SQS message polling...");
+            log.debug("Starting SQS message polling. Lane: {}", lane.getName());
             
             ReceiveMessageRequest receiveRequest = ReceiveMessageRequest.builder()
-                    .queueUrl(queueUrl)
-                    .maxNumberOfMessages(10)
-                    .waitTimeSeconds(20) // Long polling
+                    .queueUrl(lane.getQueueUrl())
+                    .maxNumberOfMessages(MAX_BATCH_SIZE)
+                    .waitTimeSeconds(queueLanes.size() == 1 ? LONG_POLL_SECONDS : LANE_POLL_SECONDS)
                     .messageAttributeNames("All")
+                    .attributeNamesWithStrings(RECEIVE_COUNT_ATTRIBUTE, SENT_TIMESTAMP_ATTRIBUTE,
+                            FIRST_RECEIVE_TIMESTAMP_ATTRIBUTE, FifoQueues.MESSAGE_GROUP_ID_ATTRIBUTE)
                     .build();
             
+            SqsReceiveEvent receiveEvent = new SqsReceiveEvent();
+            receiveEvent.begin();
             ReceiveMessageResponse response = sqsClient.receiveMessage(receiveRequest);
             List<Message> messages = response.messages();
+            receiveEvent.setBatch(lane.getName(), messages.size());
+            receiveEvent.complete(null, messages.stream().mapToLong(message -> message.body().length()).sum());
             
             if (messages.isEmpty()) {
-                log.debug("No messages found in queue");
-                return;
+                log.debug("No messages found in lane {}", lane.getName());
+                return false;
             }
             
-            log.info("Received {} messages from SQS", messages.size());
+            log.info("Received {} messages from SQS. Lane: {}", messages.size(), lane.getName());
             messagesReceivedCounter.increment(messages.size());
             
+            List<ReceivedMessage> received = new ArrayList<>(messages.size());
             for (Message message : messages) {
+                received.add(new ReceivedMessage(lane, message));
+                recordDwell(message);
+            }
+            
+            // Shutdown started while the long poll was waiting
+            if (stopping) {
+                releaseMessages(received);
+                return false;
+            }
+            
+            pendingMessages.addAll(received);
+            return true;
+            
+        } catch (Exception e) {
+            log.error("Error polling SQS messages. Lane: {}", lane.getName(), e);
+            return false;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+    
+    private void processPendingMessages() {
+        // FIFO messages, collected per message group and handed to the group executor once the batch is sorted
+        Map<String, List<ReceivedMessage>> groups = new LinkedHashMap<>();
+        inFlight.incrementAndGet();
+        try {
+            while (!stopping) {
+                ReceivedMessage received = pendingMessages.poll();
+                if (received == null) {
+                    break;
+                }
+                String groupId = FifoQueues.groupId(received.message());
+                if (groupId != null) {
+                    groups.computeIfAbsent(groupId, id -> new ArrayList<>()).add(received);
+                    continue;
+                }
+                if (parseStage != null) {
+                    // Blocks while the parse stage is full, which is what holds back the next receive
+                    handOff(received);
+                    continue;
+                }
                 try {
-                    processMessage(message);
+                    processMessage(received);
                 } catch (Exception e) {
-                    log.error("Error processing message: {}", message.messageId(), e);
+                    log.error("Error processing message: {}", received.message().messageId(), e);
                     // Message will remain in queue and be retried
                 }
             }
-            
+            if (!groups.isEmpty()) {
+                processGroups(groups);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Each group runs serially in receive order on its own partition; groups run in parallel. Waits for the
+     * whole batch so the next receive does not race the messages still being stored.
+     */
+    private void processGroups(Map<String, List<ReceivedMessage>> groups) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(groups.size());
+        for (Map.Entry<String, List<ReceivedMessage>> group : groups.entrySet()) {
+            tasks.add(groupExecutor.submit(group.getKey(), () -> processGroup(group.getKey(), group.getValue())));
+        }
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+    }
+    
+    private void processGroup(String groupId, List<ReceivedMessage> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            boolean removed = false;
+            if (!stopping) {
+                try {
+                    removed = processMessage(messages.get(i));
+                } catch (Exception e) {
+                    log.error("Error processing message: {}", messages.get(i).message().messageId(), e);
+                }
+            }
+            if (!removed) {
+                // Later messages must not overtake this one; SQS holds the group until it is done with it
+                int from = stopping ? i : i + 1;
+                if (from < messages.size()) {
+                    List<ReceivedMessage> rest = messages.subList(from, messages.size());
+                    int released = releaseMessages(rest.get(0).lane().getQueueUrl(),
+                            rest.stream().map(ReceivedMessage::message).toList());
+                    if (stopping) {
+                        drainReleasedCounter.increment(released);
+                    }
+                    log.info("Released {} later messages of group {} to keep its order", released, groupId);
+                }
+                return;
+            }
+        }
+    }
+    
+    private void handOff(ReceivedMessage received) {
+        Work work = new Work(received, getCorrelationId(received.message()),
+                messageTracing.startProcessing(received.message(), received.lane().getName()));
+        inFlight.incrementAndGet();
+        forward(parseStage, work);
+    }
+    
+    private void parse(Work work) {
+        Message message = work.received.message();
+        work.processingStart = System.nanoTime();
+        try {
+            log.info("Processing message. MessageId: {}, CorrelationId: {}", message.messageId(), work.correlationId);
+            work.prepared = messageProcessor.prepare(message.body(), work.correlationId, message.messageId());
+        } catch (Exception e) {
+            log.error("Error processing message. MessageId: {}, CorrelationId: {}", message.messageId(), work.correlationId, e);
+            finish(work, ProcessingResult.transientFailure(e.getClass().getSimpleName() + ": " + e.getMessage()));
+            forward(ackStage, work);
+            return;
+        }
+        if (work.prepared.isComplete()) {
+            finish(work, work.prepared.result());
+            forward(ackStage, work);
+        } else {
+            forward(uploadStage, work);
+        }
+    }
+    
+    private void upload(Work work) {
+        try {
+            finish(work, messageProcessor.store(work.prepared));
+        } catch (Exception e) {
+            log.error("Error processing message. MessageId: {}, CorrelationId: {}",
+                    work.received.message().messageId(), work.correlationId, e);
+            finish(work, ProcessingResult.transientFailure(e.getClass().getSimpleName() + ": " + e.getMessage()));
+        }
+        forward(ackStage, work);
+    }
+    
+    /**
+     * Records the same processing time the inline path gets from {@link MessageProcessor#process}: parse through
+     * upload, without the time spent queued for the ack stage.
+     */
+    private void finish(Work work, ProcessingResult result) {
+        work.result = result;
+        messageProcessor.recordProcessingTime(work.processingStart);
+    }
+    
+    private void acknowledge(Work work) {
+        try {
+            work.span.tag("email.outcome", work.result.outcome().name());
+            complete(work.received, work.correlationId, work.result);
         } catch (Exception e) {
-            log.error("Error polling SQS messages", e);
+            work.span.error(e);
+            log.error("Error completing message. MessageId: {}, CorrelationId: {}",
+                    work.received.message().messageId(), work.correlationId, e);
+        } finally {
+            work.span.end();
+            inFlight.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Lets latency exemplars recorded while a stage handles the message carry its correlation ID, and spans
+     * started there join the message's trace.
+     */
+    private Consumer<Work> inMessageContext(Consumer<Work> handler) {
+        return work -> {
+            try (MDC.MDCCloseable ignored = MDC.putCloseable(CorrelationIdExemplarSampler.MDC_KEY, work.correlationId);
+                 Tracer.SpanInScope inScope = messageTracing.withSpan(work.span)) {
+                handler.accept(work);
+            }
+        };
+    }
+    
+    private void forward(PipelineStage<Work> stage, Work work) {
+        try {
+            if (stage.submit(work)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (stage == ackStage) {
+            // The outcome is already known, so record it here rather than redo the work after redelivery
+            acknowledge(work);
+            return;
         }
+        // Only happens while draining
+        releaseMessages(List.of(work.received));
+        work.span.end();
+        inFlight.decrementAndGet();
     }
     
-    private void processMessage(Message message) {
+    /**
+     * Hands back messages queued in front of the parse and upload stages; queued acks still run.
+     */
+    private List<ReceivedMessage> takeUnstartedPipelineWork() {
+        List<ReceivedMessage> taken = new ArrayList<>();
+        if (parseStage == null) {
+            return taken;
+        }
+        parseStage.stopAccepting();
+        uploadStage.stopAccepting();
+        for (PipelineStage<Work> stage : List.of(parseStage, uploadStage)) {
+            for (Work work : stage.drainQueued()) {
+                taken.add(work.received);
+                work.span.end();
+                inFlight.decrementAndGet();
+            }
+        }
+        return taken;
+    }
+    
+    /**
+     * Runs before Spring stops the scheduler. Stops receiving, hands unstarted messages back to SQS
+     * right away and gives in-flight work until the drain deadline to finish.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void drain() {
+        if (stopping) {
+            return;
+        }
+        stopping = true;
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        log.info("Draining SQS consumer. Pending: {}, InFlight: {}", pendingMessages.size(), inFlight.get());
+        
+        int released = releaseMessages(takePendingMessages());
+        released += releaseMessages(takeUnstartedPipelineWork());
+        
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        
+        // Anything a receive handed over while we were waiting
+        released += releaseMessages(takePendingMessages());
+        closePipeline();
+        
+        long elapsed = System.nanoTime() - start;
+        drainTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        if (inFlight.get() > 0) {
+            log.warn("SQS consumer drain deadline reached with {} operations still in flight. Released: {}",
+                    inFlight.get(), released);
+        } else {
+            log.info("SQS consumer drained in {} ms. Released: {}", TimeUnit.NANOSECONDS.toMillis(elapsed), released);
+        }
+    }
+    
+    private void closePipeline() {
+        if (parseStage == null) {
+            return;
+        }
+        parseStage.close();
+        uploadStage.close();
+        ackStage.close();
+    }
+    
+    public boolean isStopping() {
+        return stopping;
+    }
+    
+    private List<ReceivedMessage> takePendingMessages() {
+        List<ReceivedMessage> taken = new ArrayList<>();
+        ReceivedMessage received;
+        while ((received = pendingMessages.poll()) != null) {
+            taken.add(received);
+        }
+        return taken;
+    }
+    
+    /**
+     * Makes messages visible again immediately so another consumer can pick them up.
+     */
+    private int releaseMessages(List<ReceivedMessage> receivedMessages) {
+        Map<String, List<Message>> byQueue = new LinkedHashMap<>();
+        for (ReceivedMessage received : receivedMessages) {
+            byQueue.computeIfAbsent(received.lane().getQueueUrl(), url -> new ArrayList<>()).add(received.message());
+        }
+        int released = 0;
+        for (Map.Entry<String, List<Message>> queue : byQueue.entrySet()) {
+            released += releaseMessages(queue.getKey(), queue.getValue());
+        }
+        drainReleasedCounter.increment(released);
+        return released;
+    }
+    
+    private int releaseMessages(String queueUrl, List<Message> messages) {
+        int released = 0;
+        for (int i = 0; i < messages.size(); i += MAX_BATCH_SIZE) {
+            List<Message> batch = messages.subList(i, Math.min(i + MAX_BATCH_SIZE, messages.size()));
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(batch.size());
+            for (int j = 0; j < batch.size(); j++) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                        .id(String.valueOf(j))
+                        .receiptHandle(batch.get(j).receiptHandle())
+                        .visibilityTimeout(0)
+                        .build());
+            }
+            try {
+                ChangeMessageVisibilityBatchResponse response = sqsClient.changeMessageVisibilityBatch(
+                        ChangeMessageVisibilityBatchRequest.builder()
+                                .queueUrl(queueUrl)
+                                .entries(entries)
+                                .build());
+                released += response.successful().size();
+                for (BatchResultErrorEntry failed : response.failed()) {
+                    log.warn("Could not release message {}: {} {}",
+                            batch.get(Integer.parseInt(failed.id())).messageId(), failed.code(), failed.message());
+                }
+            } catch (Exception e) {
+                log.error("Error releasing {} messages back to the queue", batch.size(), e);
+            }
+        }
+        return released;
+    }
+    
+    private boolean processMessage(ReceivedMessage received) {
+        Message message = received.message();
         String messageId = message.messageId();
         String correlationId = getCorrelationId(message);
         
         log.info("Processing message. MessageId: {}, CorrelationId: {}", messageId, correlationId);
         
-        try {
+        Span span = messageTracing.startProcessing(message, received.lane().getName());
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(CorrelationIdExemplarSampler.MDC_KEY, correlationId);
+             Tracer.SpanInScope inScope = messageTracing.withSpan(span)) {
             // Process the message
-            boolean success = messageProcessor.processMessage(message.body(), correlationId);
+            ProcessingResult result = messageProcessor.process(message.body(), correlationId, messageId);
+            span.tag("email.outcome", result.outcome().name());
+            return complete(received, correlationId, result);
             
-            if (success) {
+        } catch (Exception e) {
+            span.error(e);
+            log.error("Error processing message. MessageId: {}, CorrelationId: {}", messageId, correlationId, e);
+            // Message will remain in queue and be retried
+            return false;
+        } finally {
+            span.end();
+        }
+    }
+    
+    /**
+     * Deletes, quarantines or defers the message according to its result.
+     *
+     * @return true when the message has left the queue, either stored or quarantined
+     */
+    private boolean complete(ReceivedMessage received, String correlationId, ProcessingResult result) {
+        Message message = received.message();
+        String queueUrl = received.lane().getQueueUrl();
+        String messageId = message.messageId();
+        
+        return switch (result.outcome()) {
+            case SUCCESS -> {
                 // Delete message from queue after successful processing
-                deleteMessage(message);
-                log.info("Message processed and deleted successfully. MessageId: {}, CorrelationId: {}", 
-                        messageId, correlationId);
-            } else {
-                log.warn("Message processing failed, keeping in queue for retry. MessageId: {}, CorrelationId: {}", 
+                deleteMessage(queueUrl, message, correlationId);
+                received.lane().recordProcessed(getTimestamp(message, SENT_TIMESTAMP_ATTRIBUTE));
+                receiveCountSummary.record(getReceiveCount(message));
+                log.info("Message processed and deleted successfully. MessageId: {}, CorrelationId: {}",
                         messageId, correlationId);
+                yield true;
             }
-            
+            case PERMANENT_FAILURE -> {
+                // Retrying cannot help, so skip the remaining receives and go straight to quarantine
+                if (quarantineService.quarantine(message, correlationId, result.reason())) {
+                    deleteMessage(queueUrl, message, correlationId);
+                    receiveCountSummary.record(getReceiveCount(message));
+                    yield true;
+                }
+                deferRetry(queueUrl, message, correlationId);
+                yield false;
+            }
+            case TRANSIENT_FAILURE -> {
+                log.warn("Message processing failed, keeping in queue for retry. MessageId: {}, CorrelationId: {}, Reason: {}",
+                        messageId, correlationId, result.reason());
+                deferRetry(queueUrl, message, correlationId);
+                yield false;
+            }
+        };
+    }
+    
+    /**
+     * Backs off the next delivery exponentially with the receive count instead of waiting out the queue's
+     * fixed visibility timeout every time.
+     */
+    private void deferRetry(String queueUrl, Message message, String correlationId) {
+        int receiveCount = getReceiveCount(message);
+        int delaySeconds = retryDelaySeconds(receiveCount);
+        try {
+            sqsClient.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                    .queueUrl(queueUrl)
+                    .receiptHandle(message.receiptHandle())
+                    .visibilityTimeout(delaySeconds)
+                    .build());
+            retryDeferredCounter.increment();
+            log.info("Retry deferred. MessageId: {}, CorrelationId: {}, ReceiveCount: {}, DelaySeconds: {}",
+                    message.messageId(), correlationId, receiveCount, delaySeconds);
         } catch (Exception e) {
-            log.error("Error processing message. MessageId: {}, CorrelationId: {}", messageId, correlationId, e);
-            // Message will remain in queue and be retried
+            log.warn("Could not defer retry, falling back to queue visibility timeout. MessageId: {}", message.messageId(), e);
         }
     }
     
-    private void deleteMessage(Message message) {
+    int retryDelaySeconds(int receiveCount) {
+        int exponent = Math.min(Math.max(receiveCount, 1) - 1, 20);
+        long delay = (long) retryBaseDelaySeconds << exponent;
+        return (int) Math.min(delay, retryMaxDelaySeconds);
+    }
+    
+    private void deleteMessage(String queueUrl, Message message, String correlationId) {
         try {
             DeleteMessageRequest deleteRequest = DeleteMessageRequest.builder()
                     .queueUrl(queueUrl)
                     .receiptHandle(message.receiptHandle())
                     .build();
             
+            SqsDeleteEvent deleteEvent = new SqsDeleteEvent();
+            deleteEvent.begin();
             sqsClient.deleteMessage(deleteRequest);
+            deleteEvent.complete(correlationId, message.body().length());
             log.debug("Message deleted from queue: {}", message.messageId());
             
         } catch (Exception e) {
@@ -122,4 +642,62 @@ public class SqsPollerService {
             return "unknown";
         }
     }
+    
+    private int getReceiveCount(Message message) {
+        String receiveCount = message.attributesAsStrings().get(RECEIVE_COUNT_ATTRIBUTE);
+        if (receiveCount == null) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(receiveCount);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+    
+    /**
+     * Queue wait before the first delivery only; redeliveries would count the same wait again plus retry delays.
+     */
+    private void recordDwell(Message message) {
+        long sentTimestamp = getTimestamp(message, SENT_TIMESTAMP_ATTRIBUTE);
+        long firstReceiveTimestamp = getTimestamp(message, FIRST_RECEIVE_TIMESTAMP_ATTRIBUTE);
+        if (getReceiveCount(message) == 1 && sentTimestamp > 0 && firstReceiveTimestamp > 0) {
+            dwellTimer.record(Math.max(firstReceiveTimestamp - sentTimestamp, 0), TimeUnit.MILLISECONDS);
+            messageTracing.recordDwell(message, sentTimestamp, firstReceiveTimestamp);
+        }
+    }
+    
+    private long getTimestamp(Message message, String attribute) {
+        String timestamp = message.attributesAsStrings().get(attribute);
+        if (timestamp == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private record ReceivedMessage(QueueLanes.Lane lane, Message message) {
+    }
+    
+    /**
+     * A message moving through the pipeline; each stage fills in its part before handing it on.
+     */
+    private static final class Work {
+        
+        private final ReceivedMessage received;
+        private final String correlationId;
+        private final Span span;
+        private MessageProcessor.PreparedMessage prepared;
+        private ProcessingResult result;
+        private long processingStart;
+        
+        private Work(ReceivedMessage received, String correlationId, Span span) {
+            this.received = received;
+            this.correlationId = correlationId;
+            this.span = span;
+        }
+    }
 }
@@ -0,0 +1,184 @@
+package com.emailprocessor.processor.spill;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Bounded, segmented, append-only log of byte records on local disk. Records are appended to the newest segment
+ * and read back oldest first; a segment file is deleted once every record in it has been read and acknowledged.
+ *
+ * <p>The log never holds more than {@code maxSegments} segments of {@code segmentBytes} each. When it is full,
+ * {@link #append} refuses the record and the caller keeps it wherever it came from.
+ */
+@Slf4j
+public class SpillLog implements AutoCloseable {
+
+    private static final String SUFFIX = ".seg";
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        /**
+         * @return true when the record is done with and can be dropped; false stops the drain at this record
+         */
+        boolean handle(byte[] payload) throws IOException;
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final Deque<SpillSegment> segments = new ArrayDeque<>();
+    private SpillSegment active;
+    private long nextSequence;
+
+    public SpillLog(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes <= SpillSegment.HEADER_BYTES + SpillSegment.RECORD_OVERHEAD || maxSegments < 1) {
+            throw new IllegalArgumentException("Spill log needs at least one segment with room for a record");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Appends and flushes one record.
+     *
+     * @return false when the log is full or the record can never fit in a segment
+     */
+    public synchronized boolean append(byte[] payload) throws IOException {
+        if (payload.length > maxPayloadBytes()) {
+            return false;
+        }
+        if (active == null || !active.hasRoomFor(payload.length)) {
+            if (segments.size() >= maxSegments) {
+                return false;
+            }
+            active = SpillSegment.create(nextSequence, directory.resolve(fileName(nextSequence)), segmentBytes);
+            nextSequence++;
+            segments.addLast(active);
+        }
+        active.append(payload);
+        return true;
+    }
+
+    /**
+     * Hands up to {@code maxRecords} records to the handler, oldest first. Only one drain may run at a time;
+     * appends can continue meanwhile.
+     *
+     * @return number of records the handler accepted
+     */
+    public int drain(int maxRecords, RecordHandler handler) throws IOException {
+        int drained = 0;
+        while (drained < maxRecords) {
+            SpillSegment segment;
+            byte[] payload;
+            synchronized (this) {
+                segment = segments.peekFirst();
+                if (segment == null) {
+                    return drained;
+                }
+                payload = segment.peek();
+                if (payload == null) {
+                    if (segment == active) {
+                        return drained;
+                    }
+                    segments.pollFirst();
+                    segment.delete();
+                    continue;
+                }
+            }
+            if (!handler.handle(payload)) {
+                return drained;
+            }
+            synchronized (this) {
+                segment.advance();
+                if (segment.isFullyRead() && segment == active) {
+                    // Start a fresh segment on the next append so this file can be removed
+                    active = null;
+                }
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    public synchronized int pendingRecords() {
+        int records = 0;
+        for (SpillSegment segment : segments) {
+            records += segment.pendingRecords();
+        }
+        return records;
+    }
+
+    public synchronized long pendingBytes() {
+        long bytes = 0;
+        for (SpillSegment segment : segments) {
+            bytes += segment.pendingBytes();
+        }
+        return bytes;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    public long capacityBytes() {
+        return (long) segmentBytes * maxSegments;
+    }
+
+    public int maxPayloadBytes() {
+        return segmentBytes - SpillSegment.HEADER_BYTES - SpillSegment.RECORD_OVERHEAD;
+    }
+
+    @Override
+    public synchronized void close() {
+        // Mapped buffers are released by the GC; records are already flushed on append
+        segments.clear();
+        active = null;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().forEach(files::add);
+        }
+        for (Path file : files) {
+            long sequence = parseSequence(file);
+            if (sequence < 0) {
+                continue;
+            }
+            SpillSegment segment = SpillSegment.open(sequence, file);
+            if (segment.isEmpty()) {
+                segment.delete();
+            } else {
+                segments.addLast(segment);
+                log.info("Recovered spill segment {} with {} records", file.getFileName(), segment.pendingRecords());
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+        // Recovered segments are sealed; new records go to a fresh segment
+    }
+
+    private static String fileName(long sequence) {
+        return String.format("spill-%020d%s", sequence, SUFFIX);
+    }
+
+    private static long parseSequence(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring("spill-".length(), name.length() - SUFFIX.length()));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring unexpected file in spill directory: {}", name);
+            return -1;
+        }
+    }
+}
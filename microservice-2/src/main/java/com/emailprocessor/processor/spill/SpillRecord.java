@@ -0,0 +1,46 @@
+package com.emailprocessor.processor.spill;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An S3 object waiting in the spill log: where it goes, its headers and its bytes.
+ */
+public record SpillRecord(String key, String contentType, Map<String, String> metadata, byte[] body) {
+
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(key);
+            out.writeUTF(contentType);
+            out.writeInt(metadata.size());
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue() != null ? entry.getValue() : "");
+            }
+            out.writeInt(body.length);
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SpillRecord fromBytes(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String key = in.readUTF();
+            String contentType = in.readUTF();
+            int metadataSize = in.readInt();
+            Map<String, String> metadata = new LinkedHashMap<>();
+            for (int i = 0; i < metadataSize; i++) {
+                metadata.put(in.readUTF(), in.readUTF());
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new SpillRecord(key, contentType, metadata, body);
+        }
+    }
+}
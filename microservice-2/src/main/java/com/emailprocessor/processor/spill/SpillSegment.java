@@ -0,0 +1,149 @@
+package com.emailprocessor.processor.spill;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * One fixed-size, memory-mapped segment file of the spill log.
+ *
+ * <p>Layout: an 8-byte header (magic, version) followed by records of {@code [int length][int crc32][payload]}.
+ * The file is pre-sized and zero-filled, so a zero length marks the end of the written records. A record whose
+ * checksum does not match is a torn write from a crash and ends the segment as well.
+ */
+final class SpillSegment {
+
+    static final int MAGIC = 0x4553504C; // "ESPL"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_OVERHEAD = 8;
+
+    private final long sequence;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private int readPosition;
+    private int records;
+
+    private SpillSegment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    static SpillSegment create(long sequence, Path path, int sizeBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.force(0, HEADER_BYTES);
+            SpillSegment segment = new SpillSegment(sequence, path, buffer);
+            segment.writePosition = HEADER_BYTES;
+            segment.readPosition = HEADER_BYTES;
+            return segment;
+        }
+    }
+
+    /**
+     * Maps an existing segment and finds the end of its intact records.
+     */
+    static SpillSegment open(long sequence, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a spill segment: " + path);
+            }
+            SpillSegment segment = new SpillSegment(sequence, path, buffer);
+            segment.writePosition = HEADER_BYTES;
+            segment.readPosition = HEADER_BYTES;
+            while (segment.recordAt(segment.writePosition) != null) {
+                segment.writePosition += RECORD_OVERHEAD + buffer.getInt(segment.writePosition);
+                segment.records++;
+            }
+            return segment;
+        }
+    }
+
+    boolean hasRoomFor(int payloadBytes) {
+        return (long) writePosition + RECORD_OVERHEAD + payloadBytes <= buffer.capacity();
+    }
+
+    /**
+     * Writes and flushes one record; the length goes in last so a crash mid-write leaves no partial record.
+     */
+    void append(byte[] payload) {
+        int position = writePosition;
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.put(position + RECORD_OVERHEAD, payload);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.force(position + 4, 4 + payload.length);
+        buffer.putInt(position, payload.length);
+        buffer.force(position, 4);
+        writePosition = position + RECORD_OVERHEAD + payload.length;
+        records++;
+    }
+
+    /**
+     * @return the next unread record, or null when everything written has been read
+     */
+    byte[] peek() {
+        return readPosition < writePosition ? recordAt(readPosition) : null;
+    }
+
+    void advance() {
+        readPosition += RECORD_OVERHEAD + buffer.getInt(readPosition);
+        records--;
+    }
+
+    boolean isEmpty() {
+        return records == 0;
+    }
+
+    boolean isFullyRead() {
+        return readPosition >= writePosition;
+    }
+
+    int pendingRecords() {
+        return records;
+    }
+
+    long pendingBytes() {
+        return writePosition - readPosition;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private byte[] recordAt(int position) {
+        if (position + RECORD_OVERHEAD > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_OVERHEAD + (long) length > buffer.capacity()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(position + RECORD_OVERHEAD, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+            return null;
+        }
+        return payload;
+    }
+}
@@ -0,0 +1,117 @@
+package com.emailprocessor.processor.archive;
+
+import com.emailprocessor.processor.dto.EmailMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarArchiveTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ColumnarArchiveReader reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = new ColumnarArchiveReader(objectMapper);
+    }
+
+    @Test
+    void testRoundTrip_AllRows() throws Exception {
+        // Given
+        ColumnarArchiveWriter writer = new ColumnarArchiveWriter(objectMapper, 2);
+        writer.append(email("alice", "1693561101", "Hello"), "corr-1");
+        writer.append(email("bob", "1693561102", "World"), "corr-2");
+        writer.append(email("carol", "not-a-number", null), "corr-3");
+
+        // When
+        byte[] file = writer.finish();
+        List<ColumnarArchiveReader.Row> rows = reader.scan(file, ColumnarArchiveReader.ScanPredicate.all());
+
+        // Then
+        assertEquals(3, rows.size());
+        assertEquals("alice", rows.get(0).emailSender());
+        assertEquals(1693561101L, rows.get(0).emailTimestream());
+        assertEquals("Hello", rows.get(0).emailContent());
+        assertEquals("corr-2", rows.get(1).correlationId());
+        assertNull(rows.get(2).emailTimestream());
+        assertNull(rows.get(2).emailContent());
+        assertEquals(2, reader.readFooter(file).getRowGroups().size());
+    }
+
+    @Test
+    void testScan_SenderPredicateSkipsRowGroups() throws Exception {
+        // Given - row groups are [alice, bob], [xavier, yolanda]
+        ColumnarArchiveWriter writer = new ColumnarArchiveWriter(objectMapper, 2);
+        writer.append(email("alice", "1693561101", "a"), "corr-1");
+        writer.append(email("bob", "1693561102", "b"), "corr-2");
+        writer.append(email("xavier", "1693561103", "x"), "corr-3");
+        writer.append(email("yolanda", "1693561104", "y"), "corr-4");
+        byte[] file = writer.finish();
+
+        // When
+        List<ColumnarArchiveReader.Row> rows = reader.scan(file,
+                new ColumnarArchiveReader.ScanPredicate("xavier", null, null));
+
+        // Then
+        assertEquals(1, rows.size());
+        assertEquals("corr-3", rows.get(0).correlationId());
+        assertEquals(1, reader.getScanStats().getRowGroupsSkipped());
+        assertEquals(1, reader.getScanStats().getRowGroupsScanned());
+    }
+
+    @Test
+    void testScan_TimeRangeSkipsWholeFile() throws Exception {
+        // Given
+        ColumnarArchiveWriter writer = new ColumnarArchiveWriter(objectMapper, 10);
+        writer.append(email("alice", "1693561101", "a"), "corr-1");
+        writer.append(email("bob", "1693561200", "b"), "corr-2");
+        byte[] file = writer.finish();
+
+        // When
+        List<ColumnarArchiveReader.Row> rows = reader.scan(file,
+                new ColumnarArchiveReader.ScanPredicate(null, 1700000000L, null));
+
+        // Then
+        assertTrue(rows.isEmpty());
+        assertEquals(1, reader.getScanStats().getFilesSkipped());
+        assertEquals(0, reader.getScanStats().getChunksInflated());
+    }
+
+    @Test
+    void testScan_TimeRangeFiltersRows() throws Exception {
+        // Given
+        ColumnarArchiveWriter writer = new ColumnarArchiveWriter(objectMapper, 10);
+        writer.append(email("alice", "1693561101", "a"), "corr-1");
+        writer.append(email("alice", "1693561150", "b"), "corr-2");
+        writer.append(email("alice", "1693561200", "c"), "corr-3");
+        byte[] file = writer.finish();
+
+        // When
+        List<ColumnarArchiveReader.Row> rows = reader.scan(file,
+                new ColumnarArchiveReader.ScanPredicate("alice", 1693561140L, 1693561160L));
+
+        // Then
+        assertEquals(1, rows.size());
+        assertEquals("corr-2", rows.get(0).correlationId());
+    }
+
+    @Test
+    void testReadFooter_RejectsForeignFile() {
+        assertThrows(IOException.class, () -> reader.readFooter("{\"not\":\"an archive\"}".getBytes()));
+    }
+
+    private EmailMessage email(String sender, String timestream, String content) {
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setEmailSender(sender);
+        emailMessage.setEmailSubject("Subject from " + sender);
+        emailMessage.setEmailTimestream(timestream);
+        emailMessage.setEmailContent(content);
+        emailMessage.setTimestamp(System.currentTimeMillis());
+        return emailMessage;
+    }
+}
@@ -0,0 +1,176 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.GetMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.GetMetricDataResponse;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDataResult;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.ecs.EcsClient;
+import software.amazon.awssdk.services.ecs.model.DescribeServicesRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeServicesResponse;
+import software.amazon.awssdk.services.ecs.model.EcsException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BacklogMetricsPublisherTest {
+
+    @Mock(lenient = true)
+    private SqsClient sqsClient;
+
+    @Mock(lenient = true)
+    private CloudWatchClient cloudWatchClient;
+
+    @Mock(lenient = true)
+    private EcsClient ecsClient;
+
+    private QueueLanes queueLanes;
+
+    @BeforeEach
+    void setUp() {
+        queueLanes = new QueueLanes(sqsClient, "normal-url", 3, "high-url", 8, "", 1, "", "",
+                new SimpleMeterRegistry());
+        when(sqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class)))
+                .thenReturn(GetQueueAttributesResponse.builder()
+                        .attributesWithStrings(Map.of(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES.toString(), "150"))
+                        .build());
+        runningTasks(3);
+    }
+
+    private BacklogMetricsPublisher publisher(boolean enabled) {
+        return new BacklogMetricsPublisher(queueLanes, cloudWatchClient, ecsClient, enabled, "EmailProcessor",
+                "cluster", "email-processor-microservice-2", new SimpleMeterRegistry());
+    }
+
+    private void oldestAges(Double... laneAgeSeconds) {
+        MetricDataResult[] results = new MetricDataResult[laneAgeSeconds.length];
+        for (int i = 0; i < laneAgeSeconds.length; i++) {
+            MetricDataResult.Builder result = MetricDataResult.builder().id("lane" + i);
+            if (laneAgeSeconds[i] != null) {
+                result.values(laneAgeSeconds[i]);
+            }
+            results[i] = result.build();
+        }
+        when(cloudWatchClient.getMetricData(any(GetMetricDataRequest.class)))
+                .thenReturn(GetMetricDataResponse.builder().metricDataResults(results).build());
+    }
+
+    private void runningTasks(int count) {
+        when(ecsClient.describeServices(any(DescribeServicesRequest.class)))
+                .thenReturn(DescribeServicesResponse.builder()
+                        .services(service -> service.serviceName("email-processor-microservice-2").runningCount(count))
+                        .build());
+    }
+
+    @Test
+    void testPublish_BacklogAcrossLanesPerRunningTask() {
+        // Given
+        BacklogMetricsPublisher publisher = publisher(true);
+        ArgumentCaptor<PutMetricDataRequest> request = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+
+        // When
+        publisher.publish();
+
+        // Then
+        verify(cloudWatchClient).putMetricData(request.capture());
+        assertEquals("EmailProcessor", request.getValue().namespace());
+        MetricDatum backlogPerTask = request.getValue().metricData().get(0);
+        assertEquals(BacklogMetricsPublisher.BACKLOG_PER_TASK, backlogPerTask.metricName());
+        assertEquals(100.0, backlogPerTask.value());
+        assertEquals("email-processor-microservice-2", backlogPerTask.dimensions().get(0).value());
+    }
+
+    @Test
+    void testPublish_OldestAgeFromSqsMetricPerLane() {
+        // Given
+        BacklogMetricsPublisher publisher = publisher(true);
+        oldestAges(30.0, 90.0);
+        ArgumentCaptor<GetMetricDataRequest> request = ArgumentCaptor.forClass(GetMetricDataRequest.class);
+
+        // When
+        publisher.publish();
+
+        // Then
+        assertEquals(90, publisher.oldestAgeSeconds());
+        verify(cloudWatchClient).getMetricData(request.capture());
+        assertEquals(2, request.getValue().metricDataQueries().size());
+        assertEquals("ApproximateAgeOfOldestMessage",
+                request.getValue().metricDataQueries().get(0).metricStat().metric().metricName());
+        assertEquals("high-url", request.getValue().metricDataQueries().get(0).metricStat().metric()
+                .dimensions().get(0).value());
+    }
+
+    @Test
+    void testPublish_OldestAgeKeptWithoutRecentDataPoint() {
+        // Given
+        BacklogMetricsPublisher publisher = publisher(true);
+        oldestAges(null, 120.0);
+        publisher.publish();
+
+        // When
+        oldestAges(null, null);
+        publisher.publish();
+
+        // Then
+        assertEquals(120, publisher.oldestAgeSeconds());
+    }
+
+    @Test
+    void testPublish_OldestAgeClearsWhenQueuesAreEmpty() {
+        // Given
+        BacklogMetricsPublisher publisher = publisher(true);
+        oldestAges(60.0, 0.0);
+        publisher.publish();
+        when(sqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class)))
+                .thenReturn(GetQueueAttributesResponse.builder()
+                        .attributesWithStrings(Map.of(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES.toString(), "0"))
+                        .build());
+
+        // When
+        publisher.publish();
+
+        // Then
+        assertEquals(0, publisher.oldestAgeSeconds());
+        assertEquals(0, publisher.backlogPerTask());
+    }
+
+    @Test
+    void testPublish_KeepsLastTaskCountWhenEcsFails() {
+        // Given
+        BacklogMetricsPublisher publisher = publisher(true);
+        publisher.publish();
+        when(ecsClient.describeServices(any(DescribeServicesRequest.class)))
+                .thenThrow(EcsException.builder().message("throttled").build());
+
+        // When
+        publisher.publish();
+
+        // Then
+        assertEquals(100.0, publisher.backlogPerTask());
+    }
+
+    @Test
+    void testPublish_DisabledDoesNothing() {
+        // When
+        publisher(false).publish();
+
+        // Then
+        verifyNoInteractions(cloudWatchClient, ecsClient);
+    }
+}
@@ -0,0 +1,98 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContentStoreTest {
+
+    private static final String BODY = "Hello subscribers";
+
+    @Mock(lenient = true)
+    private S3Client s3Client;
+
+    @Mock(lenient = true)
+    private S3MultipartUploader s3MultipartUploader;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ContentStore contentStore;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        contentStore = new ContentStore(s3Client, s3MultipartUploader, "test-bucket", true, "bodies", 10,
+                Counter.builder("hit").register(meterRegistry),
+                Counter.builder("miss").register(meterRegistry),
+                Counter.builder("saved").register(meterRegistry),
+                Counter.builder("stored").register(meterRegistry),
+                meterRegistry);
+    }
+
+    @Test
+    void testStore_NewBodyIsWrittenOnceUnderItsHash() throws Exception {
+        // Given
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+
+        // When
+        ContentStore.ContentReference first = contentStore.store(BODY, "corr-1");
+        ContentStore.ContentReference second = contentStore.store(BODY, "corr-2");
+
+        // Then
+        assertEquals(first, second);
+        assertEquals(64, first.sha256().length());
+        assertEquals("bodies/" + first.sha256().substring(0, 2) + "/" + first.sha256(), first.key());
+        assertEquals(BODY.length(), first.bytes());
+        verify(s3MultipartUploader, times(1)).upload(requestCaptor.capture(), any(byte[].class));
+        assertEquals(first.key(), requestCaptor.getValue().key());
+        // The second lookup is answered by the cache, without asking S3
+        verify(s3Client, times(1)).headObject(any(HeadObjectRequest.class));
+        assertEquals(1.0, meterRegistry.get("hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("stored").counter().count());
+        assertEquals(BODY.length(), meterRegistry.get("saved").counter().count());
+        assertEquals(0.5, meterRegistry.get("s3.content.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void testStore_BodyAlreadyInS3IsNotRewritten() throws Exception {
+        // Given
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().build());
+
+        // When
+        contentStore.store(BODY, "corr-1");
+
+        // Then
+        verify(s3MultipartUploader, never()).upload(any(PutObjectRequest.class), any(byte[].class));
+        assertEquals(BODY.length(), meterRegistry.get("saved").counter().count());
+        assertEquals(1.0, meterRegistry.get("miss").counter().count());
+    }
+
+    @Test
+    void testStore_DifferentBodiesGetDifferentKeys() throws Exception {
+        // Given
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+
+        // When
+        ContentStore.ContentReference a = contentStore.store(BODY, "corr-1");
+        ContentStore.ContentReference b = contentStore.store(BODY + "!", "corr-2");
+
+        // Then
+        assertNotEquals(a.sha256(), b.sha256());
+        verify(s3MultipartUploader, times(2)).upload(any(PutObjectRequest.class), any(byte[].class));
+    }
+}
@@ -0,0 +1,212 @@
+package com.emailprocessor.processor.service;
+
+import com.emailprocessor.processor.dto.RedriveRequest;
+import com.emailprocessor.processor.dto.RedriveStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DlqRedriveServiceTest {
+
+    @Mock(lenient = true)
+    private SqsClient sqsClient;
+
+    @Mock(lenient = true)
+    private MessageProcessor messageProcessor;
+
+    @Mock(lenient = true)
+    private Counter redrivenCounter;
+
+    @Mock(lenient = true)
+    private Counter skippedCounter;
+
+    @Mock(lenient = true)
+    private Counter failedCounter;
+
+    private DlqRedriveService dlqRedriveService;
+
+    private final String queueUrl = "https://sqs.us-west-1.amazonaws.com/123456789/test-queue";
+    private final String dlqUrl = "https://sqs.us-west-1.amazonaws.com/123456789/test-queue-dlq";
+
+    @BeforeEach
+    void setUp() {
+        dlqRedriveService = new DlqRedriveService(sqsClient, messageProcessor, new ObjectMapper(), queueUrl, dlqUrl,
+                1000, 1, 900, redrivenCounter, skippedCounter, failedCounter, new SimpleMeterRegistry());
+        when(sqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(GetQueueAttributesResponse.builder()
+                .attributes(Map.of(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, "2"))
+                .build());
+    }
+
+    @Test
+    void testStart_RepublishesMatchingMessages() throws Exception {
+        // Given
+        Message alice = message("m-1", "Alice <alice@example.com>", "1693561101", "Malformed JSON");
+        Message bob = message("m-2", "Bob <bob@example.com>", "1693561101", "Malformed JSON");
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(List.of(alice, bob)).build())
+                .thenReturn(ReceiveMessageResponse.builder().build());
+
+        RedriveRequest request = new RedriveRequest();
+        request.setSender("alice");
+
+        ArgumentCaptor<SendMessageRequest> sendCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+
+        // When
+        dlqRedriveService.start(request);
+        RedriveStatus status = awaitCompletion();
+
+        // Then
+        assertEquals(RedriveStatus.State.COMPLETED, status.getState());
+        assertEquals(1, status.getRedriven());
+        assertEquals(1, status.getSkipped());
+        verify(sqsClient).sendMessage(sendCaptor.capture());
+        assertEquals(queueUrl, sendCaptor.getValue().queueUrl());
+        assertEquals(alice.body(), sendCaptor.getValue().messageBody());
+        assertTrue(sendCaptor.getValue().messageAttributes().containsKey("correlationId"));
+        assertFalse(sendCaptor.getValue().messageAttributes().containsKey(QuarantineService.FAILURE_REASON_ATTRIBUTE));
+        verify(sqsClient, times(1)).deleteMessage(any(DeleteMessageRequest.class));
+        verify(redrivenCounter).increment();
+        verify(skippedCounter).increment();
+    }
+
+    @Test
+    void testStart_ProcessModeKeepsFailuresInDlq() throws Exception {
+        // Given
+        Message message = message("m-1", "Alice", "1693561101", null);
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(List.of(message)).build())
+                .thenReturn(ReceiveMessageResponse.builder().build());
+        when(messageProcessor.process(message.body(), "corr-m-1", "m-1"))
+                .thenReturn(ProcessingResult.transientFailure("S3 connection failed"));
+
+        RedriveRequest request = new RedriveRequest();
+        request.setMode(RedriveRequest.Mode.PROCESS);
+
+        // When
+        dlqRedriveService.start(request);
+        RedriveStatus status = awaitCompletion();
+
+        // Then
+        assertEquals(1, status.getFailed());
+        verify(sqsClient, never()).sendMessage(any(SendMessageRequest.class));
+        verify(sqsClient, never()).deleteMessage(any(DeleteMessageRequest.class));
+        verify(failedCounter).increment();
+    }
+
+    @Test
+    void testStart_StopsAtMaxMessagesAndReleasesTheRest() throws Exception {
+        // Given
+        Message first = message("m-1", "Alice", "1693561101", null);
+        Message second = message("m-2", "Alice", "1693561102", null);
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(List.of(first, second)).build());
+
+        RedriveRequest request = new RedriveRequest();
+        request.setMaxMessages(1);
+
+        // When
+        dlqRedriveService.start(request);
+        RedriveStatus status = awaitCompletion();
+
+        // Then
+        assertEquals(1, status.getRedriven());
+        verify(sqsClient, times(1)).sendMessage(any(SendMessageRequest.class));
+        verify(sqsClient).changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                .queueUrl(dlqUrl)
+                .receiptHandle("receipt-m-2")
+                .visibilityTimeout(0)
+                .build());
+    }
+
+    @Test
+    void testMatches_FiltersByTimeRangeAndFailureReason() {
+        Message message = message("m-1", "Alice", "1693561101", "Missing required fields: emailSender");
+
+        RedriveRequest inRange = new RedriveRequest();
+        inRange.setFromEpochSeconds(1693561000L);
+        inRange.setToEpochSeconds(1693562000L);
+        inRange.setFailureReason("missing required");
+        assertTrue(dlqRedriveService.matches(message, inRange));
+
+        RedriveRequest outOfRange = new RedriveRequest();
+        outOfRange.setFromEpochSeconds(1693562000L);
+        assertFalse(dlqRedriveService.matches(message, outOfRange));
+
+        RedriveRequest otherReason = new RedriveRequest();
+        otherReason.setFailureReason("Malformed JSON");
+        assertFalse(dlqRedriveService.matches(message, otherReason));
+    }
+
+    @Test
+    void testStart_RejectsConcurrentRuns() {
+        // Given - a receive that never drains
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return ReceiveMessageResponse.builder().messages(message("m-1", "Alice", "1693561101", null)).build();
+        });
+        RedriveRequest request = new RedriveRequest();
+        request.setSender("nobody");
+        dlqRedriveService.start(request);
+
+        // Then
+        assertThrows(IllegalStateException.class, () -> dlqRedriveService.start(new RedriveRequest()));
+        dlqRedriveService.cancel();
+    }
+
+    @Test
+    void testRateLimiter_SpacesPermits() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(100);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 21; i++) {
+            rateLimiter.acquire();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis >= 190, "20 intervals at 100/s should take at least 200ms, took " + elapsedMillis);
+    }
+
+    private RedriveStatus awaitCompletion() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            RedriveStatus status = dlqRedriveService.status();
+            if (status.getState() != RedriveStatus.State.RUNNING) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        fail("Redrive did not finish");
+        return null;
+    }
+
+    private Message message(String messageId, String sender, String timestream, String failureReason) {
+        Map<String, MessageAttributeValue> attributes = new java.util.HashMap<>();
+        attributes.put("correlationId", MessageAttributeValue.builder().dataType("String").stringValue("corr-" + messageId).build());
+        if (failureReason != null) {
+            attributes.put(QuarantineService.FAILURE_REASON_ATTRIBUTE,
+                    MessageAttributeValue.builder().dataType("String").stringValue(failureReason).build());
+        }
+        return Message.builder()
+                .messageId(messageId)
+                .receiptHandle("receipt-" + messageId)
+                .body("{\"emailSubject\":\"Subject\",\"emailSender\":\"" + sender + "\",\"emailTimestream\":\"" + timestream
+                        + "\",\"emailContent\":\"Content\"}")
+                .messageAttributes(attributes)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testCheck_RecentIdIsProcessed() {
+        // Given
+        IdempotencyFilter filter = createFilter(10, false);
+
+        // When
+        IdempotencyFilter.Verdict first = filter.check("corr-1");
+        filter.recordProcessed("corr-1");
+        IdempotencyFilter.Verdict second = filter.check("corr-1");
+
+        // Then
+        assertEquals(IdempotencyFilter.Verdict.NEW, first);
+        assertEquals(IdempotencyFilter.Verdict.PROCESSED, second);
+        assertEquals(1.0, counter("cache_hit").count());
+        assertEquals(1.0, counter("miss").count());
+    }
+
+    @Test
+    void testCheck_CacheIsBounded() {
+        // Given
+        IdempotencyFilter filter = createFilter(2, false);
+
+        // When
+        filter.recordProcessed("corr-1");
+        filter.recordProcessed("corr-2");
+        filter.recordProcessed("corr-3");
+
+        // Then
+        assertEquals(IdempotencyFilter.Verdict.NEW, filter.check("corr-1"));
+        assertEquals(IdempotencyFilter.Verdict.PROCESSED, filter.check("corr-3"));
+    }
+
+    @Test
+    void testCheck_BloomSurvivesRestart() {
+        // Given
+        IdempotencyFilter filter = createFilter(10, true);
+        filter.load();
+        filter.recordProcessed("corr-1");
+        filter.persist();
+
+        // When - new instance, empty recent-ID cache
+        IdempotencyFilter restarted = createFilter(10, true);
+        restarted.load();
+
+        // Then
+        assertEquals(IdempotencyFilter.Verdict.POSSIBLY_PROCESSED, restarted.check("corr-1"));
+        assertEquals(IdempotencyFilter.Verdict.NEW, restarted.check("corr-2"));
+    }
+
+    @Test
+    void testRecordBloomOutcome_CountsFalsePositives() {
+        // Given
+        IdempotencyFilter filter = createFilter(10, true);
+        filter.load();
+
+        // When
+        filter.recordBloomOutcome("corr-1", true);
+        filter.recordBloomOutcome("corr-2", false);
+
+        // Then
+        assertEquals(1.0, counter("bloom_confirmed").count());
+        assertEquals(1.0, counter("bloom_false_positive").count());
+        assertEquals(IdempotencyFilter.Verdict.PROCESSED, filter.check("corr-1"));
+    }
+
+    @Test
+    void testKeyFor_FallsBackToMessageId() {
+        IdempotencyFilter filter = createFilter(10, false);
+
+        assertEquals("corr-1", filter.keyFor("corr-1", "message-1"));
+        assertEquals("message-1", filter.keyFor("unknown", "message-1"));
+        assertEquals("message-1", filter.keyFor(null, "message-1"));
+    }
+
+    @Test
+    void testBloomFilter_NoFalseNegatives() {
+        // Given
+        BloomFilter bloomFilter = BloomFilter.create(1000, 0.01);
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            bloomFilter.put("key-" + i);
+        }
+
+        // Then
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(bloomFilter.mightContain("key-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            if (bloomFilter.mightContain("key-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positive rate too high: " + falsePositives);
+    }
+
+    private IdempotencyFilter createFilter(int cacheSize, boolean bloomEnabled) {
+        return new IdempotencyFilter(true, cacheSize, bloomEnabled, tempDir.resolve("dedup.bloom").toString(),
+                1000, 0.001,
+                counterFor("cache_hit"), counterFor("bloom_confirmed"), counterFor("bloom_false_positive"),
+                counterFor("miss"), registry);
+    }
+
+    private Counter counterFor(String result) {
+        return Counter.builder("consumer.dedup.lookups").tag("result", result).register(registry);
+    }
+
+    private Counter counter(String result) {
+        return registry.get("consumer.dedup.lookups").tag("result", result).counter();
+    }
+}
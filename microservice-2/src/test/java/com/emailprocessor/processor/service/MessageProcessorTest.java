@@ -1,9 +1,11 @@
 package com.emailprocessor.processor.service;
 
+import com.emailprocessor.common.service.SenderTracker;
 import com.emailprocessor.processor.dto.EmailMessage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Tracer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,6 +15,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.lenient;
 
@@ -22,6 +26,15 @@ class MessageProcessorTest {
     @Mock(lenient = true)
     private S3UploaderService s3UploaderService;
 
+    @Mock(lenient = true)
+    private ColumnarArchiveService columnarArchiveService;
+
+    @Mock(lenient = true)
+    private IdempotencyFilter idempotencyFilter;
+
+    @Mock(lenient = true)
+    private SenderTracker senderTracker;
+
     @Mock(lenient = true)
     private Counter messagesProcessedSuccessCounter;
 
@@ -31,14 +44,20 @@ class MessageProcessorTest {
     @Mock(lenient = true)
     private Timer messageProcessingTimer;
 
+    @Mock(lenient = true)
+    private Timer endToEndLatencyTimer;
+
     private MessageProcessor messageProcessor;
     private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        messageProcessor = new MessageProcessor(s3UploaderService, objectMapper, 
-                messagesProcessedSuccessCounter, messagesProcessedFailureCounter, messageProcessingTimer);
+        messageProcessor = new MessageProcessor(s3UploaderService, columnarArchiveService, idempotencyFilter, senderTracker,
+                Tracer.NOOP, objectMapper, messagesProcessedSuccessCounter, messagesProcessedFailureCounter,
+                messageProcessingTimer, endToEndLatencyTimer);
+        when(idempotencyFilter.keyFor(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotencyFilter.check(any())).thenReturn(IdempotencyFilter.Verdict.NEW);
     }
 
     @Test
@@ -59,7 +78,7 @@ class MessageProcessorTest {
 
         // Then
         assertFalse(result);
-        verify(s3UploaderService, never()).uploadToS3(any(), anyString());
+        verify(s3UploaderService, never()).uploadToS3(any(), anyString(), anyString());
     }
 
     @Test
@@ -86,7 +105,7 @@ class MessageProcessorTest {
 
         // Then
         assertFalse(result);
-        verify(s3UploaderService, never()).uploadToS3(any(), anyString());
+        verify(s3UploaderService, never()).uploadToS3(any(), anyString(), anyString());
     }
 
     @Test
@@ -113,7 +132,7 @@ class MessageProcessorTest {
 
         // Then
         assertFalse(result);
-        verify(s3UploaderService, never()).uploadToS3(any(), anyString());
+        verify(s3UploaderService, never()).uploadToS3(any(), anyString(), anyString());
     }
 
     @Test
@@ -136,7 +155,7 @@ class MessageProcessorTest {
                 });
 
         // Stub S3 to throw exception
-        when(s3UploaderService.uploadToS3(any(EmailMessage.class), anyString()))
+        when(s3UploaderService.uploadToS3(any(EmailMessage.class), anyString(), anyString()))
                 .thenThrow(new RuntimeException("S3 connection failed"));
 
         // When
@@ -145,5 +164,158 @@ class MessageProcessorTest {
         // Then
         assertFalse(result);
     }
-}
 
+    @Test
+    void testProcessMessage_DuplicateSkipsUpload() throws Exception {
+        // Given
+        String messageBody = objectMapper.writeValueAsString(validEmailMessage());
+        String correlationId = "test-correlation-id";
+
+        when(messageProcessingTimer.record(any(java.util.function.Supplier.class)))
+                .thenAnswer(invocation -> {
+                    java.util.function.Supplier<?> supplier = invocation.getArgument(0);
+                    return supplier.get();
+                });
+        when(idempotencyFilter.check(correlationId)).thenReturn(IdempotencyFilter.Verdict.PROCESSED);
+
+        // When
+        boolean result = messageProcessor.processMessage(messageBody, correlationId, "message-123");
+
+        // Then
+        assertTrue(result);
+        verify(s3UploaderService, never()).uploadToS3(any(), anyString(), anyString());
+        verify(s3UploaderService, never()).isStored(any(), anyString());
+    }
+
+    @Test
+    void testProcessMessage_BloomHitConfirmedInS3SkipsUpload() throws Exception {
+        // Given
+        String messageBody = objectMapper.writeValueAsString(validEmailMessage());
+        String correlationId = "test-correlation-id";
+
+        when(messageProcessingTimer.record(any(java.util.function.Supplier.class)))
+                .thenAnswer(invocation -> {
+                    java.util.function.Supplier<?> supplier = invocation.getArgument(0);
+                    return supplier.get();
+                });
+        when(idempotencyFilter.check(correlationId)).thenReturn(IdempotencyFilter.Verdict.POSSIBLY_PROCESSED);
+        when(s3UploaderService.isStored(any(EmailMessage.class), eq(correlationId))).thenReturn(true);
+
+        // When
+        boolean result = messageProcessor.processMessage(messageBody, correlationId, "message-123");
+
+        // Then
+        assertTrue(result);
+        verify(idempotencyFilter).recordBloomOutcome(correlationId, true);
+        verify(s3UploaderService, never()).uploadToS3(any(), anyString(), anyString());
+    }
+
+    @Test
+    void testProcessMessage_BloomFalsePositiveStillUploads() throws Exception {
+        // Given
+        String messageBody = objectMapper.writeValueAsString(validEmailMessage());
+        String correlationId = "test-correlation-id";
+
+        when(messageProcessingTimer.record(any(java.util.function.Supplier.class)))
+                .thenAnswer(invocation -> {
+                    java.util.function.Supplier<?> supplier = invocation.getArgument(0);
+                    return supplier.get();
+                });
+        when(idempotencyFilter.check(correlationId)).thenReturn(IdempotencyFilter.Verdict.POSSIBLY_PROCESSED);
+        when(s3UploaderService.isStored(any(EmailMessage.class), eq(correlationId))).thenReturn(false);
+        when(s3UploaderService.uploadToS3(any(EmailMessage.class), eq(messageBody), eq(correlationId))).thenReturn("emails/key.json");
+
+        // When
+        boolean result = messageProcessor.processMessage(messageBody, correlationId, "message-123");
+
+        // Then
+        assertTrue(result);
+        verify(idempotencyFilter).recordBloomOutcome(correlationId, false);
+        verify(s3UploaderService, times(1)).uploadToS3(any(EmailMessage.class), eq(messageBody), eq(correlationId));
+        verify(idempotencyFilter).recordProcessed(correlationId);
+    }
+
+    @Test
+    void testProcess_RecordsEndToEndLatencyFromIngestTimestamp() throws Exception {
+        // Given - ingested by the API two seconds ago
+        EmailMessage emailMessage = validEmailMessage();
+        emailMessage.setTimestamp(System.currentTimeMillis() - 2000);
+        String messageBody = objectMapper.writeValueAsString(emailMessage);
+        when(messageProcessingTimer.record(any(java.util.function.Supplier.class)))
+                .thenAnswer(invocation -> ((java.util.function.Supplier<?>) invocation.getArgument(0)).get());
+        when(s3UploaderService.uploadToS3(any(EmailMessage.class), eq(messageBody), eq("corr-1"))).thenReturn("emails/key.json");
+
+        // When
+        messageProcessor.process(messageBody, "corr-1", "message-1");
+
+        // Then
+        verify(endToEndLatencyTimer).record(longThat(millis -> millis >= 2000 && millis < 60000),
+                eq(java.util.concurrent.TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testProcess_DuplicateDoesNotRecordEndToEndLatency() throws Exception {
+        // Given
+        EmailMessage emailMessage = validEmailMessage();
+        emailMessage.setTimestamp(System.currentTimeMillis());
+        when(messageProcessingTimer.record(any(java.util.function.Supplier.class)))
+                .thenAnswer(invocation -> ((java.util.function.Supplier<?>) invocation.getArgument(0)).get());
+        when(idempotencyFilter.check("corr-1")).thenReturn(IdempotencyFilter.Verdict.PROCESSED);
+
+        // When
+        messageProcessor.process(objectMapper.writeValueAsString(emailMessage), "corr-1", "message-1");
+
+        // Then
+        verifyNoInteractions(endToEndLatencyTimer);
+    }
+
+    @Test
+    void testProcess_ClassifiesParseAndValidationErrorsAsPermanent() {
+        // Given
+        when(messageProcessingTimer.record(any(java.util.function.Supplier.class)))
+                .thenAnswer(invocation -> {
+                    java.util.function.Supplier<?> supplier = invocation.getArgument(0);
+                    return supplier.get();
+                });
+
+        // When
+        ProcessingResult malformed = messageProcessor.process("{ invalid json }", "test-correlation-id", "message-123");
+        ProcessingResult invalid = messageProcessor.process("{\"emailSubject\":\"Subject\"}", "test-correlation-id", "message-123");
+
+        // Then
+        assertEquals(ProcessingResult.Outcome.PERMANENT_FAILURE, malformed.outcome());
+        assertTrue(malformed.reason().startsWith("Malformed JSON"));
+        assertEquals(ProcessingResult.Outcome.PERMANENT_FAILURE, invalid.outcome());
+        assertEquals("Missing required fields: emailSender, emailTimestream, emailContent", invalid.reason());
+    }
+
+    @Test
+    void testProcess_ClassifiesS3ErrorsAsTransient() throws Exception {
+        // Given
+        String messageBody = objectMapper.writeValueAsString(validEmailMessage());
+
+        when(messageProcessingTimer.record(any(java.util.function.Supplier.class)))
+                .thenAnswer(invocation -> {
+                    java.util.function.Supplier<?> supplier = invocation.getArgument(0);
+                    return supplier.get();
+                });
+        when(s3UploaderService.uploadToS3(any(EmailMessage.class), anyString(), anyString()))
+                .thenThrow(new RuntimeException("S3 connection failed"));
+
+        // When
+        ProcessingResult result = messageProcessor.process(messageBody, "test-correlation-id", "message-123");
+
+        // Then
+        assertEquals(ProcessingResult.Outcome.TRANSIENT_FAILURE, result.outcome());
+        assertEquals("RuntimeException: S3 connection failed", result.reason());
+    }
+
+    private EmailMessage validEmailMessage() {
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setEmailSubject("Subject");
+        emailMessage.setEmailSender("Sender");
+        emailMessage.setEmailTimestream("1693561101");
+        emailMessage.setEmailContent("Content");
+        return emailMessage;
+    }
+}
@@ -0,0 +1,142 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MultipartUploadOutputStreamTest {
+
+    @Mock(lenient = true)
+    private S3Client s3Client;
+
+    @Mock(lenient = true)
+    private Counter multipartUploadsCounter;
+
+    @Mock(lenient = true)
+    private Counter multipartAbortsCounter;
+
+    private ExecutorService executor;
+    private PartBufferPool bufferPool;
+
+    private final PutObjectRequest target = PutObjectRequest.builder()
+            .bucket("test-email-bucket")
+            .key("archive/part.emca")
+            .contentType("application/octet-stream")
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        bufferPool = new PartBufferPool(16, 3);
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenAnswer(invocation -> {
+                    UploadPartRequest request = invocation.getArgument(0);
+                    return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testClose_SmallObjectUsesSinglePut() throws IOException {
+        // Given
+        MultipartUploadOutputStream out = newStream();
+
+        // When
+        out.write(new byte[10]);
+        out.close();
+
+        // Then
+        verify(s3Client).putObject(eq(target), any(RequestBody.class));
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+        assertFalse(out.isMultipart());
+    }
+
+    @Test
+    void testClose_LargeObjectCompletesPartsInOrder() throws IOException {
+        // Given
+        MultipartUploadOutputStream out = newStream();
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+
+        // When - 40 bytes in 16-byte parts
+        for (int i = 0; i < 40; i++) {
+            out.write(i);
+        }
+        out.close();
+
+        // Then
+        verify(s3Client, times(3)).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        verify(s3Client).completeMultipartUpload(completeCaptor.capture());
+        CompletedMultipartUpload upload = completeCaptor.getValue().multipartUpload();
+        assertEquals(3, upload.parts().size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, upload.parts().get(i).partNumber());
+            assertEquals("etag-" + (i + 1), upload.parts().get(i).eTag());
+        }
+        assertEquals(40, out.getBytesWritten());
+        assertTrue(bufferPool.allocated() <= 3);
+        verify(multipartUploadsCounter).increment();
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void testClose_FailedPartAbortsUpload() throws IOException {
+        // Given
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().message("Slow down").build());
+        MultipartUploadOutputStream out = newStream();
+        out.write(new byte[20]);
+
+        // When & Then
+        assertThrows(IOException.class, out::close);
+        verify(s3Client).abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket("test-email-bucket")
+                .key("archive/part.emca")
+                .uploadId("upload-1")
+                .build());
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(multipartAbortsCounter).increment();
+    }
+
+    @Test
+    void testAbort_BeforeAnyPartCreatesNothing() throws IOException {
+        // Given
+        MultipartUploadOutputStream out = newStream();
+        out.write(new byte[5]);
+
+        // When
+        out.abort();
+
+        // Then
+        verifyNoInteractions(s3Client);
+        assertThrows(IOException.class, () -> out.write(1));
+    }
+
+    private MultipartUploadOutputStream newStream() throws IOException {
+        return new MultipartUploadOutputStream(s3Client, target, bufferPool, executor,
+                multipartUploadsCounter, multipartAbortsCounter);
+    }
+}
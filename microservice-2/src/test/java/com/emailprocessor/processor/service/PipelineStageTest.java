@@ -0,0 +1,105 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineStageTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final List<String> handled = new CopyOnWriteArrayList<>();
+    private PipelineStage<String> stage;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (stage != null) {
+            stage.close();
+        }
+    }
+
+    private PipelineStage<String> blockingStage(int capacity) {
+        return new PipelineStage<>("upload", 1, capacity, item -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(item);
+        }, meterRegistry);
+    }
+
+    @Test
+    void testSubmit_BlocksWhileQueueIsFull() throws Exception {
+        // Given - one item in the worker, one queued
+        stage = blockingStage(1);
+        assertTrue(stage.submit("a"));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        assertTrue(stage.submit("b"));
+
+        // When
+        CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return stage.submit("c");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Then
+        Thread.sleep(200);
+        assertFalse(blocked.isDone());
+        assertEquals(1.0, meterRegistry.get("consumer.pipeline.stage.queue.size").tag("stage", "upload").gauge().value());
+        assertEquals(1.0, meterRegistry.get("consumer.pipeline.stage.busy").tag("stage", "upload").gauge().value());
+
+        release.countDown();
+        assertTrue(blocked.get(2, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (handled.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("a", "b", "c"), handled);
+        assertEquals(1, meterRegistry.get("consumer.pipeline.stage.blocked").tag("stage", "upload").timer().count());
+    }
+
+    @Test
+    void testStopAccepting_ReleasesBlockedProducerAndDrainsQueue() throws Exception {
+        // Given
+        stage = blockingStage(1);
+        stage.submit("a");
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        stage.submit("b");
+        CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return stage.submit("c");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // When
+        stage.stopAccepting();
+
+        // Then
+        assertFalse(blocked.get(2, TimeUnit.SECONDS));
+        assertEquals(List.of("b"), stage.drainQueued());
+        assertEquals(0, stage.size());
+    }
+
+    @Test
+    void testConstructor_RejectsEmptyStage() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PipelineStage<String>("parse", 0, 1, item -> { }, meterRegistry));
+    }
+}
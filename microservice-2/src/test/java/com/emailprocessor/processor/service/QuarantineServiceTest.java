@@ -0,0 +1,174 @@
+package com.emailprocessor.processor.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.io.InputStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuarantineServiceTest {
+
+    private static final String DLQ_URL = "https://sqs.us-west-1.amazonaws.com/123456789/email-dlq";
+
+    @Mock(lenient = true)
+    private S3Client s3Client;
+
+    @Mock(lenient = true)
+    private SqsClient sqsClient;
+
+    @Mock(lenient = true)
+    private Counter messagesQuarantinedCounter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private QuarantineService quarantineService(String target, String dlqUrl) {
+        return new QuarantineService(s3Client, sqsClient, "test-bucket", dlqUrl, target, "quarantine",
+                objectMapper, messagesQuarantinedCounter);
+    }
+
+    private static Message message(Map<String, String> attributes) {
+        return Message.builder()
+                .messageId("message-1")
+                .body("{not json")
+                .receiptHandle("receipt-1")
+                .messageAttributes(Map.of("correlationId", MessageAttributeValue.builder()
+                        .dataType("String")
+                        .stringValue("corr-1")
+                        .build()))
+                .attributesWithStrings(attributes)
+                .build();
+    }
+
+    @Test
+    void testQuarantine_S3WritesRecordWithReason() throws Exception {
+        // Given
+        QuarantineService service = quarantineService("s3", "");
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+
+        // When
+        boolean quarantined = service.quarantine(message(Map.of()), "corr-1", "Malformed JSON");
+
+        // Then
+        assertTrue(quarantined);
+        verify(s3Client).putObject(requestCaptor.capture(), bodyCaptor.capture());
+        PutObjectRequest request = requestCaptor.getValue();
+        assertEquals("test-bucket", request.bucket());
+        assertTrue(request.key().matches("quarantine/\\d{4}/\\d{2}/\\d{2}/message-1\\.json"), request.key());
+        assertEquals("application/json", request.contentType());
+        assertEquals(Map.of("correlation-id", "corr-1", "failure-class", "permanent"), request.metadata());
+
+        JsonNode record;
+        try (InputStream body = bodyCaptor.getValue().contentStreamProvider().newStream()) {
+            record = objectMapper.readTree(body);
+        }
+        assertEquals("message-1", record.get("messageId").asText());
+        assertEquals("corr-1", record.get("correlationId").asText());
+        assertEquals("permanent", record.get("failureClass").asText());
+        assertEquals("Malformed JSON", record.get("failureReason").asText());
+        assertTrue(record.get("quarantinedAt").asLong() > 0);
+        assertEquals("{not json", record.get("body").asText());
+        verify(messagesQuarantinedCounter).increment();
+        verifyNoInteractions(sqsClient);
+    }
+
+    @Test
+    void testQuarantine_DlqCopiesAttributesAndAddsReason() {
+        // Given
+        QuarantineService service = quarantineService("dlq", DLQ_URL);
+        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+
+        // When
+        boolean quarantined = service.quarantine(message(Map.of()), "corr-1", "Missing emailSender");
+
+        // Then
+        assertTrue(quarantined);
+        verify(sqsClient).sendMessage(requestCaptor.capture());
+        SendMessageRequest request = requestCaptor.getValue();
+        assertEquals(DLQ_URL, request.queueUrl());
+        assertEquals("{not json", request.messageBody());
+        assertEquals("corr-1", request.messageAttributes().get("correlationId").stringValue());
+        assertEquals("Missing emailSender",
+                request.messageAttributes().get(QuarantineService.FAILURE_REASON_ATTRIBUTE).stringValue());
+        assertEquals("permanent",
+                request.messageAttributes().get(QuarantineService.FAILURE_CLASS_ATTRIBUTE).stringValue());
+        assertNull(request.messageGroupId());
+        assertNull(request.messageDeduplicationId());
+        verify(messagesQuarantinedCounter).increment();
+        verifyNoInteractions(s3Client);
+    }
+
+    @Test
+    void testQuarantine_FifoDlqKeepsMessageGroup() {
+        // Given
+        QuarantineService service = quarantineService("dlq", DLQ_URL + ".fifo");
+        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+
+        // When
+        service.quarantine(message(Map.of(FifoQueues.MESSAGE_GROUP_ID_ATTRIBUTE, "sender-a")), "corr-1", "Bad");
+
+        // Then
+        verify(sqsClient).sendMessage(requestCaptor.capture());
+        assertEquals("sender-a", requestCaptor.getValue().messageGroupId());
+        assertEquals("message-1", requestCaptor.getValue().messageDeduplicationId());
+    }
+
+    @Test
+    void testQuarantine_TruncatesLongReason() {
+        // Given
+        QuarantineService service = quarantineService("dlq", DLQ_URL);
+        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+
+        // When
+        service.quarantine(message(Map.of()), "corr-1", "x".repeat(5000));
+        service.quarantine(message(Map.of()), "corr-1", null);
+
+        // Then
+        verify(sqsClient, times(2)).sendMessage(requestCaptor.capture());
+        assertEquals("x".repeat(1024), requestCaptor.getAllValues().get(0).messageAttributes()
+                .get(QuarantineService.FAILURE_REASON_ATTRIBUTE).stringValue());
+        assertEquals("unknown", requestCaptor.getAllValues().get(1).messageAttributes()
+                .get(QuarantineService.FAILURE_REASON_ATTRIBUTE).stringValue());
+    }
+
+    @Test
+    void testQuarantine_FailedWriteKeepsMessage() {
+        // Given
+        QuarantineService service = quarantineService("s3", "");
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().message("S3 unavailable").build());
+
+        // When
+        boolean quarantined = service.quarantine(message(Map.of()), "corr-1", "Malformed JSON");
+
+        // Then
+        assertFalse(quarantined);
+        verify(messagesQuarantinedCounter, never()).increment();
+    }
+
+    @Test
+    void testConstructor_DlqTargetRequiresDlqUrl() {
+        assertThrows(IllegalArgumentException.class, () -> quarantineService("dlq", ""));
+        assertThrows(IllegalArgumentException.class, () -> quarantineService("dlq", null));
+        assertDoesNotThrow(() -> quarantineService("s3", ""));
+    }
+}
@@ -0,0 +1,167 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QueueLanesTest {
+
+    @Mock(lenient = true)
+    private SqsClient sqsClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private QueueLanes allLanes() {
+        return new QueueLanes(sqsClient, "normal-url", 3, "high-url", 8, "bulk-url", 1, "", "", meterRegistry);
+    }
+
+    @Test
+    void testOnlyConfiguredLanesAreUsed() {
+        // When
+        QueueLanes lanes = new QueueLanes(sqsClient, "normal-url", 3, "", 8, "", 1, "", "", meterRegistry);
+
+        // Then
+        assertEquals(1, lanes.size());
+        assertEquals("normal", lanes.all().get(0).getName());
+        assertEquals(3, lanes.totalWeight());
+    }
+
+    @Test
+    void testNext_SharesPicksByWeight() {
+        // Given
+        QueueLanes lanes = allLanes();
+        Map<String, Integer> picks = new HashMap<>();
+
+        // When
+        for (int i = 0; i < lanes.totalWeight(); i++) {
+            picks.merge(lanes.next(Set.of()).getName(), 1, Integer::sum);
+        }
+
+        // Then
+        assertEquals(8, picks.get("high"));
+        assertEquals(3, picks.get("normal"));
+        assertEquals(1, picks.get("bulk"));
+    }
+
+    @Test
+    void testNext_HighLaneDoesNotStarveOthers() {
+        // Given
+        QueueLanes lanes = allLanes();
+        Set<String> firstRound = new HashSet<>();
+
+        // When
+        for (int i = 0; i < lanes.totalWeight(); i++) {
+            firstRound.add(lanes.next(Set.of()).getName());
+        }
+
+        // Then
+        assertEquals(Set.of("high", "normal", "bulk"), firstRound);
+    }
+
+    @Test
+    void testNext_SkipsExhaustedLanes() {
+        // Given
+        QueueLanes lanes = allLanes();
+        QueueLanes.Lane high = lanes.all().get(0);
+        Set<QueueLanes.Lane> exhausted = new HashSet<>(Set.of(high));
+
+        // When / Then
+        for (int i = 0; i < 4; i++) {
+            assertNotEquals("high", lanes.next(exhausted).getName());
+        }
+        exhausted.addAll(lanes.all());
+        assertNull(lanes.next(exhausted));
+    }
+
+    @Test
+    void testShards_ShareTheNormalWeight() {
+        // When - three rounds
+        QueueLanes lanes = new QueueLanes(sqsClient, "https://sqs/123/email-queue", 3, "high-url", 8, "", 1,
+                "https://sqs/123/email-queue-a, https://sqs/123/email-queue-b", "", meterRegistry);
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < 3 * lanes.totalWeight(); i++) {
+            picks.merge(lanes.next(Set.of()).getShard(), 1, Integer::sum);
+        }
+
+        // Then - the same 8:3 mix as without shards, with the normal share rotated over them
+        assertEquals(4, lanes.size());
+        assertEquals(11, lanes.totalWeight());
+        assertEquals(Map.of("high-url", 24, "email-queue", 3, "email-queue-a", 3, "email-queue-b", 3), picks);
+        assertEquals(3, meterRegistry.find("sqs.lane.backlog").tag("lane", "normal").gauges().size());
+    }
+
+    @Test
+    void testShards_SkipsExhaustedShard() {
+        // Given
+        QueueLanes lanes = new QueueLanes(sqsClient, "normal-url", 3, "", 8, "", 1, "shard-url", "", meterRegistry);
+        QueueLanes.Lane main = lanes.all().get(0);
+
+        // When / Then - the other shard keeps the lane's turns until it runs dry too
+        assertEquals("shard-url", lanes.next(Set.of(main)).getQueueUrl());
+        assertEquals("shard-url", lanes.next(Set.of(main)).getQueueUrl());
+        assertNull(lanes.next(Set.copyOf(lanes.all())));
+    }
+
+    @Test
+    void testRefreshBacklog_ReportsDrainedShard() {
+        // Given
+        QueueLanes lanes = new QueueLanes(sqsClient, "normal-url", 3, "", 8, "", 1, "shard-url", "shard-url",
+                meterRegistry);
+        Map<QueueAttributeName, String> remaining = new HashMap<>(Map.of(
+                QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, "0",
+                QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE, "2",
+                QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED, "0"));
+        when(sqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class)))
+                .thenAnswer(invocation -> GetQueueAttributesResponse.builder().attributes(remaining).build());
+        QueueLanes.Lane shard = lanes.all().get(1);
+
+        // When - messages still in flight
+        lanes.refreshBacklog();
+
+        // Then
+        assertTrue(shard.isDraining());
+        assertFalse(shard.isDrained());
+        assertFalse(lanes.all().get(0).isDraining());
+
+        // When - the last of them are deleted
+        remaining.put(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE, "0");
+        lanes.refreshBacklog();
+
+        // Then
+        assertTrue(shard.isDrained());
+        assertFalse(lanes.all().get(0).isDrained());
+    }
+
+    @Test
+    void testRefreshBacklog_UpdatesGauge() {
+        // Given
+        QueueLanes lanes = new QueueLanes(sqsClient, "normal-url", 3, "", 8, "", 1, "", "", meterRegistry);
+        when(sqsClient.getQueueAttributes(any(GetQueueAttributesRequest.class)))
+                .thenReturn(GetQueueAttributesResponse.builder()
+                        .attributes(Map.of(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, "42"))
+                        .build());
+
+        // When
+        lanes.refreshBacklog();
+
+        // Then
+        assertEquals(42, lanes.all().get(0).getBacklog());
+        assertEquals(42.0, meterRegistry.get("sqs.lane.backlog").tag("lane", "normal").gauge().value());
+    }
+}
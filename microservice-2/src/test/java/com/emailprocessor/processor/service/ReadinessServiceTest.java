@@ -0,0 +1,103 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReadinessServiceTest {
+
+    @Mock(lenient = true)
+    private ConsumerPipeline consumerPipeline;
+
+    @Mock(lenient = true)
+    private PipelineStage<Object> uploadStage;
+
+    @Mock(lenient = true)
+    private ConnectionWarmup connectionWarmup;
+
+    private SimpleMeterRegistry meterRegistry;
+    private Counter successCounter;
+    private Counter failureCounter;
+    private ReadinessService readinessService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        successCounter = meterRegistry.counter("s3.uploads.success");
+        failureCounter = meterRegistry.counter("s3.uploads.failure");
+        readinessService = new ReadinessService(consumerPipeline, connectionWarmup, successCounter, failureCounter, 0.5,
+                0.5, 10, meterRegistry);
+        when(connectionWarmup.isComplete()).thenReturn(true);
+        when(uploadStage.getName()).thenReturn("upload");
+        when(uploadStage.capacity()).thenReturn(20);
+        when(consumerPipeline.stages()).thenReturn(List.of(uploadStage));
+    }
+
+    @Test
+    void testCheck_ReadyWhenStagesHaveRoom() {
+        when(uploadStage.size()).thenReturn(5);
+
+        ReadinessService.Readiness readiness = readinessService.check();
+
+        assertTrue(readiness.ready());
+        assertEquals(1.0, meterRegistry.get("service.ready").gauge().value());
+    }
+
+    @Test
+    void testCheck_FullStageStaysNotReadyUntilDrainedToResumeRatio() {
+        // Given
+        when(uploadStage.size()).thenReturn(20);
+        assertFalse(readinessService.check().ready());
+
+        // When / Then
+        when(uploadStage.size()).thenReturn(15);
+        assertFalse(readinessService.check().ready());
+        when(uploadStage.size()).thenReturn(10);
+        assertTrue(readinessService.check().ready());
+    }
+
+    @Test
+    void testCheck_NotReadyWhenMostUploadsFailInWindow() {
+        // Given
+        when(uploadStage.size()).thenReturn(0);
+        successCounter.increment(4);
+        failureCounter.increment(8);
+
+        // When
+        readinessService.sampleS3Uploads();
+
+        // Then
+        assertFalse(readinessService.check().ready());
+
+        // A later window with too few uploads to judge is ignored
+        failureCounter.increment(3);
+        readinessService.sampleS3Uploads();
+        assertTrue(readinessService.check().ready());
+    }
+
+    @Test
+    void testCheck_NotReadyUntilConnectionsAreWarm() {
+        // Given
+        when(uploadStage.size()).thenReturn(0);
+        when(connectionWarmup.isComplete()).thenReturn(false);
+
+        // When
+        ReadinessService.Readiness readiness = readinessService.check();
+
+        // Then
+        assertFalse(readiness.ready());
+        assertFalse(readiness.checks().stream()
+                .filter(check -> check.name().equals("connectionWarmup"))
+                .findFirst().orElseThrow().ready());
+    }
+}
@@ -0,0 +1,108 @@
+package com.emailprocessor.processor.service;
+
+import com.emailprocessor.processor.dto.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class S3KeyGeneratorTest {
+
+    @Test
+    void testGenerate_DateLayoutMatchesOriginalFormat() {
+        // Given - Unix timestamp: 1693561101 = 2023-09-01 07:05:01 UTC
+        S3KeyGenerator generator = new S3KeyGenerator("date", 16);
+
+        // When
+        String key = generator.generate(email("John Doe <john@example.com>", "1693561101"), "corr-1");
+
+        // Then
+        assertEquals("emails/2023/09/01/1693561101-john_doe__john_example_com_.json", key);
+    }
+
+    @Test
+    void testGenerate_SanitizesLikeTheOriginalRegex() {
+        // Given - accented, supplementary-plane (emoji) and lone-surrogate characters
+        S3KeyGenerator generator = new S3KeyGenerator("date", 16);
+        String sender = "Ren\u00e9e \ud83d\ude00 O'Brien\ud83d";
+
+        // When
+        String key = generator.generate(email(sender, "1693561101"), "corr-1");
+
+        // Then
+        assertEquals("emails/2023/09/01/1693561101-"
+                + sender.replaceAll("[^a-zA-Z0-9]", "_").toLowerCase() + ".json", key);
+        assertTrue(key.endsWith("-ren_e___o_brien_.json"));
+    }
+
+    @Test
+    void testGenerate_HashedLayoutIncludesShardAndCorrelationId() {
+        // Given
+        S3KeyGenerator generator = new S3KeyGenerator("hashed", 16);
+
+        // When
+        String key = generator.generate(email("John Doe", "1693561101"), "0b7f6c1e-aaaa-bbbb-cccc-1234567890ab");
+
+        // Then
+        assertTrue(key.matches("emails/[0-9a-f]/2023/09/01/1693561101-john_doe-0b7f6c1e_aaaa_bbbb_cccc_1234567890ab\\.json"),
+                key);
+    }
+
+    @Test
+    void testGenerate_HashedLayoutIsUniquePerCorrelationId() {
+        // Given - same sender, same second
+        S3KeyGenerator generator = new S3KeyGenerator("hashed", 256);
+        EmailMessage emailMessage = email("Sender", "1693561101");
+        Set<String> keys = new HashSet<>();
+        Set<String> shards = new HashSet<>();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            String key = generator.generate(emailMessage, "correlation-" + i);
+            keys.add(key);
+            shards.add(key.substring("emails/".length(), "emails/".length() + 2));
+        }
+
+        // Then
+        assertEquals(1000, keys.size());
+        assertTrue(shards.size() > 200, "writes should spread over most shards, got " + shards.size());
+    }
+
+    @Test
+    void testGenerate_DatesAcrossLeapYearsAndCenturies() {
+        S3KeyGenerator generator = new S3KeyGenerator("date", 1);
+
+        assertTrue(generator.generate(email("a", "951782400"), "c").startsWith("emails/2000/02/29/"));
+        assertTrue(generator.generate(email("a", "4107542399"), "c").startsWith("emails/2100/02/28/"));
+        assertTrue(generator.generate(email("a", "1"), "c").startsWith("emails/1970/01/01/"));
+    }
+
+    @Test
+    void testGenerate_InvalidTimestampFallsBackToNow() {
+        // Given
+        S3KeyGenerator generator = new S3KeyGenerator("date", 16);
+
+        // When
+        String key = generator.generate(email("Test User", "invalid-timestamp"), "corr-1");
+
+        // Then
+        assertTrue(key.startsWith("emails/"));
+        assertTrue(key.endsWith("-test_user.json"));
+        assertFalse(key.contains("invalid"));
+    }
+
+    @Test
+    void testConstructor_RejectsUnknownLayout() {
+        assertThrows(IllegalArgumentException.class, () -> new S3KeyGenerator("weekly", 16));
+        assertThrows(IllegalArgumentException.class, () -> new S3KeyGenerator("hashed", 0));
+    }
+
+    private EmailMessage email(String sender, String timestream) {
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setEmailSender(sender);
+        emailMessage.setEmailTimestream(timestream);
+        return emailMessage;
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Tracer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,6 +18,8 @@ import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -40,6 +43,15 @@ class S3UploaderServiceTest {
     @Mock(lenient = true)
     private DistributionSummary s3FileSizeSummary;
 
+    @Mock(lenient = true)
+    private S3MultipartUploader s3MultipartUploader;
+
+    @Mock(lenient = true)
+    private ContentStore contentStore;
+
+    @Mock(lenient = true)
+    private SpillBuffer spillBuffer;
+
     private S3UploaderService s3UploaderService;
 
     private final String bucketName = "test-email-bucket";
@@ -53,8 +65,9 @@ class S3UploaderServiceTest {
                     java.util.function.Supplier<?> supplier = invocation.getArgument(0);
                     return supplier.get();
                 });
-        s3UploaderService = new S3UploaderService(s3Client, bucketName, objectMapper,
-                s3UploadsSuccessCounter, s3UploadsFailureCounter, s3UploadTimer, s3FileSizeSummary);
+        s3UploaderService = new S3UploaderService(s3Client, bucketName, new S3KeyGenerator("date", 16),
+                new EnvelopeEnricher(objectMapper), s3MultipartUploader, contentStore, spillBuffer, Tracer.NOOP,
+                objectMapper, s3UploadsSuccessCounter, s3UploadsFailureCounter, s3UploadTimer, s3FileSizeSummary);
     }
 
     @Test
@@ -228,5 +241,166 @@ class S3UploaderServiceTest {
         assertTrue(s3Key.contains("test_user"));
         // Should still create a valid path even with invalid timestamp
     }
-}
 
+    @Test
+    void testUploadToS3_CopiesSourceJsonAndAppendsEnrichment() throws Exception {
+        // Given - unknown fields pass through, the body's correlationId/timestamp are replaced
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setEmailSender("John Doe");
+        emailMessage.setEmailTimestream("1693561101");
+        emailMessage.setTimestamp(1693561101000L);
+        String sourceJson = "{\"emailSubject\":\"Subject\",\"emailSender\":\"John Doe\",\"emailTimestream\":\"1693561101\","
+                + "\"emailContent\":\"Caf\u00e9 \\\"quoted\\\"\",\"extra\":{\"nested\":[1,2]},"
+                + "\"correlationId\":\"body-id\",\"timestamp\":1693561101000}";
+
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().eTag("test-etag").build());
+
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+
+        // When
+        String s3Key = s3UploaderService.uploadToS3(emailMessage, sourceJson, "test-correlation-id");
+
+        // Then
+        verify(s3Client).putObject(any(PutObjectRequest.class), bodyCaptor.capture());
+        byte[] uploaded = bodyCaptor.getValue().contentStreamProvider().newStream().readAllBytes();
+        assertEquals(uploaded.length, bodyCaptor.getValue().optionalContentLength().orElseThrow());
+        verify(s3FileSizeSummary).record((double) uploaded.length);
+
+        com.fasterxml.jackson.databind.JsonNode document = objectMapper.readTree(uploaded);
+        assertEquals("Caf\u00e9 \"quoted\"", document.get("emailContent").asText());
+        assertEquals(2, document.get("extra").get("nested").get(1).asInt());
+        assertEquals("test-correlation-id", document.get("correlationId").asText());
+        assertEquals(1693561101000L, document.get("originalTimestamp").asLong());
+        assertEquals(s3Key, document.get("s3Key").asText());
+        assertTrue(document.get("processedAt").asLong() > 0);
+        assertFalse(document.has("timestamp"));
+    }
+
+    @Test
+    void testUploadToS3_StreamThresholdUsesEncodedBytes() throws Exception {
+        // Given - two-, three- and four-byte characters in UTF-8
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setEmailSender("John Doe");
+        emailMessage.setEmailTimestream("1693561101");
+        String sourceJson = "{\"emailContent\":\"\u00e9\u4e2d\ud83d\ude00\"}";
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().eTag("test-etag").build());
+
+        // When
+        s3UploaderService.uploadToS3(emailMessage, sourceJson, "test-correlation-id");
+
+        // Then
+        long encoded = sourceJson.getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(sourceJson.length() + 5, encoded);
+        verify(s3MultipartUploader).shouldStream(encoded);
+        assertEquals(encoded, S3UploaderService.utf8Length(sourceJson));
+    }
+
+    @Test
+    void testUploadToS3_LargeRecordIsStreamed() throws Exception {
+        // Given
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setEmailSender("John Doe");
+        emailMessage.setEmailTimestream("1693561101");
+        String sourceJson = "{\"emailSubject\":\"Subject\",\"emailSender\":\"John Doe\",\"emailContent\":\"large\"}";
+        java.io.ByteArrayOutputStream streamed = new java.io.ByteArrayOutputStream();
+
+        when(s3MultipartUploader.shouldStream(anyLong())).thenReturn(true);
+        when(s3MultipartUploader.upload(any(PutObjectRequest.class), any(S3MultipartUploader.BodyWriter.class)))
+                .thenAnswer(invocation -> {
+                    S3MultipartUploader.BodyWriter writer = invocation.getArgument(1);
+                    writer.writeTo(streamed);
+                    return (long) streamed.size();
+                });
+
+        // When
+        String s3Key = s3UploaderService.uploadToS3(emailMessage, sourceJson, "test-correlation-id");
+
+        // Then
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(s3FileSizeSummary).record((double) streamed.size());
+        verify(s3UploadsSuccessCounter).increment();
+        assertEquals(s3Key, objectMapper.readTree(streamed.toByteArray()).get("s3Key").asText());
+    }
+
+    @Test
+    void testUploadToS3_ContentAddressedRecordReferencesBody() throws Exception {
+        // Given
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setEmailSubject("Newsletter");
+        emailMessage.setEmailSender("news@example.com");
+        emailMessage.setEmailTimestream("1693561101");
+        emailMessage.setEmailContent("Same body for everyone");
+        String sourceJson = objectMapper.writeValueAsString(emailMessage);
+
+        ContentStore.ContentReference contentRef = new ContentStore.ContentReference("ab12", "bodies/ab/ab12", 22);
+        when(contentStore.isEnabled()).thenReturn(true);
+        when(contentStore.store("Same body for everyone", "corr-1")).thenReturn(contentRef);
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().eTag("test-etag").build());
+
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+
+        // When
+        s3UploaderService.uploadToS3(emailMessage, sourceJson, "corr-1");
+
+        // Then
+        verify(s3Client).putObject(requestCaptor.capture(), bodyCaptor.capture());
+        assertEquals("ab12", requestCaptor.getValue().metadata().get("content-sha256"));
+        com.fasterxml.jackson.databind.JsonNode stored = objectMapper.readTree(
+                bodyCaptor.getValue().contentStreamProvider().newStream().readAllBytes());
+        assertFalse(stored.has("emailContent"));
+        assertEquals("ab12", stored.path("emailContentRef").path("sha256").asText());
+        assertEquals("bodies/ab/ab12", stored.path("emailContentRef").path("key").asText());
+        assertEquals(22, stored.path("emailContentRef").path("bytes").asLong());
+        assertEquals("Newsletter", stored.path("emailSubject").asText());
+    }
+
+    @Test
+    void testUploadToS3_SpillsRecordWhenS3IsUnavailable() throws Exception {
+        // Given
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setEmailSubject("Subject");
+        emailMessage.setEmailSender("Sender");
+        emailMessage.setEmailTimestream("1693561101");
+        emailMessage.setEmailContent("Content");
+        String sourceJson = objectMapper.writeValueAsString(emailMessage);
+
+        when(spillBuffer.isEnabled()).thenReturn(true);
+        when(spillBuffer.spill(any(PutObjectRequest.class), any(byte[].class), eq("corr-1"))).thenReturn(true);
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().statusCode(503).message("Slow Down").build());
+
+        ArgumentCaptor<byte[]> bodyCaptor = ArgumentCaptor.forClass(byte[].class);
+
+        // When
+        String s3Key = s3UploaderService.uploadToS3(emailMessage, sourceJson, "corr-1");
+
+        // Then
+        verify(spillBuffer).markDegraded();
+        verify(spillBuffer).spill(argThat(request -> request.key().equals(s3Key)), bodyCaptor.capture(), eq("corr-1"));
+        assertEquals("Content", objectMapper.readTree(bodyCaptor.getValue()).path("emailContent").asText());
+        verify(s3UploadsFailureCounter, never()).increment();
+    }
+
+    @Test
+    void testUploadToS3_ClientErrorsAreNotSpilled() {
+        // Given
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setEmailSubject("Subject");
+        emailMessage.setEmailSender("Sender");
+        emailMessage.setEmailTimestream("1693561101");
+        emailMessage.setEmailContent("Content");
+
+        when(spillBuffer.isEnabled()).thenReturn(true);
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).message("Access Denied").build());
+
+        // When / Then
+        assertThrows(RuntimeException.class, () -> s3UploaderService.uploadToS3(emailMessage, "corr-1"));
+        verify(spillBuffer, never()).spill(any(), any(), any());
+        verify(s3UploadsFailureCounter).increment();
+    }
+}
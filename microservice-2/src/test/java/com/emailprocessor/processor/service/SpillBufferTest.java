@@ -0,0 +1,121 @@
+package com.emailprocessor.processor.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpillBufferTest {
+
+    @Mock(lenient = true)
+    private S3Client s3Client;
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SpillBuffer spillBuffer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        spillBuffer = new SpillBuffer(s3Client, "test-bucket", true, directory.toString(), 4096, 2, 60000, 10,
+                meterRegistry);
+        spillBuffer.open();
+    }
+
+    @Test
+    void testConstructor_RequiresPathWhenEnabled() {
+        assertThrows(IllegalArgumentException.class, () -> new SpillBuffer(s3Client, "test-bucket", true, "", 4096, 2,
+                60000, 10, meterRegistry));
+        assertDoesNotThrow(() -> new SpillBuffer(s3Client, "test-bucket", false, "", 4096, 2, 60000, 10,
+                meterRegistry));
+    }
+
+    private static PutObjectRequest request(String key) {
+        return PutObjectRequest.builder()
+                .bucket("test-bucket")
+                .key(key)
+                .contentType("application/json")
+                .metadata(Map.of("correlation-id", "corr-1"))
+                .build();
+    }
+
+    @Test
+    void testDrain_UploadsSpilledRecordsOnceS3Recovers() throws Exception {
+        // Given
+        assertTrue(spillBuffer.spill(request("emails/a.json"), "{\"a\":1}".getBytes(StandardCharsets.UTF_8), "corr-1"));
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().build());
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+
+        // When
+        spillBuffer.drain();
+
+        // Then
+        verify(s3Client).putObject(requestCaptor.capture(), bodyCaptor.capture());
+        assertEquals("emails/a.json", requestCaptor.getValue().key());
+        assertEquals("corr-1", requestCaptor.getValue().metadata().get("correlation-id"));
+        assertEquals("{\"a\":1}", new String(bodyCaptor.getValue().contentStreamProvider().newStream().readAllBytes(),
+                StandardCharsets.UTF_8));
+        assertEquals(0.0, meterRegistry.get("consumer.spill.pending.records").gauge().value());
+        assertEquals(1.0, meterRegistry.get("consumer.spill.records").tag("result", "drained").counter().count());
+    }
+
+    @Test
+    void testDrain_KeepsRecordsAndBacksOffWhileS3IsDown() {
+        // Given
+        spillBuffer.spill(request("emails/a.json"), new byte[10], "corr-1");
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().statusCode(503).build());
+
+        // When
+        spillBuffer.drain();
+        spillBuffer.drain();
+
+        // Then - the second drain waits out the probe interval instead of hitting S3 again
+        verify(s3Client, times(1)).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        assertTrue(spillBuffer.isDegraded());
+        assertEquals(1.0, meterRegistry.get("consumer.spill.pending.records").gauge().value());
+    }
+
+    @Test
+    void testSpill_RefusesWhenFull() {
+        // Given - two 4 KiB segments
+        byte[] body = new byte[3000];
+        assertTrue(spillBuffer.spill(request("emails/a.json"), body, "corr-1"));
+        assertTrue(spillBuffer.spill(request("emails/b.json"), body, "corr-2"));
+
+        // When / Then
+        assertFalse(spillBuffer.spill(request("emails/c.json"), body, "corr-3"));
+        assertEquals(1.0, meterRegistry.get("consumer.spill.records").tag("result", "rejected").counter().count());
+    }
+
+    @Test
+    void testIsS3Unavailable_OnlyForServerSideAndConnectionErrors() {
+        assertTrue(SpillBuffer.isS3Unavailable(S3Exception.builder().statusCode(503).build()));
+        assertTrue(SpillBuffer.isS3Unavailable(new RuntimeException(SdkClientException.create("timeout"))));
+        assertFalse(SpillBuffer.isS3Unavailable(S3Exception.builder().statusCode(403).build()));
+        assertFalse(SpillBuffer.isS3Unavailable(new IllegalArgumentException("bad input")));
+    }
+}
@@ -2,19 +2,37 @@ package com.emailprocessor.processor.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.*;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -30,14 +48,53 @@ class SqsPollerServiceTest {
     @Mock(lenient = true)
     private Counter messagesReceivedCounter;
 
+    @Mock(lenient = true)
+    private Timer drainTimer;
+
+    @Mock(lenient = true)
+    private Counter drainReleasedCounter;
+
+    @Mock(lenient = true)
+    private QuarantineService quarantineService;
+
+    @Mock(lenient = true)
+    private Counter retryDeferredCounter;
+
+    @Mock(lenient = true)
+    private Timer dwellTimer;
+
+    @Mock(lenient = true)
+    private DistributionSummary receiveCountSummary;
+
+    @Mock(lenient = true)
+    private ReadinessService readinessService;
+
     private SqsPollerService sqsPollerService;
 
     private final String queueUrl = "https://sqs.us-west-1.amazonaws.com/123456789/test-queue";
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final io.opentelemetry.api.trace.Tracer otelTracer = SdkTracerProvider.builder().build().get("test");
+    private final Tracer tracer = new OtelTracer(otelTracer, new OtelCurrentTraceContext(), event -> { });
+    private final MessageTracing messageTracing = new MessageTracing(tracer, new OtelPropagator(
+            ContextPropagators.create(W3CTraceContextPropagator.getInstance()), otelTracer));
 
     @BeforeEach
     void setUp() {
-        sqsPollerService = new SqsPollerService(sqsClient, queueUrl, messageProcessor, objectMapper, messagesReceivedCounter);
+        when(readinessService.check()).thenReturn(new ReadinessService.Readiness(true, List.of()));
+        sqsPollerService = createPoller(singleLane(), false);
+    }
+
+    private QueueLanes singleLane() {
+        return new QueueLanes(sqsClient, queueUrl, 3, "", 8, "", 1, "", "", new SimpleMeterRegistry());
+    }
+
+    private SqsPollerService createPoller(QueueLanes queueLanes, boolean pipelineEnabled) {
+        ConsumerPipeline consumerPipeline = new ConsumerPipeline(pipelineEnabled, 2, 2, 2, 2, 1, 4,
+                new SimpleMeterRegistry());
+        return new SqsPollerService(sqsClient, queueLanes, new MessageGroupExecutor(2), consumerPipeline,
+                readinessService, messageProcessor, objectMapper, messagesReceivedCounter, 100, 500, drainTimer,
+                drainReleasedCounter, quarantineService, 30, 900, retryDeferredCounter, dwellTimer,
+                receiveCountSummary, messageTracing);
     }
 
     @Test
@@ -54,10 +111,23 @@ class SqsPollerServiceTest {
 
         // Then
         verify(sqsClient, times(1)).receiveMessage(any(ReceiveMessageRequest.class));
-        verify(messageProcessor, never()).processMessage(anyString(), anyString());
+        verify(messageProcessor, never()).process(anyString(), anyString(), anyString());
         verify(sqsClient, never()).deleteMessage(any(DeleteMessageRequest.class));
     }
 
+    @Test
+    void testPollMessages_SkipsReceiveWhileNotReady() {
+        // Given
+        when(readinessService.check()).thenReturn(new ReadinessService.Readiness(false,
+                List.of(new ReadinessService.Check("s3ErrorRate", false, "0.90 of 20 uploads"))));
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        verify(sqsClient, never()).receiveMessage(any(ReceiveMessageRequest.class));
+    }
+
     @Test
     void testPollMessages_SuccessfulProcessing() {
         // Given
@@ -79,17 +149,54 @@ class SqsPollerServiceTest {
                 .build();
 
         when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(receiveResponse);
-        when(messageProcessor.processMessage(anyString(), anyString())).thenReturn(true);
+        when(messageProcessor.process(anyString(), anyString(), anyString())).thenReturn(ProcessingResult.success());
 
         // When
         sqsPollerService.pollMessages();
 
         // Then
         verify(sqsClient, times(1)).receiveMessage(any(ReceiveMessageRequest.class));
-        verify(messageProcessor, times(1)).processMessage(anyString(), eq("test-correlation-id"));
+        verify(messageProcessor, times(1)).process(anyString(), eq("test-correlation-id"), eq("message-123"));
         verify(sqsClient, times(1)).deleteMessage(any(DeleteMessageRequest.class));
     }
 
+    @Test
+    void testPollMessages_ContinuesProducerTrace() {
+        // Given
+        String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>();
+        messageAttributes.put("correlationId", MessageAttributeValue.builder()
+                .stringValue("test-correlation-id")
+                .dataType("String")
+                .build());
+        messageAttributes.put("traceparent", MessageAttributeValue.builder()
+                .stringValue("00-" + traceId + "-00f067aa0ba902b7-01")
+                .dataType("String")
+                .build());
+
+        Message message = Message.builder()
+                .messageId("message-123")
+                .body("{\"emailSubject\":\"Test\"}")
+                .receiptHandle("receipt-handle-123")
+                .messageAttributes(messageAttributes)
+                .build();
+
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(List.of(message)).build());
+        List<String> seenTraceIds = new ArrayList<>();
+        when(messageProcessor.process(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            seenTraceIds.add(tracer.currentSpan().context().traceId());
+            return ProcessingResult.success();
+        });
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        assertEquals(List.of(traceId), seenTraceIds);
+        assertNull(tracer.currentSpan());
+    }
+
     @Test
     void testPollMessages_FailedProcessing() {
         // Given
@@ -111,14 +218,15 @@ class SqsPollerServiceTest {
                 .build();
 
         when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(receiveResponse);
-        when(messageProcessor.processMessage(anyString(), anyString())).thenReturn(false);
+        when(messageProcessor.process(anyString(), anyString(), anyString()))
+                .thenReturn(ProcessingResult.transientFailure("S3 connection failed"));
 
         // When
         sqsPollerService.pollMessages();
 
         // Then
         verify(sqsClient, times(1)).receiveMessage(any(ReceiveMessageRequest.class));
-        verify(messageProcessor, times(1)).processMessage(anyString(), anyString());
+        verify(messageProcessor, times(1)).process(anyString(), anyString(), anyString());
         verify(sqsClient, never()).deleteMessage(any(DeleteMessageRequest.class));
     }
 
@@ -156,17 +264,49 @@ class SqsPollerServiceTest {
                 .build();
 
         when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(receiveResponse);
-        when(messageProcessor.processMessage(anyString(), anyString())).thenReturn(true);
+        when(messageProcessor.process(anyString(), anyString(), anyString())).thenReturn(ProcessingResult.success());
 
         // When
         sqsPollerService.pollMessages();
 
         // Then
         verify(sqsClient, times(1)).receiveMessage(any(ReceiveMessageRequest.class));
-        verify(messageProcessor, times(2)).processMessage(anyString(), anyString());
+        verify(messageProcessor, times(2)).process(anyString(), anyString(), anyString());
         verify(sqsClient, times(2)).deleteMessage(any(DeleteMessageRequest.class));
     }
 
+    @Test
+    void testPollMessages_ReadsEveryShardAndDeletesFromIt() {
+        // Given - one message waiting on a shard, nothing on the main queue
+        String shardUrl = queueUrl + "-a";
+        sqsPollerService = createPoller(new QueueLanes(sqsClient, queueUrl, 3, "", 8, "", 1, shardUrl, "",
+                new SimpleMeterRegistry()), false);
+        Message message = Message.builder()
+                .messageId("message-1")
+                .body("{\"emailSubject\":\"Test\"}")
+                .receiptHandle("receipt-1")
+                .build();
+        List<String> polled = new ArrayList<>();
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer(invocation -> {
+            String url = invocation.getArgument(0, ReceiveMessageRequest.class).queueUrl();
+            boolean first = !polled.contains(url);
+            polled.add(url);
+            return ReceiveMessageResponse.builder()
+                    .messages(url.equals(shardUrl) && first ? List.of(message) : List.of())
+                    .build();
+        });
+        when(messageProcessor.process(anyString(), anyString(), anyString())).thenReturn(ProcessingResult.success());
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        assertEquals(Set.of(queueUrl, shardUrl), Set.copyOf(polled));
+        ArgumentCaptor<DeleteMessageRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
+        verify(sqsClient).deleteMessage(deleteCaptor.capture());
+        assertEquals(shardUrl, deleteCaptor.getValue().queueUrl());
+    }
+
     @Test
     void testPollMessages_ProcessingException() {
         // Given
@@ -188,7 +328,7 @@ class SqsPollerServiceTest {
                 .build();
 
         when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(receiveResponse);
-        when(messageProcessor.processMessage(anyString(), anyString()))
+        when(messageProcessor.process(anyString(), anyString(), anyString()))
                 .thenThrow(new RuntimeException("Processing error"));
 
         // When
@@ -196,7 +336,7 @@ class SqsPollerServiceTest {
 
         // Then
         verify(sqsClient, times(1)).receiveMessage(any(ReceiveMessageRequest.class));
-        verify(messageProcessor, times(1)).processMessage(anyString(), anyString());
+        verify(messageProcessor, times(1)).process(anyString(), anyString(), anyString());
         verify(sqsClient, never()).deleteMessage(any(DeleteMessageRequest.class));
     }
 
@@ -211,7 +351,365 @@ class SqsPollerServiceTest {
 
         // Then
         verify(sqsClient, times(1)).receiveMessage(any(ReceiveMessageRequest.class));
-        verify(messageProcessor, never()).processMessage(anyString(), anyString());
+        verify(messageProcessor, never()).process(anyString(), anyString(), anyString());
     }
-}
 
+    @Test
+    void testDrain_StopsPolling() {
+        // When
+        sqsPollerService.drain();
+        sqsPollerService.pollMessages();
+
+        // Then
+        verify(sqsClient, never()).receiveMessage(any(ReceiveMessageRequest.class));
+        verify(drainTimer, times(1)).record(anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void testDrain_ReleasesUnstartedMessages() {
+        // Given - shutdown arrives while the first of three messages is being processed
+        Message message1 = Message.builder().messageId("message-1").body("{}").receiptHandle("receipt-1").build();
+        Message message2 = Message.builder().messageId("message-2").body("{}").receiptHandle("receipt-2").build();
+        Message message3 = Message.builder().messageId("message-3").body("{}").receiptHandle("receipt-3").build();
+
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(ReceiveMessageResponse.builder()
+                .messages(List.of(message1, message2, message3))
+                .build());
+        when(messageProcessor.process(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            sqsPollerService.drain();
+            return ProcessingResult.success();
+        });
+        when(sqsClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(ChangeMessageVisibilityBatchResponse.builder()
+                        .successful(ChangeMessageVisibilityBatchResultEntry.builder().id("0").build(),
+                                ChangeMessageVisibilityBatchResultEntry.builder().id("1").build())
+                        .build());
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestCaptor =
+                ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        verify(messageProcessor, times(1)).process(anyString(), anyString(), eq("message-1"));
+        verify(sqsClient, times(1)).deleteMessage(any(DeleteMessageRequest.class));
+        verify(sqsClient).changeMessageVisibilityBatch(requestCaptor.capture());
+        ChangeMessageVisibilityBatchRequest request = requestCaptor.getValue();
+        assertEquals(2, request.entries().size());
+        assertEquals("receipt-2", request.entries().get(0).receiptHandle());
+        assertEquals(0, request.entries().get(0).visibilityTimeout());
+        verify(drainReleasedCounter).increment(2.0);
+    }
+
+    @Test
+    void testPollMessages_TransientFailureBacksOffByReceiveCount() {
+        // Given - third delivery
+        Message message = Message.builder()
+                .messageId("message-123")
+                .body("{}")
+                .receiptHandle("receipt-handle-123")
+                .attributesWithStrings(Map.of("ApproximateReceiveCount", "3"))
+                .build();
+
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(ReceiveMessageResponse.builder()
+                .messages(List.of(message))
+                .build());
+        when(messageProcessor.process(anyString(), anyString(), anyString()))
+                .thenReturn(ProcessingResult.transientFailure("S3 connection failed"));
+
+        ArgumentCaptor<ChangeMessageVisibilityRequest> requestCaptor =
+                ArgumentCaptor.forClass(ChangeMessageVisibilityRequest.class);
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        verify(sqsClient).changeMessageVisibility(requestCaptor.capture());
+        assertEquals("receipt-handle-123", requestCaptor.getValue().receiptHandle());
+        assertEquals(120, requestCaptor.getValue().visibilityTimeout());
+        verify(sqsClient, never()).deleteMessage(any(DeleteMessageRequest.class));
+        verify(quarantineService, never()).quarantine(any(), anyString(), anyString());
+        verify(retryDeferredCounter).increment();
+    }
+
+    @Test
+    void testPollMessages_PermanentFailureIsQuarantinedAndDeleted() {
+        // Given
+        Message message = Message.builder()
+                .messageId("message-123")
+                .body("{ invalid json }")
+                .receiptHandle("receipt-handle-123")
+                .build();
+
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(ReceiveMessageResponse.builder()
+                .messages(List.of(message))
+                .build());
+        when(messageProcessor.process(anyString(), anyString(), anyString()))
+                .thenReturn(ProcessingResult.permanentFailure("Malformed JSON"));
+        when(quarantineService.quarantine(message, "unknown", "Malformed JSON")).thenReturn(true);
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        verify(quarantineService).quarantine(message, "unknown", "Malformed JSON");
+        verify(sqsClient, times(1)).deleteMessage(any(DeleteMessageRequest.class));
+        verify(sqsClient, never()).changeMessageVisibility(any(ChangeMessageVisibilityRequest.class));
+    }
+
+    @Test
+    void testPollMessages_QuarantineFailureKeepsMessage() {
+        // Given
+        Message message = Message.builder()
+                .messageId("message-123")
+                .body("{ invalid json }")
+                .receiptHandle("receipt-handle-123")
+                .build();
+
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(ReceiveMessageResponse.builder()
+                .messages(List.of(message))
+                .build());
+        when(messageProcessor.process(anyString(), anyString(), anyString()))
+                .thenReturn(ProcessingResult.permanentFailure("Malformed JSON"));
+        when(quarantineService.quarantine(any(), anyString(), anyString())).thenReturn(false);
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        verify(sqsClient, never()).deleteMessage(any(DeleteMessageRequest.class));
+        verify(sqsClient).changeMessageVisibility(any(ChangeMessageVisibilityRequest.class));
+    }
+
+    @Test
+    void testRetryDelaySeconds_IsCapped() {
+        assertEquals(30, sqsPollerService.retryDelaySeconds(0));
+        assertEquals(30, sqsPollerService.retryDelaySeconds(1));
+        assertEquals(60, sqsPollerService.retryDelaySeconds(2));
+        assertEquals(480, sqsPollerService.retryDelaySeconds(5));
+        assertEquals(900, sqsPollerService.retryDelaySeconds(6));
+        assertEquals(900, sqsPollerService.retryDelaySeconds(1000));
+    }
+
+    @Test
+    void testPollMessages_FifoGroupsKeepReceiveOrder() {
+        // Given
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(ReceiveMessageResponse.builder()
+                .messages(groupMessage("a-1", "group-a"), groupMessage("b-1", "group-b"),
+                        groupMessage("a-2", "group-a"), groupMessage("b-2", "group-b"), groupMessage("a-3", "group-a"))
+                .build());
+        when(messageProcessor.process(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            processed.add(invocation.getArgument(2));
+            return ProcessingResult.success();
+        });
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        assertEquals(5, processed.size());
+        assertTrue(processed.indexOf("a-1") < processed.indexOf("a-2"));
+        assertTrue(processed.indexOf("a-2") < processed.indexOf("a-3"));
+        assertTrue(processed.indexOf("b-1") < processed.indexOf("b-2"));
+        verify(sqsClient, times(5)).deleteMessage(any(DeleteMessageRequest.class));
+    }
+
+    @Test
+    void testPollMessages_FifoFailureHoldsBackRestOfGroup() {
+        // Given
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(ReceiveMessageResponse.builder()
+                .messages(groupMessage("a-1", "group-a"), groupMessage("a-2", "group-a"),
+                        groupMessage("a-3", "group-a"), groupMessage("b-1", "group-b"))
+                .build());
+        when(messageProcessor.process(anyString(), anyString(), eq("a-1")))
+                .thenReturn(ProcessingResult.transientFailure("S3 unavailable"));
+        when(messageProcessor.process(anyString(), anyString(), eq("b-1"))).thenReturn(ProcessingResult.success());
+        when(sqsClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(ChangeMessageVisibilityBatchResponse.builder()
+                        .successful(s -> s.id("0"), s -> s.id("1"))
+                        .build());
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> releaseCaptor =
+                ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        verify(messageProcessor, never()).process(anyString(), anyString(), eq("a-2"));
+        verify(messageProcessor, never()).process(anyString(), anyString(), eq("a-3"));
+        verify(messageProcessor).process(anyString(), anyString(), eq("b-1"));
+        verify(sqsClient).changeMessageVisibility(any(ChangeMessageVisibilityRequest.class));
+        verify(sqsClient).changeMessageVisibilityBatch(releaseCaptor.capture());
+        assertEquals(List.of("receipt-a-2", "receipt-a-3"), releaseCaptor.getValue().entries().stream()
+                .map(ChangeMessageVisibilityBatchRequestEntry::receiptHandle)
+                .toList());
+        verify(drainReleasedCounter, never()).increment(anyDouble());
+    }
+
+    @Test
+    void testDrain_CountsGroupMessagesReleasedOnShutdown() {
+        // Given - shutdown arrives while the first message of the group is being processed
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(ReceiveMessageResponse.builder()
+                .messages(groupMessage("a-1", "group-a"), groupMessage("a-2", "group-a"),
+                        groupMessage("a-3", "group-a"))
+                .build());
+        when(messageProcessor.process(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            sqsPollerService.drain();
+            return ProcessingResult.success();
+        });
+        when(sqsClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(ChangeMessageVisibilityBatchResponse.builder()
+                        .successful(ChangeMessageVisibilityBatchResultEntry.builder().id("0").build(),
+                                ChangeMessageVisibilityBatchResultEntry.builder().id("1").build())
+                        .build());
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        verify(messageProcessor, times(1)).process(anyString(), anyString(), anyString());
+        verify(sqsClient).changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class));
+        verify(drainReleasedCounter).increment(2.0);
+    }
+
+    private Message groupMessage(String messageId, String groupId) {
+        return Message.builder()
+                .messageId(messageId)
+                .body("{\"emailSubject\":\"Test\"}")
+                .receiptHandle("receipt-" + messageId)
+                .messageAttributes(Map.of("correlationId", MessageAttributeValue.builder()
+                        .stringValue("corr-" + messageId)
+                        .dataType("String")
+                        .build()))
+                .attributesWithStrings(Map.of("MessageGroupId", groupId))
+                .build();
+    }
+
+    @Test
+    void testPollMessages_PipelineParsesUploadsAndAcks() {
+        // Given
+        SqsPollerService pipelinePoller = createPoller(singleLane(), true);
+        pipelinePoller.startPipeline();
+
+        Message valid = grouplessMessage("message-1");
+        Message malformed = grouplessMessage("message-2");
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(valid, malformed).build())
+                .thenReturn(ReceiveMessageResponse.builder().messages(Collections.emptyList()).build());
+
+        MessageProcessor.PreparedMessage prepared = new MessageProcessor.PreparedMessage(null, valid.body(),
+                "corr-message-1", "message-1", "message-1", IdempotencyFilter.Verdict.NEW, null);
+        when(messageProcessor.prepare(anyString(), anyString(), eq("message-1"))).thenReturn(prepared);
+        when(messageProcessor.prepare(anyString(), anyString(), eq("message-2")))
+                .thenReturn(MessageProcessor.PreparedMessage.complete(ProcessingResult.permanentFailure("Malformed JSON")));
+        when(messageProcessor.store(prepared)).thenReturn(ProcessingResult.success());
+        when(quarantineService.quarantine(any(Message.class), anyString(), anyString())).thenReturn(true);
+
+        ArgumentCaptor<DeleteMessageRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteMessageRequest.class);
+
+        try {
+            // When
+            pipelinePoller.pollMessages();
+
+            // Then - the pipeline keeps receiving until the queue is empty
+            verify(sqsClient, times(2)).receiveMessage(any(ReceiveMessageRequest.class));
+            verify(sqsClient, timeout(2000).times(2)).deleteMessage(deleteCaptor.capture());
+            assertEquals(Set.of("receipt-message-1", "receipt-message-2"), deleteCaptor.getAllValues().stream()
+                    .map(DeleteMessageRequest::receiptHandle)
+                    .collect(java.util.stream.Collectors.toSet()));
+            verify(messageProcessor, times(1)).store(any(MessageProcessor.PreparedMessage.class));
+            verify(quarantineService).quarantine(eq(malformed), anyString(), eq("Malformed JSON"));
+            verify(messageProcessor, never()).process(anyString(), anyString(), anyString());
+            verify(messageProcessor, times(2)).recordProcessingTime(anyLong());
+        } finally {
+            pipelinePoller.drain();
+        }
+    }
+
+    @Test
+    void testPollMessages_PipelineReturnsUnderSteadyBacklog() {
+        // Given - the queue never runs dry
+        SqsPollerService pipelinePoller = createPoller(singleLane(), true);
+        pipelinePoller.startPipeline();
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer(invocation ->
+                ReceiveMessageResponse.builder().messages(grouplessMessage("message-" + System.nanoTime())).build());
+        when(messageProcessor.prepare(anyString(), anyString(), anyString()))
+                .thenReturn(MessageProcessor.PreparedMessage.complete(ProcessingResult.success()));
+
+        try {
+            // When / Then - returns once max-poll-ms has passed
+            assertTimeoutPreemptively(java.time.Duration.ofSeconds(5), pipelinePoller::pollMessages);
+        } finally {
+            pipelinePoller.drain();
+        }
+    }
+
+    @Test
+    void testPollMessages_PipelineWaitsUntilReady() {
+        // Given - not ready on the first check only
+        SqsPollerService pipelinePoller = createPoller(singleLane(), true);
+        pipelinePoller.startPipeline();
+        when(readinessService.check())
+                .thenReturn(new ReadinessService.Readiness(false, List.of()))
+                .thenReturn(new ReadinessService.Readiness(true, List.of()));
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(Collections.emptyList()).build());
+
+        try {
+            // When
+            pipelinePoller.pollMessages();
+
+            // Then - receives within the same poll once ready
+            verify(readinessService, atLeast(2)).check();
+            verify(sqsClient, times(1)).receiveMessage(any(ReceiveMessageRequest.class));
+        } finally {
+            pipelinePoller.drain();
+        }
+    }
+
+    private Message grouplessMessage(String messageId) {
+        return Message.builder()
+                .messageId(messageId)
+                .body("{\"emailSubject\":\"Test\"}")
+                .receiptHandle("receipt-" + messageId)
+                .messageAttributes(Map.of("correlationId", MessageAttributeValue.builder()
+                        .stringValue("corr-" + messageId)
+                        .dataType("String")
+                        .build()))
+                .build();
+    }
+
+    @Test
+    void testPollMessages_RecordsDwellOnFirstReceiveAndReceiveCountOnCompletion() {
+        // Given - one first delivery that waited 1.5s in the queue, one redelivery
+        Message first = Message.builder()
+                .messageId("message-1")
+                .body("{}")
+                .receiptHandle("receipt-1")
+                .attributesWithStrings(Map.of("SentTimestamp", "1000000", "ApproximateFirstReceiveTimestamp", "1001500",
+                        "ApproximateReceiveCount", "1"))
+                .build();
+        Message redelivered = Message.builder()
+                .messageId("message-2")
+                .body("{}")
+                .receiptHandle("receipt-2")
+                .attributesWithStrings(Map.of("SentTimestamp", "1000000", "ApproximateFirstReceiveTimestamp", "1000100",
+                        "ApproximateReceiveCount", "3"))
+                .build();
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(ReceiveMessageResponse.builder().messages(first, redelivered).build());
+        when(messageProcessor.process(anyString(), anyString(), anyString())).thenReturn(ProcessingResult.success());
+
+        // When
+        sqsPollerService.pollMessages();
+
+        // Then
+        verify(dwellTimer).record(1500L, TimeUnit.MILLISECONDS);
+        verifyNoMoreInteractions(dwellTimer);
+        verify(receiveCountSummary).record(1.0);
+        verify(receiveCountSummary).record(3.0);
+    }
+}
@@ -0,0 +1,144 @@
+package com.emailprocessor.processor.spill;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillLogTest {
+
+    private static final int SEGMENT_BYTES = 128;
+
+    @TempDir
+    Path directory;
+
+    private static byte[] record(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> drainAll(SpillLog spillLog) throws Exception {
+        List<String> drained = new ArrayList<>();
+        spillLog.drain(Integer.MAX_VALUE, payload -> drained.add(new String(payload, StandardCharsets.UTF_8)));
+        return drained;
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testAppendAndDrain_PreservesOrderAcrossSegments() throws Exception {
+        // Given - 40-byte records, so each 128-byte segment holds two
+        SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 4);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(spillLog.append(record(String.format("record-%033d", i))));
+        }
+        assertEquals(3, spillLog.segmentCount());
+        assertEquals(5, spillLog.pendingRecords());
+
+        // When
+        List<String> drained = drainAll(spillLog);
+
+        // Then
+        assertEquals(5, drained.size());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(drained.get(i).endsWith(String.valueOf(i)));
+        }
+        assertEquals(0, spillLog.pendingRecords());
+        drainAll(spillLog);
+        assertEquals(0, segmentFiles());
+    }
+
+    @Test
+    void testAppend_RefusesWhenFull() throws Exception {
+        // Given
+        SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 1);
+        assertTrue(spillLog.append(record("a".repeat(50))));
+        assertTrue(spillLog.append(record("b".repeat(50))));
+
+        // When / Then - the only segment is full, and records larger than a segment never fit
+        assertFalse(spillLog.append(record("c".repeat(50))));
+        assertFalse(spillLog.append(new byte[SEGMENT_BYTES]));
+        assertEquals(2, spillLog.pendingRecords());
+    }
+
+    @Test
+    void testDrain_StopsWhereHandlerRefuses() throws Exception {
+        // Given
+        SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 4);
+        spillLog.append(record("first"));
+        spillLog.append(record("second"));
+
+        // When
+        int drained = spillLog.drain(10, payload -> false);
+
+        // Then
+        assertEquals(0, drained);
+        assertEquals(List.of("first", "second"), drainAll(spillLog));
+    }
+
+    @Test
+    void testReopen_RecoversUndrainedRecords() throws Exception {
+        // Given
+        SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 4);
+        spillLog.append(record("first"));
+        spillLog.append(record("second"));
+        spillLog.close();
+
+        // When
+        SpillLog reopened = new SpillLog(directory, SEGMENT_BYTES, 4);
+        reopened.append(record("third"));
+
+        // Then
+        assertEquals(3, reopened.pendingRecords());
+        assertEquals(List.of("first", "second", "third"), drainAll(reopened));
+    }
+
+    @Test
+    void testReopen_IgnoresTornRecord() throws Exception {
+        // Given
+        SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 4);
+        spillLog.append(record("intact"));
+        spillLog.append(record("torn"));
+        spillLog.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // Corrupt the payload of the second record: header 8, first record 8 + 6, second record header 8
+            file.seek(8 + 8 + 6 + 8);
+            file.write('X');
+        }
+
+        // When
+        SpillLog reopened = new SpillLog(directory, SEGMENT_BYTES, 4);
+
+        // Then
+        assertEquals(List.of("intact"), drainAll(reopened));
+    }
+
+    @Test
+    void testSpillRecord_RoundTrip() throws Exception {
+        SpillRecord record = new SpillRecord("emails/2024/01/01/key.json", "application/json",
+                Map.of("correlation-id", "corr-1"), record("{\"a\":1}"));
+
+        SpillRecord decoded = SpillRecord.fromBytes(record.toBytes());
+
+        assertEquals(record.key(), decoded.key());
+        assertEquals(record.contentType(), decoded.contentType());
+        assertEquals(record.metadata(), decoded.metadata());
+        assertArrayEquals(record.body(), decoded.body());
+    }
+}
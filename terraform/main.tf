@@ -52,6 +52,36 @@ module "sqs" {
   message_retention_seconds  = 1209600
   receive_wait_time_seconds  = 20
   max_receive_count          = 3
+  fifo_queue                 = var.sqs_fifo_queue
+  shard_names                = var.sqs_shards
+}
+
+locals {
+  sqs_shard_urls          = join(",", [for name in var.sqs_shards : module.sqs.shard_urls[name]])
+  sqs_draining_shard_urls = join(",", [for name in var.sqs_draining_shards : module.sqs.shard_urls[name]])
+}
+
+# Priority lanes; normal traffic stays on the main queue
+module "sqs_high" {
+  source = "./modules/sqs"
+
+  project_name               = var.project_name
+  queue_name                 = "email-queue-high"
+  visibility_timeout_seconds = 300
+  message_retention_seconds  = 1209600
+  receive_wait_time_seconds  = 20
+  max_receive_count          = 3
+}
+
+module "sqs_bulk" {
+  source = "./modules/sqs"
+
+  project_name               = var.project_name
+  queue_name                 = "email-queue-bulk"
+  visibility_timeout_seconds = 300
+  message_retention_seconds  = 1209600
+  receive_wait_time_seconds  = 20
+  max_receive_count          = 3
 }
 
 # SSM Parameter for API Token (shared resource)
@@ -127,6 +157,8 @@ module "microservice_1" {
 
   # Load Balancer Configuration
   enable_load_balancer = true
+  # Liveness: ECS replaces any task the target group marks unhealthy, so a saturated task must still pass here.
+  # It sheds load itself instead, answering /api/email with a fast 503 while /api/ready reports not ready.
   health_check_path    = "/api/health"
 
   # Environment Variables
@@ -139,17 +171,45 @@ module "microservice_1" {
       name  = "SQS_QUEUE_URL"
       value = module.sqs.queue_url
     },
+    {
+      name  = "SQS_HIGH_PRIORITY_QUEUE_URL"
+      value = module.sqs_high.queue_url
+    },
+    {
+      name  = "SQS_BULK_QUEUE_URL"
+      value = module.sqs_bulk.queue_url
+    },
+    {
+      name  = "SQS_SHARD_URLS"
+      value = local.sqs_shard_urls
+    },
+    {
+      name  = "SQS_DRAINING_SHARD_URLS"
+      value = local.sqs_draining_shard_urls
+    },
     {
       name  = "SSM_PARAMETER_NAME"
       value = aws_ssm_parameter.api_token.name
+    },
+    {
+      name  = "WEB_APPLICATION_TYPE"
+      value = var.microservice_1_web_application_type
+    },
+    {
+      name  = "SQS_SHARD_STRATEGY"
+      value = var.sqs_shard_strategy
     }
   ]
 
   # IAM Permissions
-  sqs_queue_arns = [
+  sqs_queue_arns = concat([
     module.sqs.queue_arn,
-    module.sqs.dlq_arn
-  ]
+    module.sqs.dlq_arn,
+    module.sqs_high.queue_arn,
+    module.sqs_high.dlq_arn,
+    module.sqs_bulk.queue_arn,
+    module.sqs_bulk.dlq_arn
+  ], module.sqs.shard_arns)
   ssm_parameter_arns = [aws_ssm_parameter.api_token.arn]
   s3_bucket_arn      = ""
 
@@ -185,6 +245,11 @@ module "microservice_2" {
   min_capacity  = var.min_capacity
   max_capacity  = var.max_capacity
 
+  # Scale on queue backlog rather than CPU alone
+  backlog_scaling_enabled           = true
+  backlog_per_task_target           = var.microservice_2_backlog_per_task_target
+  oldest_message_age_target_seconds = var.microservice_2_oldest_message_age_target_seconds
+
   # No Load Balancer for this service
   enable_load_balancer = false
 
@@ -198,6 +263,26 @@ module "microservice_2" {
       name  = "SQS_QUEUE_URL"
       value = module.sqs.queue_url
     },
+    {
+      name  = "SQS_HIGH_PRIORITY_QUEUE_URL"
+      value = module.sqs_high.queue_url
+    },
+    {
+      name  = "SQS_BULK_QUEUE_URL"
+      value = module.sqs_bulk.queue_url
+    },
+    {
+      name  = "SQS_SHARD_URLS"
+      value = local.sqs_shard_urls
+    },
+    {
+      name  = "SQS_DRAINING_SHARD_URLS"
+      value = local.sqs_draining_shard_urls
+    },
+    {
+      name  = "SQS_DLQ_URL"
+      value = module.sqs.dlq_url
+    },
     {
       name  = "S3_BUCKET_NAME"
       value = module.s3.bucket_name
@@ -205,10 +290,14 @@ module "microservice_2" {
   ]
 
   # IAM Permissions
-  sqs_queue_arns = [
+  sqs_queue_arns = concat([
     module.sqs.queue_arn,
-    module.sqs.dlq_arn
-  ]
+    module.sqs.dlq_arn,
+    module.sqs_high.queue_arn,
+    module.sqs_high.dlq_arn,
+    module.sqs_bulk.queue_arn,
+    module.sqs_bulk.dlq_arn
+  ], module.sqs.shard_arns)
   ssm_parameter_arns = []
   s3_bucket_arn      = module.s3.bucket_arn
 
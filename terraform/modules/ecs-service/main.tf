@@ -235,6 +235,7 @@ resource "aws_iam_policy" "ecs_task_policy" {
             "sqs:SendMessage",
             "sqs:ReceiveMessage",
             "sqs:DeleteMessage",
+            "sqs:ChangeMessageVisibility",
             "sqs:GetQueueAttributes"
           ]
           Resource = var.sqs_queue_arns
@@ -260,6 +261,34 @@ resource "aws_iam_policy" "ecs_task_policy" {
           ]
           Resource = var.ssm_parameter_arns
         }
+      ] : [],
+      var.backlog_scaling_enabled ? [
+        {
+          Effect   = "Allow"
+          Action   = "cloudwatch:PutMetricData"
+          Resource = "*"
+          Condition = {
+            StringEquals = {
+              "cloudwatch:namespace" = var.custom_metrics_namespace
+            }
+          }
+        },
+        {
+          # ApproximateAgeOfOldestMessage of the lane queues; GetMetricData has no resource-level permissions
+          Effect   = "Allow"
+          Action   = "cloudwatch:GetMetricData"
+          Resource = "*"
+        },
+        {
+          Effect   = "Allow"
+          Action   = "ecs:DescribeServices"
+          Resource = "*"
+          Condition = {
+            ArnEquals = {
+              "ecs:cluster" = var.cluster_id
+            }
+          }
+        }
       ] : []
     )
   })
@@ -278,6 +307,14 @@ resource "aws_iam_role_policy_attachment" "prometheus_remote_write" {
   policy_arn = var.prometheus_remote_write_policy_arn
 }
 
+# The collector sidecar also forwards traces to X-Ray
+resource "aws_iam_role_policy_attachment" "xray_write" {
+  count = var.enable_prometheus ? 1 : 0
+
+  role       = aws_iam_role.ecs_task_role.name
+  policy_arn = "arn:aws:iam::aws:policy/AWSXrayWriteOnlyAccess"
+}
+
 # ECS Task Definition
 resource "aws_ecs_task_definition" "main" {
   family                   = "${var.project_name}-${var.service_name}"
@@ -300,7 +337,35 @@ resource "aws_ecs_task_definition" "main" {
         }
       ] : []
 
-      environment = var.environment_variables
+      # Span export goes to the collector sidecar, so it is only switched on when the sidecar runs;
+      # the backlog metrics feed the backlog scaling policies
+      environment = concat(
+        var.environment_variables,
+        var.enable_prometheus ? [
+          {
+            name  = "TRACING_ENABLED"
+            value = "true"
+          }
+        ] : [],
+        var.backlog_scaling_enabled ? [
+          {
+            name  = "AUTOSCALING_METRICS_ENABLED"
+            value = "true"
+          },
+          {
+            name  = "AUTOSCALING_METRICS_NAMESPACE"
+            value = var.custom_metrics_namespace
+          },
+          {
+            name  = "ECS_CLUSTER_NAME"
+            value = var.cluster_name
+          },
+          {
+            name  = "ECS_SERVICE_NAME"
+            value = "${var.project_name}-${var.service_name}"
+          }
+        ] : []
+      )
 
       logConfiguration = {
         logDriver = "awslogs"
@@ -311,7 +376,17 @@ resource "aws_ecs_task_definition" "main" {
         }
       }
 
-      essential = true
+      # Liveness only: a saturated task reports not-ready to the load balancer but is not restarted for it
+      healthCheck = var.liveness_check_path != "" ? {
+        command     = ["CMD-SHELL", "curl -fs http://localhost:${var.container_port}${var.liveness_check_path} || exit 1"]
+        interval    = 30
+        timeout     = 5
+        retries     = 3
+        startPeriod = 60
+      } : null
+
+      essential   = true
+      stopTimeout = var.stop_timeout
     }
     ],
     var.enable_prometheus ? [
@@ -342,10 +417,16 @@ receivers:
           metrics_path: '/actuator/prometheus'
           static_configs:
             - targets: ['localhost:${var.container_port}']
+  otlp:
+    protocols:
+      http:
+        endpoint: localhost:4318
 
 processors:
   batch:
     timeout: 60s
+  batch/traces:
+    timeout: 5s
   resource:
     attributes:
       - key: service.name
@@ -357,6 +438,8 @@ exporters:
     endpoint: ${var.prometheus_remote_write_url}
     auth:
       authenticator: sigv4auth
+  awsxray:
+    region: ${var.aws_region}
 
 extensions:
   sigv4auth:
@@ -371,6 +454,10 @@ service:
       receivers: [prometheus]
       processors: [batch, resource]
       exporters: [prometheusremotewrite]
+    traces:
+      receivers: [otlp]
+      processors: [batch/traces, resource]
+      exporters: [awsxray]
 EOT
           }
         ]
@@ -453,3 +540,55 @@ resource "aws_appautoscaling_policy" "main" {
   }
 }
 
+# Scale on the backlog the service publishes; CPU stays flat while an I/O-bound consumer falls behind.
+# With several target-tracking policies, the one asking for the most tasks wins.
+resource "aws_appautoscaling_policy" "backlog_per_task" {
+  count = var.backlog_scaling_enabled ? 1 : 0
+
+  name               = "${var.project_name}-${var.service_name}-backlog-per-task"
+  policy_type        = "TargetTrackingScaling"
+  resource_id        = aws_appautoscaling_target.main.resource_id
+  scalable_dimension = aws_appautoscaling_target.main.scalable_dimension
+  service_namespace  = aws_appautoscaling_target.main.service_namespace
+
+  target_tracking_scaling_policy_configuration {
+    customized_metric_specification {
+      metric_name = "BacklogPerTask"
+      namespace   = var.custom_metrics_namespace
+      statistic   = "Average"
+      unit        = "Count"
+
+      dimensions {
+        name  = "ServiceName"
+        value = aws_ecs_service.main.name
+      }
+    }
+    target_value = var.backlog_per_task_target
+  }
+}
+
+resource "aws_appautoscaling_policy" "oldest_message_age" {
+  count = var.backlog_scaling_enabled && var.oldest_message_age_target_seconds > 0 ? 1 : 0
+
+  name               = "${var.project_name}-${var.service_name}-oldest-message-age"
+  policy_type        = "TargetTrackingScaling"
+  resource_id        = aws_appautoscaling_target.main.resource_id
+  scalable_dimension = aws_appautoscaling_target.main.scalable_dimension
+  service_namespace  = aws_appautoscaling_target.main.service_namespace
+
+  target_tracking_scaling_policy_configuration {
+    customized_metric_specification {
+      metric_name = "OldestMessageAge"
+      namespace   = var.custom_metrics_namespace
+      statistic   = "Average"
+      unit        = "Seconds"
+
+      dimensions {
+        name  = "ServiceName"
+        value = aws_ecs_service.main.name
+      }
+    }
+    target_value = var.oldest_message_age_target_seconds
+  }
+}
+
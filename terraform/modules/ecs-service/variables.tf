@@ -87,7 +87,13 @@ variable "enable_load_balancer" {
 }
 
 variable "health_check_path" {
-  description = "Health check path for ALB target group"
+  description = "Health check path for ALB target group; ECS replaces tasks the target group marks unhealthy"
+  type        = string
+  default     = "/api/health"
+}
+
+variable "liveness_check_path" {
+  description = "Path for the container liveness check; empty disables it"
   type        = string
   default     = "/api/health"
 }
@@ -122,6 +128,12 @@ variable "health_check_matcher" {
   default     = "200"
 }
 
+variable "stop_timeout" {
+  description = "Seconds ECS waits after SIGTERM before killing the application container"
+  type        = number
+  default     = 30
+}
+
 variable "log_retention_days" {
   description = "CloudWatch log retention in days"
   type        = number
@@ -167,6 +179,30 @@ variable "autoscaling_target_value" {
   default     = 70.0
 }
 
+variable "backlog_scaling_enabled" {
+  description = "Publish BacklogPerTask and OldestMessageAge from the service and add target-tracking policies on them"
+  type        = bool
+  default     = false
+}
+
+variable "backlog_per_task_target" {
+  description = "Visible messages per running task to hold; roughly per-task throughput times the acceptable delay"
+  type        = number
+  default     = 100
+}
+
+variable "oldest_message_age_target_seconds" {
+  description = "Age of the oldest waiting message to hold, in seconds (0 disables the age policy)"
+  type        = number
+  default     = 0
+}
+
+variable "custom_metrics_namespace" {
+  description = "CloudWatch namespace for the backlog metrics"
+  type        = string
+  default     = "EmailProcessor"
+}
+
 variable "prometheus_remote_write_url" {
   description = "AWS Managed Prometheus remote write endpoint URL"
   type        = string
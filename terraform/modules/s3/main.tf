@@ -40,3 +40,19 @@ resource "aws_s3_bucket_public_access_block" "main" {
   restrict_public_buckets = var.block_public_access
 }
 
+
+# Backstop for multipart uploads whose abort call never reached S3
+resource "aws_s3_bucket_lifecycle_configuration" "main" {
+  bucket = aws_s3_bucket.main.id
+
+  rule {
+    id     = "abort-incomplete-multipart-uploads"
+    status = "Enabled"
+
+    filter {}
+
+    abort_incomplete_multipart_upload {
+      days_after_initiation = var.abort_incomplete_multipart_days
+    }
+  }
+}
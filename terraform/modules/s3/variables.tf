@@ -32,3 +32,8 @@ variable "block_public_access" {
   default     = true
 }
 
+variable "abort_incomplete_multipart_days" {
+  description = "Days after which incomplete multipart uploads are aborted and their parts deleted"
+  type        = number
+  default     = 1
+}
@@ -1,10 +1,20 @@
+locals {
+  # FIFO queue names must end in .fifo
+  name_suffix = var.fifo_queue ? ".fifo" : ""
+}
+
 # SQS Queue
 resource "aws_sqs_queue" "main" {
-  name                       = "${var.project_name}-${var.queue_name}"
+  name                       = "${var.project_name}-${var.queue_name}${local.name_suffix}"
   visibility_timeout_seconds = var.visibility_timeout_seconds
   message_retention_seconds  = var.message_retention_seconds
   receive_wait_time_seconds  = var.receive_wait_time_seconds
 
+  # High-throughput FIFO: ordering and deduplication are scoped to each message group
+  fifo_queue            = var.fifo_queue ? true : null
+  deduplication_scope   = var.fifo_queue ? "messageGroup" : null
+  fifo_throughput_limit = var.fifo_queue ? "perMessageGroupId" : null
+
   tags = {
     Name = "${var.project_name}-${var.queue_name}"
   }
@@ -12,8 +22,9 @@ resource "aws_sqs_queue" "main" {
 
 # SQS Dead Letter Queue
 resource "aws_sqs_queue" "dlq" {
-  name                      = "${var.project_name}-${var.queue_name}-dlq"
+  name                      = "${var.project_name}-${var.queue_name}-dlq${local.name_suffix}"
   message_retention_seconds = var.message_retention_seconds
+  fifo_queue                = var.fifo_queue ? true : null
 
   tags = {
     Name = "${var.project_name}-${var.queue_name}-dlq"
@@ -30,3 +41,33 @@ resource "aws_sqs_queue_redrive_policy" "main" {
   })
 }
 
+
+# Shards: extra queues with the main queue's settings and DLQ, which the services spread the normal lane over.
+# Keyed by name so removing one shard leaves the others in place; drain it first, since deleting it drops its messages.
+resource "aws_sqs_queue" "shard" {
+  for_each = toset(var.shard_names)
+
+  name                       = "${var.project_name}-${var.queue_name}-${each.key}${local.name_suffix}"
+  visibility_timeout_seconds = var.visibility_timeout_seconds
+  message_retention_seconds  = var.message_retention_seconds
+  receive_wait_time_seconds  = var.receive_wait_time_seconds
+
+  fifo_queue            = var.fifo_queue ? true : null
+  deduplication_scope   = var.fifo_queue ? "messageGroup" : null
+  fifo_throughput_limit = var.fifo_queue ? "perMessageGroupId" : null
+
+  tags = {
+    Name = "${var.project_name}-${var.queue_name}-${each.key}"
+  }
+}
+
+resource "aws_sqs_queue_redrive_policy" "shard" {
+  for_each = aws_sqs_queue.shard
+
+  queue_url = each.value.id
+
+  redrive_policy = jsonencode({
+    deadLetterTargetArn = aws_sqs_queue.dlq.arn
+    maxReceiveCount     = var.max_receive_count
+  })
+}
@@ -28,3 +28,13 @@ output "dlq_arn" {
   value       = aws_sqs_queue.dlq.arn
 }
 
+
+output "shard_urls" {
+  description = "URLs of the shard queues, by shard name"
+  value       = { for name, queue in aws_sqs_queue.shard : name => queue.url }
+}
+
+output "shard_arns" {
+  description = "ARNs of the shard queues"
+  value       = [for queue in aws_sqs_queue.shard : queue.arn]
+}
@@ -32,3 +32,15 @@ variable "max_receive_count" {
   default     = 3
 }
 
+
+variable "fifo_queue" {
+  description = "Create FIFO queues (main and DLQ) that keep messages of the same message group in order"
+  type        = bool
+  default     = false
+}
+
+variable "shard_names" {
+  description = "Names of extra shard queues next to the main queue, sharing its DLQ; empty for a single queue"
+  type        = list(string)
+  default     = []
+}
@@ -46,6 +46,17 @@ variable "microservice_1_memory" {
   default     = 1024
 }
 
+variable "microservice_1_web_application_type" {
+  description = "Web stack for microservice 1: servlet (Tomcat) or reactive (WebFlux on Netty)"
+  type        = string
+  default     = "servlet"
+
+  validation {
+    condition     = contains(["servlet", "reactive"], var.microservice_1_web_application_type)
+    error_message = "microservice_1_web_application_type must be servlet or reactive."
+  }
+}
+
 variable "microservice_2_cpu" {
   description = "CPU units for microservice 2 (256, 512, 1024, 2048, 4096)"
   type        = number
@@ -58,6 +69,18 @@ variable "microservice_2_memory" {
   default     = 512
 }
 
+variable "microservice_2_backlog_per_task_target" {
+  description = "Visible messages per microservice-2 task that autoscaling holds"
+  type        = number
+  default     = 100
+}
+
+variable "microservice_2_oldest_message_age_target_seconds" {
+  description = "Age of the oldest waiting message that microservice-2 autoscaling holds, in seconds (0 disables)"
+  type        = number
+  default     = 300
+}
+
 variable "desired_count" {
   description = "Desired number of tasks"
   type        = number
@@ -75,3 +98,32 @@ variable "min_capacity" {
   type        = number
   default     = 1
 }
+
+variable "sqs_fifo_queue" {
+  description = "Use a FIFO main queue so emails from the same sender are stored in arrival order (replaces the queue)"
+  type        = bool
+  default     = false
+}
+
+variable "sqs_shards" {
+  description = "Names of extra queues the normal lane is sharded over, next to the main queue"
+  type        = list(string)
+  default     = []
+}
+
+variable "sqs_draining_shards" {
+  description = "Shards from sqs_shards that get no new messages; remove one from both lists once microservice-2 logs it as drained"
+  type        = list(string)
+  default     = []
+}
+
+variable "sqs_shard_strategy" {
+  description = "How microservice-1 spreads messages over shards: sender-hash keeps each sender on one shard, round-robin spreads evenly"
+  type        = string
+  default     = "sender-hash"
+
+  validation {
+    condition     = contains(["sender-hash", "round-robin"], var.sqs_shard_strategy)
+    error_message = "sqs_shard_strategy must be sender-hash or round-robin."
+  }
+}